@@ -0,0 +1,35 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.store.FeatureStore;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+
+import java.util.Map;
+
+/**
+ * defines a {@link FeatureStore}, which is filled once with given {@link Entity}s and never requests any data
+ *
+ * @param <G> the {@link GeometryObject} type
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class BenchmarkFeatureStore<G extends GeometryObject>
+		extends FeatureStore<G> {
+	/**
+	 * standard constructor
+	 *
+	 * @param type     the {@link GeometryObject} type
+	 * @param entities the {@link Entity}s to store
+	 * @since 0.2.0
+	 */
+	public BenchmarkFeatureStore(Class<G> type, Map<? extends Long, ? extends Entity> entities) {
+		super(type);
+		
+		this.features.putAll(this.convert(entities));
+	}
+	
+	@Override
+	protected void request(GeometryObject spatialFilter) {
+	}
+}
@@ -0,0 +1,73 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * defines the entry point of the benchmarks, which writes the results as JSON by default
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class BenchmarkRunner {
+	/**
+	 * the default file to write the results to
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private BenchmarkRunner() {
+	}
+	
+	/**
+	 * runs the benchmarks with the JMH command line options<br>
+	 * If no result format or file is given, the results will be written as JSON to {@value #DEFAULT_RESULT_FILE}.
+	 *
+	 * @param args the JMH command line options
+	 * @throws CommandLineOptionException if the options couldn't be parsed
+	 * @throws RunnerException            if an error occurred while running the benchmarks
+	 * @throws IOException                if the help couldn't be printed
+	 * @since 0.2.0
+	 */
+	public static void main(String[] args)
+	throws CommandLineOptionException, RunnerException, IOException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+		
+		if (!(cmdOptions.getResultFormat().hasValue())) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!(cmdOptions.getResult().hasValue())) {
+			builder.result(BenchmarkRunner.DEFAULT_RESULT_FILE);
+		}
+		
+		Runner runner = new Runner(builder.build());
+		
+		if (cmdOptions.shouldList()) {
+			runner.list();
+			return;
+		}
+		
+		runner.run();
+	}
+}
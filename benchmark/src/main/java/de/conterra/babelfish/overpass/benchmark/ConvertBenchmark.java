@@ -0,0 +1,112 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.store.FeatureConverter;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polyline;
+import org.openjdk.jmh.annotations.*;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of {@link FeatureConverter#convert(Class, Map)} against the previous implementation
+ * ({@link LegacyFeatureConverter})<br>
+ * Run it with the JMH option {@code -prof gc} to compare the allocation rates as well.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConvertBenchmark {
+	/**
+	 * the simple name of the {@link GeometryObject} type to convert to
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"Point", "Polyline", "Polygon"})
+	public String type;
+	/**
+	 * the number of features to convert
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"1000", "10000", "100000", "500000"})
+	public int    size;
+	
+	/**
+	 * the {@link GeometryObject} type to convert to
+	 *
+	 * @since 0.2.0
+	 */
+	private Class<? extends GeometryObject> geometryType;
+	/**
+	 * the {@link Entity}s to convert
+	 *
+	 * @since 0.2.0
+	 */
+	private Map<Long, Entity>               entities;
+	
+	/**
+	 * gives the {@link GeometryObject} type of a simple name
+	 *
+	 * @param type the simple name
+	 * @return the {@link GeometryObject} type
+	 *
+	 * @since 0.2.0
+	 */
+	static Class<? extends GeometryObject> geometryType(String type) {
+		switch (type) {
+			case "Polyline":
+				return Polyline.class;
+			case "Polygon":
+				return Polygon.class;
+			default:
+				return Point.class;
+		}
+	}
+	
+	/**
+	 * creates the {@link Entity}s to convert
+	 *
+	 * @since 0.2.0
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.geometryType = ConvertBenchmark.geometryType(this.type);
+		this.entities = SyntheticOsm.createEntities(this.geometryType, this.size, new Random(42));
+	}
+	
+	/**
+	 * converts all {@link Entity}s
+	 *
+	 * @return the converted features
+	 *
+	 * @since 0.2.0
+	 */
+	@Benchmark
+	public Object convert() {
+		return FeatureConverter.convert(this.geometryType, this.entities);
+	}
+	
+	/**
+	 * converts all {@link Entity}s with the previous implementation
+	 *
+	 * @return the converted features
+	 *
+	 * @since 0.2.0
+	 */
+	@Benchmark
+	public Object convertLegacy() {
+		return LegacyFeatureConverter.convert(this.geometryType, this.entities);
+	}
+}
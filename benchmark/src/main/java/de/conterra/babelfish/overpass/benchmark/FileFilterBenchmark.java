@@ -0,0 +1,105 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.io.OsmFileFormat;
+import de.conterra.babelfish.overpass.store.FileFeatureStore;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of loading a {@link FileFeatureStore}, which filters the {@link OsmFile} by a tag
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileFilterBenchmark {
+	/**
+	 * the comma separated category values to filter to
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"atm", "atm,bench,cafe"})
+	public String values;
+	/**
+	 * the number of features in the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"30000"})
+	public int    size;
+	
+	/**
+	 * the temporary directory of the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	private File                    directory;
+	/**
+	 * the {@link FileFeatureStore} to load
+	 *
+	 * @since 0.2.0
+	 */
+	private FileFeatureStore<Point> store;
+	
+	/**
+	 * writes the fixture and creates the {@link FileFeatureStore}
+	 *
+	 * @throws IOException if the fixture couldn't be written
+	 * @since 0.2.0
+	 */
+	@Setup(Level.Trial)
+	public void setUp()
+	throws IOException {
+		this.directory = Files.createTempDirectory("babelfish-overpass-benchmark").toFile();
+		
+		File dataFile = new File(this.directory, "data.osm.pbf");
+		SyntheticOsm.writeFile(SyntheticOsm.createMixed(this.size, new Random(42)), dataFile, OsmFileFormat.PBF, CompressionMethod.None);
+		
+		OsmFile file = new OsmFile(dataFile, OsmFileFormat.PBF, CompressionMethod.None, null, false, null, false);
+		this.store = new FileFeatureStore<>(Point.class, file, SyntheticOsm.CATEGORY, new HashSet<>(Arrays.asList(this.values.split(","))), ";");
+	}
+	
+	/**
+	 * removes the fixture
+	 *
+	 * @throws IOException if the fixture couldn't be removed
+	 * @since 0.2.0
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	throws IOException {
+		this.store.clear();
+		FileUtils.deleteDirectory(this.directory);
+	}
+	
+	/**
+	 * loads the {@link FileFeatureStore} from the fixture
+	 *
+	 * @return the loaded features
+	 *
+	 * @since 0.2.0
+	 */
+	@Benchmark
+	public Object load() {
+		this.store.clear();
+		
+		return this.store.getFeatures(null);
+	}
+}
@@ -0,0 +1,285 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.config.OverpassConfigStore;
+import de.conterra.babelfish.overpass.plugin.OverpassFeatureLayer;
+import de.conterra.babelfish.overpass.plugin.OverpassLineLayer;
+import de.conterra.babelfish.overpass.plugin.OverpassNodeLayer;
+import de.conterra.babelfish.overpass.plugin.OverpassPolygonLayer;
+import de.conterra.babelfish.overpass.plugin.OverpassQuery;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Envelope;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * defines a load test, which drives {@link OverpassQuery#execute} of many layers with concurrent clients against a
+ * {@link StubOverpassServer}<br>
+ * All options are given as {@code --name value} pairs, see {@link #DEFAULTS} for the available options and their
+ * default values. At the end the throughput, the latency percentiles, the Overpass API calls and the heap usage will be
+ * reported.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class LoadTest {
+	/**
+	 * the available options and their default values
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  Map<String, String> DEFAULTS     = new LinkedHashMap<>();
+	/**
+	 * the reported latency percentiles
+	 *
+	 * @since 0.2.0
+	 */
+	private static final double[]            PERCENTILES  = {50, 90, 95, 99, 99.9};
+	/**
+	 * the interval to sample the heap usage (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	private static final long                HEAP_SAMPLES = 250;
+	
+	static {
+		LoadTest.DEFAULTS.put("clients", "16");
+		LoadTest.DEFAULTS.put("layers", "9");
+		LoadTest.DEFAULTS.put("warmup", "10");
+		LoadTest.DEFAULTS.put("duration", "60");
+		LoadTest.DEFAULTS.put("viewport", "0.05");
+		LoadTest.DEFAULTS.put("where", "1=1");
+		LoadTest.DEFAULTS.put("port", "0");
+		LoadTest.DEFAULTS.put("recording", "");
+		LoadTest.DEFAULTS.put("latency", "200");
+		LoadTest.DEFAULTS.put("jitter", "100");
+		LoadTest.DEFAULTS.put("rate429", "0.02");
+		LoadTest.DEFAULTS.put("rate504", "0.01");
+		LoadTest.DEFAULTS.put("bandwidth", "0");
+		LoadTest.DEFAULTS.put("density", "20000");
+		LoadTest.DEFAULTS.put("retryDelay", "100");
+	}
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private LoadTest() {
+	}
+	
+	/**
+	 * parses the command line options
+	 *
+	 * @param args the command line arguments
+	 * @return the options (including the default values)
+	 *
+	 * @throws IllegalArgumentException if an unknown option was given or a value is missing
+	 * @since 0.2.0
+	 */
+	private static Map<String, String> parseOptions(String[] args)
+	throws IllegalArgumentException {
+		Map<String, String> res = new LinkedHashMap<>(LoadTest.DEFAULTS);
+		
+		for (int i = 0; i < args.length; i += 2) {
+			String name = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+			
+			if (!(res.containsKey(name)) || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Unknown option or missing value: " + args[i] + "! Available options: " + LoadTest.DEFAULTS);
+			}
+			
+			res.put(name, args[i + 1]);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the layers to query<br>
+	 * The layers are node, line and polygon layers in turn, each one filtered by another category.
+	 *
+	 * @param count the number of layers
+	 * @return the created layers
+	 *
+	 * @since 0.2.0
+	 */
+	private static List<OverpassFeatureLayer<?>> createLayers(int count) {
+		List<OverpassFeatureLayer<?>> res = new ArrayList<>(count);
+		
+		for (int id = 0; id < count; id++) {
+			Set<String> metaFilter = Collections.singleton(SyntheticOsm.CATEGORY + "=" + SyntheticOsm.CATEGORIES[id % (SyntheticOsm.CATEGORIES.length - 1)]);
+			String      name       = "Layer " + id;
+			
+			switch (id % 3) {
+				case 0:
+					res.add(new OverpassNodeLayer(id, name, name, metaFilter, null));
+					break;
+				case 1:
+					res.add(new OverpassLineLayer(id, name, name, metaFilter, null));
+					break;
+				default:
+					res.add(new OverpassPolygonLayer(id, name, name, metaFilter, null));
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * gives a percentile of sorted values
+	 *
+	 * @param sorted     the sorted values
+	 * @param percentile the percentile to give
+	 * @return the value of the percentile (nearest rank) or {@code 0}, if there are no values
+	 *
+	 * @since 0.2.0
+	 */
+	private static long percentile(long[] sorted, double percentile) {
+		if (sorted.length <= 0) {
+			return 0;
+		}
+		
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+	}
+	
+	/**
+	 * runs the load test
+	 *
+	 * @param args the options as {@code --name value} pairs
+	 * @throws IOException          if the {@link StubOverpassServer} couldn't be started
+	 * @throws InterruptedException if the test was interrupted
+	 * @since 0.2.0
+	 */
+	public static void main(String[] args)
+	throws IOException, InterruptedException {
+		Map<String, String> options = LoadTest.parseOptions(args);
+		
+		final int    clients  = Integer.parseInt(options.get("clients"));
+		final long   warmup   = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+		final long   duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+		final double viewport = Double.parseDouble(options.get("viewport"));
+		final String where    = options.get("where");
+		
+		String             recording = options.get("recording");
+		StubOverpassServer server    = new StubOverpassServer(Integer.parseInt(options.get("port")), recording.isEmpty() ? null : new File(recording), Long.parseLong(options.get("latency")), Long.parseLong(options.get("jitter")), Double.parseDouble(options.get("rate429")), Double.parseDouble(options.get("rate504")), Long.parseLong(options.get("bandwidth")), Integer.parseInt(options.get("density")));
+		server.start();
+		
+		System.setProperty(OverpassConfigStore.SERVICE_URL_PROPERTY, server.getServiceUrl());
+		System.setProperty(OverpassConfigStore.RETRY_DELAY_PROPERTY, options.get("retryDelay"));
+		
+		final List<OverpassFeatureLayer<?>> layers = LoadTest.createLayers(Integer.parseInt(options.get("layers")));
+		
+		final MemoryMXBean memory  = ManagementFactory.getMemoryMXBean();
+		final AtomicLong   maxHeap = new AtomicLong();
+		
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		sampler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				long used = memory.getHeapMemoryUsage().getUsed();
+				
+				while (used > maxHeap.get() && !(maxHeap.compareAndSet(maxHeap.get(), used))) {
+				}
+			}
+		}, 0, LoadTest.HEAP_SAMPLES, TimeUnit.MILLISECONDS);
+		
+		final long       measureStart   = System.nanoTime() + warmup;
+		final long       end            = measureStart + duration;
+		final AtomicLong errors         = new AtomicLong();
+		final AtomicLong warmupCalls    = new AtomicLong();
+		final AtomicLong resultFeatures = new AtomicLong();
+		
+		ExecutorService          clientPool = Executors.newFixedThreadPool(clients);
+		List<Future<List<Long>>> futures    = new ArrayList<>(clients);
+		
+		for (int i = 0; i < clients; i++) {
+			futures.add(clientPool.submit(new Callable<List<Long>>() {
+				@Override
+				public List<Long> call() {
+					List<Long>        latencies = new ArrayList<>();
+					ThreadLocalRandom random    = ThreadLocalRandom.current();
+					
+					while (System.nanoTime() < end) {
+						OverpassFeatureLayer<?> layer  = layers.get(random.nextInt(layers.size()));
+						double                  minLat = SyntheticOsm.MIN_LAT + random.nextDouble() * (SyntheticOsm.EXTENT - viewport);
+						double                  minLon = SyntheticOsm.MIN_LON + random.nextDouble() * (SyntheticOsm.EXTENT - viewport);
+						Envelope                bbox   = SyntheticOsm.createEnvelope(minLat, minLon, minLat + viewport, minLon + viewport);
+						
+						long callStart = System.nanoTime();
+						try {
+							Iterable<?> res = layer.getQuery().execute(null, bbox, where);
+							
+							for (Object ignored : res) {
+								resultFeatures.incrementAndGet();
+							}
+						} catch (Exception e) {
+							errors.incrementAndGet();
+						}
+						long callEnd = System.nanoTime();
+						
+						if (callStart >= measureStart) {
+							latencies.add(callEnd - callStart);
+						} else {
+							warmupCalls.incrementAndGet();
+						}
+					}
+					
+					return latencies;
+				}
+			}));
+		}
+		
+		while (System.nanoTime() < measureStart) {
+			Thread.sleep(10);
+		}
+		long overpassCallsAtStart = server.getRequestCount();
+		
+		List<Long> all = new ArrayList<>();
+		for (Future<List<Long>> future : futures) {
+			try {
+				all.addAll(future.get());
+			} catch (ExecutionException e) {
+				errors.incrementAndGet();
+			}
+		}
+		
+		clientPool.shutdown();
+		sampler.shutdown();
+		
+		long[] sorted = new long[all.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = all.get(i);
+		}
+		Arrays.sort(sorted);
+		
+		System.gc();
+		long retainedHeap = memory.getHeapMemoryUsage().getUsed();
+		
+		System.out.println("clients:              " + clients);
+		System.out.println("layers:               " + layers.size());
+		System.out.println("measured calls:       " + sorted.length + " (" + warmupCalls.get() + " warmup calls)");
+		System.out.println("errors:               " + errors.get());
+		System.out.println("returned features:    " + resultFeatures.get());
+		System.out.printf(Locale.ROOT, "throughput:           %.1f calls/s%n", sorted.length / (duration / 1e9));
+		for (double percentile : LoadTest.PERCENTILES) {
+			System.out.printf(Locale.ROOT, "latency p%-5s        %.1f ms%n", percentile + ":", LoadTest.percentile(sorted, percentile) / 1e6);
+		}
+		System.out.printf(Locale.ROOT, "latency max:          %.1f ms%n", (sorted.length > 0 ? sorted[sorted.length - 1] : 0) / 1e6);
+		System.out.println("overpass calls:       " + server.getRequestCount() + " (" + (server.getRequestCount() - overpassCallsAtStart) + " while measuring)");
+		System.out.println("overpass 429 / 504:   " + server.getTooManyRequestsCount() + " / " + server.getGatewayTimeoutCount());
+		System.out.println("overpass bytes:       " + server.getSentBytes());
+		System.out.println("heap max / retained:  " + (maxHeap.get() >> 20) + " MiB / " + (retainedHeap >> 20) + " MiB");
+		
+		server.stop();
+		
+		// the feature stores use a non daemon timer to expire cached areas
+		System.exit(0);
+	}
+}
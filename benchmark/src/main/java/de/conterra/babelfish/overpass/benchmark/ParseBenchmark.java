@@ -0,0 +1,119 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.io.OsmFileFormat;
+import de.conterra.babelfish.overpass.io.OsmSnapshot;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of reading {@link OsmFile}s with {@link OverpassHandler#getFeatures(OsmFile)}<br>
+ * Without {@link #snapshot} the fixture is parsed on every invocation. With it, the {@link OsmSnapshot} written by the
+ * first invocation (while warming up) is read instead.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+	/**
+	 * the {@link OsmFileFormat} of the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"XML", "PBF"})
+	public OsmFileFormat     format;
+	/**
+	 * the {@link CompressionMethod} of the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"None", "GZip", "BZip2"})
+	public CompressionMethod compression;
+	/**
+	 * the number of features in the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"30000"})
+	public int               size;
+	/**
+	 * {@code true} to read the {@link OsmSnapshot} of the fixture instead of parsing it
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"false", "true"})
+	public boolean           snapshot;
+	
+	/**
+	 * the temporary directory of the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	private File    directory;
+	/**
+	 * the fixture
+	 *
+	 * @since 0.2.0
+	 */
+	private OsmFile file;
+	
+	/**
+	 * writes the fixture
+	 *
+	 * @throws IOException if the fixture couldn't be written
+	 * @since 0.2.0
+	 */
+	@Setup(Level.Trial)
+	public void setUp()
+	throws IOException {
+		this.directory = Files.createTempDirectory("babelfish-overpass-benchmark").toFile();
+		
+		File dataFile = new File(this.directory, "data.osm");
+		SyntheticOsm.writeFile(SyntheticOsm.createMixed(this.size, new Random(42)), dataFile, this.format, this.compression);
+		
+		this.file = new OsmFile(dataFile, this.format, this.compression, null, false, null, this.snapshot);
+	}
+	
+	/**
+	 * removes the fixture
+	 *
+	 * @throws IOException if the fixture couldn't be removed
+	 * @since 0.2.0
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	throws IOException {
+		FileUtils.deleteDirectory(this.directory);
+	}
+	
+	/**
+	 * reads all {@link Entity}s of the fixture
+	 *
+	 * @return the read {@link Entity}s
+	 *
+	 * @throws IOException if the fixture couldn't be read
+	 * @since 0.2.0
+	 */
+	@Benchmark
+	public Map<? extends Long, ? extends Entity> getFeatures()
+	throws IOException {
+		return OverpassHandler.getFeatures(this.file);
+	}
+}
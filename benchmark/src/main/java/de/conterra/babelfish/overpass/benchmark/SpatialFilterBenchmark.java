@@ -0,0 +1,92 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import de.conterra.babelfish.overpass.store.FeatureStore;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Envelope;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of {@link FeatureStore#getFeatures(GeometryObject)}
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpatialFilterBenchmark {
+	/**
+	 * the simple name of the {@link GeometryObject} type of the store
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"Point", "Polyline"})
+	public String type;
+	/**
+	 * the number of stored features
+	 *
+	 * @since 0.2.0
+	 */
+	@Param({"1000", "10000", "100000"})
+	public int    size;
+	
+	/**
+	 * the {@link FeatureStore} to filter
+	 *
+	 * @since 0.2.0
+	 */
+	private FeatureStore<?> store;
+	/**
+	 * the spatial filter, which covers about a tenth of the stored area
+	 *
+	 * @since 0.2.0
+	 */
+	private Envelope        filter;
+	
+	/**
+	 * fills the {@link FeatureStore}
+	 *
+	 * @since 0.2.0
+	 */
+	@Setup(Level.Trial)
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void setUp() {
+		Class<? extends GeometryObject> geometryType = ConvertBenchmark.geometryType(this.type);
+		
+		this.store = new BenchmarkFeatureStore(geometryType, SyntheticOsm.createEntities(geometryType, this.size, new Random(42)));
+		
+		double extent = SyntheticOsm.EXTENT * Math.sqrt(0.1);
+		double minLat = SyntheticOsm.MIN_LAT + SyntheticOsm.EXTENT * 0.3;
+		double minLon = SyntheticOsm.MIN_LON + SyntheticOsm.EXTENT * 0.3;
+		this.filter = SyntheticOsm.createEnvelope(minLat, minLon, minLat + extent, minLon + extent);
+	}
+	
+	/**
+	 * clears the {@link FeatureStore}
+	 *
+	 * @since 0.2.0
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.store.clear();
+	}
+	
+	/**
+	 * filters the stored features
+	 *
+	 * @return the matching features
+	 *
+	 * @since 0.2.0
+	 */
+	@Benchmark
+	public Object getFeatures() {
+		return this.store.getFeatures(this.filter);
+	}
+}
@@ -0,0 +1,372 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import org.apache.commons.io.FileUtils;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * defines a local HTTP server, which answers requests like the Overpass API<br>
+ * The responses are either a recorded PBF file or synthetic {@link Entity}s inside of the requested bounding box. The
+ * latency, the rate of HTTP 429 and 504 errors and the bandwidth could be configured to simulate a loaded server.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class StubOverpassServer {
+	/**
+	 * the path of the service (used as service URL of the plugin)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  String  SERVICE_PATH = "/api/";
+	/**
+	 * {@link Pattern} of the bounding box in an Overpass API script
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Pattern BBOX_PATTERN = Pattern.compile("\\((-?[0-9.]+),(-?[0-9.]+),(-?[0-9.]+),(-?[0-9.]+)\\)");
+	
+	/**
+	 * the underlying {@link HttpServer}
+	 *
+	 * @since 0.2.0
+	 */
+	private final HttpServer      server;
+	/**
+	 * the {@link ExecutorService} to handle the requests
+	 *
+	 * @since 0.2.0
+	 */
+	private final ExecutorService executor;
+	/**
+	 * the recorded response, which will be delivered on every request ({@code null} to create synthetic responses)
+	 *
+	 * @since 0.2.0
+	 */
+	private final byte[]          recording;
+	/**
+	 * the base latency of every response (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	private final long            latency;
+	/**
+	 * the maximum random latency, which will be added to the base latency (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	private final long            jitter;
+	/**
+	 * the probability of a HTTP 429 (too many requests) response
+	 *
+	 * @since 0.2.0
+	 */
+	private final double          tooManyRequestsRate;
+	/**
+	 * the probability of a HTTP 504 (gateway timeout) response
+	 *
+	 * @since 0.2.0
+	 */
+	private final double          gatewayTimeoutRate;
+	/**
+	 * the bandwidth of every response (in bytes per second, {@code 0} for unlimited)
+	 *
+	 * @since 0.2.0
+	 */
+	private final long            bandwidth;
+	/**
+	 * the number of synthetic features per square degree
+	 *
+	 * @since 0.2.0
+	 */
+	private final int             density;
+	
+	/**
+	 * the next identifier of synthetic {@link Entity}s
+	 *
+	 * @since 0.2.0
+	 */
+	private final AtomicLong nextId               = new AtomicLong(1);
+	/**
+	 * the number of received requests
+	 *
+	 * @since 0.2.0
+	 */
+	private final AtomicLong requestCount         = new AtomicLong();
+	/**
+	 * the number of HTTP 429 responses
+	 *
+	 * @since 0.2.0
+	 */
+	private final AtomicLong tooManyRequestsCount = new AtomicLong();
+	/**
+	 * the number of HTTP 504 responses
+	 *
+	 * @since 0.2.0
+	 */
+	private final AtomicLong gatewayTimeoutCount  = new AtomicLong();
+	/**
+	 * the number of sent bytes
+	 *
+	 * @since 0.2.0
+	 */
+	private final AtomicLong sentBytes            = new AtomicLong();
+	
+	/**
+	 * constructor, with all configuration values
+	 *
+	 * @param port                the port to listen on ({@code 0} to use any free port)
+	 * @param recording           the recorded PBF file, which will be delivered on every request ({@code null} to create
+	 *                            synthetic responses)
+	 * @param latency             the base latency of every response (in milliseconds)
+	 * @param jitter              the maximum random latency, which will be added to the base latency (in milliseconds)
+	 * @param tooManyRequestsRate the probability of a HTTP 429 (too many requests) response
+	 * @param gatewayTimeoutRate  the probability of a HTTP 504 (gateway timeout) response
+	 * @param bandwidth           the bandwidth of every response (in bytes per second, {@code 0} for unlimited)
+	 * @param density             the number of synthetic features per square degree
+	 * @throws IOException if the server couldn't be created or the recording couldn't be read
+	 * @since 0.2.0
+	 */
+	public StubOverpassServer(int port, File recording, long latency, long jitter, double tooManyRequestsRate, double gatewayTimeoutRate, long bandwidth, int density)
+	throws IOException {
+		this.recording = recording == null ? null : FileUtils.readFileToByteArray(recording);
+		this.latency = latency;
+		this.jitter = jitter;
+		this.tooManyRequestsRate = tooManyRequestsRate;
+		this.gatewayTimeoutRate = gatewayTimeoutRate;
+		this.bandwidth = bandwidth;
+		this.density = density;
+		
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = Executors.newCachedThreadPool();
+		
+		this.server.setExecutor(this.executor);
+		this.server.createContext(StubOverpassServer.SERVICE_PATH + "interpreter", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange)
+			throws IOException {
+				try {
+					StubOverpassServer.this.handle(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * starts the server
+	 *
+	 * @since 0.2.0
+	 */
+	public void start() {
+		this.server.start();
+	}
+	
+	/**
+	 * stops the server
+	 *
+	 * @since 0.2.0
+	 */
+	public void stop() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+	
+	/**
+	 * gives the service URL, which should be used by the plugin
+	 *
+	 * @return the service URL
+	 *
+	 * @since 0.2.0
+	 */
+	public String getServiceUrl() {
+		InetSocketAddress address = this.server.getAddress();
+		
+		return "http://" + address.getHostString() + ":" + address.getPort() + StubOverpassServer.SERVICE_PATH;
+	}
+	
+	/**
+	 * gives the number of received requests
+	 *
+	 * @return the number of received requests
+	 *
+	 * @since 0.2.0
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+	
+	/**
+	 * gives the number of HTTP 429 responses
+	 *
+	 * @return the number of HTTP 429 responses
+	 *
+	 * @since 0.2.0
+	 */
+	public long getTooManyRequestsCount() {
+		return this.tooManyRequestsCount.get();
+	}
+	
+	/**
+	 * gives the number of HTTP 504 responses
+	 *
+	 * @return the number of HTTP 504 responses
+	 *
+	 * @since 0.2.0
+	 */
+	public long getGatewayTimeoutCount() {
+		return this.gatewayTimeoutCount.get();
+	}
+	
+	/**
+	 * gives the number of sent bytes
+	 *
+	 * @return the number of sent bytes
+	 *
+	 * @since 0.2.0
+	 */
+	public long getSentBytes() {
+		return this.sentBytes.get();
+	}
+	
+	/**
+	 * handles a request
+	 *
+	 * @param exchange the {@link HttpExchange} of the request
+	 * @throws IOException if the response couldn't be sent
+	 * @since 0.2.0
+	 */
+	private void handle(HttpExchange exchange)
+	throws IOException {
+		this.requestCount.incrementAndGet();
+		
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		
+		try {
+			Thread.sleep(this.latency + (this.jitter > 0 ? random.nextLong(this.jitter + 1) : 0));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		
+		double failure = random.nextDouble();
+		if (failure < this.tooManyRequestsRate) {
+			this.tooManyRequestsCount.incrementAndGet();
+			exchange.sendResponseHeaders(429, -1);
+			return;
+		} else if (failure < this.tooManyRequestsRate + this.gatewayTimeoutRate) {
+			this.gatewayTimeoutCount.incrementAndGet();
+			exchange.sendResponseHeaders(504, -1);
+			return;
+		}
+		
+		String script = StubOverpassServer.getScript(exchange.getRequestURI().getRawQuery());
+		if (script == null) {
+			exchange.sendResponseHeaders(400, -1);
+			return;
+		}
+		
+		byte[] body = this.recording == null ? this.createResponse(script, random) : this.recording;
+		exchange.sendResponseHeaders(200, body.length);
+		
+		OutputStream outputStream = exchange.getResponseBody();
+		int          chunkSize    = this.bandwidth > 0 ? (int) Math.max(1, Math.min(body.length, this.bandwidth / 10)) : body.length;
+		
+		for (int offset = 0; offset < body.length; offset += chunkSize) {
+			int length = Math.min(chunkSize, body.length - offset);
+			outputStream.write(body, offset, length);
+			this.sentBytes.addAndGet(length);
+			
+			if (this.bandwidth > 0) {
+				try {
+					Thread.sleep(length * 1000L / this.bandwidth);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		
+		outputStream.close();
+	}
+	
+	/**
+	 * extracts the Overpass API script of a query string
+	 *
+	 * @param query the raw query string of the request
+	 * @return the decoded script or {@code null}, if the query contains no script
+	 *
+	 * @throws IOException if the script couldn't be decoded
+	 * @since 0.2.0
+	 */
+	private static String getScript(String query)
+	throws IOException {
+		if (query == null) {
+			return null;
+		}
+		
+		for (String parameter : query.split("&")) {
+			if (parameter.startsWith("data=")) {
+				return URLDecoder.decode(parameter.substring(5), "UTF-8");
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * creates a synthetic response of a script<br>
+	 * Scripts starting with {@code way} will be answered with closed ways, all others with nodes.
+	 *
+	 * @param script the Overpass API script
+	 * @param random the {@link ThreadLocalRandom} to place the features
+	 * @return the PBF encoded response
+	 *
+	 * @since 0.2.0
+	 */
+	private byte[] createResponse(String script, ThreadLocalRandom random) {
+		double minLat = SyntheticOsm.MIN_LAT;
+		double minLon = SyntheticOsm.MIN_LON;
+		double maxLat = SyntheticOsm.MIN_LAT + SyntheticOsm.EXTENT;
+		double maxLon = SyntheticOsm.MIN_LON + SyntheticOsm.EXTENT;
+		
+		Matcher matcher = StubOverpassServer.BBOX_PATTERN.matcher(script);
+		if (matcher.find()) {
+			minLat = Double.parseDouble(matcher.group(1));
+			minLon = Double.parseDouble(matcher.group(2));
+			maxLat = Double.parseDouble(matcher.group(3));
+			maxLon = Double.parseDouble(matcher.group(4));
+		}
+		
+		int  count   = (int) Math.max(1, Math.round(this.density * (maxLat - minLat) * (maxLon - minLon)));
+		long firstId = this.nextId.getAndAdd((long) count * (SyntheticOsm.WAY_NODES + 1));
+		
+		Map<Long, Entity> entities = SyntheticOsm.createEntities(script.startsWith("way") ? Polygon.class : Point.class, count, random, minLat, minLon, maxLat, maxLon, firstId);
+		
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		SyntheticOsm.writePbf(entities.values(), outputStream);
+		
+		return outputStream.toByteArray();
+	}
+}
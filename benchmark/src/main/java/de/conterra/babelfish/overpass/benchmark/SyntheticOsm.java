@@ -0,0 +1,362 @@
+package de.conterra.babelfish.overpass.benchmark;
+
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import crosby.binary.osmosis.OsmosisSerializer;
+import de.conterra.babelfish.overpass.io.OsmFileFormat;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Envelope;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polyline;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.geotools.geometry.GeneralDirectPosition;
+import org.geotools.geometry.iso.coordinate.EnvelopeImpl;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.XmlWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * defines a generator of synthetic OpenStreetMap data, used as benchmark fixtures
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public final class SyntheticOsm {
+	/**
+	 * the southern border of the generated data
+	 *
+	 * @since 0.2.0
+	 */
+	public static final double   MIN_LAT    = 51.0;
+	/**
+	 * the western border of the generated data
+	 *
+	 * @since 0.2.0
+	 */
+	public static final double   MIN_LON    = 7.0;
+	/**
+	 * the extent of the generated data in both directions (in degrees)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final double   EXTENT     = 1.0;
+	/**
+	 * the key of the category {@link Tag}
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String   CATEGORY   = "amenity";
+	/**
+	 * the values of the category {@link Tag}, which will be assigned in turn
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String[] CATEGORIES = {"atm", "bench", "toilets", "bank", "cafe", "atm;bank"};
+	/**
+	 * the number of nodes of every generated line
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int      WAY_NODES  = 10;
+	
+	/**
+	 * the user of all generated {@link Entity}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final OsmUser USER      = new OsmUser(1, "benchmark");
+	/**
+	 * the timestamp of all generated {@link Entity}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Date    TIMESTAMP = new Date(1500000000000L);
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private SyntheticOsm() {
+	}
+	
+	/**
+	 * creates the common data of an {@link Entity}
+	 *
+	 * @param id   the identifier
+	 * @param tags the {@link Tag}s
+	 * @return the created {@link CommonEntityData}
+	 *
+	 * @since 0.2.0
+	 */
+	private static CommonEntityData createData(long id, Collection<Tag> tags) {
+		return new CommonEntityData(id, 1, SyntheticOsm.TIMESTAMP, SyntheticOsm.USER, id, tags);
+	}
+	
+	/**
+	 * creates the {@link Tag}s of a feature
+	 *
+	 * @param index the index of the feature
+	 * @return the created {@link Tag}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static List<Tag> createTags(long index) {
+		List<Tag> tags = new ArrayList<>();
+		tags.add(new Tag(SyntheticOsm.CATEGORY, SyntheticOsm.CATEGORIES[(int) (index % SyntheticOsm.CATEGORIES.length)]));
+		tags.add(new Tag("name", "Feature " + index));
+		tags.add(new Tag("operator", index % 2 == 0 ? "Sparkasse" : "Volksbank"));
+		
+		return tags;
+	}
+	
+	/**
+	 * creates synthetic {@link Entity}s, which will be converted to {@code count} features of the given type<br>
+	 * Lines and polygons are created with untagged vertex {@link Node}s.
+	 *
+	 * @param type   the {@link GeometryObject} type of the features
+	 * @param count  the number of features
+	 * @param random the {@link Random} to place the features
+	 * @return a {@link Map} of all created {@link Entity}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static Map<Long, Entity> createEntities(Class<? extends GeometryObject> type, int count, Random random) {
+		return SyntheticOsm.createEntities(type, count, random, SyntheticOsm.MIN_LAT, SyntheticOsm.MIN_LON, SyntheticOsm.MIN_LAT + SyntheticOsm.EXTENT, SyntheticOsm.MIN_LON + SyntheticOsm.EXTENT, 1);
+	}
+	
+	/**
+	 * creates synthetic {@link Entity}s inside of the given bounds, which will be converted to {@code count} features of
+	 * the given type<br>
+	 * Lines and polygons are created with untagged vertex {@link Node}s.
+	 *
+	 * @param type    the {@link GeometryObject} type of the features
+	 * @param count   the number of features
+	 * @param random  the {@link Random} to place the features
+	 * @param minLat  the southern border
+	 * @param minLon  the western border
+	 * @param maxLat  the northern border
+	 * @param maxLon  the eastern border
+	 * @param firstId the first identifier to use (for {@link Node}s and {@link Way}s each)
+	 * @return a {@link Map} of all created {@link Entity}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static Map<Long, Entity> createEntities(Class<? extends GeometryObject> type, int count, Random random, double minLat, double minLon, double maxLat, double maxLon, long firstId) {
+		Map<Long, Entity> res       = new LinkedHashMap<>();
+		long              nodeId    = firstId;
+		double            latExtent = maxLat - minLat;
+		double            lonExtent = maxLon - minLon;
+		
+		if (!(Polyline.class.isAssignableFrom(type) || Polygon.class.isAssignableFrom(type))) {
+			for (long i = 0; i < count; i++, nodeId++) {
+				res.put(nodeId, new Node(SyntheticOsm.createData(nodeId, SyntheticOsm.createTags(i)), minLat + random.nextDouble() * latExtent, minLon + random.nextDouble() * lonExtent));
+			}
+			
+			return res;
+		}
+		
+		boolean   closed = Polygon.class.isAssignableFrom(type);
+		List<Way> ways   = new ArrayList<>(count);
+		double    step   = SyntheticOsm.EXTENT / 1000;
+		
+		for (long i = 0; i < count; i++) {
+			double        lat      = minLat + random.nextDouble() * latExtent;
+			double        lon      = minLon + random.nextDouble() * lonExtent;
+			List<WayNode> wayNodes = new ArrayList<>(SyntheticOsm.WAY_NODES + 1);
+			
+			for (int j = 0; j < SyntheticOsm.WAY_NODES; j++, nodeId++) {
+				double angle   = 2 * Math.PI * j / SyntheticOsm.WAY_NODES;
+				double nodeLat = closed ? lat + Math.sin(angle) * step : lat + j * step;
+				double nodeLon = closed ? lon + Math.cos(angle) * step : lon + random.nextDouble() * step;
+				
+				res.put(nodeId, new Node(SyntheticOsm.createData(nodeId, new ArrayList<Tag>()), nodeLat, nodeLon));
+				wayNodes.add(new WayNode(nodeId));
+			}
+			
+			if (closed) {
+				wayNodes.add(wayNodes.get(0));
+			}
+			
+			ways.add(new Way(SyntheticOsm.createData(firstId + i, SyntheticOsm.createTags(i)), wayNodes));
+		}
+		
+		for (Way way : ways) {
+			res.put(way.getId(), way);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates synthetic {@link Entity}s of tagged points, lines and polygons (each one third of {@code count})
+	 *
+	 * @param count  the number of features
+	 * @param random the {@link Random} to place the features
+	 * @return a {@link List} of all created {@link Entity}s (in the order of an OpenStreetMap file)
+	 *
+	 * @since 0.2.0
+	 */
+	public static List<Entity> createMixed(int count, Random random) {
+		List<Node> nodes = new ArrayList<>();
+		List<Way>  ways  = new ArrayList<>();
+		
+		long nodeOffset = 0;
+		long wayOffset  = 0;
+		
+		for (Class<? extends GeometryObject> type : Arrays.asList(de.conterra.babelfish.plugin.v10_02.object.geometry.Point.class, Polyline.class, Polygon.class)) {
+			long maxNodeId = nodeOffset;
+			long maxWayId  = wayOffset;
+			
+			for (Entity entity : SyntheticOsm.createEntities(type, count / 3, random).values()) {
+				if (entity instanceof Node) {
+					Node node = (Node) entity;
+					long id   = node.getId() + nodeOffset;
+					
+					nodes.add(new Node(SyntheticOsm.createData(id, node.getTags()), node.getLatitude(), node.getLongitude()));
+					maxNodeId = Math.max(maxNodeId, id);
+				} else if (entity instanceof Way) {
+					Way           way      = (Way) entity;
+					long          id       = way.getId() + wayOffset;
+					List<WayNode> wayNodes = new ArrayList<>(way.getWayNodes().size());
+					
+					for (WayNode wayNode : way.getWayNodes()) {
+						wayNodes.add(new WayNode(wayNode.getNodeId() + nodeOffset));
+					}
+					
+					ways.add(new Way(SyntheticOsm.createData(id, way.getTags()), wayNodes));
+					maxWayId = Math.max(maxWayId, id);
+				}
+			}
+			
+			nodeOffset = maxNodeId;
+			wayOffset = maxWayId;
+		}
+		
+		List<Entity> res = new ArrayList<>(nodes.size() + ways.size());
+		res.addAll(nodes);
+		res.addAll(ways);
+		
+		return res;
+	}
+	
+	/**
+	 * wraps an {@link Entity} into an {@link EntityContainer}
+	 *
+	 * @param entity the {@link Entity} to wrap
+	 * @return the {@link EntityContainer}
+	 *
+	 * @since 0.2.0
+	 */
+	private static EntityContainer toContainer(Entity entity) {
+		if (entity instanceof Way) {
+			return new WayContainer((Way) entity);
+		} else if (entity instanceof Relation) {
+			return new RelationContainer((Relation) entity);
+		}
+		
+		return new NodeContainer((Node) entity);
+	}
+	
+	/**
+	 * writes {@link Entity}s to an OpenStreetMap file
+	 *
+	 * @param entities    the {@link Entity}s to write (nodes before ways before relations)
+	 * @param file        the {@link File} to write to
+	 * @param format      the {@link OsmFileFormat} to use
+	 * @param compression the {@link CompressionMethod} to use
+	 * @throws IOException if the {@link File} couldn't be written
+	 * @since 0.2.0
+	 */
+	public static void writeFile(Collection<? extends Entity> entities, File file, OsmFileFormat format, CompressionMethod compression)
+	throws IOException {
+		if (format == OsmFileFormat.XML) {
+			SyntheticOsm.write(entities, new XmlWriter(file, compression));
+			return;
+		}
+		
+		OutputStream outputStream = new FileOutputStream(file);
+		
+		switch (compression) {
+			case GZip:
+				outputStream = new GZIPOutputStream(outputStream);
+				break;
+			case BZip2:
+				outputStream = new BZip2CompressorOutputStream(outputStream);
+				break;
+			default:
+		}
+		
+		try {
+			SyntheticOsm.writePbf(entities, outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+	
+	/**
+	 * writes {@link Entity}s in the PBF format to an {@link OutputStream}, like the Overpass API delivers them
+	 *
+	 * @param entities     the {@link Entity}s to write
+	 * @param outputStream the {@link OutputStream} to write to (will be closed afterwards)
+	 * @since 0.2.0
+	 */
+	public static void writePbf(Collection<? extends Entity> entities, OutputStream outputStream) {
+		SyntheticOsm.write(entities, new OsmosisSerializer(new BlockOutputStream(outputStream)));
+	}
+	
+	/**
+	 * writes {@link Entity}s to a {@link Sink}
+	 *
+	 * @param entities the {@link Entity}s to write
+	 * @param sink     the {@link Sink} to write to
+	 * @since 0.2.0
+	 */
+	private static void write(Collection<? extends Entity> entities, Sink sink) {
+		try {
+			for (Entity entity : entities) {
+				sink.process(SyntheticOsm.toContainer(entity));
+			}
+			
+			sink.complete();
+		} finally {
+			sink.release();
+		}
+	}
+	
+	/**
+	 * creates an {@link Envelope} in the OpenStreetMap CRS
+	 *
+	 * @param minLat the southern border
+	 * @param minLon the western border
+	 * @param maxLat the northern border
+	 * @param maxLon the eastern border
+	 * @return the created {@link Envelope}
+	 *
+	 * @since 0.2.0
+	 */
+	public static Envelope createEnvelope(double minLat, double minLon, double maxLat, double maxLon) {
+		GeneralDirectPosition lowerCorner = new GeneralDirectPosition(OverpassHandler.OSM_CRS);
+		GeneralDirectPosition upperCorner = new GeneralDirectPosition(OverpassHandler.OSM_CRS);
+		
+		lowerCorner.setOrdinate(0, minLat);
+		lowerCorner.setOrdinate(1, minLon);
+		upperCorner.setOrdinate(0, maxLat);
+		upperCorner.setOrdinate(1, maxLon);
+		
+		return new Envelope(new EnvelopeImpl(lowerCorner, upperCorner));
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * package of JMH benchmarks of the hot paths
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+package de.conterra.babelfish.overpass.benchmark;
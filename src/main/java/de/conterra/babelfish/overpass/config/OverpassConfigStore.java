@@ -20,6 +20,36 @@ import java.net.URL;
  */
 @Slf4j
 public class OverpassConfigStore {
+	/**
+	 * name of the system property to override the {@link URL} to the Overpass service
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String SERVICE_URL_PROPERTY     = "babelfish.overpass.serviceUrl";
+	/**
+	 * name of the system property to override the time to wait before retry an Overpass request
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String RETRY_DELAY_PROPERTY     = "babelfish.overpass.retryDelay";
+	/**
+	 * name of the system property to override the timeout of a Overpass request
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String REQUEST_TIMEOUT_PROPERTY = "babelfish.overpass.requestTimeout";
+	/**
+	 * name of the system property to override the number of threads, which load file layers in the background
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String LOADING_THREADS_PROPERTY = "babelfish.overpass.loadingThreads";
+	/**
+	 * name of the system property to override the time a query waits for a loading layer
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String LOADING_TIMEOUT_PROPERTY = "babelfish.overpass.loadingTimeout";
 	/**
 	 * {@link URL} to the Overpass service
 	 *
@@ -38,11 +68,25 @@ public class OverpassConfigStore {
 	 * @since 0.1.0
 	 */
 	public static final int    REQUEST_TIMEOUT;
+	/**
+	 * the number of threads, which load the layers of OpenStreetMap files in the background
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int    LOADING_THREADS;
+	/**
+	 * the time a query waits for a layer, which is still loading (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final long   LOADING_TIMEOUT;
 	
 	static {
 		String serviceUrl     = "http://overpass-api.de/api/";
 		long   retryDelay     = 1000;
 		int    requestTimeout = 30;
+		int    loadingThreads = 2;
+		long   loadingTimeout = 30000;
 		
 		try {
 			File configFile = new File(new File(PluginAdapter.getPluginFolder(OverpassPlugin.INSTANCE).toURI()), "config.xml");
@@ -55,13 +99,23 @@ public class OverpassConfigStore {
 			serviceUrl = config.getServiceUrl();
 			retryDelay = config.getRetryDelay();
 			requestTimeout = config.getRequestTimeout();
+			loadingThreads = config.getLoadingThreads();
+			loadingTimeout = config.getLoadingTimeout();
 		} catch (NullPointerException | URISyntaxException | JAXBException | ClassCastException e) {
 			log.warn("Not able to load configuration file! Using standard values instead.", e);
 		}
 		
+		serviceUrl = System.getProperty(OverpassConfigStore.SERVICE_URL_PROPERTY, serviceUrl);
+		retryDelay = Long.getLong(OverpassConfigStore.RETRY_DELAY_PROPERTY, retryDelay);
+		requestTimeout = Integer.getInteger(OverpassConfigStore.REQUEST_TIMEOUT_PROPERTY, requestTimeout);
+		loadingThreads = Integer.getInteger(OverpassConfigStore.LOADING_THREADS_PROPERTY, loadingThreads);
+		loadingTimeout = Long.getLong(OverpassConfigStore.LOADING_TIMEOUT_PROPERTY, loadingTimeout);
+		
 		SERVICE_URL = serviceUrl;
 		RETRY_DELAY = retryDelay;
 		REQUEST_TIMEOUT = requestTimeout;
+		LOADING_THREADS = loadingThreads;
+		LOADING_TIMEOUT = loadingTimeout;
 		
 		log.debug("Using Overpass service on " + serviceUrl);
 	}
@@ -6,7 +6,12 @@ import lombok.Getter;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * defines a {@link File}, which contains OpenStreetMap data
@@ -16,6 +21,24 @@ import java.io.FileNotFoundException;
  * @since 0.2.0
  */
 public class OsmFile {
+	/**
+	 * the suffixes of osmChange {@link File}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String[]   CHANGE_SUFFIXES    = {".osc", ".osc.gz", ".osc.bz2"};
+	/**
+	 * a {@link FileFilter}, which accepts osmChange {@link File}s only
+	 *
+	 * @since 0.2.0
+	 */
+	public static final FileFilter CHANGE_FILE_FILTER = new FileFilter() {
+		@Override
+		public boolean accept(File pathname) {
+			return OsmFile.isChangeFile(pathname);
+		}
+	};
+	
 	/**
 	 * the data {@link File}
 	 *
@@ -37,6 +60,75 @@ public class OsmFile {
 	 */
 	@Getter
 	private final CompressionMethod compression;
+	/**
+	 * the directory of the osmChange {@link File}s ({@code null}, if there are no changes)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final File              changesDirectory;
+	/**
+	 * {@code true}, if {@code dataFile} and {@code changesDirectory} should be watched for modifications
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final boolean           watched;
+	/**
+	 * the {@link OsmFileFilter} to read {@code dataFile} with ({@code null}, if all features should be read)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final OsmFileFilter     filter;
+	/**
+	 * {@code true}, if snapshots of {@code dataFile} should be read and written (see {@link OsmSnapshot})
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final boolean           snapshot;
+	
+	/**
+	 * constructor, with all given information
+	 *
+	 * @param dataFile         the data {@link File}
+	 * @param fileFormat       the {@link OsmFileFormat} of {@code dataFile}
+	 * @param compression      the {@link CompressionMethod} of {@code dataFile}
+	 * @param changesDirectory the directory of the osmChange {@link File}s ({@code null}, if there are no changes)
+	 * @param watched          {@code true}, if {@code dataFile} and {@code changesDirectory} should be watched for
+	 *                         modifications
+	 * @param filter           the {@link OsmFileFilter} to read {@code dataFile} with ({@code null}, if all features
+	 *                         should be read)
+	 * @param snapshot         {@code true}, if snapshots of {@code dataFile} should be read and written
+	 * @since 0.2.0
+	 */
+	public OsmFile(File dataFile, OsmFileFormat fileFormat, CompressionMethod compression, File changesDirectory, boolean watched, OsmFileFilter filter, boolean snapshot) {
+		this.dataFile = dataFile;
+		this.fileFormat = fileFormat;
+		this.compression = compression;
+		this.changesDirectory = changesDirectory;
+		this.watched = watched;
+		this.filter = filter;
+		this.snapshot = snapshot;
+	}
+	
+	/**
+	 * constructor, with snapshots
+	 *
+	 * @param dataFile         the data {@link File}
+	 * @param fileFormat       the {@link OsmFileFormat} of {@code dataFile}
+	 * @param compression      the {@link CompressionMethod} of {@code dataFile}
+	 * @param changesDirectory the directory of the osmChange {@link File}s ({@code null}, if there are no changes)
+	 * @param watched          {@code true}, if {@code dataFile} and {@code changesDirectory} should be watched for
+	 *                         modifications
+	 * @param filter           the {@link OsmFileFilter} to read {@code dataFile} with ({@code null}, if all features
+	 *                         should be read)
+	 * @since 0.2.0
+	 */
+	public OsmFile(File dataFile, OsmFileFormat fileFormat, CompressionMethod compression, File changesDirectory, boolean watched, OsmFileFilter filter) {
+		this(dataFile, fileFormat, compression, changesDirectory, watched, filter, true);
+	}
 	
 	/**
 	 * standard constructor
@@ -47,16 +139,15 @@ public class OsmFile {
 	 * @since 0.2.0
 	 */
 	public OsmFile(File dataFile, OsmFileFormat fileFormat, CompressionMethod compression) {
-		this.dataFile = dataFile;
-		this.fileFormat = fileFormat;
-		this.compression = compression;
+		this(dataFile, fileFormat, compression, null, false, null);
 	}
 	
 	/**
 	 * constructor, created from {@link OsmFileDef}
 	 *
 	 * @param xmlFileType the {@link OsmFileDef} to get the information from
-	 * @throws FileNotFoundException if the file path is not set or the {@link File} couldn't found under the given path
+	 * @throws FileNotFoundException if the file path is not set or the {@link File} (or the changes directory) couldn't
+	 *                               found under the given path
 	 */
 	public OsmFile(OsmFileDef xmlFileType)
 	throws FileNotFoundException {
@@ -70,5 +161,74 @@ public class OsmFile {
 		this.dataFile = file;
 		this.fileFormat = xmlFileType.getType();
 		this.compression = xmlFileType.getCompression();
+		this.watched = xmlFileType.isWatch();
+		this.filter = OsmFileFilter.create(xmlFileType.getBbox(), xmlFileType.getKey());
+		this.snapshot = xmlFileType.isSnapshot();
+		
+		String changesPath = xmlFileType.getChanges();
+		if (changesPath != null) {
+			File changesDirectory = new File(OverpassPlugin.SERVICES_FOLDER, changesPath);
+			
+			if (!(changesDirectory.isDirectory())) {
+				throw new FileNotFoundException("Couldn't find changes directory under the given path! (" + changesPath + ")");
+			}
+			
+			this.changesDirectory = changesDirectory;
+		} else {
+			this.changesDirectory = null;
+		}
+	}
+	
+	/**
+	 * checks, if a {@link File} is an osmChange {@link File}
+	 *
+	 * @param file the {@link File} to check
+	 * @return {@code true}, if {@code file} is a regular {@link File} with one of the {@link #CHANGE_SUFFIXES}
+	 *
+	 * @since 0.2.0
+	 */
+	public static boolean isChangeFile(File file) {
+		if (!(file.isFile())) {
+			return false;
+		}
+		
+		for (String suffix : OsmFile.CHANGE_SUFFIXES) {
+			if (file.getName().endsWith(suffix)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * gives all osmChange {@link File}s, which were modified after the data {@link File}, sorted by their names
+	 *
+	 * @return the osmChange {@link File}s to apply to the data {@link File} (empty, if there is no
+	 * {@code changesDirectory})
+	 *
+	 * @since 0.2.0
+	 */
+	public List<File> getChangeFiles() {
+		if (this.changesDirectory == null) {
+			return Collections.emptyList();
+		}
+		
+		File[] files = this.changesDirectory.listFiles(OsmFile.CHANGE_FILE_FILTER);
+		if (files == null) {
+			return Collections.emptyList();
+		}
+		
+		Arrays.sort(files);
+		
+		long       dataModified = this.dataFile.lastModified();
+		List<File> res          = new ArrayList<>();
+		for (File file : files) {
+			if (file.lastModified() >= dataModified) {
+				res.add(file);
+			}
+		}
+		
+		return res;
 	}
 }
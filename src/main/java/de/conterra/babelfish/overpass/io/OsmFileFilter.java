@@ -0,0 +1,283 @@
+package de.conterra.babelfish.overpass.io;
+
+import de.conterra.babelfish.overpass.config.BoundingBox;
+import lombok.Getter;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.util.*;
+
+/**
+ * defines a filter, which restricts the {@link Entity}s read from an {@link OsmFile} to a bounding box and a
+ * {@link Set} of {@link Tag} keys<br>
+ * A {@link Node} passes, if it is inside the bounding box. A {@link Way} passes, if all of its {@link Node}s are inside
+ * the bounding box. If keys are given, an {@link Entity} must have a {@link Tag} with one of them as well. {@link Node}s
+ * and {@link Way}s without any of the keys are kept nevertheless, if they are referenced by a passed {@link Way} or
+ * {@link Relation}, so the geometries stay complete.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class OsmFileFilter {
+	/**
+	 * the bounding box (minimum latitude, minimum longitude, maximum latitude, maximum longitude) or {@code null}, if
+	 * the {@link Entity}s aren't filtered spatially
+	 *
+	 * @since 0.2.0
+	 */
+	private final double[]    bounds;
+	/**
+	 * the {@link Tag} keys or {@code null}, if the {@link Entity}s aren't filtered by their {@link Tag}s
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final Set<String> keys;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param bounds the bounding box (minimum latitude, minimum longitude, maximum latitude, maximum longitude) or
+	 *               {@code null}, if the {@link Entity}s shouldn't be filtered spatially
+	 * @param keys   the {@link Tag} keys or {@code null}, if the {@link Entity}s shouldn't be filtered by their
+	 *               {@link Tag}s
+	 * @since 0.2.0
+	 */
+	public OsmFileFilter(double[] bounds, Set<String> keys) {
+		this.bounds = bounds == null ? null : bounds.clone();
+		this.keys = keys == null ? null : Collections.unmodifiableSet(new TreeSet<>(keys));
+	}
+	
+	/**
+	 * creates a filter from the configuration of an {@link OsmFile}
+	 *
+	 * @param bbox the bounding box (could be {@code null})
+	 * @param keys the {@link Tag} keys (could be {@code null} or empty)
+	 * @return the created filter or {@code null}, if neither a bounding box nor keys are given
+	 *
+	 * @since 0.2.0
+	 */
+	public static OsmFileFilter create(BoundingBox bbox, Collection<String> keys) {
+		boolean hasKeys = keys != null && !(keys.isEmpty());
+		
+		if (bbox == null && !hasKeys) {
+			return null;
+		}
+		
+		return new OsmFileFilter(bbox == null ? null : new double[] {bbox.getMinLat(), bbox.getMinLon(), bbox.getMaxLat(), bbox.getMaxLon()}, hasKeys ? new HashSet<>(keys) : null);
+	}
+	
+	/**
+	 * gives the bounding box
+	 *
+	 * @return the minimum latitude, minimum longitude, maximum latitude and maximum longitude or {@code null}, if the
+	 * {@link Entity}s aren't filtered spatially
+	 *
+	 * @since 0.2.0
+	 */
+	public double[] getBounds() {
+		return this.bounds == null ? null : this.bounds.clone();
+	}
+	
+	/**
+	 * checks, if a position is inside the bounding box
+	 *
+	 * @param lat the latitude
+	 * @param lon the longitude
+	 * @return {@code true}, if there is no bounding box or the position is inside of it
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean contains(double lat, double lon) {
+		return this.bounds == null || (lat >= this.bounds[0] && lon >= this.bounds[1] && lat <= this.bounds[2] && lon <= this.bounds[3]);
+	}
+	
+	/**
+	 * checks, if an area intersects the bounding box
+	 *
+	 * @param minLat the southern border of the area
+	 * @param minLon the western border of the area
+	 * @param maxLat the northern border of the area
+	 * @param maxLon the eastern border of the area
+	 * @return {@code true}, if there is no bounding box or the area intersects it
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+		return this.bounds == null || !(minLat > this.bounds[2] || maxLat < this.bounds[0] || minLon > this.bounds[3] || maxLon < this.bounds[1]);
+	}
+	
+	/**
+	 * checks, if an {@link Entity} has a {@link Tag} with one of the keys
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @return {@code true}, if there are no keys or the {@link Entity} has one of them
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean hasKey(Entity entity) {
+		if (this.keys == null) {
+			return true;
+		}
+		
+		for (Tag tag : entity.getTags()) {
+			if (this.keys.contains(tag.getKey())) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * creates a {@link Sink}, which passes only the filtered {@link Entity}s to another {@link Sink}<br>
+	 * The {@link Entity}s are expected in the usual order of OpenStreetMap files: {@link Node}s, {@link Way}s and
+	 * {@link Relation}s. Referenced {@link Node}s and {@link Way}s without any of the keys will be held back until
+	 * {@link Sink#complete()}.
+	 *
+	 * @param sink the {@link Sink} to pass the filtered {@link Entity}s to
+	 * @return the filtering {@link Sink}
+	 *
+	 * @since 0.2.0
+	 */
+	public Sink createSink(final Sink sink) {
+		return new Sink() {
+			/**
+			 * the identifiers of all {@link Node}s inside the bounding box
+			 *
+			 * @since 0.2.0
+			 */
+			private final Set<Long>       inside          = new HashSet<>();
+			/**
+			 * the {@link Node}s inside the bounding box without any of the keys
+			 *
+			 * @since 0.2.0
+			 */
+			private final Map<Long, Node> heldNodes       = new HashMap<>();
+			/**
+			 * the complete {@link Way}s without any of the keys
+			 *
+			 * @since 0.2.0
+			 */
+			private final Map<Long, Way>  heldWays        = new HashMap<>();
+			/**
+			 * the identifiers of all {@link Node}s referenced by passed {@link Way}s
+			 *
+			 * @since 0.2.0
+			 */
+			private final Set<Long>       referencedNodes = new HashSet<>();
+			/**
+			 * the identifiers of all {@link Way}s referenced by passed {@link Relation}s
+			 *
+			 * @since 0.2.0
+			 */
+			private final Set<Long>       referencedWays  = new HashSet<>();
+			
+			@Override
+			public void initialize(Map<String, Object> metaData) {
+				sink.initialize(metaData);
+			}
+			
+			@Override
+			public void process(EntityContainer entityContainer) {
+				Entity entity = entityContainer.getEntity();
+				
+				if (entity instanceof Node) {
+					Node node = (Node) entity;
+					
+					if (!(OsmFileFilter.this.contains(node.getLatitude(), node.getLongitude()))) {
+						return;
+					}
+					
+					if (OsmFileFilter.this.bounds != null) {
+						this.inside.add(node.getId());
+					}
+					
+					if (!(OsmFileFilter.this.hasKey(node))) {
+						this.heldNodes.put(node.getId(), node);
+						return;
+					}
+				} else if (entity instanceof Way) {
+					Way way = (Way) entity;
+					
+					if (OsmFileFilter.this.bounds != null) {
+						for (WayNode wayNode : way.getWayNodes()) {
+							if (!(this.inside.contains(wayNode.getNodeId()))) {
+								return;
+							}
+						}
+					}
+					
+					if (!(OsmFileFilter.this.hasKey(way))) {
+						this.heldWays.put(way.getId(), way);
+						return;
+					}
+					
+					this.reference(way);
+				} else if (entity instanceof Relation) {
+					if (!(OsmFileFilter.this.hasKey(entity))) {
+						return;
+					}
+					
+					for (RelationMember member : ((Relation) entity).getMembers()) {
+						if (member.getMemberType() == EntityType.Way) {
+							this.referencedWays.add(member.getMemberId());
+						} else if (member.getMemberType() == EntityType.Node) {
+							this.referencedNodes.add(member.getMemberId());
+						}
+					}
+				}
+				
+				sink.process(entityContainer);
+			}
+			
+			/**
+			 * marks all {@link Node}s of a passed {@link Way} as referenced
+			 *
+			 * @param way the passed {@link Way}
+			 * @since 0.2.0
+			 */
+			private void reference(Way way) {
+				for (WayNode wayNode : way.getWayNodes()) {
+					this.referencedNodes.add(wayNode.getNodeId());
+				}
+			}
+			
+			@Override
+			public void complete() {
+				for (Way way : this.heldWays.values()) {
+					if (this.referencedWays.contains(way.getId())) {
+						this.reference(way);
+						sink.process(new WayContainer(way));
+					}
+				}
+				
+				for (Node node : this.heldNodes.values()) {
+					if (this.referencedNodes.contains(node.getId())) {
+						sink.process(new NodeContainer(node));
+					}
+				}
+				
+				this.inside.clear();
+				this.heldNodes.clear();
+				this.heldWays.clear();
+				
+				sink.complete();
+			}
+			
+			@Override
+			public void release() {
+				sink.release();
+			}
+		};
+	}
+	
+	@Override
+	public String toString() {
+		return "bounds=" + (this.bounds == null ? null : Arrays.toString(this.bounds)) + ", keys=" + this.keys;
+	}
+}
@@ -0,0 +1,376 @@
+package de.conterra.babelfish.overpass.io;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * defines a watcher, which observes the data {@link File}s and the changes directories of {@link OsmFile}s<br>
+ * The modifications are detected by a {@link WatchService} and passed to the registered {@link Listener}s after the
+ * {@link File} wasn't modified for {@value #QUIET_PERIOD} milliseconds, so {@link File}s which are still written will
+ * not be read. All {@link Listener}s are called one after another on a single background {@link Thread}.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class OsmFileWatcher {
+	/**
+	 * the time without any modification, after which a modified {@link File} will be read (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  long                            QUIET_PERIOD = 2000;
+	/**
+	 * the watched {@link OsmFile}s, mapped by the {@link Path} of their data {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<Path, OsmFile>              files        = new HashMap<>();
+	/**
+	 * the registered {@link Listener}s, mapped by the {@link Path} of the data {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<Path, List<Listener>>       listeners    = new HashMap<>();
+	/**
+	 * the directories, which are registered at the {@link WatchService}
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Set<Path>                       directories  = new HashSet<>();
+	/**
+	 * the scheduled notifications, which will be replaced by further modifications of the same {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<String, ScheduledFuture<?>> pending      = new HashMap<>();
+	
+	/**
+	 * the {@link WatchService} ({@code null}, if the watcher isn't running)
+	 *
+	 * @since 0.2.0
+	 */
+	private static WatchService             service  = null;
+	/**
+	 * the {@link ScheduledExecutorService} to notify the {@link Listener}s ({@code null}, if the watcher isn't running)
+	 *
+	 * @since 0.2.0
+	 */
+	private static ScheduledExecutorService executor = null;
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private OsmFileWatcher() {
+	}
+	
+	/**
+	 * starts the {@link WatchService} and the background {@link Thread}s, if they aren't running yet
+	 *
+	 * @throws IOException if the {@link WatchService} couldn't created
+	 * @since 0.2.0
+	 */
+	private static synchronized void start()
+	throws IOException {
+		if (OsmFileWatcher.service != null) {
+			return;
+		}
+		
+		final WatchService watchService = FileSystems.getDefault().newWatchService();
+		OsmFileWatcher.service = watchService;
+		OsmFileWatcher.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "OsmFileWatcher-Notifier");
+				thread.setDaemon(true);
+				
+				return thread;
+			}
+		});
+		
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				OsmFileWatcher.poll(watchService);
+			}
+		}, "OsmFileWatcher");
+		thread.setDaemon(true);
+		thread.start();
+		
+		log.debug("OsmFileWatcher started.");
+	}
+	
+	/**
+	 * stops watching all {@link OsmFile}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static synchronized void stop() {
+		if (OsmFileWatcher.service == null) {
+			return;
+		}
+		
+		try {
+			OsmFileWatcher.service.close();
+		} catch (IOException e) {
+			log.warn("Couldn't close the watch service!", e);
+		}
+		OsmFileWatcher.executor.shutdownNow();
+		
+		OsmFileWatcher.service = null;
+		OsmFileWatcher.executor = null;
+		OsmFileWatcher.files.clear();
+		OsmFileWatcher.listeners.clear();
+		OsmFileWatcher.directories.clear();
+		OsmFileWatcher.pending.clear();
+		
+		log.debug("OsmFileWatcher stopped.");
+	}
+	
+	/**
+	 * registers a {@link Listener}, which will be notified about modifications of an {@link OsmFile}
+	 *
+	 * @param file     the {@link OsmFile} to watch
+	 * @param listener the {@link Listener} to notify
+	 * @throws IOException if the directories of the {@link OsmFile} couldn't watched
+	 * @since 0.2.0
+	 */
+	public static synchronized void watch(OsmFile file, Listener listener)
+	throws IOException {
+		OsmFileWatcher.start();
+		
+		Path           dataPath     = OsmFileWatcher.toPath(file.getDataFile());
+		List<Listener> fileListener = OsmFileWatcher.listeners.get(dataPath);
+		
+		if (fileListener == null) {
+			OsmFileWatcher.register(dataPath.getParent());
+			if (file.getChangesDirectory() != null) {
+				OsmFileWatcher.register(OsmFileWatcher.toPath(file.getChangesDirectory()));
+			}
+			
+			fileListener = new CopyOnWriteArrayList<>();
+			OsmFileWatcher.files.put(dataPath, file);
+			OsmFileWatcher.listeners.put(dataPath, fileListener);
+			
+			log.info("Watching " + file.getDataFile() + " for modifications.");
+		}
+		
+		fileListener.add(listener);
+	}
+	
+	/**
+	 * gives the normalized absolute {@link Path} of a {@link File}
+	 *
+	 * @param file the {@link File}
+	 * @return the {@link Path}
+	 *
+	 * @since 0.2.0
+	 */
+	private static Path toPath(File file) {
+		return file.getAbsoluteFile().toPath().normalize();
+	}
+	
+	/**
+	 * registers a directory at the {@link WatchService}, if it isn't registered yet
+	 *
+	 * @param directory the directory to watch
+	 * @throws IOException if the directory couldn't registered
+	 * @since 0.2.0
+	 */
+	private static void register(Path directory)
+	throws IOException {
+		if (OsmFileWatcher.directories.contains(directory)) {
+			return;
+		}
+		
+		directory.register(OsmFileWatcher.service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		OsmFileWatcher.directories.add(directory);
+	}
+	
+	/**
+	 * waits for events of the {@link WatchService}, until it was closed
+	 *
+	 * @param watchService the {@link WatchService} to poll
+	 * @since 0.2.0
+	 */
+	private static void poll(WatchService watchService) {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+					OsmFileWatcher.modified(directory.resolve((Path) event.context()));
+				}
+			}
+			
+			key.reset();
+		}
+	}
+	
+	/**
+	 * schedules the notifications about a modified {@link File}
+	 *
+	 * @param path the {@link Path} of the modified {@link File}
+	 * @since 0.2.0
+	 */
+	private static synchronized void modified(final Path path) {
+		for (final Path dataPath : OsmFileWatcher.files.keySet()) {
+			File changesDirectory = OsmFileWatcher.files.get(dataPath).getChangesDirectory();
+			
+			if (path.equals(dataPath)) {
+				OsmFileWatcher.schedule(dataPath.toString(), new Runnable() {
+					@Override
+					public void run() {
+						OsmFileWatcher.reload(dataPath);
+					}
+				});
+			} else if (changesDirectory != null && path.getParent().equals(OsmFileWatcher.toPath(changesDirectory)) && OsmFile.isChangeFile(path.toFile())) {
+				OsmFileWatcher.schedule(dataPath + "\n" + path, new Runnable() {
+					@Override
+					public void run() {
+						OsmFileWatcher.applyChanges(dataPath, path.toFile());
+					}
+				});
+			}
+		}
+	}
+	
+	/**
+	 * schedules a notification after the {@link #QUIET_PERIOD} and cancels the previous notification with the same key
+	 *
+	 * @param key          the key of the notification
+	 * @param notification the notification to run
+	 * @since 0.2.0
+	 */
+	private static void schedule(String key, Runnable notification) {
+		ScheduledFuture<?> previous = OsmFileWatcher.pending.get(key);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+		
+		OsmFileWatcher.pending.put(key, OsmFileWatcher.executor.schedule(notification, OsmFileWatcher.QUIET_PERIOD, TimeUnit.MILLISECONDS));
+	}
+	
+	/**
+	 * notifies all {@link Listener}s of a modified data {@link File}
+	 *
+	 * @param dataPath the {@link Path} of the data {@link File}
+	 * @since 0.2.0
+	 */
+	private static void reload(Path dataPath) {
+		OsmFile        file;
+		List<Listener> fileListener;
+		synchronized (OsmFileWatcher.class) {
+			OsmFileWatcher.pending.remove(dataPath.toString());
+			file = OsmFileWatcher.files.get(dataPath);
+			fileListener = OsmFileWatcher.listeners.get(dataPath);
+		}
+		
+		if (file == null || fileListener == null) {
+			return;
+		}
+		
+		log.info("Data file " + file.getDataFile() + " was modified. Reloading it...");
+		
+		for (Listener listener : fileListener) {
+			listener.beforeReload(file);
+		}
+		
+		for (Listener listener : fileListener) {
+			try {
+				listener.reload(file);
+			} catch (IOException | RuntimeException e) {
+				log.error("Couldn't reload " + file.getDataFile() + "! The previous features will be kept.", e);
+			}
+		}
+	}
+	
+	/**
+	 * notifies all {@link Listener}s of an osmChange {@link File}
+	 *
+	 * @param dataPath   the {@link Path} of the data {@link File}
+	 * @param changeFile the osmChange {@link File}
+	 * @since 0.2.0
+	 */
+	private static void applyChanges(Path dataPath, File changeFile) {
+		List<Listener> fileListener;
+		synchronized (OsmFileWatcher.class) {
+			OsmFileWatcher.pending.remove(dataPath + "\n" + OsmFileWatcher.toPath(changeFile));
+			fileListener = OsmFileWatcher.listeners.get(dataPath);
+		}
+		
+		if (fileListener == null) {
+			return;
+		}
+		
+		List<ChangeContainer> changes;
+		try {
+			changes = OverpassHandler.readChanges(changeFile);
+		} catch (IOException e) {
+			log.error("Couldn't read change file " + changeFile + "!", e);
+			return;
+		}
+		
+		for (Listener listener : fileListener) {
+			try {
+				listener.applyChanges(changeFile, changes);
+			} catch (IOException | RuntimeException e) {
+				log.error("Couldn't apply change file " + changeFile + "!", e);
+			}
+		}
+	}
+	
+	/**
+	 * defines a listener, which will be notified about modifications of a watched {@link OsmFile}
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	public interface Listener {
+		/**
+		 * will be called on all {@link Listener}s of an {@link OsmFile}, before any of them will be reloaded<br>
+		 * Use it to prepare loading shared data in one pass.
+		 *
+		 * @param file the modified {@link OsmFile}
+		 * @since 0.2.0
+		 */
+		void beforeReload(OsmFile file);
+		
+		/**
+		 * will be called after the data {@link File} of an {@link OsmFile} was modified
+		 *
+		 * @param file the modified {@link OsmFile}
+		 * @throws IOException if the {@link OsmFile} couldn't read
+		 * @since 0.2.0
+		 */
+		void reload(OsmFile file)
+		throws IOException;
+		
+		/**
+		 * will be called after an osmChange {@link File} was created or modified in the changes directory
+		 *
+		 * @param changeFile the osmChange {@link File}
+		 * @param changes    the changes of {@code changeFile}
+		 * @throws IOException if the changes couldn't applied
+		 * @since 0.2.0
+		 */
+		void applyChanges(File changeFile, Collection<? extends ChangeContainer> changes)
+		throws IOException;
+	}
+}
@@ -0,0 +1,336 @@
+package de.conterra.babelfish.overpass.io;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * defines a binary snapshot of an {@link OsmFile}, which is stored next to the data {@link File}<br>
+ * The snapshot contains all {@link Entity}s with their coordinates as fixed point integers and their {@link Tag}s
+ * encoded by a {@link String} dictionary. The {@link Entity}s are grouped in blocks of {@value #BLOCK_SIZE}, which are
+ * indexed by their bounding box. A snapshot is valid as long as the length and the last modification time of the data
+ * {@link File} are unchanged. It will be read memory mapped, as a {@link RunnableSource} like the osmosis readers.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class OsmSnapshot
+		implements RunnableSource {
+	/**
+	 * the suffix of the snapshot {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  String SUFFIX           = ".snapshot";
+	/**
+	 * the magic number at the start of every snapshot
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int    MAGIC            = 0x42464F53;
+	/**
+	 * the version of the snapshot format
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int    FORMAT_VERSION   = 1;
+	/**
+	 * the maximum number of {@link Entity}s in one block
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int    BLOCK_SIZE       = 4096;
+	/**
+	 * the position of the dictionary and index offsets in the header
+	 *
+	 * @since 0.2.0
+	 */
+	static final         int    OFFSETS_POSITION = 24;
+	/**
+	 * the length of the header
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int    HEADER_LENGTH    = 40;
+	/**
+	 * the factor to convert coordinates to fixed point integers
+	 *
+	 * @since 0.2.0
+	 */
+	private static final double COORDINATE_SCALE = 1e7;
+	/**
+	 * the maximum length of a mapped window of blocks<br>
+	 * The blocks are read from a few large mappings, which are sliced per block, instead of one mapping per block.
+	 *
+	 * @since 0.2.0
+	 */
+	private static final long   WINDOW_LENGTH    = 1L << 30;
+	
+	/**
+	 * the {@link OsmFile} of this snapshot
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final OsmFile file;
+	/**
+	 * the snapshot {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final File    snapshotFile;
+	
+	/**
+	 * the {@link Sink} to pass the read {@link Entity}s to
+	 *
+	 * @since 0.2.0
+	 */
+	private          Sink    sink;
+	/**
+	 * the bounds to read {@link Node}s in (minimum latitude, minimum longitude, maximum latitude, maximum longitude as
+	 * fixed point integers), {@code null} to read all
+	 *
+	 * @since 0.2.0
+	 */
+	private          int[]   bounds    = null;
+	/**
+	 * {@code true}, if the snapshot was read completely
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile boolean completed = false;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param file the {@link OsmFile} of the snapshot
+	 * @since 0.2.0
+	 */
+	public OsmSnapshot(OsmFile file) {
+		this.file = file;
+		this.snapshotFile = new File(file.getDataFile().getPath() + OsmSnapshot.SUFFIX);
+	}
+	
+	/**
+	 * converts a coordinate to a fixed point integer
+	 *
+	 * @param coordinate the coordinate to convert
+	 * @return the fixed point integer
+	 *
+	 * @since 0.2.0
+	 */
+	static int encodeCoordinate(double coordinate) {
+		return (int) Math.round(coordinate * OsmSnapshot.COORDINATE_SCALE);
+	}
+	
+	/**
+	 * converts a fixed point integer to a coordinate
+	 *
+	 * @param value the fixed point integer to convert
+	 * @return the coordinate
+	 *
+	 * @since 0.2.0
+	 */
+	static double decodeCoordinate(int value) {
+		return value / OsmSnapshot.COORDINATE_SCALE;
+	}
+	
+	/**
+	 * restricts the read {@link Node}s to the blocks, which intersect the given bounds<br>
+	 * {@link Way}s and {@link Relation}s will always be read.
+	 *
+	 * @param minLat the southern border
+	 * @param minLon the western border
+	 * @param maxLat the northern border
+	 * @param maxLon the eastern border
+	 * @since 0.2.0
+	 */
+	public void setBounds(double minLat, double minLon, double maxLat, double maxLon) {
+		this.bounds = new int[] {OsmSnapshot.encodeCoordinate(minLat), OsmSnapshot.encodeCoordinate(minLon), OsmSnapshot.encodeCoordinate(maxLat), OsmSnapshot.encodeCoordinate(maxLon)};
+	}
+	
+	/**
+	 * checks, if the snapshot exists and belongs to the current data {@link File}
+	 *
+	 * @return {@code true}, if the snapshot could be used instead of the data {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean isValid() {
+		if (!(this.snapshotFile.isFile()) || this.snapshotFile.length() < OsmSnapshot.HEADER_LENGTH) {
+			return false;
+		}
+		
+		File dataFile = this.file.getDataFile();
+		
+		try (FileChannel channel = FileChannel.open(this.snapshotFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, OsmSnapshot.HEADER_LENGTH);
+			
+			return header.getInt() == OsmSnapshot.MAGIC &&
+			       header.getInt() == OsmSnapshot.FORMAT_VERSION &&
+			       header.getLong() == dataFile.length() &&
+			       header.getLong() == dataFile.lastModified() &&
+			       header.getLong() > 0;
+		} catch (IOException e) {
+			log.warn("Couldn't check snapshot " + this.snapshotFile + "!", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * deletes the snapshot {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public void delete() {
+		if (this.snapshotFile.exists() && !(this.snapshotFile.delete())) {
+			log.warn("Couldn't delete snapshot " + this.snapshotFile + "!");
+		}
+	}
+	
+	@Override
+	public void setSink(Sink sink) {
+		this.sink = sink;
+	}
+	
+	@Override
+	public void run() {
+		try (FileChannel channel = FileChannel.open(this.snapshotFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, OsmSnapshot.HEADER_LENGTH);
+			header.position(OsmSnapshot.OFFSETS_POSITION);
+			long dictionaryOffset = header.getLong();
+			long indexOffset      = header.getLong();
+			
+			ByteBuffer dictionaryBuffer = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, indexOffset - dictionaryOffset);
+			String[]   dictionary       = new String[dictionaryBuffer.getInt()];
+			for (int i = 0; i < dictionary.length; i++) {
+				byte[] bytes = new byte[dictionaryBuffer.getInt()];
+				dictionaryBuffer.get(bytes);
+				dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			
+			ByteBuffer indexBuffer = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - indexOffset);
+			int        blockCount  = indexBuffer.getInt();
+			
+			this.sink.initialize(Collections.<String, Object>emptyMap());
+			
+			ByteBuffer window      = null;
+			long       windowStart = 0;
+			for (int i = 0; i < blockCount; i++) {
+				int  type   = indexBuffer.get();
+				long offset = indexBuffer.getLong();
+				int  count  = indexBuffer.getInt();
+				int  minLat = indexBuffer.getInt();
+				int  minLon = indexBuffer.getInt();
+				int  maxLat = indexBuffer.getInt();
+				int  maxLon = indexBuffer.getInt();
+				
+				long blockEnd = i + 1 < blockCount ? indexBuffer.getLong(indexBuffer.position() + 1) : dictionaryOffset;
+				
+				if (type == EntityType.Node.ordinal() && this.bounds != null &&
+				    (minLat > this.bounds[2] || maxLat < this.bounds[0] || minLon > this.bounds[3] || maxLon < this.bounds[1])) {
+					continue;
+				}
+				
+				if (window == null || offset < windowStart || blockEnd > windowStart + window.capacity()) {
+					windowStart = offset;
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.max(Math.min(OsmSnapshot.WINDOW_LENGTH, dictionaryOffset - windowStart), blockEnd - windowStart));
+				}
+				
+				ByteBuffer block = window.duplicate();
+				block.position((int) (offset - windowStart));
+				block.limit((int) (blockEnd - windowStart));
+				for (int j = 0; j < count; j++) {
+					this.readEntity(block, EntityType.values()[type], dictionary);
+				}
+			}
+			
+			this.sink.complete();
+			this.completed = true;
+		} catch (IOException | RuntimeException e) {
+			String msg = "Couldn't read snapshot " + this.snapshotFile + "!";
+			log.error(msg, e);
+			throw new OsmosisRuntimeException(msg, e);
+		} finally {
+			this.sink.release();
+		}
+	}
+	
+	/**
+	 * reads an {@link Entity} from a block and passes it to the {@link Sink}
+	 *
+	 * @param block      the block to read from
+	 * @param type       the {@link EntityType} of the block
+	 * @param dictionary the {@link String} dictionary
+	 * @since 0.2.0
+	 */
+	private void readEntity(ByteBuffer block, EntityType type, String[] dictionary) {
+		long    id        = block.getLong();
+		int     version   = block.getInt();
+		long    timestamp = block.getLong();
+		long    changeset = block.getLong();
+		int     userId    = block.getInt();
+		String  userName  = dictionary[block.getInt()];
+		OsmUser user      = userId == OsmUser.NONE.getId() ? OsmUser.NONE : new OsmUser(userId, userName);
+		
+		int       tagCount = block.getInt();
+		List<Tag> tags     = new ArrayList<>(tagCount);
+		for (int i = 0; i < tagCount; i++) {
+			tags.add(new Tag(dictionary[block.getInt()], dictionary[block.getInt()]));
+		}
+		
+		CommonEntityData data = new CommonEntityData(id, version, timestamp == Long.MIN_VALUE ? null : new Date(timestamp), user, changeset, tags);
+		
+		switch (type) {
+			case Node:
+				double lat = OsmSnapshot.decodeCoordinate(block.getInt());
+				double lon = OsmSnapshot.decodeCoordinate(block.getInt());
+				
+				this.sink.process(new NodeContainer(new Node(data, lat, lon)));
+				break;
+			case Way:
+				int wayNodeCount = block.getInt();
+				List<WayNode> wayNodes = new ArrayList<>(wayNodeCount);
+				for (int i = 0; i < wayNodeCount; i++) {
+					wayNodes.add(new WayNode(block.getLong()));
+				}
+				
+				this.sink.process(new WayContainer(new Way(data, wayNodes)));
+				break;
+			case Relation:
+				int memberCount = block.getInt();
+				List<RelationMember> members = new ArrayList<>(memberCount);
+				for (int i = 0; i < memberCount; i++) {
+					EntityType memberType = EntityType.values()[block.get()];
+					long       memberId   = block.getLong();
+					
+					members.add(new RelationMember(memberId, memberType, dictionary[block.getInt()]));
+				}
+				
+				this.sink.process(new RelationContainer(new Relation(data, members)));
+				break;
+			default:
+				throw new IllegalStateException("Unsupported entity type in snapshot: " + type);
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package de.conterra.babelfish.overpass.io;
+
+import de.conterra.babelfish.util.DataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * defines a {@link Sink}, which writes all processed {@link Entity}s to an {@link OsmSnapshot}<br>
+ * The snapshot is written to a temporary {@link File} first and will be moved atomically to its final place on
+ * {@link #complete()}. Failures are logged only, so the snapshot never breaks the loading of the source {@link File}.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class OsmSnapshotWriter
+		implements Sink {
+	/**
+	 * the {@link OsmSnapshot} to write
+	 *
+	 * @since 0.2.0
+	 */
+	private final OsmSnapshot snapshot;
+	/**
+	 * the length of the source {@link File}, before it was read
+	 *
+	 * @since 0.2.0
+	 */
+	private final long        sourceLength;
+	/**
+	 * the last modification time of the source {@link File}, before it was read
+	 *
+	 * @since 0.2.0
+	 */
+	private final long        sourceModified;
+	
+	/**
+	 * the dictionary of all written {@link String}s, mapped to their index
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+	/**
+	 * the index of all written blocks
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<long[]>         blocks     = new ArrayList<>();
+	
+	/**
+	 * the temporary {@link File} to write to ({@code null}, if writing failed)
+	 *
+	 * @since 0.2.0
+	 */
+	private File                 tempFile;
+	/**
+	 * the {@link CountingOutputStream} to get the current offset from
+	 *
+	 * @since 0.2.0
+	 */
+	private CountingOutputStream counter;
+	/**
+	 * the {@link DataOutputStream} to write to
+	 *
+	 * @since 0.2.0
+	 */
+	private DataOutputStream     output;
+	/**
+	 * the current block: type, offset, count, minimum latitude, minimum longitude, maximum latitude, maximum longitude
+	 *
+	 * @since 0.2.0
+	 */
+	private long[]               block;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param snapshot the {@link OsmSnapshot} to write
+	 * @since 0.2.0
+	 */
+	public OsmSnapshotWriter(OsmSnapshot snapshot) {
+		this.snapshot = snapshot;
+		
+		File sourceFile = snapshot.getFile().getDataFile();
+		this.sourceLength = sourceFile.length();
+		this.sourceModified = sourceFile.lastModified();
+	}
+	
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		File snapshotFile = this.snapshot.getSnapshotFile();
+		
+		try {
+			this.tempFile = File.createTempFile(snapshotFile.getName(), ".tmp", snapshotFile.getAbsoluteFile().getParentFile());
+			this.counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(this.tempFile)));
+			this.output = new DataOutputStream(this.counter);
+			
+			this.output.writeInt(OsmSnapshot.MAGIC);
+			this.output.writeInt(OsmSnapshot.FORMAT_VERSION);
+			this.output.writeLong(this.sourceLength);
+			this.output.writeLong(this.sourceModified);
+			this.output.writeLong(0);
+			this.output.writeLong(0);
+		} catch (IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	@Override
+	public void process(EntityContainer entityContainer) {
+		if (this.output == null) {
+			return;
+		}
+		
+		Entity entity = entityContainer.getEntity();
+		if (entity instanceof Bound) {
+			return;
+		}
+		
+		try {
+			int type = entity.getType().ordinal();
+			
+			if (this.block == null || this.block[0] != type || this.block[2] >= OsmSnapshot.BLOCK_SIZE) {
+				this.block = new long[] {type, this.counter.getByteCount(), 0, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+				this.blocks.add(this.block);
+			}
+			this.block[2]++;
+			
+			this.output.writeLong(entity.getId());
+			this.output.writeInt(entity.getVersion());
+			Date timestamp = entity.getTimestamp();
+			this.output.writeLong(timestamp == null ? Long.MIN_VALUE : timestamp.getTime());
+			this.output.writeLong(entity.getChangesetId());
+			OsmUser user = entity.getUser();
+			this.output.writeInt(user.getId());
+			this.output.writeInt(this.encode(user.getName()));
+			
+			Collection<Tag> tags = entity.getTags();
+			this.output.writeInt(tags.size());
+			for (Tag tag : tags) {
+				this.output.writeInt(this.encode(tag.getKey()));
+				this.output.writeInt(this.encode(tag.getValue()));
+			}
+			
+			if (entity instanceof Node) {
+				Node node = (Node) entity;
+				int  lat  = OsmSnapshot.encodeCoordinate(node.getLatitude());
+				int  lon  = OsmSnapshot.encodeCoordinate(node.getLongitude());
+				
+				this.output.writeInt(lat);
+				this.output.writeInt(lon);
+				
+				this.block[3] = Math.min(this.block[3], lat);
+				this.block[4] = Math.min(this.block[4], lon);
+				this.block[5] = Math.max(this.block[5], lat);
+				this.block[6] = Math.max(this.block[6], lon);
+			} else if (entity instanceof Way) {
+				List<WayNode> wayNodes = ((Way) entity).getWayNodes();
+				
+				this.output.writeInt(wayNodes.size());
+				for (WayNode wayNode : wayNodes) {
+					this.output.writeLong(wayNode.getNodeId());
+				}
+			} else if (entity instanceof Relation) {
+				List<RelationMember> members = ((Relation) entity).getMembers();
+				
+				this.output.writeInt(members.size());
+				for (RelationMember member : members) {
+					this.output.writeByte(member.getMemberType().ordinal());
+					this.output.writeLong(member.getMemberId());
+					this.output.writeInt(this.encode(member.getMemberRole()));
+				}
+			}
+		} catch (IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	/**
+	 * gives the dictionary index of a {@link String} and adds it to the dictionary, if necessary
+	 *
+	 * @param str the {@link String} to encode
+	 * @return the dictionary index of {@code str}
+	 *
+	 * @since 0.2.0
+	 */
+	private int encode(String str) {
+		String  value = str == null ? "" : str;
+		Integer index = this.dictionary.get(value);
+		
+		if (index == null) {
+			index = this.dictionary.size();
+			this.dictionary.put(value, index);
+		}
+		
+		return index;
+	}
+	
+	@Override
+	public void complete() {
+		if (this.output == null) {
+			return;
+		}
+		
+		File snapshotFile = this.snapshot.getSnapshotFile();
+		
+		try {
+			long dictionaryOffset = this.counter.getByteCount();
+			this.output.writeInt(this.dictionary.size());
+			for (String str : this.dictionary.keySet()) {
+				byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+				
+				this.output.writeInt(bytes.length);
+				this.output.write(bytes);
+			}
+			
+			long indexOffset = this.counter.getByteCount();
+			this.output.writeInt(this.blocks.size());
+			for (long[] block : this.blocks) {
+				this.output.writeByte((int) block[0]);
+				this.output.writeLong(block[1]);
+				this.output.writeInt((int) block[2]);
+				for (int i = 3; i < 7; i++) {
+					this.output.writeInt((int) block[i]);
+				}
+			}
+			
+			this.output.close();
+			this.output = null;
+			
+			try (RandomAccessFile file = new RandomAccessFile(this.tempFile, "rw")) {
+				file.seek(OsmSnapshot.OFFSETS_POSITION);
+				file.writeLong(dictionaryOffset);
+				file.writeLong(indexOffset);
+			}
+			
+			Files.move(this.tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.tempFile = null;
+			
+			log.info("Wrote snapshot " + snapshotFile + " with " + this.dictionary.size() + " strings and " + this.blocks.size() + " blocks.");
+		} catch (IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	@Override
+	public void release() {
+		if (this.output != null) {
+			DataUtils.closeStream(this.output);
+			this.output = null;
+		}
+		
+		if (this.tempFile != null && this.tempFile.exists() && !(this.tempFile.delete())) {
+			log.warn("Couldn't delete temporary snapshot " + this.tempFile + "!");
+		}
+	}
+	
+	/**
+	 * stops writing after a failure
+	 *
+	 * @param e the failure
+	 * @since 0.2.0
+	 */
+	private void fail(IOException e) {
+		log.warn("Couldn't write snapshot " + this.snapshot.getSnapshotFile() + "! The source file will be parsed on the next load again.", e);
+		
+		this.release();
+	}
+}
@@ -2,6 +2,8 @@ package de.conterra.babelfish.overpass.io;
 
 import crosby.binary.osmosis.OsmosisReader;
 import de.conterra.babelfish.overpass.config.OverpassConfigStore;
+import de.conterra.babelfish.overpass.jfr.FetchEvent;
+import de.conterra.babelfish.overpass.jfr.ParseEvent;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.*;
 import de.conterra.babelfish.util.DataUtils;
 import de.conterra.babelfish.util.GeoUtils;
@@ -15,11 +17,15 @@ import org.opengis.geometry.Envelope;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.TransformException;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.XmlChangeReader;
 import org.openstreetmap.osmosis.xml.v0_6.XmlReader;
 
 import java.io.*;
@@ -27,10 +33,9 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -54,6 +59,24 @@ public class OverpassHandler {
 	 * @since 0.1.0
 	 */
 	public static final String BBOX_PLACEHOLDER = "{{bbox}}";
+	/**
+	 * the offset, which is added to the identifiers of {@link Way}s to get their keys in {@link Map}s of
+	 * {@link Entity}s and the identifiers of their features<br>
+	 * It separates them from the identifiers of {@link Node}s, so a {@link Way} never replaces a {@link Node} with the
+	 * same identifier.
+	 *
+	 * @since 0.2.0
+	 */
+	public static final long   WAY_OFFSET       = 1L << 49;
+	/**
+	 * the offset, which is added to the identifiers of {@link Relation}s to get their keys in {@link Map}s of
+	 * {@link Entity}s and the identifiers of their features<br>
+	 * It separates them from the identifiers of {@link Node}s and {@link Way}s and keeps them below 2^53, so they stay
+	 * exact in JSON.
+	 *
+	 * @since 0.2.0
+	 */
+	public static final long   RELATION_OFFSET  = 1L << 50;
 	
 	static {
 		CoordinateReferenceSystem crs;
@@ -76,11 +99,13 @@ public class OverpassHandler {
 	}
 	
 	/**
-	 * gives the {@link InputStream} to the requested OpenStreetMap data
+	 * gives the {@link InputStream} to the requested OpenStreetMap data<br>
+	 * The {@link FetchEvent} of the request is committed once, when the {@link InputStream} is closed, or immediately,
+	 * if the request failed.
 	 *
 	 * @param script the Overpass API script the request on the server
 	 * @param bbox   the bounding box
-	 * @return an {@link InputStream} to the requested data
+	 * @return an {@link InputStream} to the requested data (must be closed after it was read)
 	 *
 	 * @throws IllegalArgumentException if the script contains no placeholder of the bounding box
 	 * @throws IOException              if an error occurred on request the data from the Overpass API
@@ -130,9 +155,14 @@ public class OverpassHandler {
 			script = script.replace(OverpassHandler.BBOX_PLACEHOLDER, StringUtils.EMPTY);
 		}
 		
+		final FetchEvent event = new FetchEvent();
+		event.begin();
+		
+		int         attempts   = 0;
+		int         statusCode = -1;
+		InputStream res        = null;
+		
 		try {
-			int attempts = 0;
-			
 			while (attempts < 3) {
 				attempts++;
 				
@@ -144,7 +174,7 @@ public class OverpassHandler {
 				if (connection instanceof HttpURLConnection) {
 					HttpURLConnection httpConnection = (HttpURLConnection) connection;
 					
-					int statusCode = httpConnection.getResponseCode();
+					statusCode = httpConnection.getResponseCode();
 					
 					log.debug("Overpass API returned HTTP status code " + statusCode + ".");
 					
@@ -168,7 +198,26 @@ public class OverpassHandler {
 						continue;
 					}
 					
-					return httpConnection.getInputStream();
+					final int responseAttempts   = attempts;
+					final int responseStatusCode = statusCode;
+					
+					res = new FilterInputStream(httpConnection.getInputStream()) {
+						private boolean closed = false;
+						
+						@Override
+						public void close()
+						throws IOException {
+							try {
+								super.close();
+							} finally {
+								if (!(this.closed)) {
+									this.closed = true;
+									OverpassHandler.commitFetchEvent(event, bbox, responseAttempts, responseStatusCode);
+								}
+							}
+						}
+					};
+					return res;
 				} else {
 					IOUtils.close(connection);
 					throw new IOException("The URL didn't point to a connection using HTTP!");
@@ -178,11 +227,35 @@ public class OverpassHandler {
 			String msg = "An error occurred while request the Overpass API!";
 			log.error(msg, e);
 			throw new IOException(msg, e);
+		} finally {
+			if (res == null) {
+				OverpassHandler.commitFetchEvent(event, bbox, attempts, statusCode);
+			}
 		}
 		
 		throw new IOException("An unkown error occurred while waiting for Overpass API request!");
 	}
 	
+	/**
+	 * commits a {@link FetchEvent}, if it is enabled
+	 *
+	 * @param event      the {@link FetchEvent} to commit
+	 * @param bbox       the requested bounding box
+	 * @param attempts   the number of attempts
+	 * @param statusCode the last HTTP status code
+	 * @since 0.2.0
+	 */
+	private static void commitFetchEvent(FetchEvent event, Envelope bbox, int attempts, int statusCode) {
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.setBbox(bbox);
+			event.setAttempts(attempts);
+			event.setStatusCode(statusCode);
+			event.commit();
+		}
+	}
+	
 	/**
 	 * gives the {@link EntityType}, which the given {@link Class} corresponds to
 	 *
@@ -250,35 +323,187 @@ public class OverpassHandler {
 		}
 	}
 	
+	/**
+	 * gives the key of an {@link Entity} in {@link Map}s of {@link Entity}s, which is also the identifier of its feature
+	 *
+	 * @param type the {@link EntityType} of the {@link Entity}
+	 * @param id   the identifier of the {@link Entity}
+	 * @return {@code id} shifted by {@link #WAY_OFFSET} for {@link Way}s and by {@link #RELATION_OFFSET} for
+	 * {@link Relation}s, {@code id} itself otherwise
+	 *
+	 * @since 0.2.0
+	 */
+	public static long getKey(EntityType type, long id) {
+		switch (type) {
+			case Way:
+				return OverpassHandler.WAY_OFFSET + id;
+			case Relation:
+				return OverpassHandler.RELATION_OFFSET + id;
+			default:
+				return id;
+		}
+	}
+	
+	/**
+	 * gives the key of an {@link Entity} in {@link Map}s of {@link Entity}s, which is also the identifier of its feature
+	 *
+	 * @param entity the {@link Entity}
+	 * @return the key of {@code entity}
+	 *
+	 * @see #getKey(EntityType, long)
+	 * @since 0.2.0
+	 */
+	public static long getKey(Entity entity) {
+		return OverpassHandler.getKey(entity.getType(), entity.getId());
+	}
+	
+	/**
+	 * gives the identifier of an {@link Entity} from its key
+	 *
+	 * @param type the {@link EntityType} of the {@link Entity}
+	 * @param key  the key of the {@link Entity} (see {@link #getKey(EntityType, long)})
+	 * @return the OpenStreetMap identifier of the {@link Entity}
+	 *
+	 * @since 0.2.0
+	 */
+	public static long getId(EntityType type, long key) {
+		switch (type) {
+			case Way:
+				return key - OverpassHandler.WAY_OFFSET;
+			case Relation:
+				return key - OverpassHandler.RELATION_OFFSET;
+			default:
+				return key;
+		}
+	}
+	
+	/**
+	 * reduces a {@link Node} to a vertex, which is used as coordinate source of {@link Way}s only
+	 *
+	 * @param node the {@link Node} to reduce
+	 * @return {@code node} itself, if it has no {@link Tag}s, otherwise a copy without {@link Tag}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static Node toVertex(Node node) {
+		if (node.getTags().isEmpty()) {
+			return node;
+		}
+		
+		return new Node(new CommonEntityData(node.getId(), node.getVersion(), node.getTimestamp(), node.getUser(), node.getChangesetId()), node.getLatitude(), node.getLongitude());
+	}
+	
+	/**
+	 * creates a {@link Sink}, which collects all {@link Entity}s in a {@link Map}
+	 *
+	 * @param res the {@link Map} to put the {@link Entity}s in
+	 * @return the created {@link Sink}
+	 *
+	 * @since 0.2.0
+	 */
+	private static Sink createCollector(Map<Long, Entity> res) {
+		return OverpassHandler.createCollector(res, null);
+	}
+	
+	/**
+	 * creates a {@link Sink}, which collects the {@link Entity}s of an {@link EntityType} in a {@link Map} by their keys
+	 * (see {@link #getKey(Entity)})<br>
+	 * If the {@link EntityType} isn't {@link EntityType#Node}, all {@link Node}s are collected as vertices (see
+	 * {@link #toVertex(Node)}). The {@link Way}s are kept as members of {@link Relation}s and the {@link Relation}s as
+	 * areas, which are assembled from {@link Way}s. All other {@link Entity}s are dropped.
+	 *
+	 * @param res  the {@link Map} to put the {@link Entity}s in
+	 * @param type the {@link EntityType} to collect or {@code null} to collect all {@link Entity}s
+	 * @return the created {@link Sink}
+	 *
+	 * @since 0.2.0
+	 */
+	private static Sink createCollector(final Map<Long, Entity> res, final EntityType type) {
+		return new Sink() {
+			@Override
+			public void process(EntityContainer entityContainer) {
+				Entity entity = entityContainer.getEntity();
+				
+				if (type == null || entity.getType() == type) {
+					res.put(OverpassHandler.getKey(entity), entity);
+				} else if (entity instanceof Node) {
+					res.put(OverpassHandler.getKey(entity), OverpassHandler.toVertex((Node) entity));
+				} else if (entity instanceof Way && type == EntityType.Relation) {
+					res.put(OverpassHandler.getKey(entity), entity);
+				} else if (entity instanceof Relation && type == EntityType.Way) {
+					res.put(OverpassHandler.getKey(entity), entity);
+				}
+			}
+			
+			@Override
+			public void initialize(Map<String, Object> map) {
+			}
+			
+			@Override
+			public void complete() {
+			}
+			
+			@Override
+			public void release() {
+			}
+		};
+	}
+	
 	/**
 	 * reads all {@link Entity}s from a given {@link RunnableSource}
 	 *
 	 * @param reader the {@link RunnableSource} to read
+	 * @param source a description of the source (used for profiling only)
+	 * @param bbox   the requested bounding box (used for profiling only, could be {@code null})
+	 * @param type   the {@link EntityType} of the requested features or {@code null} to keep all {@link Entity}s
 	 * @return a {@link Map} of all read features
 	 *
+	 * @see #createCollector(Map, EntityType)
 	 * @since 0.2.0
 	 */
-	private static Map<? extends Long, ? extends Entity> readFeatures(RunnableSource reader) {
-		final Map<Long, Entity> res = new HashMap<>();
+	private static Map<? extends Long, ? extends Entity> readFeatures(RunnableSource reader, String source, Envelope bbox, EntityType type) {
+		Map<Long, Entity> res = new HashMap<>();
+		
+		OverpassHandler.read(reader, OverpassHandler.createCollector(res, type), source, bbox);
+		
+		return res;
+	}
+	
+	/**
+	 * reads all {@link Entity}s from a given {@link RunnableSource} and passes them to a {@link Sink}
+	 *
+	 * @param reader the {@link RunnableSource} to read
+	 * @param sink   the {@link Sink} to pass the {@link Entity}s to
+	 * @param source a description of the source (used for profiling only)
+	 * @param bbox   the requested bounding box (used for profiling only, could be {@code null})
+	 * @since 0.2.0
+	 */
+	private static void read(RunnableSource reader, final Sink sink, String source, Envelope bbox) {
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		
+		final AtomicInteger count = new AtomicInteger();
 		
 		reader.setSink(new Sink() {
 			@Override
 			public void process(EntityContainer entityContainer) {
-				Entity entity = entityContainer.getEntity();
-				
-				res.put(entity.getId(), entity);
+				count.incrementAndGet();
+				sink.process(entityContainer);
 			}
 			
 			@Override
 			public void initialize(Map<String, Object> map) {
+				sink.initialize(map);
 			}
 			
 			@Override
 			public void complete() {
+				sink.complete();
 			}
 			
 			@Override
 			public void release() {
+				sink.release();
 			}
 		});
 		
@@ -292,7 +517,13 @@ public class OverpassHandler {
 			}
 		}
 		
-		return res;
+		event.end();
+		if (event.shouldCommit()) {
+			event.setSource(source);
+			event.setBbox(bbox);
+			event.setEntityCount(count.get());
+			event.commit();
+		}
 	}
 	
 	/**
@@ -307,9 +538,27 @@ public class OverpassHandler {
 	 * @since 0.1.0
 	 */
 	public static Map<? extends Long, ? extends Entity> getFeatures(String script, Envelope bbox)
+	throws IllegalArgumentException, IOException {
+		return OverpassHandler.getFeatures(script, bbox, null);
+	}
+	
+	/**
+	 * gives all requested {@link Entity}s of an {@link EntityType} and the {@link Node}s referenced by them<br>
+	 * The referenced {@link Node}s are kept as vertices without {@link Tag}s only (see {@link #toVertex(Node)}).
+	 *
+	 * @param script the Overpass API script to request on the server
+	 * @param bbox   the bounding box
+	 * @param type   the {@link EntityType} of the requested features or {@code null} to keep all {@link Entity}s
+	 * @return a {@link Map} of all kept {@link Entity}s
+	 *
+	 * @throws IllegalArgumentException if no script or bounding box was given
+	 * @throws IOException              if an error occurred on request the data from the Overpass API
+	 * @since 0.2.0
+	 */
+	public static Map<? extends Long, ? extends Entity> getFeatures(String script, Envelope bbox, EntityType type)
 	throws IllegalArgumentException, IOException {
 		InputStream                           inputStream = OverpassHandler.request(script, bbox);
-		Map<? extends Long, ? extends Entity> res         = OverpassHandler.readFeatures(new OsmosisReader(inputStream));
+		Map<? extends Long, ? extends Entity> res         = OverpassHandler.readFeatures(new OsmosisReader(inputStream), "Overpass API", bbox, type);
 		
 		DataUtils.closeStream(inputStream);
 		return res;
@@ -325,6 +574,244 @@ public class OverpassHandler {
 	 * @since 0.2.0
 	 */
 	public static Map<? extends Long, ? extends Entity> getFeatures(OsmFile file)
+	throws IOException {
+		Map<Long, Entity> res = new HashMap<>();
+		
+		OverpassHandler.readFile(file, OverpassHandler.createCollector(res));
+		
+		return res;
+	}
+	
+	/**
+	 * gives all {@link Entity}s from a {@link File}, which match a filter, and all {@link Node}s and {@link Way}s
+	 * referenced by them<br>
+	 * The {@link File} will be read twice: The first pass keeps the matching {@link Entity}s and records the identifiers
+	 * of the referenced {@link Entity}s only, the second pass reads these {@link Node}s as vertices (see
+	 * {@link #toVertex(Node)}). If matching {@link Relation}s reference {@link Way}s, which don't match, an additional
+	 * pass reads these {@link Way}s before. So the needed memory depends on the selected data, not on the size of the
+	 * {@link File}.
+	 *
+	 * @param file   the {@link OsmFile} to read from
+	 * @param filter the filter of the {@link Entity}s to keep
+	 * @return a {@link Map} of the matching and the referenced {@link Entity}s
+	 *
+	 * @throws IOException if the {@link File} couldn't read, the it doesn't exist or is {@code null}
+	 * @since 0.2.0
+	 */
+	public static Map<? extends Long, ? extends Entity> getFeatures(OsmFile file, final Predicate<? super Entity> filter)
+	throws IOException {
+		final Map<Long, Entity> res     = new HashMap<>();
+		final Set<Long>         nodeIds = new HashSet<>();
+		final Set<Long>         wayIds  = new HashSet<>();
+		
+		OverpassHandler.readFile(file, new Sink() {
+			@Override
+			public void process(EntityContainer entityContainer) {
+				Entity entity = entityContainer.getEntity();
+				
+				if (!(filter.test(entity))) {
+					return;
+				}
+				
+				res.put(OverpassHandler.getKey(entity), entity);
+				
+				if (entity instanceof Way) {
+					for (WayNode wayNode : ((Way) entity).getWayNodes()) {
+						nodeIds.add(wayNode.getNodeId());
+					}
+				} else if (entity instanceof Relation) {
+					for (RelationMember member : ((Relation) entity).getMembers()) {
+						if (member.getMemberType() == EntityType.Node) {
+							nodeIds.add(member.getMemberId());
+						} else if (member.getMemberType() == EntityType.Way) {
+							wayIds.add(member.getMemberId());
+						}
+					}
+				}
+			}
+			
+			@Override
+			public void initialize(Map<String, Object> map) {
+			}
+			
+			@Override
+			public void complete() {
+			}
+			
+			@Override
+			public void release() {
+			}
+		});
+		
+		Iterator<Long> wayIdIterator = wayIds.iterator();
+		while (wayIdIterator.hasNext()) {
+			if (res.get(OverpassHandler.getKey(EntityType.Way, wayIdIterator.next())) instanceof Way) {
+				wayIdIterator.remove();
+			}
+		}
+		
+		if (!(wayIds.isEmpty())) {
+			log.debug("Matching relations of " + file.getDataFile() + " reference " + wayIds.size() + " further ways.");
+			
+			OverpassHandler.readFile(file, new Sink() {
+				@Override
+				public void process(EntityContainer entityContainer) {
+					Entity entity = entityContainer.getEntity();
+					long   key    = OverpassHandler.getKey(entity);
+					
+					if (entity instanceof Way && wayIds.contains(entity.getId()) && !(res.containsKey(key))) {
+						res.put(key, entity);
+						
+						for (WayNode wayNode : ((Way) entity).getWayNodes()) {
+							nodeIds.add(wayNode.getNodeId());
+						}
+					}
+				}
+				
+				@Override
+				public void initialize(Map<String, Object> map) {
+				}
+				
+				@Override
+				public void complete() {
+				}
+				
+				@Override
+				public void release() {
+				}
+			});
+		}
+		
+		Iterator<Long> nodeIdIterator = nodeIds.iterator();
+		while (nodeIdIterator.hasNext()) {
+			if (res.get(OverpassHandler.getKey(EntityType.Node, nodeIdIterator.next())) instanceof Node) {
+				nodeIdIterator.remove();
+			}
+		}
+		
+		log.debug("Kept " + res.size() + " matching entities of " + file.getDataFile() + ", which reference " + nodeIds.size() + " further nodes.");
+		
+		if (nodeIds.isEmpty()) {
+			return res;
+		}
+		
+		OverpassHandler.readFile(file, new Sink() {
+			@Override
+			public void process(EntityContainer entityContainer) {
+				Entity entity = entityContainer.getEntity();
+				long   key    = OverpassHandler.getKey(entity);
+				
+				if (entity instanceof Node && nodeIds.contains(entity.getId()) && !(res.containsKey(key))) {
+					res.put(key, OverpassHandler.toVertex((Node) entity));
+				}
+			}
+			
+			@Override
+			public void initialize(Map<String, Object> map) {
+			}
+			
+			@Override
+			public void complete() {
+			}
+			
+			@Override
+			public void release() {
+			}
+		});
+		
+		return res;
+	}
+	
+	/**
+	 * creates a {@link Sink}, which passes all {@link Entity}s to two other {@link Sink}s
+	 *
+	 * @param first  the first {@link Sink}
+	 * @param second the second {@link Sink}
+	 * @return the created {@link Sink}
+	 *
+	 * @since 0.2.0
+	 */
+	private static Sink createTee(final Sink first, final Sink second) {
+		return new Sink() {
+			@Override
+			public void process(EntityContainer entityContainer) {
+				first.process(entityContainer);
+				second.process(entityContainer);
+			}
+			
+			@Override
+			public void initialize(Map<String, Object> map) {
+				first.initialize(map);
+				second.initialize(map);
+			}
+			
+			@Override
+			public void complete() {
+				first.complete();
+				second.complete();
+			}
+			
+			@Override
+			public void release() {
+				try {
+					first.release();
+				} finally {
+					second.release();
+				}
+			}
+		};
+	}
+	
+	/**
+	 * opens the data {@link File} of a PBF {@link OsmFile}
+	 *
+	 * @param file    the {@link OsmFile} to open
+	 * @param streams the {@link Set} to add all opened {@link InputStream}s to, which must be closed after reading
+	 * @return the decompressed {@link InputStream}
+	 *
+	 * @throws IOException if the {@link File} couldn't opened or its compression isn't supported
+	 * @since 0.2.0
+	 */
+	private static InputStream openPbf(OsmFile file, Set<InputStream> streams)
+	throws IOException {
+		InputStream     inputStream;
+		FileInputStream fileStream  = new FileInputStream(file.getDataFile());
+		streams.add(fileStream);
+		
+		CompressionMethod compression = file.getCompression();
+		switch (compression) {
+			case GZip:
+				inputStream = new GZIPInputStream(fileStream);
+				break;
+			case BZip2:
+				inputStream = new BZip2CompressorInputStream(fileStream);
+				break;
+			case None:
+				inputStream = fileStream;
+				break;
+			default:
+				throw new IOException("Unsupported file compression: " + compression);
+		}
+		
+		streams.add(inputStream);
+		return inputStream;
+	}
+	
+	/**
+	 * reads all {@link Entity}s from a {@link File} and passes them to a {@link Sink}, without holding them in memory<br>
+	 * If snapshots are enabled (see {@link OsmFile#isSnapshot()}) and a valid {@link OsmSnapshot} of the {@link File}
+	 * exists, it will be read instead. Otherwise the {@link File} will be parsed and an {@link OsmSnapshot} will be
+	 * written for the next time.<br>
+	 * If the {@link OsmFile} has an {@link OsmFileFilter}, only the passing {@link Entity}s will be given to the
+	 * {@link Sink}. PBF {@link File}s will be read with a {@link PbfBlobIndex} then, which is recorded on the first
+	 * parse, so the blobs without passing {@link Entity}s could be skipped on later reads.
+	 *
+	 * @param file the {@link OsmFile} to read from
+	 * @param sink the {@link Sink} to pass the {@link Entity}s to
+	 * @throws IOException if the {@link File} couldn't read, the it doesn't exist or is {@code null}
+	 * @since 0.2.0
+	 */
+	public static void readFile(OsmFile file, Sink sink)
 	throws IOException {
 		File dataFile = file.getDataFile();
 		
@@ -332,46 +819,145 @@ public class OverpassHandler {
 			throw new FileNotFoundException();
 		}
 		
+		OsmFileFilter filter = file.getFilter();
+		Sink          target = filter == null ? sink : filter.createSink(sink);
+		
 		Set<InputStream> streams = new HashSet<>();
-		RunnableSource   reader;
 		
-		CompressionMethod compression = file.getCompression();
+		if (filter != null && file.getFileFormat() == OsmFileFormat.PBF) {
+			PbfBlobIndex index = PbfBlobIndex.read(file);
+			
+			if (index != null) {
+				PbfBlobReader reader = new PbfBlobReader(OverpassHandler.openPbf(file, streams), index, filter);
+				
+				try {
+					OverpassHandler.read(reader, target, dataFile.getPath(), null);
+				} finally {
+					for (InputStream stream : streams) {
+						DataUtils.closeStream(stream);
+					}
+					streams.clear();
+				}
+				
+				if (reader.isCompleted()) {
+					return;
+				}
+				
+				log.warn("Couldn't read " + dataFile + " with blob index " + index.getIndexFile() + "! Parse it completely instead.");
+				target = filter.createSink(sink);
+			}
+		}
+		
+		OsmSnapshot snapshot = file.isSnapshot() ? new OsmSnapshot(file) : null;
+		if (snapshot != null && snapshot.isValid()) {
+			double[] bounds = filter == null ? null : filter.getBounds();
+			if (bounds != null) {
+				snapshot.setBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+			}
+			
+			OverpassHandler.read(snapshot, target, snapshot.getSnapshotFile().getPath(), null);
+			
+			if (snapshot.isCompleted()) {
+				return;
+			}
+			
+			log.warn("Couldn't read snapshot " + snapshot.getSnapshotFile() + " completely! Parse " + dataFile + " instead.");
+			snapshot.delete();
+			
+			if (filter != null) {
+				target = filter.createSink(sink);
+			}
+		}
+		
+		RunnableSource reader;
+		PbfBlobIndex   index          = null;
+		long           sourceLength   = dataFile.length();
+		long           sourceModified = dataFile.lastModified();
+		
 		switch (file.getFileFormat()) {
 			case XML:
-				reader = new XmlReader(file.getDataFile(), true, compression);
+				reader = new XmlReader(file.getDataFile(), true, file.getCompression());
 				break;
 			case PBF:
-				InputStream inputStream;
-				FileInputStream fileStream = new FileInputStream(file.getDataFile());
-				streams.add(fileStream);
+				InputStream inputStream = OverpassHandler.openPbf(file, streams);
 				
-				switch (compression) {
-					case GZip:
-						inputStream = new GZIPInputStream(fileStream);
-						break;
-					case BZip2:
-						inputStream = new BZip2CompressorInputStream(fileStream);
-						break;
-					case None:
-						inputStream = fileStream;
-						break;
-					default:
-						throw new IOException("Unsupported file compression: " + compression);
+				if (filter != null) {
+					index = new PbfBlobIndex(file);
+					reader = new PbfBlobReader(inputStream, index, null);
+				} else {
+					reader = new OsmosisReader(inputStream);
 				}
-				
-				streams.add(inputStream);
-				reader = new OsmosisReader(inputStream);
 				break;
 			default:
 				throw new IOException("Unknown file format!");
 		}
 		
-		Map<? extends Long, ? extends Entity> res = OverpassHandler.readFeatures(reader);
+		OverpassHandler.read(reader, snapshot == null ? target : OverpassHandler.createTee(target, new OsmSnapshotWriter(snapshot)), dataFile.getPath(), null);
 		
 		for (InputStream stream : streams) {
 			DataUtils.closeStream(stream);
 		}
 		
+		if (index != null && ((PbfBlobReader) reader).isCompleted()) {
+			index.write(sourceLength, sourceModified);
+		}
+	}
+	
+	/**
+	 * reads all changes from an osmChange {@link File}<br>
+	 * The compression is determined by the suffix of the {@link File} ({@code .gz} or {@code .bz2}).
+	 *
+	 * @param changeFile the osmChange {@link File} to read
+	 * @return the {@link ChangeContainer}s in the order of the {@link File}
+	 *
+	 * @throws IOException if the {@link File} doesn't exist or couldn't read
+	 * @since 0.2.0
+	 */
+	public static List<ChangeContainer> readChanges(File changeFile)
+	throws IOException {
+		if (!(changeFile.isFile())) {
+			throw new FileNotFoundException("Couldn't find change file " + changeFile + "!");
+		}
+		
+		CompressionMethod compression;
+		String            name = changeFile.getName();
+		if (name.endsWith(".gz")) {
+			compression = CompressionMethod.GZip;
+		} else if (name.endsWith(".bz2")) {
+			compression = CompressionMethod.BZip2;
+		} else {
+			compression = CompressionMethod.None;
+		}
+		
+		final List<ChangeContainer> res    = new ArrayList<>();
+		XmlChangeReader             reader = new XmlChangeReader(changeFile, true, compression);
+		reader.setChangeSink(new ChangeSink() {
+			@Override
+			public void process(ChangeContainer change) {
+				res.add(change);
+			}
+			
+			@Override
+			public void initialize(Map<String, Object> metaData) {
+			}
+			
+			@Override
+			public void complete() {
+			}
+			
+			@Override
+			public void release() {
+			}
+		});
+		
+		try {
+			reader.run();
+		} catch (OsmosisRuntimeException e) {
+			throw new IOException("Couldn't read change file " + changeFile + "!", e);
+		}
+		
+		log.debug("Read " + res.size() + " changes from " + changeFile + ".");
+		
 		return res;
 	}
 }
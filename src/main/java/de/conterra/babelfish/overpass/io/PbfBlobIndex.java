@@ -0,0 +1,392 @@
+package de.conterra.babelfish.overpass.io;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * defines a sidecar index of a PBF {@link OsmFile}, which records the {@link EntityType}s, the bounding box of the
+ * {@link Node}s and the {@link Tag} keys of every data blob<br>
+ * It will be recorded while the PBF {@link File} is parsed completely (see {@link #createRecorder(Sink)}) and stored
+ * next to it. A {@link PbfBlobReader} uses it to skip the blobs, which contain no {@link Entity} passing an
+ * {@link OsmFileFilter}. The index is valid as long as the length and the last modification time of the data
+ * {@link File} are unchanged.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class PbfBlobIndex {
+	/**
+	 * the suffix of the index {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  String SUFFIX         = ".blobindex";
+	/**
+	 * the magic number at the start of every index
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int    MAGIC          = 0x42464249;
+	/**
+	 * the version of the index format
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int    FORMAT_VERSION = 1;
+	/**
+	 * the flag of blobs with {@link Node}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int    NODES          = 1;
+	/**
+	 * the flag of blobs with {@link Way}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int    WAYS           = 2;
+	/**
+	 * the flag of blobs with {@link Relation}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int    RELATIONS      = 4;
+	
+	/**
+	 * the {@link OsmFile} of this index
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final OsmFile file;
+	/**
+	 * the index {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final File    indexFile;
+	
+	/**
+	 * the dictionary of all {@link Tag} keys
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<String>         keys     = new ArrayList<>();
+	/**
+	 * the dictionary indices of all {@link Tag} keys
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<String, Integer> keyIndex = new HashMap<>();
+	/**
+	 * the {@link EntityType} flags of every blob
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<Integer>        types    = new ArrayList<>();
+	/**
+	 * the bounds of the {@link Node}s of every blob (minimum latitude, minimum longitude, maximum latitude, maximum
+	 * longitude as fixed point integers)
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<int[]>          bounds   = new ArrayList<>();
+	/**
+	 * the dictionary indices of the {@link Tag} keys of every blob
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<BitSet>         blobKeys = new ArrayList<>();
+	
+	/**
+	 * standard constructor, which creates an empty index to record
+	 *
+	 * @param file the {@link OsmFile} of the index
+	 * @since 0.2.0
+	 */
+	public PbfBlobIndex(OsmFile file) {
+		this.file = file;
+		this.indexFile = new File(file.getDataFile().getPath() + PbfBlobIndex.SUFFIX);
+	}
+	
+	/**
+	 * reads the index of an {@link OsmFile}
+	 *
+	 * @param file the {@link OsmFile} to read the index of
+	 * @return the index or {@code null}, if it doesn't exist or doesn't belong to the current data {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public static PbfBlobIndex read(OsmFile file) {
+		PbfBlobIndex res      = new PbfBlobIndex(file);
+		File         dataFile = file.getDataFile();
+		
+		if (!(res.indexFile.isFile())) {
+			return null;
+		}
+		
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(res.indexFile)))) {
+			if (input.readInt() != PbfBlobIndex.MAGIC || input.readInt() != PbfBlobIndex.FORMAT_VERSION ||
+			    input.readLong() != dataFile.length() || input.readLong() != dataFile.lastModified()) {
+				return null;
+			}
+			
+			int keyCount = input.readInt();
+			for (int i = 0; i < keyCount; i++) {
+				res.encode(input.readUTF());
+			}
+			
+			int blobCount = input.readInt();
+			for (int i = 0; i < blobCount; i++) {
+				res.types.add((int) input.readByte());
+				res.bounds.add(new int[] {input.readInt(), input.readInt(), input.readInt(), input.readInt()});
+				
+				BitSet blobKeys     = new BitSet(keyCount);
+				int    blobKeyCount = input.readInt();
+				for (int j = 0; j < blobKeyCount; j++) {
+					blobKeys.set(input.readInt());
+				}
+				res.blobKeys.add(blobKeys);
+			}
+		} catch (IOException e) {
+			log.warn("Couldn't read blob index " + res.indexFile + "!", e);
+			return null;
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * writes the recorded index next to the data {@link File}<br>
+	 * Failures are logged only, so the index never breaks the loading of the data {@link File}.
+	 *
+	 * @param sourceLength   the length of the data {@link File}, before it was read
+	 * @param sourceModified the last modification time of the data {@link File}, before it was read
+	 * @since 0.2.0
+	 */
+	public void write(long sourceLength, long sourceModified) {
+		File tempFile = null;
+		
+		try {
+			tempFile = File.createTempFile(this.indexFile.getName(), ".tmp", this.indexFile.getAbsoluteFile().getParentFile());
+			
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				output.writeInt(PbfBlobIndex.MAGIC);
+				output.writeInt(PbfBlobIndex.FORMAT_VERSION);
+				output.writeLong(sourceLength);
+				output.writeLong(sourceModified);
+				
+				output.writeInt(this.keys.size());
+				for (String key : this.keys) {
+					output.writeUTF(key);
+				}
+				
+				output.writeInt(this.types.size());
+				for (int i = 0; i < this.types.size(); i++) {
+					output.writeByte(this.types.get(i));
+					for (int bound : this.bounds.get(i)) {
+						output.writeInt(bound);
+					}
+					
+					BitSet blobKeys = this.blobKeys.get(i);
+					output.writeInt(blobKeys.cardinality());
+					for (int key = blobKeys.nextSetBit(0); key >= 0; key = blobKeys.nextSetBit(key + 1)) {
+						output.writeInt(key);
+					}
+				}
+			}
+			
+			Files.move(tempFile.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+			log.info("Wrote blob index " + this.indexFile + " with " + this.types.size() + " blobs and " + this.keys.size() + " keys.");
+		} catch (IOException e) {
+			log.warn("Couldn't write blob index " + this.indexFile + "!", e);
+			
+			if (tempFile != null && tempFile.exists() && !(tempFile.delete())) {
+				log.warn("Couldn't delete temporary blob index " + tempFile + "!");
+			}
+		}
+	}
+	
+	/**
+	 * gives the number of indexed blobs
+	 *
+	 * @return the number of data blobs
+	 *
+	 * @since 0.2.0
+	 */
+	public int getBlobCount() {
+		return this.types.size();
+	}
+	
+	/**
+	 * gives the dictionary index of a {@link Tag} key and adds it to the dictionary, if necessary
+	 *
+	 * @param key the {@link Tag} key
+	 * @return the dictionary index of {@code key}
+	 *
+	 * @since 0.2.0
+	 */
+	private int encode(String key) {
+		Integer index = this.keyIndex.get(key);
+		
+		if (index == null) {
+			index = this.keys.size();
+			this.keys.add(key);
+			this.keyIndex.put(key, index);
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * starts recording a new data blob
+	 *
+	 * @since 0.2.0
+	 */
+	void startBlob() {
+		this.types.add(0);
+		this.bounds.add(new int[] {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE});
+		this.blobKeys.add(new BitSet());
+	}
+	
+	/**
+	 * creates a {@link Sink}, which records all {@link Entity}s in the current blob and passes them to another
+	 * {@link Sink}
+	 *
+	 * @param sink the {@link Sink} to pass the {@link Entity}s to
+	 * @return the recording {@link Sink}
+	 *
+	 * @since 0.2.0
+	 */
+	public Sink createRecorder(final Sink sink) {
+		return new Sink() {
+			@Override
+			public void initialize(Map<String, Object> metaData) {
+				sink.initialize(metaData);
+			}
+			
+			@Override
+			public void process(EntityContainer entityContainer) {
+				PbfBlobIndex.this.record(entityContainer.getEntity());
+				sink.process(entityContainer);
+			}
+			
+			@Override
+			public void complete() {
+				sink.complete();
+			}
+			
+			@Override
+			public void release() {
+				sink.release();
+			}
+		};
+	}
+	
+	/**
+	 * records an {@link Entity} in the current blob
+	 *
+	 * @param entity the {@link Entity} to record
+	 * @since 0.2.0
+	 */
+	private void record(Entity entity) {
+		int current = this.types.size() - 1;
+		if (current < 0 || entity instanceof Bound) {
+			return;
+		}
+		
+		if (entity instanceof Node) {
+			Node  node   = (Node) entity;
+			int   lat    = OsmSnapshot.encodeCoordinate(node.getLatitude());
+			int   lon    = OsmSnapshot.encodeCoordinate(node.getLongitude());
+			int[] bounds = this.bounds.get(current);
+			
+			bounds[0] = Math.min(bounds[0], lat);
+			bounds[1] = Math.min(bounds[1], lon);
+			bounds[2] = Math.max(bounds[2], lat);
+			bounds[3] = Math.max(bounds[3], lon);
+			
+			this.types.set(current, this.types.get(current) | PbfBlobIndex.NODES);
+		} else if (entity instanceof Way) {
+			this.types.set(current, this.types.get(current) | PbfBlobIndex.WAYS);
+		} else if (entity instanceof Relation) {
+			this.types.set(current, this.types.get(current) | PbfBlobIndex.RELATIONS);
+		}
+		
+		BitSet blobKeys = this.blobKeys.get(current);
+		for (Tag tag : entity.getTags()) {
+			blobKeys.set(this.encode(tag.getKey()));
+		}
+	}
+	
+	/**
+	 * selects the blobs, which could contain {@link Entity}s passing a filter<br>
+	 * {@link Way}s are kept, if they have one of the keys or a kept blob contains {@link Relation}s, because the members
+	 * of {@link Relation}s are often untagged. For the same reason {@link Node}s are kept, if they are inside the bounding
+	 * box and have one of the keys or a kept blob contains {@link Way}s.
+	 *
+	 * @param filter the {@link OsmFileFilter} to select the blobs for
+	 * @return {@code true} for every blob to read, {@code false} for every blob to skip
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean[] select(OsmFileFilter filter) {
+		int       count   = this.types.size();
+		boolean[] res     = new boolean[count];
+		boolean[] matches = new boolean[count];
+		
+		BitSet filterKeys = null;
+		if (filter.getKeys() != null) {
+			filterKeys = new BitSet();
+			
+			for (String key : filter.getKeys()) {
+				Integer index = this.keyIndex.get(key);
+				
+				if (index != null) {
+					filterKeys.set(index);
+				}
+			}
+		}
+		
+		boolean keepWays = false;
+		for (int i = 0; i < count; i++) {
+			matches[i] = filterKeys == null || this.blobKeys.get(i).intersects(filterKeys);
+			
+			if ((this.types.get(i) & PbfBlobIndex.RELATIONS) != 0 && matches[i]) {
+				res[i] = true;
+				keepWays = true;
+			}
+		}
+		
+		boolean keepNodes = false;
+		for (int i = 0; i < count; i++) {
+			if ((this.types.get(i) & PbfBlobIndex.WAYS) != 0 && (matches[i] || keepWays)) {
+				res[i] = true;
+				keepNodes = true;
+			}
+		}
+		
+		for (int i = 0; i < count; i++) {
+			int[] bounds = this.bounds.get(i);
+			
+			if ((this.types.get(i) & PbfBlobIndex.NODES) != 0 && (matches[i] || keepNodes) &&
+			    filter.intersects(OsmSnapshot.decodeCoordinate(bounds[0]), OsmSnapshot.decodeCoordinate(bounds[1]), OsmSnapshot.decodeCoordinate(bounds[2]), OsmSnapshot.decodeCoordinate(bounds[3]))) {
+				res[i] = true;
+			}
+		}
+		
+		return res;
+	}
+}
@@ -0,0 +1,141 @@
+package de.conterra.babelfish.overpass.io;
+
+import crosby.binary.osmosis.OsmosisBinaryParser;
+import crosby.binary.osmosis.OsmosisReader;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.osmbinary.file.BlockInputStream;
+import org.openstreetmap.osmosis.osmbinary.file.FileBlockPosition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+/**
+ * defines a reader of PBF streams like the {@link OsmosisReader}, which works together with a {@link PbfBlobIndex}<br>
+ * With a {@link OsmFileFilter} all data blobs, which the {@link PbfBlobIndex} doesn't select, will be skipped without
+ * decompressing them. Without a filter all blobs will be read and recorded in the {@link PbfBlobIndex}.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class PbfBlobReader
+		implements RunnableSource {
+	/**
+	 * the type of data blobs
+	 *
+	 * @since 0.2.0
+	 */
+	private static final String DATA_BLOB = "OSMData";
+	
+	/**
+	 * the {@link InputStream} to read
+	 *
+	 * @since 0.2.0
+	 */
+	private final InputStream  input;
+	/**
+	 * the {@link PbfBlobIndex} to select the blobs with or to record
+	 *
+	 * @since 0.2.0
+	 */
+	private final PbfBlobIndex index;
+	/**
+	 * the blobs to read ({@code null}, if all blobs should be read and recorded)
+	 *
+	 * @since 0.2.0
+	 */
+	private final boolean[]    selected;
+	
+	/**
+	 * the {@link Sink} to pass the read {@link org.openstreetmap.osmosis.core.domain.v0_6.Entity}s to
+	 *
+	 * @since 0.2.0
+	 */
+	private          Sink    sink;
+	/**
+	 * the number of skipped data blobs
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile int     skippedBlobs = 0;
+	/**
+	 * {@code true}, if the stream was read completely
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile boolean completed    = false;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param input  the {@link InputStream} to read
+	 * @param index  the {@link PbfBlobIndex} to select the blobs with or an empty one to record
+	 * @param filter the {@link OsmFileFilter} to select the blobs for or {@code null} to read and record all blobs
+	 * @since 0.2.0
+	 */
+	public PbfBlobReader(InputStream input, PbfBlobIndex index, OsmFileFilter filter) {
+		this.input = input;
+		this.index = index;
+		this.selected = filter == null ? null : index.select(filter);
+	}
+	
+	@Override
+	public void setSink(Sink sink) {
+		this.sink = sink;
+	}
+	
+	@Override
+	public void run() {
+		OsmosisBinaryParser parser = new OsmosisBinaryParser() {
+			/**
+			 * the number of the current data blob
+			 *
+			 * @since 0.2.0
+			 */
+			private int blob = -1;
+			
+			@Override
+			public boolean skipBlock(FileBlockPosition block) {
+				if (!(PbfBlobReader.DATA_BLOB.equals(block.getType()))) {
+					return super.skipBlock(block);
+				}
+				
+				this.blob++;
+				
+				if (PbfBlobReader.this.selected == null) {
+					PbfBlobReader.this.index.startBlob();
+				} else if (this.blob >= PbfBlobReader.this.selected.length) {
+					throw new OsmosisRuntimeException("The blob index " + PbfBlobReader.this.index.getIndexFile() + " doesn't match the PBF stream!");
+				} else if (!(PbfBlobReader.this.selected[this.blob])) {
+					PbfBlobReader.this.skippedBlobs++;
+					return true;
+				}
+				
+				return super.skipBlock(block);
+			}
+		};
+		parser.setSink(this.selected == null ? this.index.createRecorder(this.sink) : this.sink);
+		
+		try {
+			this.sink.initialize(Collections.<String, Object>emptyMap());
+			new BlockInputStream(this.input, parser).process();
+			this.completed = true;
+			
+			if (this.selected != null) {
+				log.debug("Skipped " + this.skippedBlobs + " of " + this.selected.length + " blobs of " + this.index.getFile().getDataFile() + ".");
+			}
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to process PBF stream", e);
+		} finally {
+			this.sink.release();
+		}
+	}
+}
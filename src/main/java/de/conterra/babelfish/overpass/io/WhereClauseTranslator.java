@@ -0,0 +1,880 @@
+package de.conterra.babelfish.overpass.io;
+
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * defines a class to translate where clauses to Overpass QL {@link Tag} filters<br>
+ * Supported are comparisons of {@link Tag}s with {@code =}, {@code <>}, {@code IN}, {@code LIKE} and
+ * {@code REGEXP(key, 'pattern')}, combined by {@code AND}, {@code OR} and parentheses. The translated filters select a
+ * superset of the matching features, so the where clause must still be applied to the result: Unsupported predicates
+ * within an {@code AND} are left out, the number of alternatives is limited to {@link #MAX_ALTERNATIVES} and typed or
+ * meta data fields (see {@link OverpassField}) are never translated. The parsed {@link Condition}s are also given by
+ * {@link #parse(String)}, e.g. to look them up in an index.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class WhereClauseTranslator {
+	/**
+	 * the maximum number of alternative filters (one Overpass statement each)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int MAX_ALTERNATIVES = 16;
+	
+	/**
+	 * the tokens of the where clause
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<Token> tokens;
+	/**
+	 * the position of the next token
+	 *
+	 * @since 0.2.0
+	 */
+	private       int         pos = 0;
+	
+	/**
+	 * private constructor, with the tokens of a where clause
+	 *
+	 * @param tokens the tokens to translate
+	 * @since 0.2.0
+	 */
+	private WhereClauseTranslator(List<Token> tokens) {
+		this.tokens = tokens;
+	}
+	
+	/**
+	 * translates a where clause to Overpass QL {@link Tag} filters
+	 *
+	 * @param whereClause the where clause to translate
+	 * @return the alternative filters (every filter is a sequence of {@code [key...]} conditions, which must all match)
+	 * or {@code null}, if no part of the where clause could be translated
+	 *
+	 * @since 0.2.0
+	 */
+	public static List<String> translate(String whereClause) {
+		List<List<Condition>> alternatives = WhereClauseTranslator.parse(whereClause);
+		
+		if (alternatives == null) {
+			return null;
+		}
+		
+		List<String> filters = new ArrayList<>(alternatives.size());
+		for (List<Condition> conditions : alternatives) {
+			StringBuilder filter = new StringBuilder();
+			for (Condition condition : conditions) {
+				filter.append(condition.toFilter());
+			}
+			
+			filters.add(filter.toString());
+		}
+		
+		return filters;
+	}
+	
+	/**
+	 * parses the supported {@link Tag} conditions of a where clause
+	 *
+	 * @param whereClause the where clause to parse
+	 * @return the alternatives (every alternative is a {@link List} of {@link Condition}s, which must all match) or
+	 * {@code null}, if no part of the where clause is supported
+	 *
+	 * @since 0.2.0
+	 */
+	public static List<List<Condition>> parse(String whereClause) {
+		if (StringUtils.isBlank(whereClause)) {
+			return null;
+		}
+		
+		try {
+			WhereClauseTranslator translator = new WhereClauseTranslator(WhereClauseTranslator.tokenize(whereClause));
+			List<List<Condition>> res        = translator.parseOr();
+			
+			if (translator.pos < translator.tokens.size()) {
+				throw new IllegalArgumentException("Unexpected token " + translator.peek().text + "!");
+			}
+			
+			return WhereClauseTranslator.isTrue(res) ? null : res;
+		} catch (IllegalArgumentException e) {
+			log.debug("Couldn't parse the where clause " + whereClause + ".", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * splits a where clause into tokens
+	 *
+	 * @param whereClause the where clause to split
+	 * @return the tokens
+	 *
+	 * @throws IllegalArgumentException if a string or an identifier isn't terminated
+	 * @since 0.2.0
+	 */
+	private static List<Token> tokenize(String whereClause)
+	throws IllegalArgumentException {
+		List<Token> res    = new ArrayList<>();
+		int         length = whereClause.length();
+		int         i      = 0;
+		
+		while (i < length) {
+			char c = whereClause.charAt(i);
+			
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '\'') {
+				StringBuilder value = new StringBuilder();
+				i++;
+				
+				while (true) {
+					if (i >= length) {
+						throw new IllegalArgumentException("Unterminated string!");
+					}
+					
+					char next = whereClause.charAt(i++);
+					if (next == '\'') {
+						if (i < length && whereClause.charAt(i) == '\'') {
+							value.append('\'');
+							i++;
+						} else {
+							break;
+						}
+					} else {
+						value.append(next);
+					}
+				}
+				
+				res.add(new Token(TokenType.STRING, value.toString()));
+			} else if (c == '"' || c == '[') {
+				char end   = c == '"' ? '"' : ']';
+				int  close = whereClause.indexOf(end, i + 1);
+				
+				if (close < 0) {
+					throw new IllegalArgumentException("Unterminated identifier!");
+				}
+				
+				res.add(new Token(TokenType.IDENTIFIER, whereClause.substring(i + 1, close)));
+				i = close + 1;
+			} else if (Character.isLetter(c) || c == '_') {
+				int start = i;
+				while (i < length && (Character.isLetterOrDigit(whereClause.charAt(i)) || "_:.".indexOf(whereClause.charAt(i)) >= 0)) {
+					i++;
+				}
+				
+				res.add(new Token(TokenType.IDENTIFIER, whereClause.substring(start, i)));
+			} else if (Character.isDigit(c) || c == '-' || c == '+') {
+				int start = i++;
+				while (i < length && (Character.isDigit(whereClause.charAt(i)) || whereClause.charAt(i) == '.')) {
+					i++;
+				}
+				
+				res.add(new Token(TokenType.NUMBER, whereClause.substring(start, i)));
+			} else if (i + 1 < length && ("<>".equals(whereClause.substring(i, i + 2)) || "!=".equals(whereClause.substring(i, i + 2)) || "<=".equals(whereClause.substring(i, i + 2)) || ">=".equals(whereClause.substring(i, i + 2)))) {
+				res.add(new Token(TokenType.SYMBOL, whereClause.substring(i, i + 2)));
+				i += 2;
+			} else {
+				res.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+				i++;
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the filter, which matches everything
+	 *
+	 * @return a single alternative without conditions
+	 *
+	 * @since 0.2.0
+	 */
+	private static List<List<Condition>> all() {
+		List<List<Condition>> res = new ArrayList<>(1);
+		res.add(Collections.<Condition>emptyList());
+		
+		return res;
+	}
+	
+	/**
+	 * checks, if a filter matches everything
+	 *
+	 * @param filter the alternatives of the filter
+	 * @return {@code true}, if an alternative has no conditions
+	 *
+	 * @since 0.2.0
+	 */
+	private static boolean isTrue(List<List<Condition>> filter) {
+		for (List<Condition> conditions : filter) {
+			if (conditions.isEmpty()) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * gives the next token without consuming it
+	 *
+	 * @return the next token or {@code null}, if all tokens were consumed
+	 *
+	 * @since 0.2.0
+	 */
+	private Token peek() {
+		return this.pos < this.tokens.size() ? this.tokens.get(this.pos) : null;
+	}
+	
+	/**
+	 * consumes the next token
+	 *
+	 * @return the consumed token
+	 *
+	 * @throws IllegalArgumentException if all tokens were consumed
+	 * @since 0.2.0
+	 */
+	private Token next()
+	throws IllegalArgumentException {
+		Token res = this.peek();
+		
+		if (res == null) {
+			throw new IllegalArgumentException("Unexpected end of the where clause!");
+		}
+		this.pos++;
+		
+		return res;
+	}
+	
+	/**
+	 * checks, if the next token is a keyword or symbol and consumes it in this case
+	 *
+	 * @param text the keyword or symbol (case insensitive)
+	 * @return {@code true}, if the token was consumed
+	 *
+	 * @since 0.2.0
+	 */
+	private boolean accept(String text) {
+		Token token = this.peek();
+		
+		if (token != null && token.type != TokenType.STRING && token.text.equalsIgnoreCase(text)) {
+			this.pos++;
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * consumes the next token, which must be a keyword or symbol
+	 *
+	 * @param text the keyword or symbol (case insensitive)
+	 * @throws IllegalArgumentException if the next token doesn't match
+	 * @since 0.2.0
+	 */
+	private void expect(String text)
+	throws IllegalArgumentException {
+		if (!(this.accept(text))) {
+			throw new IllegalArgumentException("Expected " + text + "!");
+		}
+	}
+	
+	/**
+	 * parses alternatives, which are combined by {@code OR}
+	 *
+	 * @return the filter
+	 *
+	 * @throws IllegalArgumentException if the where clause is invalid
+	 * @since 0.2.0
+	 */
+	private List<List<Condition>> parseOr()
+	throws IllegalArgumentException {
+		List<List<Condition>> res = this.parseAnd();
+		
+		while (this.accept("OR")) {
+			List<List<Condition>> other = this.parseAnd();
+			
+			if (WhereClauseTranslator.isTrue(res) || WhereClauseTranslator.isTrue(other) || res.size() + other.size() > WhereClauseTranslator.MAX_ALTERNATIVES) {
+				res = WhereClauseTranslator.all();
+			} else {
+				res.addAll(other);
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * parses predicates, which are combined by {@code AND}
+	 *
+	 * @return the filter
+	 *
+	 * @throws IllegalArgumentException if the where clause is invalid
+	 * @since 0.2.0
+	 */
+	private List<List<Condition>> parseAnd()
+	throws IllegalArgumentException {
+		List<List<Condition>> res = this.parsePrimary();
+		
+		while (this.accept("AND")) {
+			List<List<Condition>> other = this.parsePrimary();
+			
+			if (res.size() * other.size() > WhereClauseTranslator.MAX_ALTERNATIVES) {
+				if (WhereClauseTranslator.isTrue(res)) {
+					res = other;
+				}
+				continue;
+			}
+			
+			List<List<Condition>> combined = new ArrayList<>(res.size() * other.size());
+			for (List<Condition> left : res) {
+				for (List<Condition> right : other) {
+					List<Condition> conditions = new ArrayList<>(left);
+					conditions.addAll(right);
+					combined.add(conditions);
+				}
+			}
+			
+			res = combined;
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * parses a predicate or an expression in parentheses
+	 *
+	 * @return the filter
+	 *
+	 * @throws IllegalArgumentException if the where clause is invalid
+	 * @since 0.2.0
+	 */
+	private List<List<Condition>> parsePrimary()
+	throws IllegalArgumentException {
+		if (this.accept("(")) {
+			List<List<Condition>> res = this.parseOr();
+			this.expect(")");
+			
+			return res;
+		}
+		
+		Token token = this.peek();
+		if (token == null || token.type != TokenType.IDENTIFIER) {
+			this.skipPredicate();
+			return WhereClauseTranslator.all();
+		}
+		
+		int start = this.pos;
+		this.pos++;
+		
+		String    key       = token.text;
+		Condition condition = null;
+		if (key.equalsIgnoreCase("REGEXP") && this.accept("(")) {
+			Token field   = this.next();
+			this.expect(",");
+			Token pattern = this.next();
+			this.expect(")");
+			
+			key = field.text;
+			if (field.type == TokenType.IDENTIFIER && pattern.type == TokenType.STRING && WhereClauseTranslator.isPortable(pattern.text)) {
+				condition = new Condition(key, "~", pattern.text, null);
+			}
+		} else {
+			boolean negated = this.accept("NOT");
+			
+			if (this.accept("IN")) {
+				List<String> values   = new ArrayList<>();
+				List<String> patterns = new ArrayList<>();
+				this.expect("(");
+				do {
+					Token value = this.next();
+					values.add(value.type == TokenType.STRING ? value.text : null);
+					patterns.add(value.type == TokenType.STRING ? WhereClauseTranslator.escapeRegex(value.text) : null);
+				} while (this.accept(","));
+				this.expect(")");
+				
+				if (!(values.contains(null))) {
+					condition = new Condition(key, negated ? "!~" : "~", "^(" + StringUtils.join(patterns, "|") + ")$", negated ? null : values);
+				}
+			} else if (this.accept("LIKE")) {
+				Token pattern = this.next();
+				
+				if (pattern.type == TokenType.STRING) {
+					condition = new Condition(key, negated ? "!~" : "~", WhereClauseTranslator.likeToRegex(pattern.text), null);
+				}
+			} else if (!negated && (this.accept("=") || this.accept("<>") || this.accept("!="))) {
+				String operator = this.tokens.get(this.pos - 1).text.equals("=") ? "=" : "!=";
+				Token  value    = this.next();
+				
+				if (value.type == TokenType.STRING) {
+					condition = new Condition(key, operator, value.text, operator.equals("=") ? Collections.singletonList(value.text) : null);
+				}
+			}
+		}
+		
+		if (condition == null || !(WhereClauseTranslator.isTagKey(key))) {
+			this.pos = start;
+			this.skipPredicate();
+			
+			return WhereClauseTranslator.all();
+		}
+		
+		List<List<Condition>> res = new ArrayList<>(1);
+		res.add(Collections.singletonList(condition));
+		
+		return res;
+	}
+	
+	/**
+	 * skips an unsupported predicate up to the next {@code AND}, {@code OR} or closing parenthesis
+	 *
+	 * @throws IllegalArgumentException if the parentheses aren't balanced
+	 * @since 0.2.0
+	 */
+	private void skipPredicate()
+	throws IllegalArgumentException {
+		int     depth   = 0;
+		boolean between = false;
+		
+		while (this.peek() != null) {
+			Token token = this.peek();
+			
+			if (token.type == TokenType.SYMBOL && token.text.equals("(")) {
+				depth++;
+			} else if (token.type == TokenType.SYMBOL && token.text.equals(")")) {
+				if (depth == 0) {
+					return;
+				}
+				depth--;
+			} else if (depth == 0 && token.type == TokenType.IDENTIFIER) {
+				String keyword = token.text.toUpperCase(Locale.ROOT);
+				
+				if (keyword.equals("BETWEEN")) {
+					between = true;
+				} else if (keyword.equals("AND") && between) {
+					between = false;
+				} else if (keyword.equals("AND") || keyword.equals("OR")) {
+					return;
+				}
+			}
+			
+			this.pos++;
+		}
+		
+		if (depth != 0) {
+			throw new IllegalArgumentException("Unbalanced parentheses!");
+		}
+	}
+	
+	/**
+	 * checks, if a field is a {@link Tag} key, which could be filtered as string
+	 *
+	 * @param key the field name
+	 * @return {@code true}, if {@code key} isn't a meta data field or a typed {@link Tag}
+	 *
+	 * @since 0.2.0
+	 */
+	private static boolean isTagKey(String key) {
+		return !(key.startsWith("osm:") || key.equalsIgnoreCase("OBJECTID") || OverpassField.INTEGER_KEYS.contains(key) || OverpassField.DOUBLE_KEYS.contains(key) || OverpassField.DATE_KEYS.contains(key));
+	}
+	
+	/**
+	 * checks, if a regular expression has the same meaning in Java and in the POSIX syntax of the Overpass API
+	 *
+	 * @param pattern the regular expression
+	 * @return {@code true}, if {@code pattern} uses no Java specific constructs
+	 *
+	 * @since 0.2.0
+	 */
+	private static boolean isPortable(String pattern) {
+		if (pattern.contains("(?")) {
+			return false;
+		}
+		
+		for (int i = 0; i < pattern.length() - 1; i++) {
+			if (pattern.charAt(i) == '\\') {
+				if (Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+					return false;
+				}
+				i++;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * escapes all special characters of a regular expression
+	 *
+	 * @param value the literal value
+	 * @return the escaped value
+	 *
+	 * @since 0.2.0
+	 */
+	private static String escapeRegex(String value) {
+		StringBuilder res = new StringBuilder(value.length());
+		
+		for (char c : value.toCharArray()) {
+			if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) {
+				res.append('\\');
+			}
+			res.append(c);
+		}
+		
+		return res.toString();
+	}
+	
+	/**
+	 * converts a {@code LIKE} pattern to a regular expression
+	 *
+	 * @param pattern the {@code LIKE} pattern
+	 * @return the anchored regular expression
+	 *
+	 * @since 0.2.0
+	 */
+	private static String likeToRegex(String pattern) {
+		StringBuilder res = new StringBuilder("^");
+		
+		for (char c : pattern.toCharArray()) {
+			if (c == '%') {
+				res.append(".*");
+			} else if (c == '_') {
+				res.append('.');
+			} else {
+				res.append(WhereClauseTranslator.escapeRegex(String.valueOf(c)));
+			}
+		}
+		
+		return res.append('$').toString();
+	}
+	
+	/**
+	 * escapes a string for the Overpass QL
+	 *
+	 * @param value the string to escape
+	 * @return the escaped string in double quotes
+	 *
+	 * @since 0.2.0
+	 */
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+	
+	/**
+	 * defines a supported condition on a {@link Tag}
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	public static class Condition {
+		/**
+		 * the {@link Tag} key
+		 *
+		 * @since 0.2.0
+		 */
+		@Getter
+		private final    String       key;
+		/**
+		 * the Overpass QL operator ({@code =}, {@code !=}, {@code ~} or {@code !~})
+		 *
+		 * @since 0.2.0
+		 */
+		@Getter
+		private final    String       operator;
+		/**
+		 * the value or regular expression
+		 *
+		 * @since 0.2.0
+		 */
+		@Getter
+		private final    String       value;
+		/**
+		 * the values, of which the {@link Tag} must have one (for {@code =} and {@code IN}, {@code null} otherwise)
+		 *
+		 * @since 0.2.0
+		 */
+		@Getter
+		private final    List<String> values;
+		/**
+		 * the compiled regular expression of {@code ~} and {@code !~} conditions ({@code null}, if it wasn't needed yet)
+		 *
+		 * @since 0.2.0
+		 */
+		private volatile Pattern      pattern = null;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param key      the {@link Tag} key
+		 * @param operator the Overpass QL operator ({@code =}, {@code !=}, {@code ~} or {@code !~})
+		 * @param value    the value or regular expression
+		 * @param values   the values, of which the {@link Tag} must have one ({@code null}, if the condition isn't an
+		 *                 equality)
+		 * @since 0.2.0
+		 */
+		private Condition(String key, String operator, String value, List<String> values) {
+			this.key = key;
+			this.operator = operator;
+			this.value = value;
+			this.values = values == null ? null : Collections.unmodifiableList(values);
+		}
+		
+		/**
+		 * creates the Overpass QL {@link Tag} filter of this condition
+		 *
+		 * @return the filter
+		 *
+		 * @since 0.2.0
+		 */
+		public String toFilter() {
+			return "[" + WhereClauseTranslator.quote(this.key) + this.operator + WhereClauseTranslator.quote(this.value) + "]";
+		}
+		
+		/**
+		 * parses an Overpass QL {@link Tag} filter, like {@code ["key"="value"]}<br>
+		 * Supported are the operators {@code =}, {@code !=}, {@code ~} and {@code !~} and the existence of a key
+		 * ({@code ["key"]} or {@code [!"key"]}, parsed as {@code ~} or {@code !~} with an empty regular expression) with
+		 * quoted or plain keys and values. The brackets are optional. Regular expressions on keys and case insensitive
+		 * matching aren't supported.
+		 *
+		 * @param filter the filter to parse
+		 * @return the parsed {@link Condition} or {@code null}, if the filter isn't supported
+		 *
+		 * @since 0.2.0
+		 */
+		public static Condition fromFilter(String filter) {
+			String text = filter.trim();
+			if (text.startsWith("[") && text.endsWith("]")) {
+				text = text.substring(1, text.length() - 1).trim();
+			}
+			
+			int[]   pos     = {0};
+			boolean negated = text.startsWith("!");
+			if (negated) {
+				pos[0]++;
+			}
+			
+			String key = Condition.readFilterToken(text, pos);
+			if (StringUtils.isEmpty(key)) {
+				return null;
+			}
+			
+			String rest = text.substring(pos[0]).trim();
+			if (rest.isEmpty()) {
+				return new Condition(key, negated ? "!~" : "~", StringUtils.EMPTY, null);
+			}
+			
+			String operator;
+			if (negated) {
+				return null;
+			} else if (rest.startsWith("!=") || rest.startsWith("!~")) {
+				operator = rest.substring(0, 2);
+			} else if (rest.startsWith("=") || rest.startsWith("~")) {
+				operator = rest.substring(0, 1);
+			} else {
+				return null;
+			}
+			
+			rest = rest.substring(operator.length()).trim();
+			pos[0] = 0;
+			
+			String value = Condition.readFilterToken(rest, pos);
+			if (value == null || !(rest.substring(pos[0]).trim().isEmpty())) {
+				return null;
+			}
+			
+			Condition res = new Condition(key, operator, value, "=".equals(operator) ? Collections.singletonList(value) : null);
+			
+			if (operator.endsWith("~")) {
+				try {
+					res.getPattern();
+				} catch (PatternSyntaxException e) {
+					log.debug("Couldn't compile the regular expression of the filter " + filter + ".", e);
+					return null;
+				}
+			}
+			
+			return res;
+		}
+		
+		/**
+		 * reads a quoted or plain key or value of an Overpass QL {@link Tag} filter
+		 *
+		 * @param text the filter
+		 * @param pos  the position to start at, which is moved behind the read token
+		 * @return the unescaped token or {@code null}, if a quoted token isn't terminated
+		 *
+		 * @since 0.2.0
+		 */
+		private static String readFilterToken(String text, int[] pos) {
+			int length = text.length();
+			
+			while (pos[0] < length && Character.isWhitespace(text.charAt(pos[0]))) {
+				pos[0]++;
+			}
+			
+			if (pos[0] >= length) {
+				return StringUtils.EMPTY;
+			}
+			
+			char          quote = text.charAt(pos[0]);
+			StringBuilder res   = new StringBuilder();
+			
+			if (quote != '"' && quote != '\'') {
+				while (pos[0] < length && "=!~,".indexOf(text.charAt(pos[0])) < 0 && !(Character.isWhitespace(text.charAt(pos[0])))) {
+					res.append(text.charAt(pos[0]++));
+				}
+				
+				return res.toString();
+			}
+			
+			for (pos[0]++; pos[0] < length; pos[0]++) {
+				char c = text.charAt(pos[0]);
+				
+				if (c == quote) {
+					pos[0]++;
+					return res.toString();
+				} else if (c == '\\' && pos[0] + 1 < length) {
+					c = text.charAt(++pos[0]);
+					res.append(c == 'n' ? '\n' : c == 't' ? '\t' : c);
+				} else {
+					res.append(c);
+				}
+			}
+			
+			return null;
+		}
+		
+		/**
+		 * gives the compiled regular expression of this condition
+		 *
+		 * @return the compiled regular expression
+		 *
+		 * @throws PatternSyntaxException if the value isn't a valid regular expression
+		 * @since 0.2.0
+		 */
+		private Pattern getPattern()
+		throws PatternSyntaxException {
+			Pattern res = this.pattern;
+			
+			if (res == null) {
+				res = Pattern.compile(this.value);
+				this.pattern = res;
+			}
+			
+			return res;
+		}
+		
+		/**
+		 * checks, if an {@link Entity} matches this condition, like the Overpass API would check it<br>
+		 * Regular expressions have to match a part of the value only.
+		 *
+		 * @param entity the {@link Entity} to check
+		 * @return {@code true}, if the {@link Tag}s of {@code entity} match this condition
+		 *
+		 * @since 0.2.0
+		 */
+		public boolean matches(Entity entity) {
+			String tagValue = null;
+			for (Tag tag : entity.getTags()) {
+				if (tag.getKey().equals(this.key)) {
+					tagValue = tag.getValue();
+					break;
+				}
+			}
+			
+			switch (this.operator) {
+				case "=":
+					return this.value.equals(tagValue);
+				case "!=":
+					return !(this.value.equals(tagValue));
+				case "~":
+					return tagValue != null && this.getPattern().matcher(tagValue).find();
+				default:
+					return tagValue == null || !(this.getPattern().matcher(tagValue).find());
+			}
+		}
+	}
+	
+	/**
+	 * defines the types of the tokens of a where clause
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private enum TokenType {
+		/**
+		 * a field name or keyword
+		 *
+		 * @since 0.2.0
+		 */
+		IDENTIFIER,
+		/**
+		 * a string literal
+		 *
+		 * @since 0.2.0
+		 */
+		STRING,
+		/**
+		 * a numeric literal
+		 *
+		 * @since 0.2.0
+		 */
+		NUMBER,
+		/**
+		 * an operator or a parenthesis
+		 *
+		 * @since 0.2.0
+		 */
+		SYMBOL
+	}
+	
+	/**
+	 * defines a token of a where clause
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private static class Token {
+		/**
+		 * the {@link TokenType}
+		 *
+		 * @since 0.2.0
+		 */
+		private final TokenType type;
+		/**
+		 * the text (without quotes)
+		 *
+		 * @since 0.2.0
+		 */
+		private final String    text;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param type the {@link TokenType}
+		 * @param text the text (without quotes)
+		 * @since 0.2.0
+		 */
+		private Token(TokenType type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+	}
+}
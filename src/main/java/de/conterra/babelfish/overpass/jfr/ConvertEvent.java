@@ -0,0 +1,70 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of converting OpenStreetMap entities to features
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.Convert")
+@Label("Overpass Convert")
+@Description("conversion of OpenStreetMap entities to features")
+public class ConvertEvent
+		extends OverpassEvent {
+	/**
+	 * the simple name of the geometry type
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Geometry Type")
+	private String geometryType;
+	/**
+	 * the number of entities to convert
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Entity Count")
+	private int    entityCount;
+	/**
+	 * the number of created features
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Feature Count")
+	private int    featureCount;
+	
+	/**
+	 * sets the geometry type
+	 *
+	 * @param geometryType the geometry {@link Class}
+	 * @since 0.2.0
+	 */
+	public void setGeometryType(Class<?> geometryType) {
+		this.geometryType = geometryType == null ? null : geometryType.getSimpleName();
+	}
+	
+	/**
+	 * sets the number of entities to convert
+	 *
+	 * @param entityCount the number of entities
+	 * @since 0.2.0
+	 */
+	public void setEntityCount(int entityCount) {
+		this.entityCount = entityCount;
+	}
+	
+	/**
+	 * sets the number of created features
+	 *
+	 * @param featureCount the number of features
+	 * @since 0.2.0
+	 */
+	public void setFeatureCount(int featureCount) {
+		this.featureCount = featureCount;
+	}
+}
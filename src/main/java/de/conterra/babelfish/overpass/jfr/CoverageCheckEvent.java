@@ -0,0 +1,70 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of the check, which parts of a requested area are already stored
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.CoverageCheck")
+@Label("Overpass Coverage Check")
+@Description("check of the stored envelopes against a requested area")
+public class CoverageCheckEvent
+		extends OverpassEvent {
+	/**
+	 * the number of stored envelopes, which were checked
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Stored Envelopes")
+	private int     storedEnvelopes;
+	/**
+	 * the number of separate areas, which must be requested
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Missing Areas")
+	private int     missingAreas;
+	/**
+	 * {@code true}, if the requested area is completely stored
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Covered")
+	private boolean covered;
+	
+	/**
+	 * sets the number of checked envelopes
+	 *
+	 * @param storedEnvelopes the number of stored envelopes
+	 * @since 0.2.0
+	 */
+	public void setStoredEnvelopes(int storedEnvelopes) {
+		this.storedEnvelopes = storedEnvelopes;
+	}
+	
+	/**
+	 * sets the number of separate areas, which must be requested
+	 *
+	 * @param missingAreas the number of missing areas
+	 * @since 0.2.0
+	 */
+	public void setMissingAreas(int missingAreas) {
+		this.missingAreas = missingAreas;
+	}
+	
+	/**
+	 * sets, if the requested area is completely stored
+	 *
+	 * @param covered {@code true}, if the requested area is completely stored
+	 * @since 0.2.0
+	 */
+	public void setCovered(boolean covered) {
+		this.covered = covered;
+	}
+}
@@ -0,0 +1,53 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of an HTTP request on the Overpass API (until the response body is consumed and closed)
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.Fetch")
+@Label("Overpass Fetch")
+@Description("HTTP request on the Overpass API, until the response body is consumed")
+public class FetchEvent
+		extends OverpassEvent {
+	/**
+	 * the number of attempts to get the response
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Attempts")
+	private int attempts;
+	/**
+	 * the last HTTP status code
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Status Code")
+	private int statusCode = -1;
+	
+	/**
+	 * sets the number of attempts to get the response
+	 *
+	 * @param attempts the number of attempts
+	 * @since 0.2.0
+	 */
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+	
+	/**
+	 * sets the last HTTP status code
+	 *
+	 * @param statusCode the HTTP status code
+	 * @since 0.2.0
+	 */
+	public void setStatusCode(int statusCode) {
+		this.statusCode = statusCode;
+	}
+}
@@ -0,0 +1,84 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.opengis.geometry.Envelope;
+
+/**
+ * defines the base of all Java Flight Recorder {@link Event}s of the Overpass plugin
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Category({"Babelfish", "Overpass"})
+@StackTrace(false)
+public abstract class OverpassEvent
+		extends Event {
+	/**
+	 * the identifier of the layer, which caused the event ({@code -1}, if unknown)
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Layer ID")
+	private int    layerId = -1;
+	/**
+	 * the requested bounding box (as {@code minX,minY,maxX,maxY})
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Bounding Box")
+	private String bbox;
+	
+	/**
+	 * sets the identifier of the layer, which caused the event
+	 *
+	 * @param layerId the layer identifier
+	 * @since 0.2.0
+	 */
+	public void setLayerId(int layerId) {
+		this.layerId = layerId;
+	}
+	
+	/**
+	 * sets the requested bounding box
+	 *
+	 * @param envelope the requested {@link Envelope}
+	 * @since 0.2.0
+	 */
+	public void setBbox(Envelope envelope) {
+		if (envelope == null) {
+			this.bbox = null;
+			return;
+		}
+		
+		int           dimension = envelope.getDimension();
+		StringBuilder builder   = new StringBuilder();
+		
+		for (int i = 0; i < dimension; i++) {
+			builder.append(envelope.getMinimum(i)).append(',');
+		}
+		for (int i = 0; i < dimension; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			
+			builder.append(envelope.getMaximum(i));
+		}
+		
+		this.bbox = builder.toString();
+	}
+	
+	/**
+	 * sets the requested bounding box from the {@link Envelope} of a {@link GeometryObject}
+	 *
+	 * @param geometry the requested {@link GeometryObject}
+	 * @since 0.2.0
+	 */
+	public void setBbox(GeometryObject geometry) {
+		this.setBbox(geometry == null ? null : geometry.getEnvelope());
+	}
+}
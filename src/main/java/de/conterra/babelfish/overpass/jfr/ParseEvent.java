@@ -0,0 +1,53 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of reading OpenStreetMap entities from a response or a file
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.Parse")
+@Label("Overpass Parse")
+@Description("reading of OpenStreetMap entities from an Overpass response or a file")
+public class ParseEvent
+		extends OverpassEvent {
+	/**
+	 * the source of the entities (a file path or {@code Overpass API})
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Source")
+	private String source;
+	/**
+	 * the number of read entities
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Entity Count")
+	private int    entityCount;
+	
+	/**
+	 * sets the source of the entities
+	 *
+	 * @param source the source
+	 * @since 0.2.0
+	 */
+	public void setSource(String source) {
+		this.source = source;
+	}
+	
+	/**
+	 * sets the number of read entities
+	 *
+	 * @param entityCount the number of entities
+	 * @since 0.2.0
+	 */
+	public void setEntityCount(int entityCount) {
+		this.entityCount = entityCount;
+	}
+}
@@ -0,0 +1,121 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of a whole query, executed on a layer
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.Query")
+@Label("Overpass Query")
+@Description("execution of a query on an Overpass layer")
+public class QueryEvent
+		extends OverpassEvent {
+	/**
+	 * the where clause of the query
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Where Clause")
+	private String  whereClause;
+	/**
+	 * {@code true}, if the where clause was pushed down to the Overpass API
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Pushed Down")
+	private boolean pushedDown     = false;
+	/**
+	 * {@code true}, if the result was taken from the query result cache
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Cached")
+	private boolean cached         = false;
+	/**
+	 * {@code true}, if the result consists of clusters
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Clustered")
+	private boolean clustered      = false;
+	/**
+	 * the number of features, which matched the spatial filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Candidate Count")
+	private int     candidateCount = -1;
+	/**
+	 * the number of returned features ({@code -1}, if unknown)
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Result Count")
+	private int     resultCount    = -1;
+	
+	/**
+	 * sets the where clause of the query
+	 *
+	 * @param whereClause the where clause
+	 * @since 0.2.0
+	 */
+	public void setWhereClause(String whereClause) {
+		this.whereClause = whereClause;
+	}
+	
+	/**
+	 * sets, if the where clause was pushed down to the Overpass API
+	 *
+	 * @param pushedDown {@code true}, if the where clause was pushed down
+	 * @since 0.2.0
+	 */
+	public void setPushedDown(boolean pushedDown) {
+		this.pushedDown = pushedDown;
+	}
+	
+	/**
+	 * sets, if the result was taken from the query result cache
+	 *
+	 * @param cached {@code true}, if the result was cached
+	 * @since 0.2.0
+	 */
+	public void setCached(boolean cached) {
+		this.cached = cached;
+	}
+	
+	/**
+	 * sets, if the result consists of clusters
+	 *
+	 * @param clustered {@code true}, if the result consists of clusters
+	 * @since 0.2.0
+	 */
+	public void setClustered(boolean clustered) {
+		this.clustered = clustered;
+	}
+	
+	/**
+	 * sets the number of features, which matched the spatial filter
+	 *
+	 * @param candidateCount the number of candidates
+	 * @since 0.2.0
+	 */
+	public void setCandidateCount(int candidateCount) {
+		this.candidateCount = candidateCount;
+	}
+	
+	/**
+	 * sets the number of returned features
+	 *
+	 * @param resultCount the number of returned features
+	 * @since 0.2.0
+	 */
+	public void setResultCount(int resultCount) {
+		this.resultCount = resultCount;
+	}
+}
@@ -0,0 +1,53 @@
+package de.conterra.babelfish.overpass.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * event of filtering the stored features by a spatial filter
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Name("de.conterra.babelfish.overpass.SpatialFilter")
+@Label("Overpass Spatial Filter")
+@Description("filtering of the stored features by a spatial filter")
+public class SpatialFilterEvent
+		extends OverpassEvent {
+	/**
+	 * the number of stored features, which were checked
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Candidate Count")
+	private int candidateCount;
+	/**
+	 * the number of features, which matched the spatial filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Label("Result Count")
+	private int resultCount;
+	
+	/**
+	 * sets the number of checked features
+	 *
+	 * @param candidateCount the number of candidates
+	 * @since 0.2.0
+	 */
+	public void setCandidateCount(int candidateCount) {
+		this.candidateCount = candidateCount;
+	}
+	
+	/**
+	 * sets the number of features, which matched the spatial filter
+	 *
+	 * @param resultCount the number of matched features
+	 * @since 0.2.0
+	 */
+	public void setResultCount(int resultCount) {
+		this.resultCount = resultCount;
+	}
+}
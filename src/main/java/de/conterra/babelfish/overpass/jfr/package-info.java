@@ -0,0 +1,8 @@
+/**
+ * package of Java Flight Recorder events to profile the query pipeline
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+package de.conterra.babelfish.overpass.jfr;
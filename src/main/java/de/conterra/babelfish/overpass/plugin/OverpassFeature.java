@@ -1,5 +1,6 @@
 package de.conterra.babelfish.overpass.plugin;
 
+import de.conterra.babelfish.overpass.io.OverpassHandler;
 import de.conterra.babelfish.overpass.store.PopupStore;
 import de.conterra.babelfish.plugin.v10_02.feature.Attachment;
 import de.conterra.babelfish.plugin.v10_02.feature.Feature;
@@ -7,59 +8,88 @@ import de.conterra.babelfish.plugin.v10_02.feature.Popup;
 import de.conterra.babelfish.plugin.v10_02.object.feature.FeatureObject;
 import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 
+import java.lang.ref.WeakReference;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
- * defines a {@link Feature}
+ * defines a {@link Feature}<br>
+ * Subclasses could create the {@link FeatureObject} on request (see {@link #createFeature()}). It will be cached
+ * weakly then, so it is created only once as long as it is in use, but doesn't stay in memory afterwards.
  *
  * @param <T> the {@link FeatureObject} type
  * @author ChrissW-R1
- * @version 0.1.0
+ * @version 0.2.0
  * @since 0.1.0
  */
 public class OverpassFeature<T extends FeatureObject>
 		implements Feature<T> {
 	/**
-	 * the {@link FeatureObject}
+	 * the {@link FeatureObject} ({@code null}, if a subclass creates it on request)
 	 *
 	 * @since 0.1.0
 	 */
-	private final T feature;
-	
+	private final    T                feature;
 	/**
-	 * a {@link Set} of all {@link Attachment}s
+	 * the last created {@link FeatureObject} ({@code null}, if it wasn't created yet)
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile WeakReference<T> cache       = null;
+	/**
+	 * a {@link Set} of all {@link Attachment}s ({@code null}, if no {@link Attachment} was added yet)
 	 *
 	 * @since 0.1.0
 	 */
-	private final Set<Attachment> attachments = new LinkedHashSet<>();
+	private          Set<Attachment>  attachments = null;
 	/**
 	 * the {@link EntityType} of the {@link FeatureObject}
 	 *
 	 * @since 0.1.0
 	 */
-	private final EntityType entityType;
+	private final    EntityType       entityType;
 	/**
-	 * the global unique identifier
+	 * the global unique identifier (the identifier of {@link EntityType#Relation}s is shifted by
+	 * {@link OverpassHandler#RELATION_OFFSET})
 	 *
 	 * @since 0.1.0
 	 */
-	private final long id;
+	private final    long             id;
 	
 	/**
 	 * standard constructor
 	 *
 	 * @param entityType the {@link EntityType}
-	 * @param id         the global unique identifier (of the feature in the OpenStreetMap database)
+	 * @param id         the global unique identifier (see {@link OverpassHandler#getKey(EntityType, long)})
 	 * @param feature    the {@link FeatureObject}
+	 * @throws IllegalArgumentException if {@code feature} is {@code null}
 	 * @since 0.1.0
 	 */
-	public OverpassFeature(EntityType entityType, long id, T feature) {
+	public OverpassFeature(EntityType entityType, long id, T feature)
+	throws IllegalArgumentException {
+		if (feature == null) {
+			throw new IllegalArgumentException("No feature object was given for " + entityType + " " + id + "!");
+		}
+		
 		this.entityType = entityType;
 		this.id = id;
 		this.feature = feature;
 	}
 	
+	/**
+	 * constructor for subclasses, which create the {@link FeatureObject} on request<br>
+	 * They have to override {@link #createFeature()}.
+	 *
+	 * @param entityType the {@link EntityType}
+	 * @param id         the global unique identifier (see {@link OverpassHandler#getKey(EntityType, long)})
+	 * @since 0.2.0
+	 */
+	protected OverpassFeature(EntityType entityType, long id) {
+		this.entityType = entityType;
+		this.id = id;
+		this.feature = null;
+	}
+	
 	/**
 	 * gives the {@link FeatureObject}
 	 *
@@ -69,17 +99,44 @@ public class OverpassFeature<T extends FeatureObject>
 	 */
 	@Override
 	public T getFeature() {
-		return this.feature;
+		if (this.feature != null) {
+			return this.feature;
+		}
+		
+		WeakReference<T> cache = this.cache;
+		T                res   = cache == null ? null : cache.get();
+		
+		if (res == null) {
+			res = this.createFeature();
+			this.cache = new WeakReference<>(res);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the {@link FeatureObject}, if it wasn't given on construction<br>
+	 * It is called only for instances of subclasses, which used {@link #OverpassFeature(EntityType, long)}, so they
+	 * have to override it. Concurrent calls of {@link #getFeature()} could create it more than once.
+	 *
+	 * @return the created {@link FeatureObject}
+	 *
+	 * @throws UnsupportedOperationException if the subclass doesn't override it
+	 * @since 0.2.0
+	 */
+	protected T createFeature()
+	throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("No feature object was given for " + this.getEntityType() + " " + this.getId() + "!");
 	}
 	
 	@Override
-	public Set<? extends Attachment> getAttachments() {
-		return new LinkedHashSet<>(this.attachments);
+	public synchronized Set<? extends Attachment> getAttachments() {
+		return this.attachments == null ? new LinkedHashSet<Attachment>() : new LinkedHashSet<>(this.attachments);
 	}
 	
 	@Override
 	public Popup getPopup() {
-		return PopupStore.getPopup(this.getId(), this.getEntityType());
+		return PopupStore.getPopup(OverpassHandler.getId(this.getEntityType(), this.getId()), this.getEntityType());
 	}
 	
 	/**
@@ -91,7 +148,11 @@ public class OverpassFeature<T extends FeatureObject>
 	 * @see Set#add(Object)
 	 * @since 0.1.0
 	 */
-	public boolean addAttachment(Attachment attachment) {
+	public synchronized boolean addAttachment(Attachment attachment) {
+		if (this.attachments == null) {
+			this.attachments = new LinkedHashSet<>();
+		}
+		
 		return this.attachments.add(attachment);
 	}
 	
@@ -104,8 +165,8 @@ public class OverpassFeature<T extends FeatureObject>
 	 * @see Set#remove(Object)
 	 * @since 0.1.0
 	 */
-	public boolean removeAttachment(Attachment attachment) {
-		return this.attachments.remove(attachment);
+	public synchronized boolean removeAttachment(Attachment attachment) {
+		return this.attachments != null && this.attachments.remove(attachment);
 	}
 	
 	/**
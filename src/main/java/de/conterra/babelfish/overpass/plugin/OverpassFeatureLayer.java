@@ -68,6 +68,12 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 	 * @since 0.1.0
 	 */
 	private final FeatureStore<G> store;
+	/**
+	 * {@code true}, if lines and polygons are returned with simplified geometries at small scales
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile boolean      generalized = false;
 	
 	/**
 	 * private standard constructor
@@ -85,6 +91,8 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 		this.name = name;
 		this.desc = desc;
 		this.store = store;
+		
+		this.store.setLayerId(id);
 	}
 	
 	/**
@@ -254,13 +262,17 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 			
 			Image image = OverpassFeatureLayer.parseImage(nodeLayer.getSymbol());
 			
+			OverpassNodeLayer res;
 			if (useFile) {
-				return new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), dataFile, image);
+				res = new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), dataFile, image);
 			} else if (useScript) {
-				return new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), script, image);
+				res = new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), script, image);
 			} else {
-				return new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), new HashSet<>(nodeLayer.getMetaFilter()), image);
+				res = new OverpassNodeLayer(nodeLayer.getId(), nodeLayer.getName(), nodeLayer.getDesc(), new HashSet<>(nodeLayer.getMetaFilter()), image);
 			}
+			
+			res.setClustered(nodeLayer.isCluster());
+			return res;
 		} else if (layer instanceof LineLayer) {
 			LineLayer lineLayer = (LineLayer) layer;
 			
@@ -268,13 +280,17 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 			
 			SimpleLineSymbol symbol = OverpassFeatureLayer.parseSymbol(lineLayer.getSymbol());
 			
+			OverpassLineLayer res;
 			if (useFile) {
-				return new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), dataFile, symbol);
+				res = new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), dataFile, symbol);
 			} else if (useScript) {
-				return new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), script, symbol);
+				res = new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), script, symbol);
 			} else {
-				return new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), new HashSet<>(lineLayer.getMetaFilter()), symbol);
+				res = new OverpassLineLayer(lineLayer.getId(), lineLayer.getName(), lineLayer.getDesc(), new HashSet<>(lineLayer.getMetaFilter()), symbol);
 			}
+			
+			res.setGeneralized(lineLayer.isGeneralize());
+			return res;
 		} else if (layer instanceof PolygonLayer) {
 			PolygonLayer polygonLayer = (PolygonLayer) layer;
 			
@@ -287,13 +303,17 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 				sfs = new SimpleFillSymbol(SFSStyle.Solid, Color.decode(symbol.getColor()), OverpassFeatureLayer.parseSymbol(symbol.getOutline()));
 			}
 			
+			OverpassPolygonLayer res;
 			if (useFile) {
-				return new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), dataFile, sfs);
+				res = new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), dataFile, sfs);
 			} else if (useScript) {
-				return new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), script, sfs);
+				res = new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), script, sfs);
 			} else {
-				return new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), new HashSet<>(polygonLayer.getMetaFilter()), sfs);
+				res = new OverpassPolygonLayer(polygonLayer.getId(), polygonLayer.getName(), polygonLayer.getDesc(), new HashSet<>(polygonLayer.getMetaFilter()), sfs);
 			}
+			
+			res.setGeneralized(polygonLayer.isGeneralize());
+			return res;
 		}
 		
 		String msg = "The given layer has an unknown type!";
@@ -357,9 +377,22 @@ public abstract class OverpassFeatureLayer<G extends GeometryObject>
 		return new LinkedHashSet<>();
 	}
 	
+	/**
+	 * enables or disables the generalization of the returned geometries<br>
+	 * If enabled, lines and polygons are returned simplified to the size of a pixel at small scales, otherwise always in
+	 * full resolution.
+	 *
+	 * @param generalized {@code true} to simplify the returned geometries
+	 * @see OverpassQuery#OverpassQuery(FeatureStore, boolean)
+	 * @since 0.2.0
+	 */
+	public void setGeneralized(boolean generalized) {
+		this.generalized = generalized;
+	}
+	
 	@Override
 	public Query<GeometryFeatureObject<G>> getQuery() {
-		return new OverpassQuery<G>(this.store);
+		return new OverpassQuery<G>(this.store, this.generalized);
 	}
 	
 	@Override
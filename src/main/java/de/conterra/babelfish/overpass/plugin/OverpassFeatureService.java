@@ -2,7 +2,7 @@ package de.conterra.babelfish.overpass.plugin;
 
 import de.conterra.babelfish.overpass.config.*;
 import de.conterra.babelfish.overpass.io.OsmFile;
-import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.overpass.store.OsmFileLoader;
 import de.conterra.babelfish.plugin.Plugin;
 import de.conterra.babelfish.plugin.v10_02.feature.FeatureLayer;
 import de.conterra.babelfish.plugin.v10_02.feature.FeatureService;
@@ -12,8 +12,6 @@ import de.conterra.babelfish.plugin.v10_02.object.feature.FeatureObject;
 import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
 import de.conterra.babelfish.util.DataUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
-import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 
 import java.awt.*;
 import java.io.File;
@@ -96,22 +94,8 @@ public class OverpassFeatureService
 			String  categoryTag       = service.getCategoryTag();
 			String  categoryDelimiter = service.getCategoryDelimiter();
 			
-			Set<String> typeValuesSet = new HashSet<>();
-			for (Entity entity : OverpassHandler.getFeatures(file).values()) {
-				for (Tag tag : entity.getTags()) {
-					if (tag.getKey().equals(categoryTag)) {
-						String tagValue = tag.getValue();
-						
-						typeValuesSet.add(tagValue);
-						typeValuesSet.addAll(Arrays.asList(tagValue.split(categoryDelimiter)));
-						
-						break;
-					}
-				}
-			}
-			
-			List<String> typeValuesList = new LinkedList<>(typeValuesSet);
-			Collections.sort(typeValuesList);
+			OsmFileLoader loader         = OsmFileLoader.getInstance(file, categoryTag, categoryDelimiter);
+			List<String>  typeValuesList = loader.getCategoryValues();
 			
 			Map<String, String> properties = new HashMap<>();
 			properties.put("category.key", categoryTag);
@@ -199,6 +183,8 @@ public class OverpassFeatureService
 					}
 				}
 			}
+			
+			loader.retainRegistered();
 		}
 	}
 	
@@ -1,14 +1,23 @@
 package de.conterra.babelfish.overpass.plugin;
 
+import de.conterra.babelfish.overpass.store.ClusterIndex;
 import de.conterra.babelfish.plugin.v10_02.feature.Field;
 import de.conterra.babelfish.plugin.v10_02.feature.FieldType;
 import de.conterra.babelfish.plugin.v10_02.object.domain.DomainObject;
 import de.conterra.babelfish.plugin.v10_02.object.domain.RangeDomain;
 import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.osmbinary.Osmformat.ChangeSet;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * defines an OpenStreetMap meta key
  *
@@ -18,19 +27,50 @@ import org.openstreetmap.osmosis.osmbinary.Osmformat.ChangeSet;
  */
 public class OverpassField
 		implements Field {
+	/**
+	 * the keys of all {@link Tag}s, which contain integer values
+	 *
+	 * @since 0.2.0
+	 */
+	public static final Set<String>   INTEGER_KEYS        = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"building:levels", "capacity", "lanes", "layer", "levels", "population", "seats", "step_count"
+	)));
+	/**
+	 * the keys of all {@link Tag}s, which contain decimal values
+	 *
+	 * @since 0.2.0
+	 */
+	public static final Set<String>   DOUBLE_KEYS         = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"ele", "est_width", "height", "min_height", "width"
+	)));
+	/**
+	 * the keys of all {@link Tag}s, which contain ISO 8601 dates
+	 *
+	 * @since 0.2.0
+	 */
+	public static final Set<String>   DATE_KEYS           = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"check_date", "survey:date"
+	)));
+	/**
+	 * the suffix of the {@link FieldType#String} field, which keeps the {@link Tag} values of a typed field, which don't
+	 * match its type (see {@link #parse(String)})
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String        RAW_SUFFIX          = ":raw";
 	/**
 	 * {@link OverpassField}, which stores the editor
 	 *
 	 * @since 0.1.0
 	 */
-	public static final OverpassField USER_FIELD       = new OverpassField("osm:user");
+	public static final OverpassField USER_FIELD          = new OverpassField("osm:user");
 	/**
 	 * {@link OverpassField}, which stores the version<br>
 	 * (how many changes were made on the {@link Entity}
 	 *
 	 * @since 0.1.0
 	 */
-	public static final OverpassField VERSION_FIELD    = new OverpassField("osm:version") {
+	public static final OverpassField VERSION_FIELD       = new OverpassField("osm:version") {
 		private final int maxIntLength = Integer.toString(Integer.MAX_VALUE).length();
 		private final RangeDomain domain = new RangeDomain("version range", 1, Integer.MAX_VALUE);
 		
@@ -54,7 +94,7 @@ public class OverpassField
 	 *
 	 * @since 0.1.0
 	 */
-	public static final OverpassField LASTCHANGE_FIELD = new OverpassField("osm:lastChange") {
+	public static final OverpassField LASTCHANGE_FIELD    = new OverpassField("osm:lastChange") {
 		@Override
 		public FieldType getType() {
 			return FieldType.Date;
@@ -70,7 +110,7 @@ public class OverpassField
 	 *
 	 * @since 0.1.0
 	 */
-	public static final OverpassField CHANGESET_FIELD  = new OverpassField("osm:changeset") {
+	public static final OverpassField CHANGESET_FIELD     = new OverpassField("osm:changeset") {
 		private final int maxLongLength = Long.toString(Long.MAX_VALUE).length();
 		
 		@Override
@@ -88,7 +128,26 @@ public class OverpassField
 	 *
 	 * @since 0.2.0
 	 */
-	public static final OverpassField NAME_FIELD       = new OverpassField("name");
+	public static final OverpassField NAME_FIELD          = new OverpassField("name");
+	/**
+	 * {@link OverpassField} of the number of {@link Node}s, which are represented by a cluster (see
+	 * {@link ClusterIndex})
+	 *
+	 * @since 0.2.0
+	 */
+	public static final OverpassField CLUSTER_COUNT_FIELD = new OverpassField("cluster:count") {
+		private final int maxIntLength = Integer.toString(Integer.MAX_VALUE).length();
+		
+		@Override
+		public FieldType getType() {
+			return FieldType.Integer;
+		}
+		
+		@Override
+		public int getLength() {
+			return this.maxIntLength;
+		}
+	};
 	
 	/**
 	 * the field name
@@ -117,6 +176,115 @@ public class OverpassField
 		this(tag.getKey());
 	}
 	
+	/**
+	 * creates the {@link OverpassField} of a {@link Tag} key<br>
+	 * The type is inferred from the key (see {@link #INTEGER_KEYS}, {@link #DOUBLE_KEYS} and {@link #DATE_KEYS}), all
+	 * other keys get a {@link FieldType#String} field.
+	 *
+	 * @param key the {@link Tag} key
+	 * @return the created {@link OverpassField}
+	 *
+	 * @since 0.2.0
+	 */
+	public static OverpassField forTag(String key) {
+		if (OverpassField.INTEGER_KEYS.contains(key)) {
+			return new OverpassField(key) {
+				private final int maxIntLength = Integer.toString(Integer.MAX_VALUE).length();
+				
+				@Override
+				public FieldType getType() {
+					return FieldType.Integer;
+				}
+				
+				@Override
+				public int getLength() {
+					return this.maxIntLength;
+				}
+				
+				@Override
+				protected Object parseValue(String value) {
+					return Integer.valueOf(value);
+				}
+			};
+		}
+		
+		if (OverpassField.DOUBLE_KEYS.contains(key)) {
+			return new OverpassField(key) {
+				@Override
+				public FieldType getType() {
+					return FieldType.Double;
+				}
+				
+				@Override
+				public int getLength() {
+					return 25;
+				}
+				
+				@Override
+				protected Object parseValue(String value) {
+					return Double.valueOf(value);
+				}
+			};
+		}
+		
+		if (OverpassField.DATE_KEYS.contains(key)) {
+			return new OverpassField(key) {
+				@Override
+				public FieldType getType() {
+					return FieldType.Date;
+				}
+				
+				@Override
+				public int getLength() {
+					return 30;
+				}
+				
+				@Override
+				protected Object parseValue(String value) {
+					return new DateTime(value, DateTimeZone.UTC);
+				}
+			};
+		}
+		
+		return new OverpassField(key);
+	}
+	
+	/**
+	 * converts a {@link Tag} value to the type of this field
+	 *
+	 * @param value the {@link Tag} value
+	 * @return the converted value
+	 *
+	 * @throws IllegalArgumentException if {@code value} doesn't match the type
+	 * @since 0.2.0
+	 */
+	protected Object parseValue(String value)
+	throws IllegalArgumentException {
+		return value;
+	}
+	
+	/**
+	 * converts a {@link Tag} value to the type of this field (see {@link #getType()})<br>
+	 * Values, which don't match the type (e.g. {@code 12 m} or {@code 2;3}), give {@code null}, so every value of a
+	 * field has the same type. They are kept as {@link String} under the key with the {@link #RAW_SUFFIX} instead.
+	 *
+	 * @param value the {@link Tag} value
+	 * @return the converted value or {@code null}, if it doesn't match the type
+	 *
+	 * @since 0.2.0
+	 */
+	public Object parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		
+		try {
+			return this.parseValue(value.trim());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
 	@Override
 	public String getName() {
 		return this.name;
@@ -1,6 +1,7 @@
 package de.conterra.babelfish.overpass.plugin;
 
 import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.store.FeatureStore;
 import de.conterra.babelfish.plugin.v10_02.feature.FeatureLayer;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
 import de.conterra.babelfish.plugin.v10_02.object.renderer.RendererObject;
@@ -129,6 +130,19 @@ public class OverpassNodeLayer
 		return new SimpleRenderer(new PictureMarkerSymbol(img), name);
 	}
 	
+	/**
+	 * enables or disables the clustering of the points<br>
+	 * If enabled, queries without a where clause return clusters with the number of their points at small scales (see
+	 * {@link OverpassQuery#CLUSTER_SIZE}).
+	 *
+	 * @param clustered {@code true} to cluster the points
+	 * @see FeatureStore#setClustered(boolean)
+	 * @since 0.2.0
+	 */
+	public void setClustered(boolean clustered) {
+		this.getStore().setClustered(clustered);
+	}
+	
 	@Override
 	public Class<Point> getGeometryType() {
 		return Point.class;
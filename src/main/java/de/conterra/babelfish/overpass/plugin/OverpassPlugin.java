@@ -3,7 +3,9 @@ package de.conterra.babelfish.overpass.plugin;
 import de.conterra.babelfish.overpass.config.ObjectFactory;
 import de.conterra.babelfish.overpass.config.Service;
 import de.conterra.babelfish.overpass.config.Services;
+import de.conterra.babelfish.overpass.io.OsmFileWatcher;
 import de.conterra.babelfish.overpass.store.FeatureStore;
+import de.conterra.babelfish.overpass.store.FileFeatureStore;
 import de.conterra.babelfish.overpass.store.PopupStore;
 import de.conterra.babelfish.plugin.Plugin;
 import de.conterra.babelfish.plugin.PluginAdapter;
@@ -103,6 +105,8 @@ public class OverpassPlugin
 						log.warn(msg, e);
 					}
 				}
+				
+				FileFeatureStore.preloadAll();
 			} else {
 				log.error("Couldn't create directory \'services\' in which the service configurations must stored!");
 			}
@@ -119,6 +123,8 @@ public class OverpassPlugin
 	public boolean shutdown() {
 		FeatureStore.stop();
 		PopupStore.stop();
+		OsmFileWatcher.stop();
+		FileFeatureStore.stopLoading();
 		PopupStore.clear();
 		
 		boolean res = true;
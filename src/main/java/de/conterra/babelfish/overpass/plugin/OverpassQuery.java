@@ -1,15 +1,36 @@
 package de.conterra.babelfish.overpass.plugin;
 
+import de.conterra.babelfish.overpass.jfr.QueryEvent;
+import de.conterra.babelfish.overpass.store.ClusterIndex;
+import de.conterra.babelfish.overpass.store.ClusterIndex.Cluster;
+import de.conterra.babelfish.overpass.store.CompactFeature;
 import de.conterra.babelfish.overpass.store.FeatureStore;
+import de.conterra.babelfish.overpass.store.OverpassFeatureStore;
+import de.conterra.babelfish.overpass.store.PreparedSpatialFilter;
+import de.conterra.babelfish.overpass.store.QueryResultCache;
+import de.conterra.babelfish.overpass.store.TagIndex;
 import de.conterra.babelfish.plugin.v10_02.feature.DefaultQuery;
 import de.conterra.babelfish.plugin.v10_02.feature.Feature;
 import de.conterra.babelfish.plugin.v10_02.feature.Query;
 import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import org.apache.commons.lang3.StringUtils;
 import org.josql.QueryParseException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * defines {@link Query} to query to Overpass API
+ * defines {@link Query} to query to Overpass API<br>
+ * The where clause is pushed down to the Overpass API as far as possible (see
+ * {@link OverpassFeatureStore#getFilteredStore(String)}). The candidates are preselected by the {@link TagIndex} of the
+ * store (see {@link FeatureStore#getCandidateIds(GeometryObject, String)}) and the where clause is applied to them
+ * lazily, ordered by their identifiers (see {@link QueryResult}). The identifiers of complete results are cached by
+ * the {@link QueryResultCache} until the store changes. The geometries are returned in full resolution, unless the
+ * query was created as generalized (see {@link #OverpassQuery(FeatureStore, boolean)}). Then lines and polygons are
+ * simplified to the size of a pixel, which is derived from the extent of the spatial filter. If the
+ * {@link FeatureStore} is clustered (see {@link FeatureStore#setClustered(boolean)}), queries without a where clause
+ * are answered by the clusters of the {@link ClusterIndex} at small scales (see {@link #CLUSTER_SIZE}).
  *
  * @param <G> the {@link GeometryObject} type
  * @author ChrissW-R1
@@ -18,26 +39,220 @@ import org.josql.QueryParseException;
  */
 public class OverpassQuery<G extends GeometryObject>
 		extends DefaultQuery<GeometryFeatureObject<G>> {
+	/**
+	 * the assumed size of a map (in pixels), to derive the size of a pixel from the extent of the spatial filter
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int REFERENCE_SIZE = 2048;
+	/**
+	 * the minimum size of the cells of clusters (in pixels, see {@link #REFERENCE_SIZE})<br>
+	 * If the finest level of the {@link ClusterIndex} has greater cells, the points are returned individually.
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int CLUSTER_SIZE   = 64;
+	
 	/**
 	 * the {@link FeatureStore} to query
 	 *
 	 * @since 0.1.0
 	 */
 	private final FeatureStore<G> store;
+	/**
+	 * {@code true}, if lines and polygons are returned with simplified geometries at small scales
+	 *
+	 * @since 0.2.0
+	 */
+	private final boolean         generalized;
 	
 	/**
-	 * standard constructor
+	 * standard constructor, which returns all geometries in full resolution
 	 *
 	 * @param store the {@link FeatureStore} to query
 	 * @since 0.1.0
 	 */
 	public OverpassQuery(FeatureStore<G> store) {
+		this(store, false);
+	}
+	
+	/**
+	 * constructor, with given generalization
+	 *
+	 * @param store       the {@link FeatureStore} to query
+	 * @param generalized {@code true} to return lines and polygons with geometries simplified to the size of a pixel
+	 *                    (see {@link CompactFeature#generalize(double)})
+	 * @since 0.2.0
+	 */
+	public OverpassQuery(FeatureStore<G> store, boolean generalized) {
 		this.store = store;
+		this.generalized = generalized;
+	}
+	
+	/**
+	 * gives the size of a pixel, if the spatial filter is shown on a map of {@link #REFERENCE_SIZE} pixels
+	 *
+	 * @param geometry the spatial filter
+	 * @return the size of a pixel (in degrees of latitude) or {@code 0}, if there is no spatial filter or its extent is
+	 * unknown
+	 *
+	 * @since 0.2.0
+	 */
+	private double getPixelSize(GeometryObject geometry) {
+		double[] bounds = geometry == null ? null : FeatureStore.getBounds(geometry);
+		
+		if (bounds == null) {
+			return 0;
+		}
+		
+		double scale = Math.cos(Math.toRadians((bounds[0] + bounds[2]) / 2));
+		
+		return Math.max(bounds[2] - bounds[0], (bounds[3] - bounds[1]) * scale) / OverpassQuery.REFERENCE_SIZE;
+	}
+	
+	/**
+	 * creates the lazy result of a query on the stored features
+	 *
+	 * @param geometry           the spatial filter
+	 * @param whereClause        the where clause
+	 * @param maxAllowableOffset the maximum allowable offset of the returned geometries (in degrees of latitude,
+	 *                           {@code 0} for the full resolution)
+	 * @param event              the {@link QueryEvent} to fill
+	 * @return the {@link QueryResult}
+	 *
+	 * @throws QueryParseException if the where clause couldn't be parsed
+	 * @since 0.2.0
+	 */
+	private QueryResult<G> createResult(GeometryObject geometry, String whereClause, double maxAllowableOffset, QueryEvent event)
+	throws QueryParseException {
+		FeatureStore<G> store = this.store;
+		if (store instanceof OverpassFeatureStore) {
+			store = ((OverpassFeatureStore<G>) store).getFilteredStore(whereClause);
+		}
+		
+		store.load(geometry);
+		
+		String         cacheKey = QueryResultCache.createKey(store, store.getVersion(), geometry, whereClause);
+		long[]         cached   = QueryResultCache.get(cacheKey);
+		QueryResult<G> res;
+		if (cached == null) {
+			PreparedSpatialFilter filter = geometry == null ? null : new PreparedSpatialFilter(geometry);
+			
+			res = new QueryResult<>(this, store, filter, whereClause, store.getCandidateIds(filter, whereClause), cacheKey, maxAllowableOffset);
+		} else {
+			res = new QueryResult<>(store, cached, maxAllowableOffset);
+		}
+		
+		event.setPushedDown(store != this.store);
+		event.setCached(cached != null);
+		event.setCandidateCount(res.getCandidateCount());
+		
+		return res;
+	}
+	
+	/**
+	 * commits a {@link QueryEvent}, if it is enabled
+	 *
+	 * @param event       the {@link QueryEvent} to commit
+	 * @param geometry    the spatial filter
+	 * @param whereClause the where clause
+	 * @param resultCount the number of matching features ({@code -1}, if unknown)
+	 * @since 0.2.0
+	 */
+	private void commitEvent(QueryEvent event, GeometryObject geometry, String whereClause, long resultCount) {
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.setLayerId(this.store.getLayerId());
+			event.setBbox(geometry);
+			event.setWhereClause(whereClause);
+			event.setResultCount((int) Math.min(resultCount, Integer.MAX_VALUE));
+			event.commit();
+		}
+	}
+	
+	/**
+	 * creates the result of a query from the clusters of the {@link ClusterIndex}<br>
+	 * Clusters of a single point are returned as the stored feature, all others as feature of the centroid with the
+	 * number of points (see {@link Cluster#toFeature()}).
+	 *
+	 * @param geometry    the spatial filter
+	 * @param whereClause the where clause
+	 * @param pixelSize   the size of a pixel (in degrees of latitude, see {@link #getPixelSize(GeometryObject)})
+	 * @return the clusters or {@code null}, if the {@link FeatureStore} isn't clustered, there is a where clause or
+	 * the scale is too large for clusters
+	 *
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	private QueryResult<G> createClusters(GeometryObject geometry, String whereClause, double pixelSize) {
+		if (geometry == null || StringUtils.isNotBlank(whereClause) || this.store.getClusterIndex() == null) {
+			return null;
+		}
+		
+		int      level  = ClusterIndex.getLevel(pixelSize * OverpassQuery.CLUSTER_SIZE);
+		double[] bounds = level < 0 ? null : FeatureStore.getBounds(geometry);
+		if (bounds == null) {
+			return null;
+		}
+		
+		this.store.load(geometry);
+		
+		ClusterIndex clusterIndex = this.store.getClusterIndex();
+		if (clusterIndex == null) {
+			return null;
+		}
+		
+		List<Cluster>                                     clusters = clusterIndex.getClusters(level, bounds);
+		List<Feature<? extends GeometryFeatureObject<G>>> features = new ArrayList<>(clusters.size());
+		long[]                                            ids      = new long[clusters.size()];
+		for (Cluster cluster : clusters) {
+			Feature<? extends GeometryFeatureObject<G>> feature = cluster.isSingle() ? this.store.getFeature(cluster.getId()) : null;
+			
+			if (feature == null) {
+				feature = (Feature<? extends GeometryFeatureObject<G>>) (Feature<?>) cluster.toFeature();
+			}
+			
+			ids[features.size()] = cluster.getId();
+			features.add(feature);
+		}
+		
+		return new QueryResult<>(features, ids);
 	}
 	
 	@Override
-	public Iterable<? extends Feature<? extends GeometryFeatureObject<G>>> execute(Iterable<? extends Feature<? extends GeometryFeatureObject<G>>> features, GeometryObject geometry, String whereClause)
+	public QueryResult<G> execute(Iterable<? extends Feature<? extends GeometryFeatureObject<G>>> features, GeometryObject geometry, String whereClause)
 			throws QueryParseException {
-		return super.execute(this.store.getFeatures(geometry).values(), geometry, whereClause);
+		QueryEvent event = new QueryEvent();
+		event.begin();
+		
+		double         pixelSize = this.getPixelSize(geometry);
+		QueryResult<G> res       = this.createClusters(geometry, whereClause, pixelSize);
+		
+		event.setClustered(res != null);
+		if (res == null) {
+			res = this.createResult(geometry, whereClause, this.generalized ? pixelSize : 0, event);
+		}
+		
+		this.commitEvent(event, geometry, whereClause, res.isComplete() ? res.size() : -1);
+		
+		return res;
+	}
+	
+	/**
+	 * applies the where clause to candidates, which overlap the spatial filter
+	 *
+	 * @param features    the candidates
+	 * @param geometry    the spatial filter
+	 * @param whereClause the where clause
+	 * @return the matching features
+	 *
+	 * @throws QueryParseException if the where clause couldn't be parsed
+	 * @see DefaultQuery#execute(Iterable, GeometryObject, String)
+	 * @since 0.2.0
+	 */
+	Iterable<? extends Feature<? extends GeometryFeatureObject<G>>> filter(Iterable<? extends Feature<? extends GeometryFeatureObject<G>>> features, GeometryObject geometry, String whereClause)
+	throws QueryParseException {
+		return super.execute(features, geometry, whereClause);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,375 @@
+package de.conterra.babelfish.overpass.plugin;
+
+import de.conterra.babelfish.overpass.store.ClusterIndex;
+import de.conterra.babelfish.overpass.store.CompactFeature;
+import de.conterra.babelfish.overpass.store.FeatureStore;
+import de.conterra.babelfish.overpass.store.PreparedSpatialFilter;
+import de.conterra.babelfish.overpass.store.QueryResultCache;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import org.josql.QueryParseException;
+
+import java.util.*;
+
+/**
+ * defines the lazy result of an {@link OverpassQuery}<br>
+ * The candidates are ordered by their identifiers (see {@link FeatureStore#getCandidateIds(GeometryObject, String)})
+ * and read from the {@link FeatureStore} in batches of {@link #BATCH_SIZE} candidates, when they are needed. The where
+ * clause is applied by a single call of {@link OverpassQuery#filter(Iterable, GeometryObject, String)} on all
+ * candidates, so it is parsed once per result. The matching features are taken from it in batches of
+ * {@link #BATCH_SIZE} and kept, so the result could be iterated multiple times. As soon as all matching features were
+ * taken, their identifiers are put into the {@link QueryResultCache}.
+ * {@link CompactFeature}s are returned with the simplified geometry of the maximum allowable offset (see
+ * {@link CompactFeature#generalize(double)}).
+ *
+ * @param <G> the {@link GeometryObject} type
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class QueryResult<G extends GeometryObject>
+		implements Iterable<Feature<? extends GeometryFeatureObject<G>>> {
+	/**
+	 * the number of candidates, which are read at once, and of matching features, which are taken at once
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int BATCH_SIZE = 256;
+	
+	/**
+	 * the {@link FeatureStore} of the candidates ({@code null}, if the result was complete on construction)
+	 *
+	 * @since 0.2.0
+	 */
+	private final FeatureStore<G>                                                 store;
+	/**
+	 * the prepared spatial filter ({@code null}, if there is none)
+	 *
+	 * @since 0.2.0
+	 */
+	private final PreparedSpatialFilter                                           filter;
+	/**
+	 * the sorted identifiers of the candidates
+	 *
+	 * @since 0.2.0
+	 */
+	private final long[]                                                          ids;
+	/**
+	 * the key of the {@link QueryResultCache} ({@code null}, if the result shouldn't be cached)
+	 *
+	 * @since 0.2.0
+	 */
+	private final String                                                          cacheKey;
+	/**
+	 * the maximum allowable offset of the returned geometries (in degrees of latitude, {@code 0} for the full
+	 * resolution)
+	 *
+	 * @since 0.2.0
+	 */
+	private final double                                                          maxAllowableOffset;
+	/**
+	 * the identifiers of the read candidates, which weren't taken as matching features yet
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Feature<?>, Long>                                           pending  = new IdentityHashMap<>();
+	/**
+	 * the matching features, which were taken
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<Feature<? extends GeometryFeatureObject<G>>>               matches  = new ArrayList<>();
+	/**
+	 * the identifiers of {@link #matches}
+	 *
+	 * @since 0.2.0
+	 */
+	private       long[]                                                          matchIds = new long[QueryResult.BATCH_SIZE];
+	/**
+	 * the remaining matching features ({@code null}, if all matching features were taken)
+	 *
+	 * @since 0.2.0
+	 */
+	private       Iterator<? extends Feature<? extends GeometryFeatureObject<G>>> remaining;
+	
+	/**
+	 * standard constructor<br>
+	 * The where clause is applied immediately, so an invalid where clause is reported here, and the first batch is
+	 * taken.
+	 *
+	 * @param query              the {@link OverpassQuery} to apply the where clause with
+	 * @param store              the {@link FeatureStore} of the candidates
+	 * @param filter             the prepared spatial filter ({@code null}, if there is none)
+	 * @param whereClause        the where clause
+	 * @param ids                the sorted identifiers of the candidates
+	 * @param cacheKey           the key of the {@link QueryResultCache} ({@code null}, if the result shouldn't be
+	 *                           cached)
+	 * @param maxAllowableOffset the maximum allowable offset of the returned geometries (in degrees of latitude,
+	 *                           {@code 0} for the full resolution)
+	 * @throws QueryParseException if the where clause couldn't be parsed
+	 * @since 0.2.0
+	 */
+	QueryResult(OverpassQuery<G> query, FeatureStore<G> store, PreparedSpatialFilter filter, String whereClause, long[] ids, String cacheKey, double maxAllowableOffset)
+	throws QueryParseException {
+		this.store = store;
+		this.filter = filter;
+		this.ids = ids;
+		this.cacheKey = cacheKey;
+		this.maxAllowableOffset = maxAllowableOffset;
+		this.remaining = query.filter(this.getCandidates(), filter == null ? null : filter.getSpatialFilter(), whereClause).iterator();
+		
+		this.fetch();
+	}
+	
+	/**
+	 * constructor, with the cached identifiers of the matching features (see {@link QueryResultCache})
+	 *
+	 * @param store              the {@link FeatureStore} of the features
+	 * @param ids                the sorted identifiers of the matching features
+	 * @param maxAllowableOffset the maximum allowable offset of the returned geometries (in degrees of latitude,
+	 *                           {@code 0} for the full resolution)
+	 * @since 0.2.0
+	 */
+	QueryResult(FeatureStore<G> store, long[] ids, double maxAllowableOffset) {
+		this.store = store;
+		this.filter = null;
+		this.ids = ids;
+		this.cacheKey = null;
+		this.maxAllowableOffset = maxAllowableOffset;
+		this.remaining = this.getCandidates().iterator();
+	}
+	
+	/**
+	 * constructor, with the complete result (e.g. of clusters, see {@link ClusterIndex})
+	 *
+	 * @param features the features ordered by their identifiers
+	 * @param ids      the sorted identifiers of the features
+	 * @since 0.2.0
+	 */
+	QueryResult(List<? extends Feature<? extends GeometryFeatureObject<G>>> features, long[] ids) {
+		this.store = null;
+		this.filter = null;
+		this.ids = ids;
+		this.cacheKey = null;
+		this.maxAllowableOffset = 0;
+		this.remaining = null;
+		
+		this.matches.addAll(features);
+		this.matchIds = ids.clone();
+	}
+	
+	/**
+	 * gives a feature with the geometry of the maximum allowable offset
+	 *
+	 * @param feature the matching feature
+	 * @return the generalized {@link CompactFeature} or {@code feature}, if it isn't a {@link CompactFeature}
+	 *
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	private Feature<? extends GeometryFeatureObject<G>> generalize(Feature<? extends GeometryFeatureObject<G>> feature) {
+		if (this.maxAllowableOffset > 0 && feature instanceof CompactFeature) {
+			return ((CompactFeature<G>) feature).generalize(this.maxAllowableOffset);
+		}
+		
+		return feature;
+	}
+	
+	/**
+	 * gives the candidates, which are read from the {@link FeatureStore} in batches, while they are iterated<br>
+	 * The identifiers of the read candidates are kept in {@link #pending}, until they are taken as matching features.
+	 *
+	 * @return the candidates in the order of their identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	private Iterable<Feature<? extends GeometryFeatureObject<G>>> getCandidates() {
+		return new Iterable<Feature<? extends GeometryFeatureObject<G>>>() {
+			@Override
+			public Iterator<Feature<? extends GeometryFeatureObject<G>>> iterator() {
+				return new Iterator<Feature<? extends GeometryFeatureObject<G>>>() {
+					/**
+					 * the position of the first unread candidate
+					 *
+					 * @since 0.2.0
+					 */
+					private int                                                                    position = 0;
+					/**
+					 * the remaining candidates of the current batch
+					 *
+					 * @since 0.2.0
+					 */
+					private Iterator<Map.Entry<Long, Feature<? extends GeometryFeatureObject<G>>>> batch    = Collections.emptyIterator();
+					
+					@Override
+					public boolean hasNext() {
+						long[] ids = QueryResult.this.ids;
+						
+						while (!(this.batch.hasNext()) && this.position < ids.length) {
+							int to = Math.min(this.position + QueryResult.BATCH_SIZE, ids.length);
+							
+							this.batch = QueryResult.this.store.getFeatures(QueryResult.this.filter, ids, this.position, to).entrySet().iterator();
+							this.position = to;
+						}
+						
+						return this.batch.hasNext();
+					}
+					
+					@Override
+					public Feature<? extends GeometryFeatureObject<G>> next() {
+						if (!(this.hasNext())) {
+							throw new NoSuchElementException();
+						}
+						
+						Map.Entry<Long, Feature<? extends GeometryFeatureObject<G>>> entry = this.batch.next();
+						synchronized (QueryResult.this) {
+							QueryResult.this.pending.put(entry.getValue(), entry.getKey());
+						}
+						
+						return entry.getValue();
+					}
+					
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+	
+	/**
+	 * takes the next batch of matching features and caches the result, if all matching features were taken
+	 *
+	 * @return {@code false}, if all matching features were already taken
+	 *
+	 * @since 0.2.0
+	 */
+	private synchronized boolean fetch() {
+		if (this.remaining == null) {
+			return false;
+		}
+		
+		for (int i = 0; i < QueryResult.BATCH_SIZE && this.remaining.hasNext(); i++) {
+			Feature<? extends GeometryFeatureObject<G>> feature = this.remaining.next();
+			Long                                        id      = this.pending.remove(feature);
+			
+			if (id == null) {
+				continue;
+			}
+			
+			int count = this.matches.size();
+			if (count == this.matchIds.length) {
+				this.matchIds = Arrays.copyOf(this.matchIds, count * 2);
+			}
+			
+			this.matchIds[count] = id;
+			this.matches.add(this.generalize(feature));
+		}
+		
+		if (!(this.remaining.hasNext())) {
+			this.remaining = null;
+			this.pending.clear();
+			
+			if (this.cacheKey != null) {
+				long[] ids = Arrays.copyOf(this.matchIds, this.matches.size());
+				Arrays.sort(ids);
+				
+				QueryResultCache.put(this.cacheKey, ids);
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * gives a matching feature and takes further matching features, if necessary
+	 *
+	 * @param index the index of the matching feature
+	 * @return the feature or {@code null}, if there are not more matching features
+	 *
+	 * @since 0.2.0
+	 */
+	private synchronized Feature<? extends GeometryFeatureObject<G>> get(int index) {
+		while (index >= this.matches.size()) {
+			if (!(this.fetch())) {
+				return null;
+			}
+		}
+		
+		return this.matches.get(index);
+	}
+	
+	/**
+	 * gives the number of candidates
+	 *
+	 * @return the number of candidates, which matched the spatial filter by their bounding boxes
+	 *
+	 * @since 0.2.0
+	 */
+	public int getCandidateCount() {
+		return this.ids.length;
+	}
+	
+	/**
+	 * checks, if all matching features were taken
+	 *
+	 * @return {@code true}, if all matching features are known
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized boolean isComplete() {
+		return this.remaining == null;
+	}
+	
+	/**
+	 * gives the number of matching features<br>
+	 * All remaining matching features will be taken.
+	 *
+	 * @return the number of matching features
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized int size() {
+		while (this.fetch()) {
+			// take all matching features
+		}
+		
+		return this.matches.size();
+	}
+	
+	@Override
+	public Iterator<Feature<? extends GeometryFeatureObject<G>>> iterator() {
+		return new Iterator<Feature<? extends GeometryFeatureObject<G>>>() {
+			/**
+			 * the index of the next matching feature
+			 *
+			 * @since 0.2.0
+			 */
+			private int index = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return QueryResult.this.get(this.index) != null;
+			}
+			
+			@Override
+			public Feature<? extends GeometryFeatureObject<G>> next() {
+				Feature<? extends GeometryFeatureObject<G>> res = QueryResult.this.get(this.index);
+				
+				if (res == null) {
+					throw new NoSuchElementException();
+				}
+				this.index++;
+				
+				return res;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
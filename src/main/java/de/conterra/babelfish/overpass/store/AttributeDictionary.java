@@ -0,0 +1,340 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import lombok.Getter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * defines the shared dictionaries of the {@link Tag} keys and values of a layer<br>
+ * Every distinct key is stored once as {@link OverpassField} in the {@link FieldRegistry} and every distinct value
+ * (and user name) once in its parsed form (see {@link OverpassField#parse(String)}), so the attributes of a feature
+ * could be stored as codes (see {@link EncodedAttributes}). Codes are never removed, so they stay valid as long as the
+ * dictionary exists. A {@link FeatureStore} replaces its dictionary, when it replaces all its features. Only adding
+ * new codes is synchronized, looking up known keys and values and decoding is lock free.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class AttributeDictionary {
+	/**
+	 * the initial capacity of the value array
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int  INITIAL_CAPACITY = 64;
+	/**
+	 * the type marker of a written {@link String} value
+	 *
+	 * @since 0.2.0
+	 */
+	private static final byte STRING_VALUE     = 0;
+	/**
+	 * the type marker of a written {@link Integer} value
+	 *
+	 * @since 0.2.0
+	 */
+	private static final byte INTEGER_VALUE    = 1;
+	/**
+	 * the type marker of a written {@link Double} value
+	 *
+	 * @since 0.2.0
+	 */
+	private static final byte DOUBLE_VALUE     = 2;
+	/**
+	 * the type marker of a written {@link DateTime} value
+	 *
+	 * @since 0.2.0
+	 */
+	private static final byte DATE_VALUE       = 3;
+	
+	/**
+	 * the {@link FieldRegistry} of all keys
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final    FieldRegistry        fieldRegistry;
+	/**
+	 * the codes of all values
+	 *
+	 * @since 0.2.0
+	 */
+	private final    Map<Object, Integer> valueCodes    = new ConcurrentHashMap<>();
+	/**
+	 * all values, indexed by their codes
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile Object[]             values        = new Object[AttributeDictionary.INITIAL_CAPACITY];
+	/**
+	 * the number of values
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile int                  valueCount    = 0;
+	
+	/**
+	 * standard constructor, with a new {@link FieldRegistry}
+	 *
+	 * @since 0.2.0
+	 */
+	public AttributeDictionary() {
+		this(new FieldRegistry());
+	}
+	
+	/**
+	 * constructor, which shares an existing {@link FieldRegistry}<br>
+	 * So the keys keep their {@link OverpassField}s, if the dictionary is replaced by a new one.
+	 *
+	 * @param fieldRegistry the {@link FieldRegistry} of all keys
+	 * @since 0.2.0
+	 */
+	public AttributeDictionary(FieldRegistry fieldRegistry) {
+		this.fieldRegistry = fieldRegistry;
+	}
+	
+	/**
+	 * gives the code of a key and adds it to the {@link FieldRegistry}, if necessary
+	 *
+	 * @param key the key to encode
+	 * @return the code of {@code key}
+	 *
+	 * @since 0.2.0
+	 */
+	public int encodeKey(String key) {
+		return this.fieldRegistry.encode(key);
+	}
+	
+	/**
+	 * gives the code of a value and adds it to the dictionary, if necessary
+	 *
+	 * @param value the (parsed) value to encode
+	 * @return the code of {@code value}
+	 *
+	 * @since 0.2.0
+	 */
+	public int encodeValue(Object value) {
+		Integer code = this.valueCodes.get(value);
+		
+		return code == null ? this.addValue(value) : code;
+	}
+	
+	/**
+	 * gives the code of a known value
+	 *
+	 * @param value the (parsed) value to look up
+	 * @return the code of {@code value} or {@code -1}, if it isn't in the dictionary
+	 *
+	 * @since 0.2.0
+	 */
+	public int getValueCode(Object value) {
+		Integer code = this.valueCodes.get(value);
+		
+		return code == null ? -1 : code;
+	}
+	
+	/**
+	 * adds a value to the dictionary, if it wasn't added concurrently
+	 *
+	 * @param value the value to add
+	 * @return the code of {@code value}
+	 *
+	 * @since 0.2.0
+	 */
+	private synchronized int addValue(Object value) {
+		Integer code = this.valueCodes.get(value);
+		
+		if (code != null) {
+			return code;
+		}
+		
+		code = this.valueCount;
+		
+		Object[] values = this.values;
+		if (code >= values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		values[code] = value;
+		
+		this.values = values;
+		this.valueCount = code + 1;
+		this.valueCodes.put(value, code);
+		
+		return code;
+	}
+	
+	/**
+	 * gives the {@link OverpassField} of a key code
+	 *
+	 * @param code the code of the key
+	 * @return the {@link OverpassField}
+	 *
+	 * @since 0.2.0
+	 */
+	public OverpassField getField(int code) {
+		return this.fieldRegistry.getField(code);
+	}
+	
+	/**
+	 * gives the value of a value code
+	 *
+	 * @param code the code of the value
+	 * @return the value
+	 *
+	 * @since 0.2.0
+	 */
+	public Object getValue(int code) {
+		return this.values[code];
+	}
+	
+	/**
+	 * gives the number of keys in the dictionary
+	 *
+	 * @return the number of keys
+	 *
+	 * @since 0.2.0
+	 */
+	public int getKeyCount() {
+		return this.fieldRegistry.size();
+	}
+	
+	/**
+	 * gives the number of values in the dictionary
+	 *
+	 * @return the number of values
+	 *
+	 * @since 0.2.0
+	 */
+	public int getValueCount() {
+		return this.valueCount;
+	}
+	
+	/**
+	 * writes all keys and values of the dictionary in the order of their codes
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @throws IOException if the dictionary couldn't be written or contains a value of an unsupported type
+	 * @see #read(DataInput)
+	 * @since 0.2.0
+	 */
+	void write(DataOutput output)
+	throws IOException {
+		List<OverpassField> fields = this.fieldRegistry.getFields();
+		output.writeInt(fields.size());
+		for (OverpassField field : fields) {
+			AttributeDictionary.writeString(output, field.getName());
+		}
+		
+		int      count  = this.valueCount;
+		Object[] values = this.values;
+		output.writeInt(count);
+		for (int i = 0; i < count; i++) {
+			Object value = values[i];
+			
+			if (value instanceof String) {
+				output.writeByte(AttributeDictionary.STRING_VALUE);
+				AttributeDictionary.writeString(output, (String) value);
+			} else if (value instanceof Integer) {
+				output.writeByte(AttributeDictionary.INTEGER_VALUE);
+				output.writeInt((Integer) value);
+			} else if (value instanceof Double) {
+				output.writeByte(AttributeDictionary.DOUBLE_VALUE);
+				output.writeDouble((Double) value);
+			} else if (value instanceof DateTime) {
+				output.writeByte(AttributeDictionary.DATE_VALUE);
+				output.writeLong(((DateTime) value).getMillis());
+			} else {
+				throw new IOException("Unsupported value type: " + value.getClass().getName());
+			}
+		}
+	}
+	
+	/**
+	 * adds the keys and values of a dictionary, which was written by {@link #write(DataOutput)}, to this dictionary
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @return the codes in this dictionary of the written key codes and of the written value codes
+	 *
+	 * @throws IOException if the dictionary couldn't be read
+	 * @since 0.2.0
+	 */
+	int[][] read(DataInput input)
+	throws IOException {
+		int[] keyMap = new int[input.readInt()];
+		for (int i = 0; i < keyMap.length; i++) {
+			keyMap[i] = this.encodeKey(AttributeDictionary.readString(input));
+		}
+		
+		int[] valueMap = new int[input.readInt()];
+		for (int i = 0; i < valueMap.length; i++) {
+			byte   type = input.readByte();
+			Object value;
+			
+			switch (type) {
+				case AttributeDictionary.STRING_VALUE:
+					value = AttributeDictionary.readString(input);
+					break;
+				case AttributeDictionary.INTEGER_VALUE:
+					value = input.readInt();
+					break;
+				case AttributeDictionary.DOUBLE_VALUE:
+					value = input.readDouble();
+					break;
+				case AttributeDictionary.DATE_VALUE:
+					value = new DateTime(input.readLong(), DateTimeZone.UTC);
+					break;
+				default:
+					throw new IOException("Unsupported value type: " + type);
+			}
+			
+			valueMap[i] = this.encodeValue(value);
+		}
+		
+		return new int[][] {keyMap, valueMap};
+	}
+	
+	/**
+	 * writes a {@link String} as UTF-8 with its length
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @param str    the {@link String} to write
+	 * @throws IOException if the {@link String} couldn't be written
+	 * @since 0.2.0
+	 */
+	private static void writeString(DataOutput output, String str)
+	throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	/**
+	 * reads a {@link String}, which was written by {@link #writeString(DataOutput, String)}
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @return the read {@link String}
+	 *
+	 * @throws IOException if the {@link String} couldn't be read
+	 * @since 0.2.0
+	 */
+	private static String readString(DataInput input)
+	throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,377 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import lombok.Getter;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * defines a hierarchical grid of the {@link Point} {@link Feature}s of a {@link FeatureStore}<br>
+ * Every level divides the world into square cells, whose size is half the size of the previous level (see
+ * {@link #getCellSize(int)}). Every cell keeps the number of its {@link Point}s, the sum of their coordinates and the
+ * sum of their identifiers, so adding, moving and removing a {@link Point} updates a single cell per level and the
+ * identifier of the last {@link Point} of a cell is known without storing all of them. Only {@link CompactFeature}s
+ * are indexed. All methods are synchronized.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class ClusterIndex {
+	/**
+	 * the number of levels
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int    LEVELS        = 16;
+	/**
+	 * the size of the cells of the coarsest level (in degrees)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final double MAX_CELL_SIZE = 45;
+	
+	/**
+	 * the non-empty cells of all levels by their keys (see {@link #toKey(int, int)})
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<Map<Long, Cell>> levels    = new ArrayList<>(ClusterIndex.LEVELS);
+	/**
+	 * the latitudes and longitudes of all indexed {@link Point}s by their identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Long, double[]>   positions = new HashMap<>();
+	
+	/**
+	 * standard constructor
+	 *
+	 * @since 0.2.0
+	 */
+	public ClusterIndex() {
+		for (int level = 0; level < ClusterIndex.LEVELS; level++) {
+			this.levels.add(new HashMap<Long, Cell>());
+		}
+	}
+	
+	/**
+	 * gives the size of the cells of a level
+	 *
+	 * @param level the level
+	 * @return the size of the cells (in degrees)
+	 *
+	 * @since 0.2.0
+	 */
+	public static double getCellSize(int level) {
+		return ClusterIndex.MAX_CELL_SIZE / (1 << level);
+	}
+	
+	/**
+	 * gives the coarsest level, whose cells don't exceed a size
+	 *
+	 * @param cellSize the maximum size of the cells (in degrees)
+	 * @return the level or {@code -1}, if even the cells of the finest level are greater
+	 *
+	 * @since 0.2.0
+	 */
+	public static int getLevel(double cellSize) {
+		for (int level = 0; level < ClusterIndex.LEVELS; level++) {
+			if (ClusterIndex.getCellSize(level) <= cellSize) {
+				return level;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * gives the row or column of a cell
+	 *
+	 * @param ordinate the latitude or longitude
+	 * @param offset   the offset to make the ordinate positive ({@code 90} or {@code 180})
+	 * @param level    the level
+	 * @return the row or column
+	 *
+	 * @since 0.2.0
+	 */
+	private static int toCell(double ordinate, double offset, int level) {
+		return (int) Math.floor((ordinate + offset) / ClusterIndex.getCellSize(level));
+	}
+	
+	/**
+	 * combines a row and a column to the key of a cell
+	 *
+	 * @param row    the row
+	 * @param column the column
+	 * @return the key
+	 *
+	 * @since 0.2.0
+	 */
+	private static long toKey(int row, int column) {
+		return ((long) row << 32) | (column & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * adds {@link Feature}s to the index or moves them, if they were already indexed<br>
+	 * {@link Feature}s, which aren't {@link CompactFeature}s, are removed from the index.
+	 *
+	 * @param features the {@link Feature}s by their identifiers
+	 * @since 0.2.0
+	 */
+	public synchronized void addAll(Map<? extends Long, ? extends Feature<?>> features) {
+		for (Map.Entry<? extends Long, ? extends Feature<?>> entry : features.entrySet()) {
+			long       id       = entry.getKey();
+			double[]   previous = this.positions.remove(id);
+			Feature<?> feature  = entry.getValue();
+			
+			if (previous != null) {
+				this.update(id, previous, -1);
+			}
+			
+			if (feature instanceof CompactFeature) {
+				CompactGeometry<?> geometry = ((CompactFeature<?>) feature).getGeometry();
+				double[]           position = {geometry.getLatitude(0), geometry.getLongitude(0)};
+				
+				this.positions.put(id, position);
+				this.update(id, position, 1);
+			}
+		}
+	}
+	
+	/**
+	 * removes {@link Feature}s from the index
+	 *
+	 * @param ids the identifiers of the {@link Feature}s to remove
+	 * @since 0.2.0
+	 */
+	public synchronized void removeAll(Collection<? extends Long> ids) {
+		for (long id : ids) {
+			double[] previous = this.positions.remove(id);
+			
+			if (previous != null) {
+				this.update(id, previous, -1);
+			}
+		}
+	}
+	
+	/**
+	 * adds a {@link Point} to or removes it from the cells of all levels
+	 *
+	 * @param id       the identifier of the {@link Point}
+	 * @param position the latitude and longitude of the {@link Point}
+	 * @param sign     {@code 1} to add the {@link Point} or {@code -1} to remove it
+	 * @since 0.2.0
+	 */
+	private void update(long id, double[] position, int sign) {
+		for (int level = 0; level < ClusterIndex.LEVELS; level++) {
+			Map<Long, Cell> cells = this.levels.get(level);
+			long            key   = ClusterIndex.toKey(ClusterIndex.toCell(position[0], 90, level), ClusterIndex.toCell(position[1], 180, level));
+			Cell            cell  = cells.get(key);
+			
+			if (cell == null) {
+				cell = new Cell();
+				cells.put(key, cell);
+			}
+			
+			cell.count += sign;
+			cell.latitudes += sign * position[0];
+			cell.longitudes += sign * position[1];
+			cell.ids += sign * id;
+			
+			if (cell.count <= 0) {
+				cells.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * removes all {@link Point}s from the index
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized void clear() {
+		for (Map<Long, Cell> cells : this.levels) {
+			cells.clear();
+		}
+		
+		this.positions.clear();
+	}
+	
+	/**
+	 * gives the number of indexed {@link Point}s
+	 *
+	 * @return the number of indexed {@link Point}s
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized int size() {
+		return this.positions.size();
+	}
+	
+	/**
+	 * gives the {@link Cluster}s of all cells of a level, which intersect a bounding box
+	 *
+	 * @param level  the level
+	 * @param bounds the minimum latitude, minimum longitude, maximum latitude and maximum longitude
+	 * @return the {@link Cluster}s ordered by their identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized List<Cluster> getClusters(int level, double[] bounds) {
+		Map<Long, Cell> cells     = this.levels.get(level);
+		int             minRow    = ClusterIndex.toCell(bounds[0], 90, level);
+		int             minColumn = ClusterIndex.toCell(bounds[1], 180, level);
+		int             maxRow    = ClusterIndex.toCell(bounds[2], 90, level);
+		int             maxColumn = ClusterIndex.toCell(bounds[3], 180, level);
+		
+		List<Cluster> res = new ArrayList<>();
+		if ((long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1) <= cells.size()) {
+			for (int row = minRow; row <= maxRow; row++) {
+				for (int column = minColumn; column <= maxColumn; column++) {
+					long key  = ClusterIndex.toKey(row, column);
+					Cell cell = cells.get(key);
+					
+					if (cell != null) {
+						res.add(new Cluster(key, cell));
+					}
+				}
+			}
+		} else {
+			for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+				long key    = entry.getKey();
+				int  row    = (int) (key >> 32);
+				int  column = (int) key;
+				
+				if (row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn) {
+					res.add(new Cluster(key, entry.getValue()));
+				}
+			}
+		}
+		
+		Collections.sort(res);
+		return res;
+	}
+	
+	/**
+	 * defines a cell of a level
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private static class Cell {
+		/**
+		 * the number of {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private int    count      = 0;
+		/**
+		 * the sum of the latitudes of all {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private double latitudes  = 0;
+		/**
+		 * the sum of the longitudes of all {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private double longitudes = 0;
+		/**
+		 * the sum of the identifiers of all {@link Point}s (could overflow, but is exact for a single {@link Point})
+		 *
+		 * @since 0.2.0
+		 */
+		private long   ids        = 0;
+	}
+	
+	/**
+	 * defines the {@link Point}s of a cell, which are represented by their centroid
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	@Getter
+	public static class Cluster
+			implements Comparable<Cluster> {
+		/**
+		 * the identifier of the {@link Point}, if the cluster consists of a single {@link Point}, otherwise the
+		 * negative identifier of the cell
+		 *
+		 * @since 0.2.0
+		 */
+		private final long   id;
+		/**
+		 * the number of {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private final int    count;
+		/**
+		 * the mean latitude of all {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private final double latitude;
+		/**
+		 * the mean longitude of all {@link Point}s
+		 *
+		 * @since 0.2.0
+		 */
+		private final double longitude;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param key  the key of the cell
+		 * @param cell the cell
+		 * @since 0.2.0
+		 */
+		private Cluster(long key, Cell cell) {
+			this.id = cell.count == 1 ? cell.ids : -1 - key;
+			this.count = cell.count;
+			this.latitude = cell.latitudes / cell.count;
+			this.longitude = cell.longitudes / cell.count;
+		}
+		
+		/**
+		 * checks, if the cluster consists of a single {@link Point}
+		 *
+		 * @return {@code true}, if {@link #getId()} is the identifier of the {@link Point}
+		 *
+		 * @since 0.2.0
+		 */
+		public boolean isSingle() {
+			return this.count == 1;
+		}
+		
+		/**
+		 * creates a {@link Feature} of the cluster<br>
+		 * The {@link Feature} has the centroid as geometry and the number of {@link Point}s as its only attribute (see
+		 * {@link OverpassField#CLUSTER_COUNT_FIELD}).
+		 *
+		 * @return the created {@link CompactFeature}
+		 *
+		 * @since 0.2.0
+		 */
+		public CompactFeature<Point> toFeature() {
+			return new CompactFeature<>(EntityType.Node, this.id, new CompactGeometry<>(Point.class, 2, new double[] {this.latitude, this.longitude}), Collections.singletonMap(OverpassField.CLUSTER_COUNT_FIELD, this.count));
+		}
+		
+		@Override
+		public int compareTo(Cluster o) {
+			return Long.compare(this.id, o.id);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.plugin.OverpassFeature;
+import de.conterra.babelfish.plugin.v10_02.feature.Attachment;
+import de.conterra.babelfish.plugin.v10_02.feature.Field;
+import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import lombok.Getter;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * defines an {@link OverpassFeature}, which is stored as {@link CompactGeometry} and encoded attributes<br>
+ * The {@link GeometryFeatureObject} will be created on the first call of {@link #getFeature()} and is cached weakly
+ * afterwards, so it is held in memory only as long as it is used. Features, which are discarded by the bounding box
+ * check of the {@link FeatureStore}, never create it. Lines and polygons are simplified at all
+ * {@link #LEVEL_TOLERANCES} on the first generalized request, so small scale requests could be served with fewer
+ * coordinates (see {@link #generalize(double)}). Features, which are never generalized, don't keep any level.
+ *
+ * @param <G> the {@link GeometryObject} type
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class CompactFeature<G extends GeometryObject>
+		extends OverpassFeature<GeometryFeatureObject<G>> {
+	/**
+	 * the tolerances of the simplified geometries (in degrees of latitude, ascending)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  double[]             LEVEL_TOLERANCES = {
+			0.00001, 0.0001, 0.001, 0.01
+	};
+	/**
+	 * the maximum ratio of the coordinates of a simplified geometry to the previous level<br>
+	 * Simplifications, which remove fewer coordinates, aren't stored.
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  double               MAX_LEVEL_RATIO  = 0.75;
+	/**
+	 * the levels of geometries, which couldn't be simplified
+	 *
+	 * @since 0.2.0
+	 */
+	private static final CompactGeometry<?>[] NO_LEVELS        = new CompactGeometry<?>[0];
+	
+	/**
+	 * the {@link CompactGeometry}
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final    CompactGeometry<G>      geometry;
+	/**
+	 * the attributes
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final    Map<? extends Field, ?> attributes;
+	/**
+	 * the simplified {@link CompactGeometry}s of all {@link #LEVEL_TOLERANCES} ({@code null}, if they weren't created
+	 * yet, or empty, if the geometry couldn't be simplified)
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile CompactGeometry<G>[]    levels = null;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param entityType the {@link EntityType}
+	 * @param id         the global unique identifier (of the feature in the OpenStreetMap database)
+	 * @param geometry   the {@link CompactGeometry}
+	 * @param attributes the attributes (e.g. {@link EncodedAttributes})
+	 * @since 0.2.0
+	 */
+	public CompactFeature(EntityType entityType, long id, CompactGeometry<G> geometry, Map<? extends Field, ?> attributes) {
+		super(entityType, id);
+		
+		this.geometry = geometry;
+		this.attributes = attributes;
+	}
+	
+	/**
+	 * simplifies a {@link CompactGeometry} at all {@link #LEVEL_TOLERANCES}<br>
+	 * Every level is simplified from the previous one.
+	 *
+	 * @param geometry the {@link CompactGeometry} to simplify
+	 * @param <G>      the {@link GeometryObject} type
+	 * @return the {@link CompactGeometry}s of all levels or an empty array, if no level removes enough coordinates
+	 *
+	 * @see CompactGeometry#simplify(double)
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	private static <G extends GeometryObject> CompactGeometry<G>[] createLevels(CompactGeometry<G> geometry) {
+		if (geometry == null || Point.class.isAssignableFrom(geometry.getType())) {
+			return (CompactGeometry<G>[]) CompactFeature.NO_LEVELS;
+		}
+		
+		CompactGeometry<G>[] res        = new CompactGeometry[CompactFeature.LEVEL_TOLERANCES.length];
+		CompactGeometry<G>   previous   = geometry;
+		boolean              simplified = false;
+		for (int i = 0; i < res.length; i++) {
+			CompactGeometry<G> level = previous.simplify(CompactFeature.LEVEL_TOLERANCES[i]);
+			
+			if (level.size() <= previous.size() * CompactFeature.MAX_LEVEL_RATIO) {
+				previous = level;
+				simplified = true;
+			}
+			
+			res[i] = previous;
+		}
+		
+		return simplified ? res : (CompactGeometry<G>[]) CompactFeature.NO_LEVELS;
+	}
+	
+	/**
+	 * gives the level of a maximum allowable offset
+	 *
+	 * @param maxAllowableOffset the maximum allowable offset (in degrees of latitude)
+	 * @return the index of the greatest tolerance in {@link #LEVEL_TOLERANCES}, which doesn't exceed
+	 * {@code maxAllowableOffset} or {@code -1}, if there is none
+	 *
+	 * @since 0.2.0
+	 */
+	public static int getLevel(double maxAllowableOffset) {
+		int res = -1;
+		
+		while (res + 1 < CompactFeature.LEVEL_TOLERANCES.length && CompactFeature.LEVEL_TOLERANCES[res + 1] <= maxAllowableOffset) {
+			res++;
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * gives this feature with a simplified geometry<br>
+	 * The attributes, {@link Attachment}s and the popup are shared with this feature. The simplified geometries are
+	 * created on the first call. Concurrent first calls could create them more than once.
+	 *
+	 * @param maxAllowableOffset the maximum allowable offset (in degrees of latitude)
+	 * @return a feature with the {@link CompactGeometry} of the greatest level, which doesn't exceed
+	 * {@code maxAllowableOffset}, or this feature, if there is no such level
+	 *
+	 * @since 0.2.0
+	 */
+	public OverpassFeature<GeometryFeatureObject<G>> generalize(double maxAllowableOffset) {
+		int level = CompactFeature.getLevel(maxAllowableOffset);
+		if (level < 0) {
+			return this;
+		}
+		
+		CompactGeometry<G>[] levels = this.levels;
+		if (levels == null) {
+			levels = CompactFeature.createLevels(this.geometry);
+			this.levels = levels;
+		}
+		
+		if (levels.length == 0 || levels[level] == this.geometry) {
+			return this;
+		}
+		
+		final CompactGeometry<G> geometry = levels[level];
+		return new OverpassFeature<GeometryFeatureObject<G>>(this.getEntityType(), this.getId()) {
+			@Override
+			protected GeometryFeatureObject<G> createFeature() {
+				return new GeometryFeatureObject<>(geometry.toGeometryObject(), CompactFeature.this.attributes);
+			}
+			
+			@Override
+			public Set<? extends Attachment> getAttachments() {
+				return CompactFeature.this.getAttachments();
+			}
+			
+			@Override
+			public boolean addAttachment(Attachment attachment) {
+				return CompactFeature.this.addAttachment(attachment);
+			}
+			
+			@Override
+			public boolean removeAttachment(Attachment attachment) {
+				return CompactFeature.this.removeAttachment(attachment);
+			}
+		};
+	}
+	
+	@Override
+	protected GeometryFeatureObject<G> createFeature() {
+		return new GeometryFeatureObject<>(this.geometry.toGeometryObject(), this.attributes);
+	}
+}
@@ -0,0 +1,656 @@
+package de.conterra.babelfish.overpass.store;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polyline;
+import de.conterra.babelfish.util.GeoUtils;
+import lombok.Getter;
+import org.geotools.geometry.GeneralDirectPosition;
+import org.geotools.geometry.iso.coordinate.LineStringImpl;
+import org.geotools.geometry.iso.coordinate.PolygonImpl;
+import org.geotools.geometry.iso.primitive.PointImpl;
+import org.geotools.geometry.iso.primitive.SurfaceBoundaryImpl;
+import org.opengis.geometry.coordinate.Position;
+import org.opengis.geometry.primitive.Ring;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * defines a geometry, which is stored as packed coordinate array<br>
+ * All coordinates are stored one after another (latitude, longitude and optionally the elevation) in the
+ * {@link OverpassHandler#OSM_CRS}, which is shared by all instances. A {@link Polygon} could consist of several
+ * rings (parts), which are grouped to shells: Every shell starts with its outer ring, followed by its inner rings. The
+ * {@link GeometryObject} will be created on request only (see {@link #toGeometryObject()}).
+ *
+ * @param <G> the {@link GeometryObject} type
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class CompactGeometry<G extends GeometryObject> {
+	/**
+	 * the {@link GeometryObject} type
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final Class<G> type;
+	/**
+	 * the number of ordinates of every coordinate (2 or 3)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final int      dimension;
+	/**
+	 * the ordinates of all coordinates
+	 *
+	 * @since 0.2.0
+	 */
+	private final double[] coordinates;
+	/**
+	 * the indices of the first coordinates of all rings ({@code null}, if there is a single part only)
+	 *
+	 * @since 0.2.0
+	 */
+	private final int[]    parts;
+	/**
+	 * the indices of the outer rings of all shells in {@code parts} ({@code null}, if there is a single part only)
+	 *
+	 * @since 0.2.0
+	 */
+	private final int[]    shells;
+	/**
+	 * the southern border of the bounding box
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final double   minLat;
+	/**
+	 * the western border of the bounding box
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final double   minLon;
+	/**
+	 * the northern border of the bounding box
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final double   maxLat;
+	/**
+	 * the eastern border of the bounding box
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final double   maxLon;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param type        the {@link GeometryObject} type ({@link Point}, {@link Polyline} or {@link Polygon})
+	 * @param dimension   the number of ordinates of every coordinate (2 or 3)
+	 * @param coordinates the ordinates of all coordinates, which will be stored without copying
+	 * @throws IllegalArgumentException if the dimension isn't supported or there are no coordinates
+	 * @since 0.2.0
+	 */
+	public CompactGeometry(Class<G> type, int dimension, double[] coordinates)
+	throws IllegalArgumentException {
+		this(type, dimension, coordinates, null, null);
+	}
+	
+	/**
+	 * constructor, with several parts
+	 *
+	 * @param type        the {@link GeometryObject} type ({@link Point}, {@link Polyline} or {@link Polygon})
+	 * @param dimension   the number of ordinates of every coordinate (2 or 3)
+	 * @param coordinates the ordinates of all coordinates, which will be stored without copying
+	 * @param parts       the ascending indices of the first coordinates of all rings, starting with {@code 0} ({@code null}
+	 *                    for a single part)
+	 * @param shells      the ascending indices of the outer rings in {@code parts}, starting with {@code 0} ({@code null}
+	 *                    for a single part)
+	 * @throws IllegalArgumentException if the dimension isn't supported, there are no coordinates or the parts are invalid
+	 * @since 0.2.0
+	 */
+	public CompactGeometry(Class<G> type, int dimension, double[] coordinates, int[] parts, int[] shells)
+	throws IllegalArgumentException {
+		if (dimension < 2 || dimension > 3) {
+			throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+		}
+		if (coordinates.length < dimension || coordinates.length % dimension != 0) {
+			throw new IllegalArgumentException("The coordinates don't match the dimension " + dimension + "!");
+		}
+		
+		if ((parts == null) != (shells == null)) {
+			throw new IllegalArgumentException("Parts and shells must be given together!");
+		}
+		if (parts != null && (parts.length < 1 || parts[0] != 0 || shells.length < 1 || shells[0] != 0)) {
+			throw new IllegalArgumentException("The first part and shell must start at 0!");
+		}
+		
+		this.type = type;
+		this.dimension = dimension;
+		this.coordinates = coordinates;
+		this.parts = parts;
+		this.shells = shells;
+		
+		double minLat = Double.POSITIVE_INFINITY;
+		double minLon = Double.POSITIVE_INFINITY;
+		double maxLat = Double.NEGATIVE_INFINITY;
+		double maxLon = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < coordinates.length; i += dimension) {
+			minLat = Math.min(minLat, coordinates[i]);
+			minLon = Math.min(minLon, coordinates[i + 1]);
+			maxLat = Math.max(maxLat, coordinates[i]);
+			maxLon = Math.max(maxLon, coordinates[i + 1]);
+		}
+		
+		this.minLat = minLat;
+		this.minLon = minLon;
+		this.maxLat = maxLat;
+		this.maxLon = maxLon;
+	}
+	
+	/**
+	 * gives the {@link CoordinateReferenceSystem} of all coordinates
+	 *
+	 * @return the {@link OverpassHandler#OSM_CRS}
+	 *
+	 * @since 0.2.0
+	 */
+	public CoordinateReferenceSystem getCoordinateReferenceSystem() {
+		return OverpassHandler.OSM_CRS;
+	}
+	
+	/**
+	 * gives the number of coordinates
+	 *
+	 * @return the number of coordinates
+	 *
+	 * @since 0.2.0
+	 */
+	public int size() {
+		return this.coordinates.length / this.dimension;
+	}
+	
+	/**
+	 * gives the number of parts (rings)
+	 *
+	 * @return the number of parts
+	 *
+	 * @since 0.2.0
+	 */
+	public int getPartCount() {
+		return this.parts == null ? 1 : this.parts.length;
+	}
+	
+	/**
+	 * gives the number of shells (outer rings with their inner rings)
+	 *
+	 * @return the number of shells
+	 *
+	 * @since 0.2.0
+	 */
+	public int getShellCount() {
+		return this.shells == null ? 1 : this.shells.length;
+	}
+	
+	/**
+	 * gives the index of the first coordinate of a part
+	 *
+	 * @param part the index of the part ({@link #getPartCount()} gives the end of the last part)
+	 * @return the index of the first coordinate
+	 *
+	 * @since 0.2.0
+	 */
+	public int getPartStart(int part) {
+		if (part >= this.getPartCount()) {
+			return this.size();
+		}
+		
+		return this.parts == null ? 0 : this.parts[part];
+	}
+	
+	/**
+	 * gives the latitude of a coordinate
+	 *
+	 * @param index the index of the coordinate
+	 * @return the latitude
+	 *
+	 * @since 0.2.0
+	 */
+	public double getLatitude(int index) {
+		return this.coordinates[index * this.dimension];
+	}
+	
+	/**
+	 * gives the longitude of a coordinate
+	 *
+	 * @param index the index of the coordinate
+	 * @return the longitude
+	 *
+	 * @since 0.2.0
+	 */
+	public double getLongitude(int index) {
+		return this.coordinates[index * this.dimension + 1];
+	}
+	
+	/**
+	 * checks, if the first and the last coordinate (of the last part) are equal
+	 *
+	 * @return {@code true}, if the coordinates build a ring
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean isClosed() {
+		int last = this.coordinates.length - this.dimension;
+		
+		for (int i = 0; i < this.dimension; i++) {
+			if (Double.compare(this.coordinates[i], this.coordinates[last + i]) != 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * checks, if the bounding box intersects an area
+	 *
+	 * @param minLat the southern border of the area
+	 * @param minLon the western border of the area
+	 * @param maxLat the northern border of the area
+	 * @param maxLon the eastern border of the area
+	 * @return {@code true}, if the bounding box intersects the area
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+		return !(this.minLat > maxLat || this.maxLat < minLat || this.minLon > maxLon || this.maxLon < minLon);
+	}
+	
+	/**
+	 * simplifies the geometry by the Douglas-Peucker algorithm<br>
+	 * Every part is simplified separately. Longitudes are scaled by the cosine of the mean latitude, so the tolerance is
+	 * measured in degrees of latitude. Rings keep at least four coordinates, otherwise they aren't simplified.
+	 *
+	 * @param tolerance the maximum distance of a removed coordinate to the simplified part (in degrees of latitude)
+	 * @return the simplified geometry or this geometry, if no coordinate could be removed
+	 *
+	 * @since 0.2.0
+	 */
+	public CompactGeometry<G> simplify(double tolerance) {
+		if (Point.class.isAssignableFrom(this.type)) {
+			return this;
+		}
+		
+		boolean   ring   = Polygon.class.isAssignableFrom(this.type);
+		double    scale  = Math.cos(Math.toRadians((this.minLat + this.maxLat) / 2));
+		boolean[] keep   = new boolean[this.size()];
+		int[]     parts  = this.parts == null ? null : new int[this.parts.length];
+		int       length = 0;
+		
+		for (int part = 0; part < this.getPartCount(); part++) {
+			int from  = this.getPartStart(part);
+			int to    = this.getPartStart(part + 1);
+			int count = this.simplify(from, to, tolerance * tolerance, scale, keep);
+			
+			if (ring && count < 4) {
+				Arrays.fill(keep, from, to, true);
+				count = to - from;
+			}
+			
+			if (parts != null) {
+				parts[part] = length;
+			}
+			length += count;
+		}
+		
+		if (length == keep.length) {
+			return this;
+		}
+		
+		double[] coordinates = new double[length * this.dimension];
+		int      pos         = 0;
+		for (int i = 0; i < keep.length; i++) {
+			if (keep[i]) {
+				System.arraycopy(this.coordinates, i * this.dimension, coordinates, pos, this.dimension);
+				pos += this.dimension;
+			}
+		}
+		
+		return new CompactGeometry<>(this.type, this.dimension, coordinates, parts, this.shells);
+	}
+	
+	/**
+	 * marks the coordinates of a part, which are kept by the Douglas-Peucker algorithm
+	 *
+	 * @param from        the index of the first coordinate (inclusive)
+	 * @param to          the index of the last coordinate (exclusive)
+	 * @param sqTolerance the squared tolerance (in degrees of latitude)
+	 * @param scale       the factor to scale the longitudes with
+	 * @param keep        the flags of the kept coordinates
+	 * @return the number of kept coordinates
+	 *
+	 * @since 0.2.0
+	 */
+	private int simplify(int from, int to, double sqTolerance, double scale, boolean[] keep) {
+		int last = to - 1;
+		
+		keep[from] = true;
+		keep[last] = true;
+		if (last - from < 2) {
+			return last - from + 1;
+		}
+		
+		int   count = 2;
+		int[] stack = new int[(to - from) * 2];
+		int   size  = 0;
+		
+		stack[size++] = from;
+		stack[size++] = last;
+		while (size > 0) {
+			int end   = stack[--size];
+			int start = stack[--size];
+			
+			double startLat = this.getLatitude(start);
+			double startLon = this.getLongitude(start) * scale;
+			double dLat     = this.getLatitude(end) - startLat;
+			double dLon     = this.getLongitude(end) * scale - startLon;
+			double sqLength = dLat * dLat + dLon * dLon;
+			
+			double maxDistance = sqTolerance;
+			int    farthest    = -1;
+			for (int i = start + 1; i < end; i++) {
+				double lat = this.getLatitude(i) - startLat;
+				double lon = this.getLongitude(i) * scale - startLon;
+				double t   = sqLength == 0 ? 0 : Math.max(0, Math.min(1, (lat * dLat + lon * dLon) / sqLength));
+				
+				double distLat  = lat - t * dLat;
+				double distLon  = lon - t * dLon;
+				double distance = distLat * distLat + distLon * distLon;
+				if (distance > maxDistance) {
+					maxDistance = distance;
+					farthest = i;
+				}
+			}
+			
+			if (farthest >= 0) {
+				keep[farthest] = true;
+				count++;
+				
+				stack[size++] = start;
+				stack[size++] = farthest;
+				stack[size++] = farthest;
+				stack[size++] = end;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * creates the {@link Position} of a coordinate
+	 *
+	 * @param index the index of the coordinate
+	 * @return the created {@link Position}
+	 *
+	 * @since 0.2.0
+	 */
+	private GeneralDirectPosition createPosition(int index) {
+		GeneralDirectPosition pos       = new GeneralDirectPosition(OverpassHandler.OSM_CRS);
+		int                   dimension = Math.min(this.dimension, pos.getDimension());
+		
+		for (int i = 0; i < dimension; i++) {
+			pos.setOrdinate(i, this.coordinates[index * this.dimension + i]);
+		}
+		
+		return pos;
+	}
+	
+	/**
+	 * creates the {@link Position}s of a range of coordinates
+	 *
+	 * @param from the index of the first coordinate (inclusive)
+	 * @param to   the index of the last coordinate (exclusive)
+	 * @return the created {@link Position}s
+	 *
+	 * @since 0.2.0
+	 */
+	private List<Position> createPositions(int from, int to) {
+		List<Position> res = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			res.add(this.createPosition(i));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the {@link Ring} of a part
+	 *
+	 * @param part the index of the part
+	 * @return the created {@link Ring}
+	 *
+	 * @since 0.2.0
+	 */
+	private Ring createRing(int part) {
+		List<Position> positions = this.createPositions(this.getPartStart(part), this.getPartStart(part + 1));
+		
+		return GeoUtils.createRing(positions.toArray(new Position[positions.size()]));
+	}
+	
+	/**
+	 * creates the JTS {@link Coordinate}s of a range of coordinates (without the elevation)
+	 *
+	 * @param from the index of the first coordinate (inclusive)
+	 * @param to   the index of the last coordinate (exclusive)
+	 * @return the created {@link Coordinate}s
+	 *
+	 * @since 0.2.0
+	 */
+	private Coordinate[] createCoordinates(int from, int to) {
+		Coordinate[] res = new Coordinate[to - from];
+		for (int i = from; i < to; i++) {
+			res[i - from] = new Coordinate(this.getLatitude(i), this.getLongitude(i));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the JTS {@link com.vividsolutions.jts.geom.Polygon} of a shell
+	 *
+	 * @param factory the {@link GeometryFactory} to create the {@link com.vividsolutions.jts.geom.Polygon} with
+	 * @param shell   the index of the shell
+	 * @return the created {@link com.vividsolutions.jts.geom.Polygon}
+	 *
+	 * @throws IllegalArgumentException if a ring isn't closed or has less than four coordinates
+	 * @since 0.2.0
+	 */
+	private com.vividsolutions.jts.geom.Polygon createPolygon(GeometryFactory factory, int shell)
+	throws IllegalArgumentException {
+		int          start = this.shells == null ? 0 : this.shells[shell];
+		int          end   = shell + 1 < this.getShellCount() ? this.shells[shell + 1] : this.getPartCount();
+		LinearRing[] holes = new LinearRing[end - start - 1];
+		for (int part = start + 1; part < end; part++) {
+			holes[part - start - 1] = factory.createLinearRing(this.createCoordinates(this.getPartStart(part), this.getPartStart(part + 1)));
+		}
+		
+		return factory.createPolygon(factory.createLinearRing(this.createCoordinates(this.getPartStart(start), this.getPartStart(start + 1))), holes);
+	}
+	
+	/**
+	 * creates a JTS {@link Geometry} of the coordinates, without creating the {@link GeometryObject}<br>
+	 * The ordinates are kept in the order of the {@link OverpassHandler#OSM_CRS}. Unlike {@link #toGeometryObject()},
+	 * a {@link Polygon} of several shells is created as {@link MultiPolygon} of all shells, so spatial predicates
+	 * consider every shell.
+	 *
+	 * @param factory the {@link GeometryFactory} to create the {@link Geometry} with
+	 * @return the created {@link Geometry}
+	 *
+	 * @throws IllegalArgumentException if a ring isn't closed or has less than four coordinates
+	 * @since 0.2.0
+	 */
+	public Geometry toGeometry(GeometryFactory factory)
+	throws IllegalArgumentException {
+		if (Point.class.isAssignableFrom(this.type) || this.size() < 2) {
+			return factory.createPoint(new Coordinate(this.getLatitude(0), this.getLongitude(0)));
+		}
+		
+		if (Polygon.class.isAssignableFrom(this.type)) {
+			if (this.getShellCount() == 1) {
+				return this.createPolygon(factory, 0);
+			}
+			
+			com.vividsolutions.jts.geom.Polygon[] polygons = new com.vividsolutions.jts.geom.Polygon[this.getShellCount()];
+			for (int shell = 0; shell < polygons.length; shell++) {
+				polygons[shell] = this.createPolygon(factory, shell);
+			}
+			
+			return factory.createMultiPolygon(polygons);
+		}
+		
+		return factory.createLineString(this.createCoordinates(0, this.size()));
+	}
+	
+	/**
+	 * writes the coordinates and parts of the geometry
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @throws IOException if the geometry couldn't be written
+	 * @see #read(DataInput, Class)
+	 * @since 0.2.0
+	 */
+	void write(DataOutput output)
+	throws IOException {
+		output.writeByte(this.dimension);
+		output.writeInt(this.coordinates.length);
+		for (double ordinate : this.coordinates) {
+			output.writeDouble(ordinate);
+		}
+		
+		CompactGeometry.writeInts(output, this.parts);
+		CompactGeometry.writeInts(output, this.shells);
+	}
+	
+	/**
+	 * writes an {@code int} array with its length ({@code -1} for {@code null})
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @param values the values to write
+	 * @throws IOException if the values couldn't be written
+	 * @since 0.2.0
+	 */
+	private static void writeInts(DataOutput output, int[] values)
+	throws IOException {
+		if (values == null) {
+			output.writeInt(-1);
+			return;
+		}
+		
+		output.writeInt(values.length);
+		for (int value : values) {
+			output.writeInt(value);
+		}
+	}
+	
+	/**
+	 * reads an {@code int} array, which was written by {@link #writeInts(DataOutput, int[])}
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @return the values or {@code null}
+	 *
+	 * @throws IOException if the values couldn't be read
+	 * @since 0.2.0
+	 */
+	private static int[] readInts(DataInput input)
+	throws IOException {
+		int length = input.readInt();
+		
+		if (length < 0) {
+			return null;
+		}
+		
+		int[] res = new int[length];
+		for (int i = 0; i < length; i++) {
+			res[i] = input.readInt();
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * reads a geometry, which was written by {@link #write(DataOutput)}
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @param type  the {@link GeometryObject} type
+	 * @param <G>   the {@link GeometryObject} type
+	 * @return the read geometry
+	 *
+	 * @throws IOException if the geometry couldn't be read
+	 * @since 0.2.0
+	 */
+	static <G extends GeometryObject> CompactGeometry<G> read(DataInput input, Class<G> type)
+	throws IOException {
+		int      dimension   = input.readByte();
+		double[] coordinates = new double[input.readInt()];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = input.readDouble();
+		}
+		
+		int[] parts  = CompactGeometry.readInts(input);
+		int[] shells = CompactGeometry.readInts(input);
+		
+		return new CompactGeometry<>(type, dimension, coordinates, parts, shells);
+	}
+	
+	/**
+	 * creates the {@link GeometryObject} of the coordinates<br>
+	 * A {@link Polygon} is created from the first shell only, because a {@link Polygon} has a single outer ring. The
+	 * shells are ordered by their size, so the first shell is the biggest one.
+	 *
+	 * @return the created {@link GeometryObject}
+	 *
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public G toGeometryObject() {
+		if (Point.class.isAssignableFrom(this.type)) {
+			return (G) (new Point(new PointImpl(this.createPosition(0))));
+		}
+		
+		if (Polygon.class.isAssignableFrom(this.type)) {
+			int        end       = this.getShellCount() > 1 ? this.shells[1] : this.getPartCount();
+			List<Ring> interiors = new ArrayList<>(end - 1);
+			for (int part = 1; part < end; part++) {
+				interiors.add(this.createRing(part));
+			}
+			
+			return (G) (new Polygon(new PolygonImpl(new SurfaceBoundaryImpl(
+					OverpassHandler.OSM_CRS,
+					this.createRing(0),
+					interiors
+			))));
+		}
+		
+		return (G) (new Polyline(new LineStringImpl(this.createPositions(0, this.size()))));
+	}
+}
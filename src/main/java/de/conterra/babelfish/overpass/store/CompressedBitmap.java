@@ -0,0 +1,703 @@
+package de.conterra.babelfish.overpass.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * defines a compressed set of non-negative {@code int}s in the style of a roaring bitmap<br>
+ * The values are split by their upper 16 bits into chunks. Every chunk stores its lower 16 bits as sorted
+ * {@code char} array, as long as it contains at most {@link #ARRAY_LIMIT} values, and as plain bitmap of
+ * {@value #BITMAP_WORDS} {@code long}s otherwise. So sparse and dense sets are both stored compactly and could be
+ * intersected and united chunk by chunk. The bitmap isn't thread safe.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class CompressedBitmap {
+	/**
+	 * the maximum number of values of an array chunk
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int ARRAY_LIMIT      = 4096;
+	/**
+	 * the number of {@code long}s of a bitmap chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int BITMAP_WORDS     = 1024;
+	/**
+	 * the initial number of chunks
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int INITIAL_CHUNKS   = 4;
+	/**
+	 * the initial capacity of an array chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	
+	/**
+	 * the upper 16 bits of the chunks (sorted)
+	 *
+	 * @since 0.2.0
+	 */
+	private char[]   keys          = new char[CompressedBitmap.INITIAL_CHUNKS];
+	/**
+	 * the chunks (a {@code char[]} or a {@code long[]} each)
+	 *
+	 * @since 0.2.0
+	 */
+	private Object[] chunks        = new Object[CompressedBitmap.INITIAL_CHUNKS];
+	/**
+	 * the number of values of every chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private int[]    cardinalities = new int[CompressedBitmap.INITIAL_CHUNKS];
+	/**
+	 * the number of chunks
+	 *
+	 * @since 0.2.0
+	 */
+	private int      size          = 0;
+	
+	/**
+	 * gives the position of a chunk
+	 *
+	 * @param key the upper 16 bits of the chunk
+	 * @return the position of the chunk or {@code -(insertion point) - 1}, if there is no chunk of {@code key}
+	 *
+	 * @since 0.2.0
+	 */
+	private int indexOf(char key) {
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+	
+	/**
+	 * appends a chunk
+	 *
+	 * @param key         the upper 16 bits of the chunk
+	 * @param chunk       the chunk
+	 * @param cardinality the number of values of the chunk
+	 * @since 0.2.0
+	 */
+	private void append(char key, Object chunk, int cardinality) {
+		this.insert(this.size, key, chunk, cardinality);
+	}
+	
+	/**
+	 * inserts a chunk
+	 *
+	 * @param index       the position to insert the chunk
+	 * @param key         the upper 16 bits of the chunk
+	 * @param chunk       the chunk
+	 * @param cardinality the number of values of the chunk
+	 * @since 0.2.0
+	 */
+	private void insert(int index, char key, Object chunk, int cardinality) {
+		if (this.size == this.keys.length) {
+			int capacity = this.size * 2;
+			
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.chunks = Arrays.copyOf(this.chunks, capacity);
+			this.cardinalities = Arrays.copyOf(this.cardinalities, capacity);
+		}
+		
+		System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+		System.arraycopy(this.chunks, index, this.chunks, index + 1, this.size - index);
+		System.arraycopy(this.cardinalities, index, this.cardinalities, index + 1, this.size - index);
+		
+		this.keys[index] = key;
+		this.chunks[index] = chunk;
+		this.cardinalities[index] = cardinality;
+		this.size++;
+	}
+	
+	/**
+	 * removes a chunk
+	 *
+	 * @param index the position of the chunk
+	 * @since 0.2.0
+	 */
+	private void delete(int index) {
+		this.size--;
+		
+		System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index);
+		System.arraycopy(this.chunks, index + 1, this.chunks, index, this.size - index);
+		System.arraycopy(this.cardinalities, index + 1, this.cardinalities, index, this.size - index);
+		
+		this.chunks[this.size] = null;
+	}
+	
+	/**
+	 * adds a value
+	 *
+	 * @param value the value to add
+	 * @return {@code true}, if the value wasn't contained before
+	 *
+	 * @throws IllegalArgumentException if {@code value} is negative
+	 * @since 0.2.0
+	 */
+	public boolean add(int value)
+	throws IllegalArgumentException {
+		if (value < 0) {
+			throw new IllegalArgumentException("Only non-negative values are supported!");
+		}
+		
+		char key   = (char) (value >>> 16);
+		char low   = (char) value;
+		int  index = this.indexOf(key);
+		
+		if (index < 0) {
+			char[] chunk = new char[CompressedBitmap.INITIAL_CAPACITY];
+			chunk[0] = low;
+			
+			this.insert(-index - 1, key, chunk, 1);
+			return true;
+		}
+		
+		int    cardinality = this.cardinalities[index];
+		Object chunk       = this.chunks[index];
+		
+		if (chunk instanceof long[]) {
+			long[] words = (long[]) chunk;
+			long   bit   = 1L << low;
+			
+			if ((words[low >>> 6] & bit) != 0) {
+				return false;
+			}
+			
+			words[low >>> 6] |= bit;
+			this.cardinalities[index] = cardinality + 1;
+			return true;
+		}
+		
+		char[] values = (char[]) chunk;
+		int    pos    = Arrays.binarySearch(values, 0, cardinality, low);
+		if (pos >= 0) {
+			return false;
+		}
+		pos = -pos - 1;
+		
+		if (cardinality == CompressedBitmap.ARRAY_LIMIT) {
+			long[] words = CompressedBitmap.toBitmap(values, cardinality);
+			words[low >>> 6] |= 1L << low;
+			
+			this.chunks[index] = words;
+		} else {
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(cardinality * 2, CompressedBitmap.ARRAY_LIMIT));
+				this.chunks[index] = values;
+			}
+			
+			System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+			values[pos] = low;
+		}
+		
+		this.cardinalities[index] = cardinality + 1;
+		return true;
+	}
+	
+	/**
+	 * removes a value
+	 *
+	 * @param value the value to remove
+	 * @return {@code true}, if the value was contained
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean remove(int value) {
+		if (value < 0) {
+			return false;
+		}
+		
+		char key   = (char) (value >>> 16);
+		char low   = (char) value;
+		int  index = this.indexOf(key);
+		
+		if (index < 0) {
+			return false;
+		}
+		
+		int    cardinality = this.cardinalities[index];
+		Object chunk       = this.chunks[index];
+		
+		if (chunk instanceof long[]) {
+			long[] words = (long[]) chunk;
+			long   bit   = 1L << low;
+			
+			if ((words[low >>> 6] & bit) == 0) {
+				return false;
+			}
+			
+			words[low >>> 6] &= ~bit;
+			if (cardinality - 1 <= CompressedBitmap.ARRAY_LIMIT) {
+				this.chunks[index] = CompressedBitmap.toArray(words, cardinality - 1);
+			}
+		} else {
+			char[] values = (char[]) chunk;
+			int    pos    = Arrays.binarySearch(values, 0, cardinality, low);
+			
+			if (pos < 0) {
+				return false;
+			}
+			
+			System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+		}
+		
+		if (cardinality == 1) {
+			this.delete(index);
+		} else {
+			this.cardinalities[index] = cardinality - 1;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * checks, if a value is contained
+	 *
+	 * @param value the value to check
+	 * @return {@code true}, if {@code value} is contained
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		
+		char low   = (char) value;
+		int  index = this.indexOf((char) (value >>> 16));
+		
+		if (index < 0) {
+			return false;
+		}
+		
+		Object chunk = this.chunks[index];
+		if (chunk instanceof long[]) {
+			return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+		}
+		
+		return Arrays.binarySearch((char[]) chunk, 0, this.cardinalities[index], low) >= 0;
+	}
+	
+	/**
+	 * gives the number of values
+	 *
+	 * @return the number of values
+	 *
+	 * @since 0.2.0
+	 */
+	public int getCardinality() {
+		int res = 0;
+		
+		for (int i = 0; i < this.size; i++) {
+			res += this.cardinalities[i];
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * checks, if no value is contained
+	 *
+	 * @return {@code true}, if the bitmap is empty
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * gives all values
+	 *
+	 * @return the sorted values
+	 *
+	 * @since 0.2.0
+	 */
+	public int[] toArray() {
+		int[] res = new int[this.getCardinality()];
+		int   pos = 0;
+		
+		for (int i = 0; i < this.size; i++) {
+			int    high  = this.keys[i] << 16;
+			Object chunk = this.chunks[i];
+			
+			if (chunk instanceof long[]) {
+				long[] words = (long[]) chunk;
+				
+				for (int w = 0; w < CompressedBitmap.BITMAP_WORDS; w++) {
+					long word = words[w];
+					
+					while (word != 0) {
+						res[pos++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+					}
+				}
+			} else {
+				char[] values = (char[]) chunk;
+				
+				for (int v = 0; v < this.cardinalities[i]; v++) {
+					res[pos++] = high | values[v];
+				}
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * writes the chunks of the bitmap
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @throws IOException if the bitmap couldn't be written
+	 * @see #read(DataInput)
+	 * @since 0.2.0
+	 */
+	void write(DataOutput output)
+	throws IOException {
+		output.writeInt(this.size);
+		
+		for (int i = 0; i < this.size; i++) {
+			Object chunk = this.chunks[i];
+			
+			output.writeChar(this.keys[i]);
+			output.writeInt(this.cardinalities[i]);
+			
+			if (chunk instanceof long[]) {
+				for (long word : (long[]) chunk) {
+					output.writeLong(word);
+				}
+			} else {
+				char[] values = (char[]) chunk;
+				
+				for (int v = 0; v < this.cardinalities[i]; v++) {
+					output.writeChar(values[v]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * reads a bitmap, which was written by {@link #write(DataOutput)}<br>
+	 * Chunks with more than {@link #ARRAY_LIMIT} values are bitmap chunks, all others are array chunks.
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @return the read bitmap
+	 *
+	 * @throws IOException if the bitmap couldn't be read
+	 * @since 0.2.0
+	 */
+	static CompressedBitmap read(DataInput input)
+	throws IOException {
+		CompressedBitmap res  = new CompressedBitmap();
+		int              size = input.readInt();
+		
+		for (int i = 0; i < size; i++) {
+			char key         = input.readChar();
+			int  cardinality = input.readInt();
+			
+			if (cardinality > CompressedBitmap.ARRAY_LIMIT) {
+				long[] words = new long[CompressedBitmap.BITMAP_WORDS];
+				for (int w = 0; w < words.length; w++) {
+					words[w] = input.readLong();
+				}
+				
+				res.append(key, words, cardinality);
+			} else {
+				char[] values = new char[cardinality];
+				for (int v = 0; v < cardinality; v++) {
+					values[v] = input.readChar();
+				}
+				
+				res.append(key, values, cardinality);
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the intersection with another bitmap
+	 *
+	 * @param other the other bitmap
+	 * @return a new bitmap with all values, which are contained in both bitmaps
+	 *
+	 * @since 0.2.0
+	 */
+	public CompressedBitmap and(CompressedBitmap other) {
+		CompressedBitmap res = new CompressedBitmap();
+		int              i   = 0;
+		int              j   = 0;
+		
+		while (i < this.size && j < other.size) {
+			if (this.keys[i] < other.keys[j]) {
+				i++;
+			} else if (this.keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Object left  = this.chunks[i];
+				Object right = other.chunks[j];
+				
+				if (left instanceof long[] && right instanceof long[]) {
+					long[] words       = new long[CompressedBitmap.BITMAP_WORDS];
+					int    cardinality = 0;
+					
+					for (int w = 0; w < CompressedBitmap.BITMAP_WORDS; w++) {
+						words[w] = ((long[]) left)[w] & ((long[]) right)[w];
+						cardinality += Long.bitCount(words[w]);
+					}
+					
+					res.appendChunk(this.keys[i], words, cardinality);
+				} else if (left instanceof long[]) {
+					res.appendChunk(this.keys[i], CompressedBitmap.filter((char[]) right, other.cardinalities[j], (long[]) left), -1);
+				} else if (right instanceof long[]) {
+					res.appendChunk(this.keys[i], CompressedBitmap.filter((char[]) left, this.cardinalities[i], (long[]) right), -1);
+				} else {
+					res.appendChunk(this.keys[i], CompressedBitmap.intersect((char[]) left, this.cardinalities[i], (char[]) right, other.cardinalities[j]), -1);
+				}
+				
+				i++;
+				j++;
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates the union with another bitmap
+	 *
+	 * @param other the other bitmap
+	 * @return a new bitmap with all values, which are contained in one of the bitmaps
+	 *
+	 * @since 0.2.0
+	 */
+	public CompressedBitmap or(CompressedBitmap other) {
+		CompressedBitmap res = new CompressedBitmap();
+		int              i   = 0;
+		int              j   = 0;
+		
+		while (i < this.size || j < other.size) {
+			if (j >= other.size || (i < this.size && this.keys[i] < other.keys[j])) {
+				res.append(this.keys[i], CompressedBitmap.copy(this.chunks[i]), this.cardinalities[i]);
+				i++;
+			} else if (i >= this.size || this.keys[i] > other.keys[j]) {
+				res.append(other.keys[j], CompressedBitmap.copy(other.chunks[j]), other.cardinalities[j]);
+				j++;
+			} else {
+				Object left  = this.chunks[i];
+				Object right = other.chunks[j];
+				
+				if (left instanceof long[] || right instanceof long[] || this.cardinalities[i] + other.cardinalities[j] > CompressedBitmap.ARRAY_LIMIT) {
+					long[] words       = CompressedBitmap.toBitmap(left, this.cardinalities[i]);
+					int    cardinality = 0;
+					
+					if (right instanceof long[]) {
+						for (int w = 0; w < CompressedBitmap.BITMAP_WORDS; w++) {
+							words[w] |= ((long[]) right)[w];
+						}
+					} else {
+						char[] values = (char[]) right;
+						
+						for (int v = 0; v < other.cardinalities[j]; v++) {
+							words[values[v] >>> 6] |= 1L << values[v];
+						}
+					}
+					
+					for (long word : words) {
+						cardinality += Long.bitCount(word);
+					}
+					
+					res.appendChunk(this.keys[i], words, cardinality);
+				} else {
+					res.appendChunk(this.keys[i], CompressedBitmap.merge((char[]) left, this.cardinalities[i], (char[]) right, other.cardinalities[j]), -1);
+				}
+				
+				i++;
+				j++;
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * appends a result chunk, if it isn't empty<br>
+	 * Bitmap chunks with at most {@link #ARRAY_LIMIT} values are converted to array chunks.
+	 *
+	 * @param key         the upper 16 bits of the chunk
+	 * @param chunk       the chunk (an array chunk must be trimmed to its values)
+	 * @param cardinality the number of values of a bitmap chunk (ignored for array chunks)
+	 * @since 0.2.0
+	 */
+	private void appendChunk(char key, Object chunk, int cardinality) {
+		if (chunk instanceof long[]) {
+			if (cardinality <= CompressedBitmap.ARRAY_LIMIT) {
+				chunk = CompressedBitmap.toArray((long[]) chunk, cardinality);
+			}
+		} else {
+			cardinality = ((char[]) chunk).length;
+		}
+		
+		if (cardinality > 0) {
+			this.append(key, chunk, cardinality);
+		}
+	}
+	
+	/**
+	 * copies a chunk
+	 *
+	 * @param chunk the chunk to copy
+	 * @return the copy
+	 *
+	 * @since 0.2.0
+	 */
+	private static Object copy(Object chunk) {
+		return chunk instanceof long[] ? ((long[]) chunk).clone() : ((char[]) chunk).clone();
+	}
+	
+	/**
+	 * converts a chunk to a bitmap chunk
+	 *
+	 * @param chunk       the chunk to convert
+	 * @param cardinality the number of values of the chunk
+	 * @return a new bitmap chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private static long[] toBitmap(Object chunk, int cardinality) {
+		if (chunk instanceof long[]) {
+			return ((long[]) chunk).clone();
+		}
+		
+		long[] res    = new long[CompressedBitmap.BITMAP_WORDS];
+		char[] values = (char[]) chunk;
+		
+		for (int i = 0; i < cardinality; i++) {
+			res[values[i] >>> 6] |= 1L << values[i];
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * converts a bitmap chunk to an array chunk
+	 *
+	 * @param words       the bitmap chunk
+	 * @param cardinality the number of values of the chunk
+	 * @return the array chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private static char[] toArray(long[] words, int cardinality) {
+		char[] res = new char[cardinality];
+		int    pos = 0;
+		
+		for (int w = 0; w < CompressedBitmap.BITMAP_WORDS; w++) {
+			long word = words[w];
+			
+			while (word != 0) {
+				res[pos++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * keeps the values of an array chunk, which are contained in a bitmap chunk
+	 *
+	 * @param values      the array chunk
+	 * @param cardinality the number of values of the array chunk
+	 * @param words       the bitmap chunk
+	 * @return the trimmed array chunk of the intersection
+	 *
+	 * @since 0.2.0
+	 */
+	private static char[] filter(char[] values, int cardinality, long[] words) {
+		char[] res = new char[cardinality];
+		int    pos = 0;
+		
+		for (int i = 0; i < cardinality; i++) {
+			if ((words[values[i] >>> 6] & (1L << values[i])) != 0) {
+				res[pos++] = values[i];
+			}
+		}
+		
+		return Arrays.copyOf(res, pos);
+	}
+	
+	/**
+	 * intersects two array chunks
+	 *
+	 * @param left       the first array chunk
+	 * @param leftCount  the number of values of {@code left}
+	 * @param right      the second array chunk
+	 * @param rightCount the number of values of {@code right}
+	 * @return the trimmed array chunk of the intersection
+	 *
+	 * @since 0.2.0
+	 */
+	private static char[] intersect(char[] left, int leftCount, char[] right, int rightCount) {
+		char[] res = new char[Math.min(leftCount, rightCount)];
+		int    pos = 0;
+		int    i   = 0;
+		int    j   = 0;
+		
+		while (i < leftCount && j < rightCount) {
+			if (left[i] < right[j]) {
+				i++;
+			} else if (left[i] > right[j]) {
+				j++;
+			} else {
+				res[pos++] = left[i];
+				i++;
+				j++;
+			}
+		}
+		
+		return Arrays.copyOf(res, pos);
+	}
+	
+	/**
+	 * unites two array chunks
+	 *
+	 * @param left       the first array chunk
+	 * @param leftCount  the number of values of {@code left}
+	 * @param right      the second array chunk
+	 * @param rightCount the number of values of {@code right}
+	 * @return the trimmed array chunk of the union
+	 *
+	 * @since 0.2.0
+	 */
+	private static char[] merge(char[] left, int leftCount, char[] right, int rightCount) {
+		char[] res = new char[leftCount + rightCount];
+		int    pos = 0;
+		int    i   = 0;
+		int    j   = 0;
+		
+		while (i < leftCount || j < rightCount) {
+			if (j >= rightCount || (i < leftCount && left[i] < right[j])) {
+				res[pos++] = left[i++];
+			} else if (i >= leftCount || left[i] > right[j]) {
+				res[pos++] = right[j++];
+			} else {
+				res[pos++] = left[i];
+				i++;
+				j++;
+			}
+		}
+		
+		return Arrays.copyOf(res, pos);
+	}
+}
@@ -0,0 +1,388 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import de.conterra.babelfish.plugin.v10_02.feature.Field;
+import de.conterra.babelfish.plugin.v10_02.feature.wrapper.LayerWrapper;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * defines the attributes of a feature, which are stored as codes of an {@link AttributeDictionary}<br>
+ * The meta data of the {@link Entity} is stored as primitives and every {@link Tag} as a pair of a key and a value
+ * code. The values are parsed to the type of their {@link OverpassField} once on encoding, so typed values (e.g.
+ * numbers and dates) are compared without parsing them again. A value, which doesn't match the type, is encoded as
+ * {@code null} and kept as {@link String} under the key with the {@link OverpassField#RAW_SUFFIX}. The {@link Map} entries are decoded on access only. The
+ * {@link Map} is unmodifiable.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class EncodedAttributes
+		extends AbstractMap<Field, Object> {
+	/**
+	 * the number of meta data attributes, which precede the {@link Tag}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int META_COUNT = 5;
+	
+	/**
+	 * the {@link AttributeDictionary} to decode the codes with
+	 *
+	 * @since 0.2.0
+	 */
+	private final AttributeDictionary dictionary;
+	/**
+	 * the key of the {@link Entity} (see {@link OverpassHandler#getKey(Entity)})
+	 *
+	 * @since 0.2.0
+	 */
+	private final long                id;
+	/**
+	 * the value code of the user name ({@code -1}, if there is no user name)
+	 *
+	 * @since 0.2.0
+	 */
+	private final int                 user;
+	/**
+	 * the version of the {@link Entity}
+	 *
+	 * @since 0.2.0
+	 */
+	private final int                 version;
+	/**
+	 * the time of the last change (in milliseconds since the epoch)
+	 *
+	 * @since 0.2.0
+	 */
+	private final long                timestamp;
+	/**
+	 * the identifier of the last changeset
+	 *
+	 * @since 0.2.0
+	 */
+	private final long                changeset;
+	/**
+	 * the key and value codes of all {@link Tag}s, one after another<br>
+	 * Values, which don't match the type of their {@link OverpassField}, are encoded as {@code -1} and additionally
+	 * as {@link String} under the key with the {@link OverpassField#RAW_SUFFIX}.
+	 *
+	 * @since 0.2.0
+	 */
+	private final int[]               tags;
+	
+	/**
+	 * standard constructor, which encodes the attributes of an {@link Entity}
+	 *
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @param entity     the {@link Entity} to encode the attributes of
+	 * @since 0.2.0
+	 */
+	public EncodedAttributes(AttributeDictionary dictionary, Entity entity) {
+		this.dictionary = dictionary;
+		this.id = OverpassHandler.getKey(entity);
+		
+		String userName = entity.getUser().getName();
+		this.user = userName == null ? -1 : dictionary.encodeValue(userName);
+		this.version = entity.getVersion();
+		this.timestamp = entity.getTimestamp().getTime();
+		this.changeset = entity.getChangesetId();
+		
+		Collection<Tag> entityTags = entity.getTags();
+		int[]           tags       = new int[entityTags.size() * 4];
+		int             length     = 0;
+		
+		for (Tag tag : entityTags) {
+			int    key    = dictionary.encodeKey(tag.getKey());
+			Object parsed = dictionary.getField(key).parse(tag.getValue());
+			
+			length = EncodedAttributes.put(tags, length, key, parsed == null ? -1 : dictionary.encodeValue(parsed));
+			
+			if (parsed == null && tag.getValue() != null) {
+				length = EncodedAttributes.put(tags, length, dictionary.encodeKey(tag.getKey() + OverpassField.RAW_SUFFIX), dictionary.encodeValue(tag.getValue()));
+			}
+		}
+		
+		this.tags = length == tags.length ? tags : Arrays.copyOf(tags, length);
+	}
+	
+	/**
+	 * sets the value code of a key code in the {@link Tag} codes
+	 *
+	 * @param tags   the key and value codes
+	 * @param length the number of used codes
+	 * @param key    the key code
+	 * @param value  the value code
+	 * @return the new number of used codes
+	 *
+	 * @since 0.2.0
+	 */
+	private static int put(int[] tags, int length, int key, int value) {
+		int pos = EncodedAttributes.indexOf(tags, length, key);
+		int res = length;
+		
+		if (pos < 0) {
+			pos = length;
+			res += 2;
+		}
+		
+		tags[pos] = key;
+		tags[pos + 1] = value;
+		
+		return res;
+	}
+	
+	/**
+	 * constructor, with already encoded attributes
+	 *
+	 * @param dictionary the {@link AttributeDictionary} of the codes
+	 * @param id         the key of the {@link Entity}
+	 * @param user       the value code of the user name ({@code -1}, if there is no user name)
+	 * @param version    the version of the {@link Entity}
+	 * @param timestamp  the time of the last change (in milliseconds since the epoch)
+	 * @param changeset  the identifier of the last changeset
+	 * @param tags       the key and value codes of all {@link Tag}s, one after another
+	 * @since 0.2.0
+	 */
+	private EncodedAttributes(AttributeDictionary dictionary, long id, int user, int version, long timestamp, long changeset, int[] tags) {
+		this.dictionary = dictionary;
+		this.id = id;
+		this.user = user;
+		this.version = version;
+		this.timestamp = timestamp;
+		this.changeset = changeset;
+		this.tags = tags;
+	}
+	
+	/**
+	 * writes the codes and meta data of the attributes
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @throws IOException if the attributes couldn't be written
+	 * @see #read(DataInput, AttributeDictionary, int[], int[])
+	 * @since 0.2.0
+	 */
+	void write(DataOutput output)
+	throws IOException {
+		output.writeLong(this.id);
+		output.writeInt(this.user);
+		output.writeInt(this.version);
+		output.writeLong(this.timestamp);
+		output.writeLong(this.changeset);
+		
+		output.writeInt(this.tags.length);
+		for (int code : this.tags) {
+			output.writeInt(code);
+		}
+	}
+	
+	/**
+	 * reads attributes, which were written by {@link #write(DataOutput)}<br>
+	 * The codes are translated to the codes of {@code dictionary} by the given maps.
+	 *
+	 * @param input      the {@link DataInput} to read from
+	 * @param dictionary the {@link AttributeDictionary} of the read attributes
+	 * @param keyMap     the codes in {@code dictionary} of the written key codes
+	 * @param valueMap   the codes in {@code dictionary} of the written value codes
+	 * @return the read attributes
+	 *
+	 * @throws IOException if the attributes couldn't be read
+	 * @since 0.2.0
+	 */
+	static EncodedAttributes read(DataInput input, AttributeDictionary dictionary, int[] keyMap, int[] valueMap)
+	throws IOException {
+		long id        = input.readLong();
+		int  user      = input.readInt();
+		int  version   = input.readInt();
+		long timestamp = input.readLong();
+		long changeset = input.readLong();
+		
+		int[] tags = new int[input.readInt()];
+		for (int i = 0; i < tags.length; i += 2) {
+			tags[i] = keyMap[input.readInt()];
+			
+			int value = input.readInt();
+			tags[i + 1] = value < 0 ? -1 : valueMap[value];
+		}
+		
+		return new EncodedAttributes(dictionary, id, user < 0 ? -1 : valueMap[user], version, timestamp, changeset, tags);
+	}
+	
+	/**
+	 * gives the key and value codes of all {@link Tag}s, one after another<br>
+	 * The returned array is shared and must not be modified.
+	 *
+	 * @return the {@link Tag} codes
+	 *
+	 * @since 0.2.0
+	 */
+	int[] getTagCodes() {
+		return this.tags;
+	}
+	
+	/**
+	 * searches a key code in the {@link Tag} codes
+	 *
+	 * @param tags   the key and value codes
+	 * @param length the number of used codes
+	 * @param key    the key code to search
+	 * @return the position of the key code or {@code -1}, if it wasn't found
+	 *
+	 * @since 0.2.0
+	 */
+	private static int indexOf(int[] tags, int length, int key) {
+		for (int i = 0; i < length; i += 2) {
+			if (tags[i] == key) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * gives the {@link Field} of an attribute
+	 *
+	 * @param index the index of the attribute
+	 * @return the {@link Field}
+	 *
+	 * @since 0.2.0
+	 */
+	private Field getField(int index) {
+		switch (index) {
+			case 0:
+				return LayerWrapper.DEFAULT_OBJECT_ID_FIELD;
+			case 1:
+				return OverpassField.USER_FIELD;
+			case 2:
+				return OverpassField.VERSION_FIELD;
+			case 3:
+				return OverpassField.LASTCHANGE_FIELD;
+			case 4:
+				return OverpassField.CHANGESET_FIELD;
+			default:
+				return this.dictionary.getField(this.tags[(index - EncodedAttributes.META_COUNT) * 2]);
+		}
+	}
+	
+	/**
+	 * gives the value of an attribute
+	 *
+	 * @param index the index of the attribute
+	 * @return the decoded value
+	 *
+	 * @since 0.2.0
+	 */
+	private Object getValue(int index) {
+		switch (index) {
+			case 0:
+				return this.id;
+			case 1:
+				return this.user < 0 ? null : this.dictionary.getValue(this.user);
+			case 2:
+				return this.version;
+			case 3:
+				return new DateTime(this.timestamp, DateTimeZone.UTC);
+			case 4:
+				return (double) this.changeset;
+			default:
+				int value = this.tags[(index - EncodedAttributes.META_COUNT) * 2 + 1];
+				return value < 0 ? null : this.dictionary.getValue(value);
+		}
+	}
+	
+	/**
+	 * gives the index of the attribute of a {@link Field}
+	 *
+	 * @param field the {@link Field} to search
+	 * @return the index of the attribute or {@code -1}, if there is no attribute of {@code field}
+	 *
+	 * @since 0.2.0
+	 */
+	private int indexOf(Object field) {
+		for (int i = 0; i < EncodedAttributes.META_COUNT; i++) {
+			if (this.getField(i) == field) {
+				return i;
+			}
+		}
+		
+		if (field instanceof OverpassField) {
+			for (int i = 0; i < this.tags.length; i += 2) {
+				if (this.dictionary.getField(this.tags[i]) == field) {
+					return EncodedAttributes.META_COUNT + i / 2;
+				}
+			}
+		}
+		
+		return -1;
+	}
+	
+	@Override
+	public int size() {
+		return EncodedAttributes.META_COUNT + this.tags.length / 2;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return this.indexOf(key) >= 0;
+	}
+	
+	@Override
+	public Object get(Object key) {
+		int index = this.indexOf(key);
+		
+		return index < 0 ? null : this.getValue(index);
+	}
+	
+	@Override
+	public Set<Entry<Field, Object>> entrySet() {
+		return new AbstractSet<Entry<Field, Object>>() {
+			@Override
+			public int size() {
+				return EncodedAttributes.this.size();
+			}
+			
+			@Override
+			public Iterator<Entry<Field, Object>> iterator() {
+				return new Iterator<Entry<Field, Object>>() {
+					/**
+					 * the index of the next attribute
+					 *
+					 * @since 0.2.0
+					 */
+					private int index = 0;
+					
+					@Override
+					public boolean hasNext() {
+						return this.index < EncodedAttributes.this.size();
+					}
+					
+					@Override
+					public Entry<Field, Object> next() {
+						if (!(this.hasNext())) {
+							throw new NoSuchElementException();
+						}
+						
+						int index = this.index++;
+						
+						return new SimpleImmutableEntry<>(EncodedAttributes.this.getField(index), EncodedAttributes.this.getValue(index));
+					}
+					
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+}
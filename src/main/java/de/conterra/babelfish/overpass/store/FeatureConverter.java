@@ -2,30 +2,20 @@ package de.conterra.babelfish.overpass.store;
 
 import de.conterra.babelfish.overpass.io.OverpassHandler;
 import de.conterra.babelfish.overpass.plugin.OverpassFeature;
-import de.conterra.babelfish.overpass.plugin.OverpassField;
 import de.conterra.babelfish.plugin.v10_02.feature.Feature;
-import de.conterra.babelfish.plugin.v10_02.feature.Field;
-import de.conterra.babelfish.plugin.v10_02.feature.wrapper.LayerWrapper;
 import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Polyline;
-import de.conterra.babelfish.util.GeoUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.geometry.GeneralDirectPosition;
-import org.geotools.geometry.iso.coordinate.LineStringImpl;
-import org.geotools.geometry.iso.coordinate.PolygonImpl;
-import org.geotools.geometry.iso.primitive.PointImpl;
-import org.geotools.geometry.iso.primitive.SurfaceBoundaryImpl;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.opengis.geometry.coordinate.PointArray;
-import org.opengis.geometry.coordinate.Position;
-import org.opengis.referencing.operation.TransformException;
 import org.openstreetmap.osmosis.core.domain.v0_6.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 
 /**
  * defines a class to convert Overpass {@link Entity}s to Babelfish {@link Feature}s
@@ -36,6 +26,25 @@ import java.util.*;
  */
 @Slf4j
 public class FeatureConverter {
+	/**
+	 * the number of {@link Entity}s, from which on they are converted in parallel
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  int PARALLEL_THRESHOLD  = 20000;
+	/**
+	 * the number of {@link Entity}s, which are converted by a single task of a parallel conversion
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int CHUNK_SIZE          = 4096;
+	/**
+	 * the number of {@link Relation}s, which are assembled by a single task of a parallel conversion
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int RELATION_CHUNK_SIZE = 1;
+	
 	/**
 	 * private standard constructor, to prevent initialization
 	 *
@@ -52,139 +61,403 @@ public class FeatureConverter {
 	 * @param features the OpenStreetMap {@link Entity}s
 	 * @return the converted OpenStreetMap {@link Entity}s as Babelfish {@link Feature}s
 	 *
+	 * @see FeatureConverter#convert(Class, Map, AttributeDictionary)
 	 * @since 0.1.0
 	 */
 	public static <G extends GeometryObject> Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> convert(Class<G> clazz, Map<? extends Long, ? extends Entity> features) {
-		Map<Long, Point>              points   = new LinkedHashMap<>();
-		Map<Long, Polyline>           lines    = new LinkedHashMap<>();
-		Map<Long, Map<Field, Object>> metas    = new LinkedHashMap<>();
-		Map<String, OverpassField>    metaKeys = new LinkedHashMap<>();
+		return FeatureConverter.convert(clazz, features, new AttributeDictionary());
+	}
+	
+	/**
+	 * gives the initial capacity of a {@link HashMap}, which holds a number of entries without rehashing
+	 *
+	 * @param size the number of entries
+	 * @return the initial capacity
+	 *
+	 * @since 0.2.0
+	 */
+	private static int capacity(int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+	
+	/**
+	 * gives the coordinate of a {@link Node}<br>
+	 * A numeric {@code ele} meta tag will be added as third ordinate.
+	 *
+	 * @param id   the identifier of the {@link Node}
+	 * @param node the {@link Node}
+	 * @return the latitude, the longitude and optionally the elevation of {@code node}
+	 *
+	 * @since 0.2.0
+	 */
+	private static double[] createCoordinate(long id, Node node) {
+		try {
+			Object ele = node.getMetaTags().get("ele");
+			if (ele != null) {
+				return new double[] {node.getLatitude(), node.getLongitude(), Double.parseDouble((String) ele)};
+			}
+		} catch (ClassCastException | NumberFormatException e) {
+			log.warn("Couldn't parse the third ordinate from ele tag of node " + id + "!", e);
+		}
 		
-		metaKeys.put(OverpassField.NAME_FIELD.getName(), OverpassField.NAME_FIELD);
+		return new double[] {node.getLatitude(), node.getLongitude()};
+	}
+	
+	/**
+	 * creates the {@link CompactGeometry} of a {@link Way}
+	 *
+	 * @param <G>      the geometric type
+	 * @param clazz    the geometric {@link Class} type ({@link Polyline} or {@link Polygon})
+	 * @param way      the {@link Way}
+	 * @param features the OpenStreetMap {@link Entity}s, which contain the {@link Node}s of {@code way}
+	 * @return the {@link CompactGeometry} or {@code null}, if {@code way} has less than two known {@link Node}s or
+	 * isn't closed, but a {@link Polygon} was requested
+	 *
+	 * @since 0.2.0
+	 */
+	private static <G extends GeometryObject> CompactGeometry<G> createGeometry(Class<G> clazz, Way way, Map<? extends Long, ? extends Entity> features) {
+		List<WayNode> wayNodes    = way.getWayNodes();
+		double[]      coordinates = new double[wayNodes.size() * 2];
+		int           length      = 0;
 		
-		for (long id : features.keySet()) {
-			Entity entity = features.get(id);
+		for (WayNode wayNode : wayNodes) {
+			Entity node = features.get(OverpassHandler.getKey(EntityType.Node, wayNode.getNodeId()));
 			
-			if (entity instanceof Node) {
-				Node node = (Node) entity;
-				
-				GeneralDirectPosition pos = new GeneralDirectPosition(OverpassHandler.OSM_CRS);
-				pos.setOrdinate(0, node.getLatitude());
-				pos.setOrdinate(1, node.getLongitude());
-				
-				try {
-					Map<String, Object> metaTags = node.getMetaTags();
-					if (metaTags.containsKey("ele")) {
-						log.debug("Found ele tag with third ordinate on node " + id + ".");
-						
-						double ordinate = Double.parseDouble((String) metaTags.get("ele"));
-						pos.setOrdinate(2, ordinate);
-						
-						log.debug("Added third ordinate " + ordinate + " to node " + id + ".");
-					}
-				} catch (ClassCastException | NumberFormatException e) {
-					log.warn("Couldn't parse the third ordinate from ele tag!", e);
-				}
-				
-				points.put(id, new Point(new PointImpl(pos)));
+			if (node instanceof Node) {
+				coordinates[length++] = ((Node) node).getLatitude();
+				coordinates[length++] = ((Node) node).getLongitude();
 			}
 		}
 		
-		for (long id : features.keySet()) {
-			Entity entity = features.get(id);
-			
-			if (entity instanceof Way) {
-				Way way = (Way) entity;
-				
-				LinkedList<Position> pos = new LinkedList<>();
-				
-				for (WayNode node : way.getWayNodes()) {
-					long nodeId = node.getNodeId();
-					pos.add(points.get(nodeId));
-					
-					log.debug("Added node " + points.get(nodeId) + " (" + nodeId + ") to way " + id + ".");
-				}
-				
-				lines.put(id, new Polyline(new LineStringImpl(pos)));
-			}
+		if (length < 4) {
+			log.debug("Way " + way.getId() + " has less than two known nodes.");
+			return null;
 		}
 		
-		for (long id : features.keySet()) {
-			Entity entity = features.get(id);
+		CompactGeometry<G> res = new CompactGeometry<>(clazz, 2, length == coordinates.length ? coordinates : Arrays.copyOf(coordinates, length));
+		
+		return Polygon.class.isAssignableFrom(clazz) && !(res.isClosed()) ? null : res;
+	}
+	
+	/**
+	 * converts a single Overpass {@link Entity} to a {@link CompactFeature}
+	 *
+	 * @param <G>        the geometric type
+	 * @param clazz      the geometric {@link Class} type
+	 * @param id         the identifier of the {@link Entity}
+	 * @param entity     the {@link Entity} to convert
+	 * @param features   the OpenStreetMap {@link Entity}s, which contain the {@link Node}s of {@link Way}s
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @return the converted {@link CompactFeature} or {@code null}, if {@code entity} isn't of the geometric type
+	 *
+	 * @since 0.2.0
+	 */
+	private static <G extends GeometryObject> CompactFeature<G> convert(Class<G> clazz, long id, Entity entity, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary) {
+		if (entity instanceof Node) {
+			if (!(Point.class.isAssignableFrom(clazz))) {
+				return null;
+			}
 			
-			log.debug("Entity " + id + " is a " + entity.getType() + ".");
+			double[] coordinate = FeatureConverter.createCoordinate(id, (Node) entity);
 			
-			Set<Tag>           metaTags   = new HashSet<>(entity.getTags());
-			Map<Field, Object> metaFields = new LinkedHashMap<>();
+			return new CompactFeature<>(EntityType.Node, id, new CompactGeometry<>(clazz, coordinate.length, coordinate), new EncodedAttributes(dictionary, entity));
+		} else if (entity instanceof Way) {
+			if (!(Polyline.class.isAssignableFrom(clazz) || Polygon.class.isAssignableFrom(clazz))) {
+				return null;
+			}
 			
-			metaFields.put(LayerWrapper.DEFAULT_OBJECT_ID_FIELD, id);
-			metaFields.put(OverpassField.USER_FIELD, entity.getUser().getName());
-			metaFields.put(OverpassField.VERSION_FIELD, entity.getVersion());
-			metaFields.put(OverpassField.LASTCHANGE_FIELD, new DateTime(entity.getTimestamp().getTime(), DateTimeZone.UTC));
-			metaFields.put(OverpassField.CHANGESET_FIELD, (double) (entity.getChangesetId()));
+			CompactGeometry<G> geometry = FeatureConverter.createGeometry(clazz, (Way) entity, features);
 			
-			for (Tag tag : metaTags) {
-				String key = tag.getKey();
-				
-				if (!(metaKeys.containsKey(key))) {
-					metaKeys.put(key, new OverpassField(tag));
-					
-					log.debug("Created new meta field: " + key);
-				}
-				
-				String value = tag.getValue();
-				metaFields.put(metaKeys.get(key), value);
-				
-				log.debug("Added tag " + key + "=" + value + " to entity " + id + ".");
+			return geometry == null ? null : new CompactFeature<>(EntityType.Way, id, geometry, new EncodedAttributes(dictionary, entity));
+		} else if (entity instanceof Relation) {
+			if (!(Polygon.class.isAssignableFrom(clazz) && MultipolygonAssembler.isArea(entity))) {
+				return null;
 			}
 			
-			metas.put(id, metaFields);
+			CompactGeometry<G> geometry = MultipolygonAssembler.assemble(clazz, (Relation) entity, features);
+			
+			return geometry == null ? null : new CompactFeature<>(EntityType.Relation, id, geometry, new EncodedAttributes(dictionary, entity));
 		}
 		
-		LinkedHashMap<Long, OverpassFeature<GeometryFeatureObject<G>>> res = new LinkedHashMap<>();
+		return null;
+	}
+	
+	/**
+	 * converts a range of {@link Entity}s, in parallel on the common {@link ForkJoinPool}, if it has more than one thread
+	 *
+	 * @param <G>        the geometric type
+	 * @param clazz      the geometric {@link Class} type
+	 * @param features   the OpenStreetMap {@link Entity}s, which contain the {@link Node}s of {@link Way}s
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @param entries    the entries of the {@link Entity}s to convert
+	 * @param chunkSize  the number of {@link Entity}s, which are converted by a single task
+	 * @return the converted {@link CompactFeature}s at the positions of their entries ({@code null}, if an {@link Entity}
+	 * couldn't be converted)
+	 *
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	private static <G extends GeometryObject> CompactFeature<G>[] convert(Class<G> clazz, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary, Map.Entry<? extends Long, ? extends Entity>[] entries, int chunkSize) {
+		CompactFeature<G>[] res = new CompactFeature[entries.length];
 		
-		if (Polygon.class.isAssignableFrom(clazz)) {
-			log.debug("Return all polygons.");
+		if (entries.length > chunkSize && ForkJoinPool.getCommonPoolParallelism() > 1) {
+			ForkJoinPool.commonPool().invoke(new ConvertTask<>(clazz, features, dictionary, entries, res, 0, entries.length, chunkSize));
+		} else {
+			for (int i = 0; i < entries.length; i++) {
+				res[i] = FeatureConverter.convert(clazz, entries[i].getKey(), entries[i].getValue(), features, dictionary);
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * assembles the area {@link Relation}s of {@link Polygon} layers and adds them to the converted features<br>
+	 * The {@link Relation}s are assembled in parallel, because a single {@link Relation} could have thousands of member
+	 * {@link Way}s. Member {@link Way}s without own {@link Tag}s are removed from the converted features, because they
+	 * are parts of the {@link Relation} area only.
+	 *
+	 * @param <G>        the geometric type
+	 * @param clazz      the geometric {@link Class} type
+	 * @param features   the OpenStreetMap {@link Entity}s
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @param relations  the entries of the area {@link Relation}s
+	 * @param res        the converted features to add the {@link Relation}s to
+	 * @since 0.2.0
+	 */
+	private static <G extends GeometryObject> void convertRelations(Class<G> clazz, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary, List<Map.Entry<? extends Long, ? extends Entity>> relations, Map<Long, CompactFeature<G>> res) {
+		@SuppressWarnings("unchecked")
+		Map.Entry<? extends Long, ? extends Entity>[] entries   = relations.toArray(new Map.Entry[relations.size()]);
+		CompactFeature<G>[]                           converted = FeatureConverter.convert(clazz, features, dictionary, entries, FeatureConverter.RELATION_CHUNK_SIZE);
+		
+		for (int i = 0; i < entries.length; i++) {
+			if (converted[i] == null) {
+				continue;
+			}
 			
-			for (long id : lines.keySet()) {
-				Polyline line = lines.get(id);
+			for (RelationMember member : ((Relation) entries[i].getValue()).getMembers()) {
+				if (member.getMemberType() != EntityType.Way) {
+					continue;
+				}
 				
-				try {
-					if (GeoUtils.isClosed(line)) {
-						PointArray controlPoints = line.getControlPoints();
-						
-						G polygon = (G) (new Polygon(new PolygonImpl(new SurfaceBoundaryImpl(
-								line.getCoordinateReferenceSystem(),
-								GeoUtils.createRing(controlPoints.toArray(new Position[controlPoints.size()])),
-								new ArrayList<>()
-						))));
-						
-						res.put(id, new OverpassFeature<>(EntityType.Way, id, new GeometryFeatureObject<>(polygon, metas.get(id))));
-					}
-				} catch (TransformException e) {
-					log.warn("Error on checking, if line is closed!", e);
+				long   key = OverpassHandler.getKey(EntityType.Way, member.getMemberId());
+				Entity way = features.get(key);
+				
+				if (way instanceof Way && way.getTags().isEmpty()) {
+					res.remove(key);
 				}
 			}
-		} else if (Polyline.class.isAssignableFrom(clazz)) {
-			log.debug("Return all ways. (" + lines.size() + ")");
-			
-			for (long id : lines.keySet()) {
-				@SuppressWarnings("unchecked")
-				G line = (G) lines.get(id);
+		}
+		
+		for (CompactFeature<G> feature : converted) {
+			if (feature != null) {
+				res.put(feature.getId(), feature);
+			}
+		}
+	}
+	
+	/**
+	 * converts Overpass {@link Entity}s to Babelfish {@link Feature}s<br>
+	 * The attributes are encoded with a shared {@link AttributeDictionary}, so equal keys and values are stored only
+	 * once. The geometries are stored as {@link CompactGeometry}s, so the {@link GeometryObject}s will be created on
+	 * access only (see {@link CompactFeature}). The {@link Entity}s are visited in a single pass and only the
+	 * {@link Entity}s of the requested geometric type will be converted. From {@link #PARALLEL_THRESHOLD}
+	 * {@link Entity}s on, they are converted in chunks on the common {@link ForkJoinPool}. The area {@link Relation}s of
+	 * {@link Polygon} layers are assembled afterwards (see {@link MultipolygonAssembler}) and follow all other
+	 * features.
+	 *
+	 * @param <G>        the geometric type
+	 * @param clazz      the geometric {@link Class} type
+	 * @param features   the OpenStreetMap {@link Entity}s
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @return the converted OpenStreetMap {@link Entity}s as Babelfish {@link Feature}s in the order of
+	 * {@code features}
+	 *
+	 * @see FeatureConverter#convert(Class, Map, AttributeDictionary, Predicate)
+	 * @since 0.2.0
+	 */
+	public static <G extends GeometryObject> Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> convert(Class<G> clazz, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary) {
+		return FeatureConverter.convert(clazz, features, dictionary, null);
+	}
+	
+	/**
+	 * converts the Overpass {@link Entity}s, which pass a filter, to Babelfish {@link Feature}s<br>
+	 * The {@link Entity}s, which don't pass the filter, are used as parts of the geometries only, e.g. the {@link Node}s
+	 * of {@link Way}s or the member {@link Way}s of {@link Relation}s, which don't match the filter of a layer.
+	 *
+	 * @param <G>        the geometric type
+	 * @param clazz      the geometric {@link Class} type
+	 * @param features   the OpenStreetMap {@link Entity}s, mapped by their keys (see
+	 *                   {@link OverpassHandler#getKey(Entity)})
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @param filter     the filter of the {@link Entity}s to convert ({@code null} to convert all)
+	 * @return the converted OpenStreetMap {@link Entity}s as Babelfish {@link Feature}s in the order of
+	 * {@code features}
+	 *
+	 * @see FeatureConverter#convert(Class, Map, AttributeDictionary)
+	 * @since 0.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public static <G extends GeometryObject> Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> convert(Class<G> clazz, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary, Predicate<? super Entity> filter) {
+		LinkedHashMap<Long, CompactFeature<G>> res = new LinkedHashMap<>(FeatureConverter.capacity(features.size()));
+		
+		if (!(Point.class.isAssignableFrom(clazz) || Polyline.class.isAssignableFrom(clazz) || Polygon.class.isAssignableFrom(clazz))) {
+			return res;
+		}
+		
+		boolean                                           polygons  = Polygon.class.isAssignableFrom(clazz);
+		List<Map.Entry<? extends Long, ? extends Entity>> relations = new ArrayList<>();
+		
+		if (features.size() >= FeatureConverter.PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+			List<Map.Entry<? extends Long, ? extends Entity>> entries = new ArrayList<>(features.size());
+			for (Map.Entry<? extends Long, ? extends Entity> entry : features.entrySet()) {
+				if (filter != null && !(filter.test(entry.getValue()))) {
+					continue;
+				}
 				
-				res.put(id, new OverpassFeature<>(EntityType.Way, id, new GeometryFeatureObject<>(line, metas.get(id))));
+				if (polygons && MultipolygonAssembler.isArea(entry.getValue())) {
+					relations.add(entry);
+				} else {
+					entries.add(entry);
+				}
 			}
-		} else if (Point.class.isAssignableFrom(clazz)) {
-			log.debug("Return all nodes. (" + points.size() + ")");
 			
-			for (long id : points.keySet()) {
-				@SuppressWarnings("unchecked")
-				G point = (G) points.get(id);
+			for (CompactFeature<G> feature : FeatureConverter.convert(clazz, features, dictionary, entries.toArray(new Map.Entry[entries.size()]), FeatureConverter.CHUNK_SIZE)) {
+				if (feature != null) {
+					res.put(feature.getId(), feature);
+				}
+			}
+		} else {
+			for (Map.Entry<? extends Long, ? extends Entity> entry : features.entrySet()) {
+				long   id     = entry.getKey();
+				Entity entity = entry.getValue();
 				
-				res.put(id, new OverpassFeature<>(EntityType.Node, id, new GeometryFeatureObject<>(point, metas.get(id))));
+				if (filter != null && !(filter.test(entity))) {
+					continue;
+				}
+				
+				if (polygons && MultipolygonAssembler.isArea(entity)) {
+					relations.add(entry);
+					continue;
+				}
+				
+				CompactFeature<G> feature = FeatureConverter.convert(clazz, id, entity, features, dictionary);
+				
+				if (feature != null) {
+					res.put(id, feature);
+				}
 			}
 		}
 		
+		if (!(relations.isEmpty())) {
+			FeatureConverter.convertRelations(clazz, features, dictionary, relations, res);
+		}
+		
+		log.debug("Converted " + res.size() + " features of " + features.size() + " entities to " + clazz.getSimpleName() + ".");
+		
 		return res;
 	}
+	
+	/**
+	 * defines a task, which converts a range of {@link Entity}s and splits itself, if the range is bigger than its chunk
+	 * size
+	 *
+	 * @param <G> the geometric type
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private static class ConvertTask<G extends GeometryObject>
+			extends RecursiveAction {
+		/**
+		 * the geometric {@link Class} type
+		 *
+		 * @since 0.2.0
+		 */
+		private final Class<G>                                      clazz;
+		/**
+		 * all OpenStreetMap {@link Entity}s
+		 *
+		 * @since 0.2.0
+		 */
+		private final Map<? extends Long, ? extends Entity>         features;
+		/**
+		 * the {@link AttributeDictionary} to encode the attributes with
+		 *
+		 * @since 0.2.0
+		 */
+		private final AttributeDictionary                           dictionary;
+		/**
+		 * the entries of {@code features}
+		 *
+		 * @since 0.2.0
+		 */
+		private final Map.Entry<? extends Long, ? extends Entity>[] entries;
+		/**
+		 * the converted {@link CompactFeature}s at the positions of their entries
+		 *
+		 * @since 0.2.0
+		 */
+		private final CompactFeature<G>[]                           converted;
+		/**
+		 * the first position to convert (inclusive)
+		 *
+		 * @since 0.2.0
+		 */
+		private final int                                           from;
+		/**
+		 * the last position to convert (exclusive)
+		 *
+		 * @since 0.2.0
+		 */
+		private final int                                           to;
+		/**
+		 * the number of {@link Entity}s, from which on the range will be split
+		 *
+		 * @since 0.2.0
+		 */
+		private final int                                           chunkSize;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param clazz      the geometric {@link Class} type
+		 * @param features   all OpenStreetMap {@link Entity}s
+		 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+		 * @param entries    the entries of {@code features}
+		 * @param converted  the array to store the converted {@link CompactFeature}s in
+		 * @param from       the first position to convert (inclusive)
+		 * @param to         the last position to convert (exclusive)
+		 * @param chunkSize  the number of {@link Entity}s, from which on the range will be split
+		 * @since 0.2.0
+		 */
+		private ConvertTask(Class<G> clazz, Map<? extends Long, ? extends Entity> features, AttributeDictionary dictionary, Map.Entry<? extends Long, ? extends Entity>[] entries, CompactFeature<G>[] converted, int from, int to, int chunkSize) {
+			this.clazz = clazz;
+			this.features = features;
+			this.dictionary = dictionary;
+			this.entries = entries;
+			this.converted = converted;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+		
+		@Override
+		protected void compute() {
+			if (this.to - this.from > this.chunkSize) {
+				int middle = (this.from + this.to) >>> 1;
+				
+				ForkJoinTask.invokeAll(
+						new ConvertTask<>(this.clazz, this.features, this.dictionary, this.entries, this.converted, this.from, middle, this.chunkSize),
+						new ConvertTask<>(this.clazz, this.features, this.dictionary, this.entries, this.converted, middle, this.to, this.chunkSize)
+				);
+				return;
+			}
+			
+			for (int i = this.from; i < this.to; i++) {
+				Map.Entry<? extends Long, ? extends Entity> entry = this.entries[i];
+				this.converted[i] = FeatureConverter.convert(this.clazz, entry.getKey(), entry.getValue(), this.features, this.dictionary);
+			}
+		}
+	}
 }
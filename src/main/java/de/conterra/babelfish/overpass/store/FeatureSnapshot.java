@@ -0,0 +1,265 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.io.OsmSnapshot;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.util.DataUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * defines a binary snapshot of the converted features of a layer, which is stored next to the data {@link File} of its
+ * {@link OsmFile}<br>
+ * In contrast to the {@link OsmSnapshot} of the whole {@link OsmFile}, it contains the {@link CompactGeometry}s and
+ * {@link EncodedAttributes} of the features, the {@link AttributeDictionary} of their codes and the
+ * {@link CompressedBitmap}s of their {@link TagIndex}, so a layer is restored without converting and indexing its
+ * features again. Every layer gets its own snapshot {@link File}, which is identified by a descriptor of the layer
+ * filter. A snapshot is valid as long as the descriptor, the length and the last modification time of the data
+ * {@link File} and all osmChange {@link File}s are unchanged.
+ *
+ * @param <G> the {@link GeometryObject} type
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class FeatureSnapshot<G extends GeometryObject> {
+	/**
+	 * the suffix of the snapshot {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String SUFFIX         = ".features";
+	/**
+	 * the magic number at the start of every snapshot
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int    MAGIC          = 0x42464653;
+	/**
+	 * the version of the snapshot format
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int    FORMAT_VERSION = 3;
+	
+	/**
+	 * the snapshot {@link File}
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final File   snapshotFile;
+	/**
+	 * the descriptor of the layer filter
+	 *
+	 * @since 0.2.0
+	 */
+	private final String descriptor;
+	/**
+	 * the fingerprint of the data {@link File} and all osmChange {@link File}s at the creation of this snapshot
+	 *
+	 * @since 0.2.0
+	 */
+	private final long   fingerprint;
+	
+	/**
+	 * standard constructor<br>
+	 * The state of the {@link File}s is taken at once, so create the snapshot before loading the {@link OsmFile}. A
+	 * snapshot written afterwards is invalid, if the {@link File}s changed while loading.
+	 *
+	 * @param file       the {@link OsmFile} of the layer
+	 * @param descriptor the descriptor of the layer filter
+	 * @since 0.2.0
+	 */
+	public FeatureSnapshot(OsmFile file, String descriptor) {
+		this.snapshotFile = new File(file.getDataFile().getPath() + "." + Integer.toHexString(descriptor.hashCode()) + FeatureSnapshot.SUFFIX);
+		this.descriptor = descriptor;
+		this.fingerprint = FeatureSnapshot.getFingerprint(file);
+	}
+	
+	/**
+	 * creates the fingerprint of the data {@link File} and all osmChange {@link File}s of an {@link OsmFile}
+	 *
+	 * @param file the {@link OsmFile}
+	 * @return the fingerprint
+	 *
+	 * @since 0.2.0
+	 */
+	private static long getFingerprint(OsmFile file) {
+		File dataFile = file.getDataFile();
+		long res      = 31 * dataFile.length() + dataFile.lastModified();
+		
+		for (File changeFile : file.getChangeFiles()) {
+			res = 31 * res + changeFile.getName().hashCode();
+			res = 31 * res + changeFile.length();
+			res = 31 * res + changeFile.lastModified();
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * reads the header of the snapshot {@link File} and checks, if it belongs to the current {@link File}s and the
+	 * layer filter
+	 *
+	 * @param input the {@link DataInput} to read from
+	 * @return {@code true}, if the header matches
+	 *
+	 * @throws IOException if the header couldn't be read
+	 * @since 0.2.0
+	 */
+	private boolean checkHeader(DataInput input)
+	throws IOException {
+		if (input.readInt() != FeatureSnapshot.MAGIC || input.readInt() != FeatureSnapshot.FORMAT_VERSION || input.readLong() != this.fingerprint) {
+			return false;
+		}
+		
+		byte[] descriptor = new byte[input.readInt()];
+		input.readFully(descriptor);
+		
+		return this.descriptor.equals(new String(descriptor, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * checks, if the snapshot exists and belongs to the current {@link File}s and the layer filter
+	 *
+	 * @return {@code true}, if the snapshot could be used instead of loading the {@link OsmFile}
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean isValid() {
+		if (!(this.snapshotFile.isFile())) {
+			return false;
+		}
+		
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.snapshotFile)))) {
+			return this.checkHeader(input);
+		} catch (IOException e) {
+			log.warn("Couldn't check feature snapshot " + this.snapshotFile + "!", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * reads the features of the snapshot and replaces the features of a {@link FeatureStore} by them<br>
+	 * The codes are added to a new {@link AttributeDictionary}, which replaces the one of the {@link FeatureStore}.
+	 *
+	 * @param store the {@link FeatureStore} to restore
+	 * @throws IOException if the snapshot doesn't match or couldn't be read
+	 * @since 0.2.0
+	 */
+	public void restore(FeatureStore<G> store)
+	throws IOException {
+		Class<G>            type       = store.getGeometryType();
+		AttributeDictionary dictionary = store.createDictionary();
+		
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.snapshotFile)))) {
+			if (!(this.checkHeader(input))) {
+				throw new IOException("The feature snapshot " + this.snapshotFile + " doesn't match!");
+			}
+			
+			int[][] codes    = dictionary.read(input);
+			int[]   keyMap   = codes[0];
+			int[]   valueMap = codes[1];
+			
+			int                                                    count    = input.readInt();
+			Map<Long, Feature<? extends GeometryFeatureObject<G>>> features = new HashMap<>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				long       key        = input.readLong();
+				EntityType entityType = EntityType.values()[input.readByte()];
+				long       id         = input.readLong();
+				
+				CompactGeometry<G> geometry   = CompactGeometry.read(input, type);
+				EncodedAttributes  attributes = EncodedAttributes.read(input, dictionary, keyMap, valueMap);
+				
+				features.put(key, new CompactFeature<>(entityType, id, geometry, attributes));
+			}
+			
+			TagIndex tagIndex = TagIndex.read(input, dictionary, features, keyMap, valueMap);
+			
+			store.replaceFeatures(features, tagIndex);
+		}
+		
+		log.info("Restored layer " + store.getLayerId() + " from feature snapshot " + this.snapshotFile + ".");
+	}
+	
+	/**
+	 * writes the features of a {@link FeatureStore} to the snapshot {@link File}<br>
+	 * The snapshot is written to a temporary {@link File} first and will be moved atomically to its final place. It is
+	 * skipped, if a feature isn't a {@link CompactFeature} with {@link EncodedAttributes}. Failures are logged only, so
+	 * the features will be converted from the {@link OsmFile} on the next load again.
+	 *
+	 * @param store the {@link FeatureStore} to write the features of
+	 * @since 0.2.0
+	 */
+	public void write(FeatureStore<G> store) {
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> features = store.features;
+		TagIndex                                               tagIndex = store.getTagIndex();
+		
+		for (Feature<? extends GeometryFeatureObject<G>> feature : features.values()) {
+			if (!(feature instanceof CompactFeature) || !(((CompactFeature<?>) feature).getAttributes() instanceof EncodedAttributes)) {
+				log.debug("Layer " + store.getLayerId() + " contains a feature, which couldn't be written to a feature snapshot.");
+				return;
+			}
+		}
+		
+		File             tempFile = null;
+		DataOutputStream output   = null;
+		try {
+			tempFile = File.createTempFile(this.snapshotFile.getName(), ".tmp", this.snapshotFile.getAbsoluteFile().getParentFile());
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			
+			byte[] descriptor = this.descriptor.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(FeatureSnapshot.MAGIC);
+			output.writeInt(FeatureSnapshot.FORMAT_VERSION);
+			output.writeLong(this.fingerprint);
+			output.writeInt(descriptor.length);
+			output.write(descriptor);
+			
+			store.getAttributeDictionary().write(output);
+			
+			output.writeInt(features.size());
+			for (Map.Entry<Long, Feature<? extends GeometryFeatureObject<G>>> entry : features.entrySet()) {
+				@SuppressWarnings("unchecked")
+				CompactFeature<G> feature = (CompactFeature<G>) entry.getValue();
+				
+				output.writeLong(entry.getKey());
+				output.writeByte(feature.getEntityType().ordinal());
+				output.writeLong(feature.getId());
+				feature.getGeometry().write(output);
+				((EncodedAttributes) feature.getAttributes()).write(output);
+			}
+			
+			tagIndex.write(output);
+			
+			output.close();
+			output = null;
+			
+			Files.move(tempFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tempFile = null;
+			
+			log.info("Wrote feature snapshot " + this.snapshotFile + " with " + features.size() + " features.");
+		} catch (IOException e) {
+			log.warn("Couldn't write feature snapshot " + this.snapshotFile + "! The features will be converted on the next load again.", e);
+		} finally {
+			if (output != null) {
+				DataUtils.closeStream(output);
+			}
+			
+			if (tempFile != null && tempFile.exists() && !(tempFile.delete())) {
+				log.warn("Couldn't delete temporary feature snapshot " + tempFile + "!");
+			}
+		}
+	}
+}
@@ -1,20 +1,31 @@
 package de.conterra.babelfish.overpass.store;
 
 import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.overpass.jfr.ConvertEvent;
+import de.conterra.babelfish.overpass.jfr.SpatialFilterEvent;
+import de.conterra.babelfish.overpass.plugin.OverpassFeature;
 import de.conterra.babelfish.plugin.v10_02.feature.Feature;
 import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Envelope;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import de.conterra.babelfish.util.GeoUtils;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.joda.time.DateTime;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.operation.TransformException;
 import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
 import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * defines a class to store {@link Feature}s
@@ -44,26 +55,82 @@ public abstract class FeatureStore<G extends GeometryObject> {
 	 * @since 0.1.0
 	 */
 	private static final Timer                timer        = new Timer();
+	/**
+	 * the last assigned version of all {@link FeatureStore}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final AtomicLong           versions     = new AtomicLong();
 	
+	/**
+	 * the {@link GeometryObject} type
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final    Class<G>            geometryType;
 	/**
 	 * the {@link EntityType}
 	 *
 	 * @since 0.1.0
 	 */
 	@Getter
-	private final EntityType entityType;
+	private final    EntityType          entityType;
+	/**
+	 * the identifier of the layer, which uses this store ({@code -1}, if unknown)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile int                 layerId             = -1;
+	/**
+	 * the version of the stored {@link Feature}s<br>
+	 * It is unique over all {@link FeatureStore}s and changes on every modification of the {@link Feature}s, so it
+	 * identifies the store and the state of its {@link Feature}s.
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile long                version             = FeatureStore.versions.incrementAndGet();
 	/**
-	 * a {@link Map} of all stored {@link Feature}s
+	 * the {@link AttributeDictionary} of the {@link Feature}s of this store<br>
+	 * It is replaced by a new one, which shares the {@link FieldRegistry}, whenever all {@link Feature}s are replaced,
+	 * so the values of removed {@link Feature}s don't pile up.
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile AttributeDictionary attributeDictionary = new AttributeDictionary();
+	/**
+	 * the {@link TagIndex} of all stored {@link Feature}s<br>
+	 * It is replaced together with the {@link #features}, but always before them.
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile TagIndex            tagIndex            = new TagIndex(this.attributeDictionary);
+	/**
+	 * the {@link ClusterIndex} of all stored {@link Feature}s ({@code null}, if clustering is disabled)<br>
+	 * It is replaced together with the {@link #features}, but always before them.
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private volatile ClusterIndex        clusterIndex        = null;
+	/**
+	 * a {@link Map} of all stored {@link Feature}s<br>
+	 * It could be replaced as a whole by {@link #replaceFeatures(Map)}, so read it only once per operation. Add and
+	 * remove {@link Feature}s by {@link #putFeatures(Map)} and {@link #removeFeatures(Collection)} only, to keep the
+	 * {@link TagIndex} up to date.
 	 *
 	 * @since 0.1.0
 	 */
-	protected final Map<Long, Feature<? extends GeometryFeatureObject<G>>> features  = new ConcurrentHashMap<>();
+	protected volatile Map<Long, Feature<? extends GeometryFeatureObject<G>>> features  = new ConcurrentHashMap<>();
 	/**
 	 * {@link Map} of all enveloping {@link Polygon}
 	 *
 	 * @since 0.1.0
 	 */
-	protected final Map<Envelope, DateTime>                                envelopes = new ConcurrentHashMap<>();
+	protected final    Map<Envelope, DateTime>                                envelopes = new ConcurrentHashMap<>();
 	
 	static {
 		FeatureStore.start();
@@ -76,6 +143,7 @@ public abstract class FeatureStore<G extends GeometryObject> {
 	 * @since 0.2.0
 	 */
 	public FeatureStore(Class<G> type) {
+		this.geometryType = type;
 		this.entityType = OverpassHandler.typeFromClass(OverpassHandler.entityClassFromGeometry(type));
 		
 		FeatureStore.stores.add(this);
@@ -146,6 +214,83 @@ public abstract class FeatureStore<G extends GeometryObject> {
 		}
 		
 		log.debug("All stores were cleared.");
+		
+		QueryResultCache.clear();
+	}
+	
+	/**
+	 * sets the identifier of the layer, which uses this store
+	 *
+	 * @param layerId the layer identifier
+	 * @since 0.2.0
+	 */
+	public void setLayerId(int layerId) {
+		this.layerId = layerId;
+	}
+	
+	/**
+	 * checks, if an {@link Entity} should be converted to a {@link Feature} of this store<br>
+	 * All other {@link Entity}s are used as parts of geometries only, like the member {@link Way}s, which are loaded
+	 * with area {@link Relation}s. By default, the {@link Entity}s of the {@link EntityType} of this store and the area
+	 * {@link Relation}s of {@link Polygon} stores are {@link Feature}s.
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @return {@code true}, if {@code entity} is a {@link Feature} of this store
+	 *
+	 * @since 0.2.0
+	 */
+	protected boolean isFeature(Entity entity) {
+		return entity.getType() == this.getEntityType() || (Polygon.class.isAssignableFrom(this.getGeometryType()) && MultipolygonAssembler.isArea(entity));
+	}
+	
+	/**
+	 * converts {@link Entity}s to {@link Feature}s of the geometry type of this store<br>
+	 * Only the {@link Entity}s, which are features of this store (see {@link #isFeature(Entity)}), are converted.
+	 *
+	 * @param entities the {@link Entity}s to convert
+	 * @return the converted {@link Feature}s
+	 *
+	 * @see #convert(Map, AttributeDictionary)
+	 * @since 0.2.0
+	 */
+	protected Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> convert(Map<? extends Long, ? extends Entity> entities) {
+		return this.convert(entities, this.attributeDictionary);
+	}
+	
+	/**
+	 * converts {@link Entity}s to {@link Feature}s of the geometry type of this store, which attributes are encoded by a
+	 * given {@link AttributeDictionary}
+	 *
+	 * @param entities   the {@link Entity}s to convert
+	 * @param dictionary the {@link AttributeDictionary} to encode the attributes with
+	 * @return the converted {@link Feature}s
+	 *
+	 * @see FeatureConverter#convert(Class, Map, AttributeDictionary, Predicate)
+	 * @since 0.2.0
+	 */
+	protected Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> convert(Map<? extends Long, ? extends Entity> entities, AttributeDictionary dictionary) {
+		Class<G> geometryType = this.getGeometryType();
+		
+		ConvertEvent event = new ConvertEvent();
+		event.begin();
+		
+		Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> res = FeatureConverter.convert(geometryType, entities, dictionary, new Predicate<Entity>() {
+			@Override
+			public boolean test(Entity entity) {
+				return FeatureStore.this.isFeature(entity);
+			}
+		});
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setLayerId(this.getLayerId());
+			event.setGeometryType(geometryType);
+			event.setEntityCount(entities.size());
+			event.setFeatureCount(res.size());
+			event.commit();
+		}
+		
+		return res;
 	}
 	
 	/**
@@ -158,6 +303,121 @@ public abstract class FeatureStore<G extends GeometryObject> {
 	protected abstract void request(GeometryObject spatialFilter)
 	throws IOException;
 	
+	/**
+	 * replaces all stored {@link Feature}s at once<br>
+	 * Queries, which are running while the new {@link Feature}s are prepared, still get the previous {@link Feature}s.
+	 *
+	 * @param features the new {@link Feature}s
+	 * @since 0.2.0
+	 */
+	protected void replaceFeatures(Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> features) {
+		TagIndex tagIndex = new TagIndex(this.attributeDictionary);
+		tagIndex.addAll(features);
+		
+		this.replaceFeatures(features, tagIndex);
+	}
+	
+	/**
+	 * creates a new, empty {@link AttributeDictionary}, which shares the {@link FieldRegistry} of the current one
+	 *
+	 * @return the new {@link AttributeDictionary}
+	 *
+	 * @since 0.2.0
+	 */
+	AttributeDictionary createDictionary() {
+		return new AttributeDictionary(this.attributeDictionary.getFieldRegistry());
+	}
+	
+	/**
+	 * converts {@link Entity}s and replaces all stored {@link Feature}s at once by them<br>
+	 * The attributes are encoded by a new {@link AttributeDictionary}, so the previous one is dropped together with the
+	 * previous {@link Feature}s.
+	 *
+	 * @param entities the {@link Entity}s to convert
+	 * @see #convert(Map, AttributeDictionary)
+	 * @since 0.2.0
+	 */
+	protected void replaceAll(Map<? extends Long, ? extends Entity> entities) {
+		AttributeDictionary                                                                dictionary = this.createDictionary();
+		Map<? extends Long, ? extends OverpassFeature<? extends GeometryFeatureObject<G>>> features   = this.convert(entities, dictionary);
+		
+		TagIndex tagIndex = new TagIndex(dictionary);
+		tagIndex.addAll(features);
+		
+		this.replaceFeatures(features, tagIndex);
+	}
+	
+	/**
+	 * replaces all stored {@link Feature}s at once with an already built {@link TagIndex} of them (e.g. read from a
+	 * {@link FeatureSnapshot})<br>
+	 * The {@link AttributeDictionary} of the {@link TagIndex} becomes the {@link AttributeDictionary} of this store.
+	 *
+	 * @param features the new {@link Feature}s
+	 * @param tagIndex the {@link TagIndex} of {@code features}
+	 * @see #replaceFeatures(Map)
+	 * @since 0.2.0
+	 */
+	protected void replaceFeatures(Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> features, TagIndex tagIndex) {
+		if (this.clusterIndex != null) {
+			ClusterIndex clusterIndex = new ClusterIndex();
+			clusterIndex.addAll(features);
+			
+			this.clusterIndex = clusterIndex;
+		}
+		
+		this.attributeDictionary = tagIndex.getDictionary();
+		this.tagIndex = tagIndex;
+		this.features = new ConcurrentHashMap<Long, Feature<? extends GeometryFeatureObject<G>>>(features);
+		this.version = FeatureStore.versions.incrementAndGet();
+	}
+	
+	/**
+	 * gives the {@link TagIndex} of all stored {@link Feature}s
+	 *
+	 * @return the {@link TagIndex}
+	 *
+	 * @since 0.2.0
+	 */
+	TagIndex getTagIndex() {
+		return this.tagIndex;
+	}
+	
+	/**
+	 * adds {@link Feature}s to the store or replaces the stored {@link Feature}s with the same identifiers
+	 *
+	 * @param features the {@link Feature}s to add
+	 * @since 0.2.0
+	 */
+	protected void putFeatures(Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> features) {
+		this.tagIndex.addAll(features);
+		
+		ClusterIndex clusterIndex = this.clusterIndex;
+		if (clusterIndex != null) {
+			clusterIndex.addAll(features);
+		}
+		
+		this.features.putAll(features);
+		this.version = FeatureStore.versions.incrementAndGet();
+	}
+	
+	/**
+	 * removes {@link Feature}s from the store and from its indexes
+	 *
+	 * @param ids the identifiers of the {@link Feature}s to remove
+	 * @since 0.2.0
+	 */
+	protected void removeFeatures(Collection<? extends Long> ids) {
+		this.tagIndex.removeAll(ids);
+		
+		ClusterIndex clusterIndex = this.clusterIndex;
+		if (clusterIndex != null) {
+			clusterIndex.removeAll(ids);
+		}
+		
+		this.features.keySet().removeAll(ids);
+		this.version = FeatureStore.versions.incrementAndGet();
+	}
+	
 	/**
 	 * gives all stored {@link Feature}s
 	 *
@@ -170,36 +430,256 @@ public abstract class FeatureStore<G extends GeometryObject> {
 	}
 	
 	/**
-	 * gives all {@link Feature}s, which overlaps the {@code spatialFilter}<br>
-	 * Missing features will automatically requested
+	 * gives a stored {@link Feature}<br>
+	 * Missing features won't be requested.
 	 *
-	 * @param spatialFilter the spatial filter
-	 * @return a {@link Map} of all {@link Feature}s, which overlaps the {@code spatialFilter}
+	 * @param id the identifier of the {@link Feature}
+	 * @return the {@link Feature} or {@code null}, if it isn't stored
 	 *
-	 * @since 0.1.0
+	 * @since 0.2.0
 	 */
-	public Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> getFeatures(GeometryObject spatialFilter) {
+	public Feature<? extends GeometryFeatureObject<G>> getFeature(long id) {
+		return this.features.get(id);
+	}
+	
+	/**
+	 * enables or disables the {@link ClusterIndex} of the stored {@link Feature}s<br>
+	 * Only stores of {@link Point}s could be clustered. Enable it before the store is used, so no {@link Feature}s are
+	 * added while the {@link ClusterIndex} is built.
+	 *
+	 * @param clustered {@code true} to index the stored {@link Point}s by a {@link ClusterIndex}
+	 * @since 0.2.0
+	 */
+	public synchronized void setClustered(boolean clustered) {
+		if (!clustered || !(Point.class.isAssignableFrom(this.getGeometryType()))) {
+			this.clusterIndex = null;
+		} else if (this.clusterIndex == null) {
+			ClusterIndex clusterIndex = new ClusterIndex();
+			clusterIndex.addAll(this.features);
+			
+			this.clusterIndex = clusterIndex;
+		}
+	}
+	
+	/**
+	 * gives the bounding box of a {@link GeometryObject} in the {@link OverpassHandler#OSM_CRS}
+	 *
+	 * @param geometry the {@link GeometryObject}
+	 * @return the minimum latitude, minimum longitude, maximum latitude and maximum longitude or {@code null}, if the
+	 * envelope of {@code geometry} couldn't transformed
+	 *
+	 * @since 0.2.0
+	 */
+	public static double[] getBounds(GeometryObject geometry) {
+		try {
+			org.opengis.geometry.Envelope envelope = geometry.getEnvelope();
+			
+			DirectPosition lowerCorner = GeoUtils.transform(envelope.getLowerCorner(), OverpassHandler.OSM_CRS);
+			DirectPosition upperCorner = GeoUtils.transform(envelope.getUpperCorner(), OverpassHandler.OSM_CRS);
+			
+			return new double[] {
+					Math.min(lowerCorner.getOrdinate(0), upperCorner.getOrdinate(0)),
+					Math.min(lowerCorner.getOrdinate(1), upperCorner.getOrdinate(1)),
+					Math.max(lowerCorner.getOrdinate(0), upperCorner.getOrdinate(0)),
+					Math.max(lowerCorner.getOrdinate(1), upperCorner.getOrdinate(1))
+			};
+		} catch (TransformException | RuntimeException e) {
+			log.debug("Couldn't transform the envelope of the spatial filter. Check all features.", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * requests all missing {@link Feature}s, which overlaps the {@code spatialFilter}
+	 *
+	 * @param spatialFilter the spatial filter
+	 * @since 0.2.0
+	 */
+	public void load(GeometryObject spatialFilter) {
 		try {
 			this.request(spatialFilter);
 		} catch (IOException e) {
 			log.warn("Unable to request features from store!", e);
 		}
+	}
+	
+	/**
+	 * gives all {@link Feature}s, which overlaps the {@code spatialFilter}<br>
+	 * Missing features will automatically requested. The bounding boxes of {@link CompactFeature}s are checked first,
+	 * so only the geometries of the {@link Feature}s near the {@code spatialFilter} will be created.
+	 *
+	 * @param spatialFilter the spatial filter
+	 * @return a {@link Map} of all {@link Feature}s, which overlaps the {@code spatialFilter}
+	 *
+	 * @since 0.1.0
+	 */
+	public Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> getFeatures(GeometryObject spatialFilter) {
+		return this.getFeatures(spatialFilter, null);
+	}
+	
+	/**
+	 * gives all {@link Feature}s, which overlaps the {@code spatialFilter} and could match the {@code whereClause}<br>
+	 * The equality and {@code IN} predicates of the where clause are looked up in the {@link TagIndex} first, so only
+	 * the selected {@link Feature}s are checked against the {@code spatialFilter}, which is prepared once (see
+	 * {@link PreparedSpatialFilter}). The returned {@link Feature}s could still contain {@link Feature}s, which don't
+	 * match the where clause.
+	 *
+	 * @param spatialFilter the spatial filter ({@code null} to give all {@link Feature}s)
+	 * @param whereClause   the where clause ({@code null} to skip the {@link TagIndex})
+	 * @return a {@link Map} of all {@link Feature}s, which overlaps the {@code spatialFilter} and could match the
+	 * {@code whereClause}
+	 *
+	 * @see TagIndex#select(String)
+	 * @since 0.2.0
+	 */
+	public Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> getFeatures(GeometryObject spatialFilter, String whereClause) {
+		this.load(spatialFilter);
+		
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> allFeatures = this.features;
+		long[]                                                 selected    = this.tagIndex.select(whereClause);
 		
-		Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> allFeatures = this.getFeatures();
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> candidates = allFeatures;
+		if (selected != null) {
+			candidates = new HashMap<>();
+			
+			for (long id : selected) {
+				Feature<? extends GeometryFeatureObject<G>> feature = allFeatures.get(id);
+				
+				if (feature != null) {
+					candidates.put(id, feature);
+				}
+			}
+		}
 		
 		if (spatialFilter == null) {
-			return allFeatures;
+			return new HashMap<>(candidates);
 		}
 		
+		SpatialFilterEvent event = new SpatialFilterEvent();
+		event.begin();
+		
+		PreparedSpatialFilter                                  filter = new PreparedSpatialFilter(spatialFilter);
 		Map<Long, Feature<? extends GeometryFeatureObject<G>>> result = new HashMap<>();
-		for (long id : allFeatures.keySet()) {
-			Feature<? extends GeometryFeatureObject<G>> feature = allFeatures.get(id);
+		for (Map.Entry<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> entry : candidates.entrySet()) {
+			long                                        id      = entry.getKey();
+			Feature<? extends GeometryFeatureObject<G>> feature = entry.getValue();
 			
-			if (feature.getFeature().getGeometry().overlaps(spatialFilter)) {
+			if (filter.overlaps(feature)) {
 				result.put(id, feature);
 			}
 		}
 		
+		event.end();
+		if (event.shouldCommit()) {
+			event.setLayerId(this.getLayerId());
+			event.setBbox(spatialFilter);
+			event.setCandidateCount(candidates.size());
+			event.setResultCount(result.size());
+			event.commit();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * gives the sorted identifiers of all {@link Feature}s, which could overlap the {@code spatialFilter} and could
+	 * match the {@code whereClause}<br>
+	 * Missing features won't be requested, so call {@link #load(GeometryObject)} before. Only the {@link TagIndex} and
+	 * the bounding boxes of {@link CompactFeature}s are checked, so no geometry is created. Ranges of the identifiers
+	 * could be checked exactly by {@link #getFeatures(PreparedSpatialFilter, long[], int, int)} afterwards.
+	 *
+	 * @param spatialFilter the spatial filter ({@code null} to give all identifiers)
+	 * @param whereClause   the where clause ({@code null} to skip the {@link TagIndex})
+	 * @return the sorted identifiers of the candidates
+	 *
+	 * @since 0.2.0
+	 */
+	public long[] getCandidateIds(GeometryObject spatialFilter, String whereClause) {
+		return this.getCandidateIds(spatialFilter == null ? null : new PreparedSpatialFilter(spatialFilter), whereClause);
+	}
+	
+	/**
+	 * gives the sorted identifiers of all {@link Feature}s, which could overlap a prepared spatial filter and could
+	 * match the {@code whereClause}
+	 *
+	 * @param filter      the prepared spatial filter ({@code null} to give all identifiers)
+	 * @param whereClause the where clause ({@code null} to skip the {@link TagIndex})
+	 * @return the sorted identifiers of the candidates
+	 *
+	 * @see #getCandidateIds(GeometryObject, String)
+	 * @since 0.2.0
+	 */
+	public long[] getCandidateIds(PreparedSpatialFilter filter, String whereClause) {
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> allFeatures = this.features;
+		long[]                                                 selected    = this.tagIndex.select(whereClause);
+		
+		Collection<Long> ids;
+		if (selected == null) {
+			ids = allFeatures.keySet();
+		} else {
+			ids = new ArrayList<>(selected.length);
+			for (long id : selected) {
+				ids.add(id);
+			}
+		}
+		
+		long[] res   = new long[ids.size()];
+		int    count = 0;
+		for (long id : ids) {
+			Feature<? extends GeometryFeatureObject<G>> feature = allFeatures.get(id);
+			
+			if (feature == null || (filter != null && !(filter.intersects(feature)))) {
+				continue;
+			}
+			
+			if (count == res.length) {
+				res = Arrays.copyOf(res, count * 2 + 1);
+			}
+			res[count++] = id;
+		}
+		
+		res = Arrays.copyOf(res, count);
+		Arrays.sort(res);
+		
+		return res;
+	}
+	
+	/**
+	 * gives the {@link Feature}s of a range of identifiers, which overlaps a prepared spatial filter<br>
+	 * Missing features won't be requested.
+	 *
+	 * @param filter the prepared spatial filter ({@code null} to give all {@link Feature}s of the range)
+	 * @param ids    the identifiers (e.g. of {@link #getCandidateIds(PreparedSpatialFilter, String)})
+	 * @param from   the first position in {@code ids} (inclusive)
+	 * @param to     the last position in {@code ids} (exclusive)
+	 * @return a {@link Map} of the {@link Feature}s in the order of {@code ids}
+	 *
+	 * @since 0.2.0
+	 */
+	public Map<Long, Feature<? extends GeometryFeatureObject<G>>> getFeatures(PreparedSpatialFilter filter, long[] ids, int from, int to) {
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> allFeatures = this.features;
+		Map<Long, Feature<? extends GeometryFeatureObject<G>>> result      = new LinkedHashMap<>();
+		
+		SpatialFilterEvent event = new SpatialFilterEvent();
+		event.begin();
+		
+		for (int i = from; i < to; i++) {
+			Feature<? extends GeometryFeatureObject<G>> feature = allFeatures.get(ids[i]);
+			
+			if (feature != null && (filter == null || filter.overlaps(feature))) {
+				result.put(ids[i], feature);
+			}
+		}
+		
+		event.end();
+		if (filter != null && event.shouldCommit()) {
+			event.setLayerId(this.getLayerId());
+			event.setBbox(filter.getSpatialFilter());
+			event.setCandidateCount(to - from);
+			event.setResultCount(result.size());
+			event.commit();
+		}
+		
 		return result;
 	}
 	
@@ -209,7 +689,25 @@ public abstract class FeatureStore<G extends GeometryObject> {
 	 * @since 0.1.0
 	 */
 	public void clear() {
+		ClusterIndex clusterIndex = this.clusterIndex;
+		if (clusterIndex != null) {
+			clusterIndex.clear();
+		}
+		
+		this.tagIndex.clear();
 		this.features.clear();
 		this.envelopes.clear();
+		this.version = FeatureStore.versions.incrementAndGet();
+	}
+	
+	/**
+	 * clears this store and removes it from the {@link Set} of all {@link FeatureStore}s<br>
+	 * Call it, if the store isn't used anymore.
+	 *
+	 * @since 0.2.0
+	 */
+	public void close() {
+		FeatureStore.stores.remove(this);
+		this.clear();
 	}
 }
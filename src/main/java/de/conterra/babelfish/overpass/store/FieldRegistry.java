@@ -0,0 +1,184 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import de.conterra.babelfish.plugin.v10_02.feature.Field;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * defines the registry of the {@link Field}s of all {@link Tag} keys of a layer<br>
+ * Every key gets a single {@link OverpassField} with an inferred type (see {@link OverpassField#forTag(String)}) and a
+ * code, which is used by the {@link AttributeDictionary}. The {@link Field}s are never removed, so every key keeps its
+ * {@link Field} as long as the layer exists. Only adding new keys is synchronized, looking up is lock free.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class FieldRegistry {
+	/**
+	 * the initial capacity of the {@link Field} array
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/**
+	 * the codes of all keys
+	 *
+	 * @since 0.2.0
+	 */
+	private final    Map<String, Integer> codes  = new ConcurrentHashMap<>();
+	/**
+	 * the {@link OverpassField}s of all keys, indexed by their codes
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile OverpassField[]      fields = new OverpassField[FieldRegistry.INITIAL_CAPACITY];
+	/**
+	 * the number of keys
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile int                  count  = 0;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @since 0.2.0
+	 */
+	public FieldRegistry() {
+		this.add(OverpassField.NAME_FIELD);
+	}
+	
+	/**
+	 * adds an {@link OverpassField} to the registry
+	 *
+	 * @param field the {@link OverpassField} to add
+	 * @return the code of the key
+	 *
+	 * @since 0.2.0
+	 */
+	private synchronized int add(OverpassField field) {
+		int code = this.count;
+		
+		OverpassField[] fields = this.fields;
+		if (code >= fields.length) {
+			fields = Arrays.copyOf(fields, fields.length * 2);
+		}
+		fields[code] = field;
+		
+		this.fields = fields;
+		this.count = code + 1;
+		this.codes.put(field.getName(), code);
+		
+		return code;
+	}
+	
+	/**
+	 * gives the code of a key and registers its {@link OverpassField}, if necessary
+	 *
+	 * @param key the key
+	 * @return the code of {@code key}
+	 *
+	 * @since 0.2.0
+	 */
+	public int encode(String key) {
+		Integer code = this.codes.get(key);
+		
+		return code == null ? this.register(key) : code;
+	}
+	
+	/**
+	 * registers the {@link OverpassField} of a key, if it wasn't registered concurrently
+	 *
+	 * @param key the key to register
+	 * @return the code of {@code key}
+	 *
+	 * @since 0.2.0
+	 */
+	private synchronized int register(String key) {
+		Integer code = this.codes.get(key);
+		
+		if (code != null) {
+			return code;
+		}
+		
+		OverpassField field = OverpassField.forTag(key);
+		log.debug("Created new meta field " + key + " of type " + field.getType() + ".");
+		
+		return this.add(field);
+	}
+	
+	/**
+	 * gives the code of a key, without registering it
+	 *
+	 * @param key the key
+	 * @return the code of {@code key} or {@code -1}, if it isn't registered
+	 *
+	 * @since 0.2.0
+	 */
+	public int getCode(String key) {
+		Integer code = this.codes.get(key);
+		
+		return code == null ? -1 : code;
+	}
+	
+	/**
+	 * gives the {@link OverpassField} of a code
+	 *
+	 * @param code the code of the key
+	 * @return the {@link OverpassField}
+	 *
+	 * @since 0.2.0
+	 */
+	public OverpassField getField(int code) {
+		return this.fields[code];
+	}
+	
+	/**
+	 * gives the {@link OverpassField} of a key, without registering it
+	 *
+	 * @param key the key
+	 * @return the {@link OverpassField} of {@code key} or {@code null}, if it isn't registered
+	 *
+	 * @since 0.2.0
+	 */
+	public OverpassField getField(String key) {
+		int code = this.getCode(key);
+		
+		return code < 0 ? null : this.getField(code);
+	}
+	
+	/**
+	 * gives all registered {@link OverpassField}s
+	 *
+	 * @return a {@link List} of all {@link OverpassField}s in the order of their codes
+	 *
+	 * @since 0.2.0
+	 */
+	public List<OverpassField> getFields() {
+		OverpassField[] fields = this.fields;
+		int             count  = this.count;
+		
+		return new ArrayList<>(Arrays.asList(fields).subList(0, count));
+	}
+	
+	/**
+	 * gives the number of registered keys
+	 *
+	 * @return the number of keys
+	 *
+	 * @since 0.2.0
+	 */
+	public int size() {
+		return this.count;
+	}
+}
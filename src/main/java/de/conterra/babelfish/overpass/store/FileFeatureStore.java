@@ -1,22 +1,37 @@
 package de.conterra.babelfish.overpass.store;
 
+import de.conterra.babelfish.overpass.config.OverpassConfigStore;
 import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.io.OsmFileWatcher;
 import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
-import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * defines a {@link FeatureStore}, which gets the features from a {@link OsmFile}
+ * defines a {@link FeatureStore}, which gets the features from a {@link OsmFile}<br>
+ * All osmChange {@link File}s of the {@link OsmFile} are applied after loading it. If the {@link OsmFile} is watched,
+ * it will be reloaded after its data {@link File} was modified and new osmChange {@link File}s will be applied
+ * incrementally. The previous features will be served, until the new ones are swapped in.<br>
+ * The features are loaded once on a shared background pool (see {@link #preloadAll()}). Queries, which arrive while
+ * loading, wait up to {@link OverpassConfigStore#LOADING_TIMEOUT} for it and are answered without features afterwards.
+ * A completed load is never repeated by queries, even if it gave no features. A failed load is retried after a delay,
+ * which doubles with every failure (see {@link #MIN_RETRY_DELAY}), or as soon as the data {@link File} changed.<br>
+ * After the features were converted, they are written to a {@link FeatureSnapshot} together with their
+ * {@link TagIndex}, which is restored on the next load instead of parsing and converting the {@link OsmFile} again.
  *
  * @param <G> the {@link GeometryObject} type
  * @author ChrissW-R1
@@ -25,33 +40,111 @@ import java.util.Set;
  */
 @Slf4j
 public class FileFeatureStore<G extends GeometryObject>
-		extends FeatureStore<G> {
+		extends FeatureStore<G>
+		implements OsmFileWatcher.Listener {
+	/**
+	 * the delay after the first failed load, before it is retried (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final long                                                            MIN_RETRY_DELAY = 60000;
+	/**
+	 * the maximum delay after failed loads, before they are retried (in milliseconds)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final long                                                            MAX_RETRY_DELAY = 3600000;
+	/**
+	 * the running parses of {@link OsmFile}s for stores without a {@link Tag} filter, mapped by the path of their data
+	 * {@link File} and their {@link de.conterra.babelfish.overpass.io.OsmFileFilter}
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<String, FutureTask<Map<? extends Long, ? extends Entity>>> fileLoads       = new HashMap<>();
+	/**
+	 * the pool to load the features in the background ({@code null}, if it isn't started yet)
+	 *
+	 * @since 0.2.0
+	 */
+	private static       ExecutorService                                                loadingPool     = null;
+	
 	/**
 	 * the {@link OsmFile} to get the features from
 	 *
 	 * @since 0.2.0
 	 */
 	@Getter
-	private final OsmFile     file;
+	private final OsmFile       file;
 	/**
 	 * the {@link Tag} key to filter to
 	 *
 	 * @since 0.2.0
 	 */
 	@Getter
-	private final String      typeKey;
+	private final String        typeKey;
 	/**
 	 * the {@link Tag} values to filter to
 	 *
 	 * @since 0.2.0
 	 */
 	@Getter
-	private final Set<String> typeValues;
+	private final Set<String>   typeValues;
 	/**
 	 * delimiter RegEx to split the tag value
 	 */
 	@Getter
-	private final String      delimiter;
+	private final String        delimiter;
+	/**
+	 * the shared {@link OsmFileLoader} to take the filtered {@link Entity}s from ({@code null}, if the features aren't
+	 * filtered)
+	 *
+	 * @since 0.2.0
+	 */
+	private final OsmFileLoader loader;
+	
+	/**
+	 * the loaded {@link Entity}s, including all referenced {@link Node}s, to apply changes to ({@code null}, if they
+	 * aren't held (see {@link #isHoldingEntities()}) or weren't loaded yet)
+	 *
+	 * @since 0.2.0
+	 */
+	private Map<Long, Entity> entities       = null;
+	/**
+	 * the lock of {@code loading}, which isn't held while loading
+	 *
+	 * @since 0.2.0
+	 */
+	private final Object      loadingLock    = new Object();
+	/**
+	 * the current or last loading of the features ({@code null}, if it wasn't started yet)
+	 *
+	 * @since 0.2.0
+	 */
+	private Future<?>         loading        = null;
+	/**
+	 * {@code true}, if the features were loaded completely (even if there were none)
+	 *
+	 * @since 0.2.0
+	 */
+	private volatile boolean  loaded         = false;
+	/**
+	 * the number of failed loads since the last completed one
+	 *
+	 * @since 0.2.0
+	 */
+	private int               failures       = 0;
+	/**
+	 * the time of the last failed load (in milliseconds since the epoch)
+	 *
+	 * @since 0.2.0
+	 */
+	private long              failedAt       = 0;
+	/**
+	 * the last modification time of the data {@link File} at the last failed load
+	 *
+	 * @since 0.2.0
+	 */
+	private long              failedModified = 0;
 	
 	/**
 	 * constructor, with given data {@link File}
@@ -72,6 +165,21 @@ public class FileFeatureStore<G extends GeometryObject>
 		this.typeKey = typeKey;
 		this.typeValues = typeValues;
 		this.delimiter = delimiter;
+		
+		if (typeKey != null && typeValues != null) {
+			this.loader = OsmFileLoader.getInstance(file, typeKey, delimiter);
+			this.loader.register(typeValues);
+		} else {
+			this.loader = null;
+		}
+		
+		if (file.isWatched()) {
+			try {
+				OsmFileWatcher.watch(file, this);
+			} catch (IOException e) {
+				log.warn("Couldn't watch " + file.getDataFile() + " for modifications!", e);
+			}
+		}
 	}
 	
 	/**
@@ -87,59 +195,622 @@ public class FileFeatureStore<G extends GeometryObject>
 		this(type, file, null, null, null);
 	}
 	
+	/**
+	 * gives the pool to load the features in the background and starts it, if necessary
+	 *
+	 * @return the {@link ExecutorService} with {@link OverpassConfigStore#LOADING_THREADS} threads
+	 *
+	 * @since 0.2.0
+	 */
+	private static synchronized ExecutorService getLoadingPool() {
+		if (FileFeatureStore.loadingPool == null) {
+			FileFeatureStore.loadingPool = Executors.newFixedThreadPool(OverpassConfigStore.LOADING_THREADS, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "FileFeatureStore-Loader");
+					thread.setDaemon(true);
+					
+					return thread;
+				}
+			});
+		}
+		
+		return FileFeatureStore.loadingPool;
+	}
+	
+	/**
+	 * starts loading all {@link FileFeatureStore}s in the background
+	 *
+	 * @since 0.2.0
+	 */
+	public static void preloadAll() {
+		int count = 0;
+		
+		for (FeatureStore<?> store : FeatureStore.getStores()) {
+			if (store instanceof FileFeatureStore) {
+				((FileFeatureStore<?>) store).preload();
+				count++;
+			}
+		}
+		
+		log.debug("Scheduled " + count + " file stores for loading.");
+	}
+	
+	/**
+	 * stops the background loading of all {@link FileFeatureStore}s
+	 *
+	 * @since 0.2.0
+	 */
+	public static synchronized void stopLoading() {
+		if (FileFeatureStore.loadingPool != null) {
+			FileFeatureStore.loadingPool.shutdownNow();
+			FileFeatureStore.loadingPool = null;
+		}
+	}
+	
+	/**
+	 * checks, if the last loading should be started again<br>
+	 * Call it with the lock of {@code loading} only.
+	 *
+	 * @return {@code true}, if the last loading didn't complete and wasn't a failure or its retry delay is over or the
+	 * data {@link File} changed since
+	 *
+	 * @since 0.2.0
+	 */
+	private boolean isRetryDue() {
+		if (this.loaded) {
+			return false;
+		}
+		
+		if (this.failures == 0) {
+			return true;
+		}
+		
+		long delay = Math.min(FileFeatureStore.MIN_RETRY_DELAY << Math.min(this.failures - 1, 16), FileFeatureStore.MAX_RETRY_DELAY);
+		
+		return System.currentTimeMillis() >= this.failedAt + delay || this.file.getDataFile().lastModified() != this.failedModified;
+	}
+	
+	/**
+	 * starts loading the features in the background, if they aren't loaded or loading yet<br>
+	 * A failed loading is started again only, if its retry is due.
+	 *
+	 * @return the {@link Future} of the loading
+	 *
+	 * @since 0.2.0
+	 */
+	public Future<?> preload() {
+		synchronized (this.loadingLock) {
+			if (this.loading == null || (this.loading.isDone() && this.isRetryDue())) {
+				this.loading = FileFeatureStore.getLoadingPool().submit(new Callable<Void>() {
+					@Override
+					public Void call()
+					throws IOException {
+						try {
+							FileFeatureStore.this.loadFromFile();
+						} catch (IOException | RuntimeException e) {
+							FileFeatureStore.this.failed();
+							throw e;
+						}
+						
+						return null;
+					}
+				});
+			}
+			
+			return this.loading;
+		}
+	}
+	
+	/**
+	 * records a failed loading, to delay its retry
+	 *
+	 * @since 0.2.0
+	 */
+	private void failed() {
+		synchronized (this.loadingLock) {
+			this.failures++;
+			this.failedAt = System.currentTimeMillis();
+			this.failedModified = this.file.getDataFile().lastModified();
+		}
+		
+		log.warn("Couldn't load layer " + this.getLayerId() + " from " + this.file.getDataFile() + ". (" + this.failures + " failed attempts)");
+	}
+	
 	@Override
 	protected void request(GeometryObject spatialFilter)
 	throws IOException {
-		if (!(this.getFeatures().isEmpty())) {
+		if (this.loaded || !(this.features.isEmpty())) {
 			return;
 		}
 		
-		this.loadFromFile();
+		try {
+			this.preload().get(OverpassConfigStore.LOADING_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			log.debug("Layer " + this.getLayerId() + " is still loading from " + this.file.getDataFile() + ". Answer without features.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + this.file.getDataFile() + "!");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			
+			throw new IOException("Couldn't load features from " + this.file.getDataFile() + "!", cause);
+		}
 	}
 	
 	/**
-	 * loads all features from {@code file}
+	 * reads all {@link Entity}s of an unfiltered {@link OsmFile}<br>
+	 * Concurrent calls for the same {@link OsmFile} share one parse.
 	 *
-	 * @throws IOException if the {@link File} doesn't exist or couldn't read
+	 * @param file the {@link OsmFile} to read
+	 * @return a modifiable {@link Map} of all {@link Entity}s
+	 *
+	 * @throws IOException if the {@link OsmFile} doesn't exist or couldn't read
 	 * @since 0.2.0
 	 */
-	private void loadFromFile()
+	private static Map<Long, Entity> readFile(final OsmFile file)
 	throws IOException {
-		@SuppressWarnings("unchecked")
-		Class<G> geometryType = (Class<G>) OverpassHandler.geometryClassFromEntity(this.getEntityType());
+		String                                            key   = file.getDataFile().getAbsolutePath() + "\n" + file.getFilter();
+		FutureTask<Map<? extends Long, ? extends Entity>> task;
+		boolean                                           owner = false;
 		
-		Map<? extends Long, ? extends Entity> entities = OverpassHandler.getFeatures(this.getFile());
-		if (this.typeKey != null && this.typeValues != null) {
-			Map<Long, Entity> filteredEntities = new HashMap<>();
+		synchronized (FileFeatureStore.fileLoads) {
+			task = FileFeatureStore.fileLoads.get(key);
 			
-			for (Entity entity : entities.values()) {
-				for (Tag tag : entity.getTags()) {
-					if (!(tag.getKey().equals(this.typeKey))) {
-						continue;
+			if (task == null) {
+				task = new FutureTask<>(new Callable<Map<? extends Long, ? extends Entity>>() {
+					@Override
+					public Map<? extends Long, ? extends Entity> call()
+					throws IOException {
+						return OverpassHandler.getFeatures(file);
 					}
-					
-					String tagValue = tag.getValue();
-					long   id       = entity.getId();
-					
-					if (this.typeValues.contains(tagValue)) {
-						filteredEntities.put(id, entity);
-						break;
+				});
+				FileFeatureStore.fileLoads.put(key, task);
+				owner = true;
+			}
+		}
+		
+		if (owner) {
+			try {
+				task.run();
+			} finally {
+				synchronized (FileFeatureStore.fileLoads) {
+					FileFeatureStore.fileLoads.remove(key);
+				}
+			}
+		}
+		
+		try {
+			return new HashMap<>(task.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading " + file.getDataFile() + "!");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			
+			throw new IOException("Couldn't read " + file.getDataFile() + "!", cause);
+		}
+	}
+	
+	/**
+	 * loads all {@link Entity}s from {@code file} and applies its osmChange {@link File}s
+	 *
+	 * @param pending an osmChange {@link File}, which the caller will apply afterwards and which is skipped therefore
+	 *                ({@code null} to apply all)
+	 * @return the loaded {@link Entity}s, including all referenced {@link Node}s
+	 *
+	 * @throws IOException if the {@link File} doesn't exist or couldn't read
+	 * @since 0.2.0
+	 */
+	private Map<Long, Entity> loadEntities(File pending)
+	throws IOException {
+		Map<Long, Entity> res;
+		if (this.loader != null) {
+			res = this.loader.take(this.typeValues);
+		} else {
+			res = FileFeatureStore.readFile(this.getFile());
+		}
+		
+		for (File changeFile : this.getFile().getChangeFiles()) {
+			if (changeFile.equals(pending)) {
+				continue;
+			}
+			
+			this.apply(res, OverpassHandler.readChanges(changeFile), new HashSet<Long>(), new HashSet<Long>());
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * gives the descriptor of the filter of this store, which identifies its {@link FeatureSnapshot}
+	 *
+	 * @return the descriptor
+	 *
+	 * @since 0.2.0
+	 */
+	private String getDescriptor() {
+		return this.getGeometryType().getName() + "\n" +
+		       this.typeKey + "\n" +
+		       (this.typeValues == null ? null : new TreeSet<>(this.typeValues)) + "\n" +
+		       this.delimiter + "\n" +
+		       this.getFile().getFilter();
+	}
+	
+	/**
+	 * loads all features from {@code file}<br>
+	 * If there is a valid {@link FeatureSnapshot}, the features are restored from it instead. Otherwise the
+	 * {@link FeatureSnapshot} is written after the features were converted.
+	 *
+	 * @throws IOException if the {@link File} doesn't exist or couldn't read
+	 * @since 0.2.0
+	 */
+	private synchronized void loadFromFile()
+	throws IOException {
+		FeatureSnapshot<G> snapshot = this.getFile().isSnapshot() ? new FeatureSnapshot<G>(this.getFile(), this.getDescriptor()) : null;
+		
+		if (snapshot != null && snapshot.isValid()) {
+			try {
+				snapshot.restore(this);
+				
+				if (this.loader != null) {
+					this.loader.unregister(this.typeValues);
+				}
+				
+				this.completed();
+				return;
+			} catch (IOException | RuntimeException e) {
+				log.warn("Couldn't restore layer " + this.getLayerId() + " from " + snapshot.getSnapshotFile() + "! Load it from " + this.getFile().getDataFile() + ".", e);
+			}
+		}
+		
+		Map<Long, Entity> loaded = this.loadEntities(null);
+		
+		this.replaceAll(loaded);
+		
+		if (this.isHoldingEntities()) {
+			this.entities = loaded;
+		}
+		
+		if (snapshot != null) {
+			snapshot.write(this);
+		}
+		
+		this.completed();
+	}
+	
+	/**
+	 * checks, if the loaded {@link Entity}s are held in memory to apply changes to<br>
+	 * Otherwise the {@link OsmFile} would be loaded again for every applied osmChange {@link File}.
+	 *
+	 * @return {@code true}, if the {@link OsmFile} is watched or has a directory of osmChange {@link File}s
+	 *
+	 * @since 0.2.0
+	 */
+	private boolean isHoldingEntities() {
+		return this.getFile().isWatched() || this.getFile().getChangesDirectory() != null;
+	}
+	
+	/**
+	 * records a completed loading, so it isn't started again by queries
+	 *
+	 * @since 0.2.0
+	 */
+	private void completed() {
+		synchronized (this.loadingLock) {
+			this.loaded = true;
+			this.failures = 0;
+		}
+	}
+	
+	/**
+	 * checks, if an {@link Entity} should be converted to a feature of this store
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @return {@code true}, if the {@link Entity} has the type of this store or is an area {@link Relation} of a
+	 * {@link Polygon} store and passes the {@link Tag} filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Override
+	protected boolean isFeature(Entity entity) {
+		return super.isFeature(entity) && (this.loader == null || this.loader.matches(entity, this.typeValues));
+	}
+	
+	/**
+	 * gives the identifiers of all member {@link Way}s of the {@link Relation}s in a {@link Map} of {@link Entity}s
+	 *
+	 * @param entities the {@link Entity}s
+	 * @return the identifiers of the member {@link Way}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static Set<Long> getMemberWays(Map<Long, Entity> entities) {
+		Set<Long> res = new HashSet<>();
+		
+		for (Entity entity : entities.values()) {
+			if (entity instanceof Relation) {
+				FileFeatureStore.addMemberWays((Relation) entity, res);
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * adds the identifiers of the member {@link Way}s of a {@link Relation} to a {@link Set}
+	 *
+	 * @param relation the {@link Relation}
+	 * @param res      the {@link Set} to add the identifiers to
+	 * @since 0.2.0
+	 */
+	private static void addMemberWays(Relation relation, Set<Long> res) {
+		for (RelationMember member : relation.getMembers()) {
+			if (member.getMemberType() == EntityType.Way) {
+				res.add(OverpassHandler.getKey(EntityType.Way, member.getMemberId()));
+			}
+		}
+	}
+	
+	/**
+	 * applies changes to {@link Entity}s<br>
+	 * {@link Node}s are kept for stores of other types, because they could be referenced by a changed {@link Way}.
+	 * {@link Way}s, which aren't features, are kept, if they are members of a kept {@link Relation}. The member
+	 * {@link Way}s of changed {@link Relation}s (before and after the change) count as changed features, because they
+	 * could have become or stopped being a part of the {@link Relation} area. {@link Relation}s are applied to
+	 * {@link Polygon} stores only.
+	 *
+	 * @param target          the {@link Entity}s to change
+	 * @param changes         the changes to apply
+	 * @param changedFeatures the {@link Set} to add the keys of the changed {@link Entity}s of the store type and of
+	 *                        the changed {@link Relation}s to (see {@link OverpassHandler#getKey(Entity)})
+	 * @param changedNodes    the {@link Set} to add the identifiers of the changed {@link Node}s to, which aren't
+	 *                        features of this store
+	 * @since 0.2.0
+	 */
+	private void apply(Map<Long, Entity> target, Collection<? extends ChangeContainer> changes, Set<Long> changedFeatures, Set<Long> changedNodes) {
+		Set<Long> memberWays = null;
+		
+		for (ChangeContainer change : changes) {
+			Entity  entity = change.getEntityContainer().getEntity();
+			long    key    = OverpassHandler.getKey(entity);
+			boolean keep   = change.getAction() != ChangeAction.Delete;
+			
+			if (entity instanceof Relation && Polygon.class.isAssignableFrom(this.getGeometryType())) {
+				Entity previous = target.get(key);
+				if (previous instanceof Relation) {
+					FileFeatureStore.addMemberWays((Relation) previous, changedFeatures);
+				}
+				
+				keep &= this.isFeature(entity);
+				if (keep) {
+					FileFeatureStore.addMemberWays((Relation) entity, changedFeatures);
+				}
+				
+				changedFeatures.add(key);
+				memberWays = null;
+			} else if (entity.getType() == this.getEntityType()) {
+				if (keep && !(this.isFeature(entity))) {
+					if (memberWays == null) {
+						memberWays = FileFeatureStore.getMemberWays(target);
 					}
 					
-					if (this.delimiter != null) {
-						for (String value : tagValue.split(this.delimiter)) {
-							if (this.typeValues.contains(value)) {
-								filteredEntities.put(id, entity);
-								break;
-							}
+					keep = memberWays.contains(key);
+				}
+				
+				changedFeatures.add(key);
+			} else if (entity instanceof Node) {
+				changedNodes.add(key);
+			} else {
+				continue;
+			}
+			
+			if (keep) {
+				target.put(key, entity);
+			} else {
+				target.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * adds a {@link Way} and all its {@link Node}s to a {@link Map} of {@link Entity}s to convert
+	 *
+	 * @param way        the {@link Way}
+	 * @param entities   the {@link Entity}s to take the {@link Node}s from
+	 * @param res        the {@link Map} to add the {@link Way} and its {@link Node}s to
+	 * @param changeFile the osmChange {@link File}, which was applied
+	 * @return {@code true}, if all {@link Node}s were found and the {@link Way} was added
+	 *
+	 * @since 0.2.0
+	 */
+	private static boolean addWay(Way way, Map<Long, Entity> entities, Map<Long, Entity> res, File changeFile) {
+		Map<Long, Entity> nodes = new HashMap<>();
+		
+		for (WayNode wayNode : way.getWayNodes()) {
+			Entity node = entities.get(OverpassHandler.getKey(EntityType.Node, wayNode.getNodeId()));
+			
+			if (!(node instanceof Node)) {
+				log.warn("Couldn't find node " + wayNode.getNodeId() + " of way " + way.getId() + " after applying " + changeFile + "! The way will be missing until the next reload.");
+				return false;
+			}
+			
+			nodes.put(OverpassHandler.getKey(node), node);
+		}
+		
+		res.putAll(nodes);
+		res.put(OverpassHandler.getKey(way), way);
+		return true;
+	}
+	
+	/**
+	 * applies the changes of an osmChange {@link File} to the loaded features<br>
+	 * Only the changed features and the {@link Way}s of changed {@link Node}s will be converted again.
+	 *
+	 * @param changeFile the osmChange {@link File} to apply
+	 * @throws IOException if {@code changeFile} or the {@link OsmFile} couldn't read
+	 * @since 0.2.0
+	 */
+	public void applyChanges(File changeFile)
+	throws IOException {
+		this.applyChanges(changeFile, OverpassHandler.readChanges(changeFile));
+	}
+	
+	/**
+	 * applies changes to the loaded features<br>
+	 * If the {@link Entity}s of the {@link OsmFile} aren't held in memory yet (because the features were restored from a
+	 * {@link FeatureSnapshot}), they will be loaded once and held for all following osmChange {@link File}s.
+	 * The area {@link Relation}s of {@link Polygon} stores are assembled again, if they or one of their member
+	 * {@link Way}s changed. Only the changed features are removed from and added to the indexes, so they aren't built
+	 * again.
+	 *
+	 * @param changeFile the osmChange {@link File} of the changes
+	 * @param changes    the changes of {@code changeFile}
+	 * @throws IOException if the {@link OsmFile} couldn't read
+	 * @since 0.2.0
+	 */
+	@Override
+	public synchronized void applyChanges(File changeFile, Collection<? extends ChangeContainer> changes)
+	throws IOException {
+		Set<Long> affected     = new HashSet<>();
+		Set<Long> changedNodes = new HashSet<>();
+		
+		if (this.features.isEmpty()) {
+			Map<Long, Entity> loaded = this.loadEntities(changeFile);
+			this.apply(loaded, changes, affected, changedNodes);
+			
+			this.replaceAll(loaded);
+			if (this.isHoldingEntities()) {
+				this.entities = loaded;
+			}
+			
+			return;
+		}
+		
+		Map<Long, Entity> target = this.entities;
+		if (target == null) {
+			target = this.loadEntities(changeFile);
+			
+			if (this.isHoldingEntities()) {
+				this.entities = target;
+			}
+		}
+		this.apply(target, changes, affected, changedNodes);
+		
+		if (this.getEntityType() == EntityType.Way && !(changedNodes.isEmpty())) {
+			Set<Long> referenced = new HashSet<>();
+			
+			for (Entity entity : target.values()) {
+				if (entity instanceof Way) {
+					for (WayNode wayNode : ((Way) entity).getWayNodes()) {
+						if (changedNodes.contains(wayNode.getNodeId())) {
+							affected.add(OverpassHandler.getKey(entity));
+							referenced.add(wayNode.getNodeId());
 						}
 					}
 				}
 			}
 			
-			entities = filteredEntities;
+			for (long id : changedNodes) {
+				if (!(referenced.contains(id)) && target.get(id) instanceof Node) {
+					target.remove(id);
+				}
+			}
+		}
+		
+		if (Polygon.class.isAssignableFrom(this.getGeometryType())) {
+			Set<Long> relationParts = new HashSet<>();
+			
+			for (Entity entity : target.values()) {
+				if (!(entity instanceof Relation)) {
+					continue;
+				}
+				
+				long      key     = OverpassHandler.getKey(entity);
+				Set<Long> members = new HashSet<>();
+				FileFeatureStore.addMemberWays((Relation) entity, members);
+				
+				if (affected.contains(key) || !(Collections.disjoint(members, affected))) {
+					relationParts.add(key);
+					relationParts.addAll(members);
+				}
+			}
+			
+			affected.addAll(relationParts);
+		}
+		
+		Map<Long, Entity> toConvert = new HashMap<>();
+		for (long key : affected) {
+			Entity entity = target.get(key);
+			
+			if (entity instanceof Way) {
+				FileFeatureStore.addWay((Way) entity, target, toConvert, changeFile);
+			} else if (entity instanceof Relation) {
+				for (RelationMember member : ((Relation) entity).getMembers()) {
+					Entity way = member.getMemberType() == EntityType.Way ? target.get(OverpassHandler.getKey(EntityType.Way, member.getMemberId())) : null;
+					
+					if (way instanceof Way) {
+						FileFeatureStore.addWay((Way) way, target, toConvert, changeFile);
+					}
+				}
+				
+				toConvert.put(key, entity);
+			} else if (entity != null) {
+				toConvert.put(key, entity);
+			}
 		}
 		
-		this.features.putAll(FeatureConverter.convert(geometryType, entities));
+		Map<? extends Long, ? extends Feature<? extends GeometryFeatureObject<G>>> converted = this.convert(toConvert);
+		Set<Long>                                                                  removed   = new HashSet<>(affected);
+		removed.removeAll(converted.keySet());
+		
+		this.removeFeatures(removed);
+		this.putFeatures(converted);
+		
+		log.info("Applied " + changes.size() + " changes of " + changeFile + " to layer " + this.getLayerId() + ". (" + affected.size() + " features updated)");
+	}
+	
+	/**
+	 * removes all features and resets the loading state, so the next query loads the features again
+	 *
+	 * @since 0.2.0
+	 */
+	@Override
+	public void clear() {
+		synchronized (this.loadingLock) {
+			this.loaded = false;
+			this.failures = 0;
+			this.loading = null;
+		}
+		
+		super.clear();
+	}
+	
+	@Override
+	public synchronized void beforeReload(OsmFile file) {
+		if (this.loader != null && this.loaded) {
+			this.loader.invalidate();
+			this.loader.register(this.typeValues);
+		}
+	}
+	
+	@Override
+	public synchronized void reload(OsmFile file)
+	throws IOException {
+		if (!(this.loaded)) {
+			return;
+		}
+		
+		this.loadFromFile();
+		
+		log.info("Reloaded layer " + this.getLayerId() + " from " + file.getDataFile() + ".");
 	}
 }
@@ -0,0 +1,445 @@
+package de.conterra.babelfish.overpass.store;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+
+import java.util.*;
+
+/**
+ * defines a class to assemble the areas of multipolygon {@link Relation}s<br>
+ * The member {@link Way}s are stitched to closed rings at their shared end {@link Node}s. Afterwards every ring is
+ * classified by the number of rings, which contain it: Rings inside of an even number of rings are outer rings, all
+ * others are inner rings (holes) of their smallest containing ring. The containing rings are looked up in a
+ * {@link STRtree} of the ring envelopes, so only rings with overlapping bounding boxes are tested. The member roles are
+ * ignored, because they are often missing or wrong in the OpenStreetMap data.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class MultipolygonAssembler {
+	/**
+	 * the {@link Tag} key of the {@link Relation} type
+	 *
+	 * @since 0.2.0
+	 */
+	public static final String      TYPE_KEY   = "type";
+	/**
+	 * the {@link Relation} types, which define areas
+	 *
+	 * @since 0.2.0
+	 */
+	public static final Set<String> AREA_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("multipolygon", "boundary")));
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private MultipolygonAssembler() {
+	}
+	
+	/**
+	 * checks, if an {@link Entity} is a {@link Relation}, which defines an area (see {@link #AREA_TYPES})
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @return {@code true}, if {@code entity} is an area {@link Relation}
+	 *
+	 * @since 0.2.0
+	 */
+	public static boolean isArea(Entity entity) {
+		if (!(entity instanceof Relation)) {
+			return false;
+		}
+		
+		for (Tag tag : entity.getTags()) {
+			if (MultipolygonAssembler.TYPE_KEY.equals(tag.getKey())) {
+				return MultipolygonAssembler.AREA_TYPES.contains(tag.getValue());
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * creates the segment of a {@link Way}
+	 *
+	 * @param way      the {@link Way}
+	 * @param features the OpenStreetMap {@link Entity}s, which contain the {@link Node}s of {@code way}
+	 * @return the created {@link Segment} or {@code null}, if not all {@link Node}s of {@code way} are known
+	 *
+	 * @since 0.2.0
+	 */
+	private static Segment createSegment(Way way, Map<? extends Long, ? extends Entity> features) {
+		List<WayNode> wayNodes    = way.getWayNodes();
+		double[]      coordinates = new double[wayNodes.size() * 2];
+		int           i           = 0;
+		
+		for (WayNode wayNode : wayNodes) {
+			Entity node = features.get(OverpassHandler.getKey(EntityType.Node, wayNode.getNodeId()));
+			
+			if (!(node instanceof Node)) {
+				return null;
+			}
+			
+			coordinates[i++] = ((Node) node).getLatitude();
+			coordinates[i++] = ((Node) node).getLongitude();
+		}
+		
+		return new Segment(wayNodes.get(0).getNodeId(), wayNodes.get(wayNodes.size() - 1).getNodeId(), coordinates);
+	}
+	
+	/**
+	 * stitches segments to closed rings at their shared end {@link Node}s<br>
+	 * Segments, which couldn't be closed, are dropped.
+	 *
+	 * @param segments the segments to stitch
+	 * @return the closed rings
+	 *
+	 * @since 0.2.0
+	 */
+	private static List<RingPart> stitch(List<Segment> segments) {
+		List<RingPart>           res  = new ArrayList<>();
+		Map<Long, List<Segment>> ends = new HashMap<>();
+		
+		for (Segment segment : segments) {
+			if (segment.isClosed()) {
+				continue;
+			}
+			
+			for (long end : new long[] {segment.first, segment.last}) {
+				List<Segment> list = ends.get(end);
+				if (list == null) {
+					list = new ArrayList<>(2);
+					ends.put(end, list);
+				}
+				list.add(segment);
+			}
+		}
+		
+		for (Segment start : segments) {
+			if (start.used) {
+				continue;
+			}
+			start.used = true;
+			
+			double[] coordinates = start.coordinates;
+			int      length      = coordinates.length;
+			long     last        = start.last;
+			
+			while (last != start.first) {
+				Segment next = null;
+				
+				List<Segment> candidates = ends.get(last);
+				if (candidates != null) {
+					for (Segment candidate : candidates) {
+						if (!(candidate.used)) {
+							next = candidate;
+							break;
+						}
+					}
+				}
+				
+				if (next == null) {
+					break;
+				}
+				next.used = true;
+				
+				int added = next.coordinates.length - 2;
+				if (coordinates == start.coordinates || length + added > coordinates.length) {
+					coordinates = Arrays.copyOf(coordinates, Math.max(length + added, coordinates.length * 2));
+				}
+				
+				boolean reverse = next.last == last;
+				for (int i = 1; i < next.coordinates.length / 2; i++) {
+					int pos = (reverse ? next.coordinates.length / 2 - 1 - i : i) * 2;
+					coordinates[length++] = next.coordinates[pos];
+					coordinates[length++] = next.coordinates[pos + 1];
+				}
+				
+				last = reverse ? next.first : next.last;
+			}
+			
+			if (last != start.first || length < 8) {
+				log.debug("Dropped an unclosed ring, which starts at node " + start.first + ".");
+				continue;
+			}
+			
+			res.add(new RingPart(length == coordinates.length ? coordinates : Arrays.copyOf(coordinates, length)));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * classifies rings as outer or inner rings and sets their parents
+	 *
+	 * @param rings the rings to classify, ordered by their area (descending)
+	 * @since 0.2.0
+	 */
+	private static void classify(List<RingPart> rings) {
+		STRtree index = new STRtree();
+		for (RingPart ring : rings) {
+			index.insert(ring.envelope, ring);
+		}
+		
+		for (RingPart ring : rings) {
+			for (Object item : index.query(ring.envelope)) {
+				RingPart candidate = (RingPart) item;
+				
+				if (candidate == ring || candidate.area <= ring.area || !(candidate.envelope.contains(ring.envelope))) {
+					continue;
+				}
+				if (ring.parent != null && candidate.area >= ring.parent.area) {
+					continue;
+				}
+				if (candidate.contains(ring.coordinates[0], ring.coordinates[1])) {
+					ring.parent = candidate;
+				}
+			}
+			
+			ring.depth = ring.parent == null ? 0 : ring.parent.depth + 1;
+		}
+	}
+	
+	/**
+	 * assembles the area of a {@link Relation}
+	 *
+	 * @param <G>      the geometric type
+	 * @param clazz    the geometric {@link Class} type ({@link Polygon})
+	 * @param relation the {@link Relation} to assemble
+	 * @param features the OpenStreetMap {@link Entity}s, which contain the member {@link Way}s and their {@link Node}s
+	 * @return the assembled {@link CompactGeometry}, which contains the shells ordered by their area (descending), or
+	 * {@code null}, if no closed ring could be assembled
+	 *
+	 * @since 0.2.0
+	 */
+	public static <G extends GeometryObject> CompactGeometry<G> assemble(Class<G> clazz, Relation relation, Map<? extends Long, ? extends Entity> features) {
+		List<Segment> segments = new ArrayList<>();
+		
+		for (RelationMember member : relation.getMembers()) {
+			if (member.getMemberType() != EntityType.Way) {
+				continue;
+			}
+			
+			Entity way = features.get(OverpassHandler.getKey(EntityType.Way, member.getMemberId()));
+			if (!(way instanceof Way) || ((Way) way).getWayNodes().size() < 2) {
+				continue;
+			}
+			
+			Segment segment = MultipolygonAssembler.createSegment((Way) way, features);
+			if (segment == null) {
+				log.debug("Way " + way.getId() + " of relation " + relation.getId() + " has unknown nodes.");
+				continue;
+			}
+			
+			segments.add(segment);
+		}
+		
+		List<RingPart> rings = MultipolygonAssembler.stitch(segments);
+		if (rings.isEmpty()) {
+			log.debug("Relation " + relation.getId() + " has no closed rings.");
+			return null;
+		}
+		
+		Collections.sort(rings, new Comparator<RingPart>() {
+			@Override
+			public int compare(RingPart a, RingPart b) {
+				return Double.compare(b.area, a.area);
+			}
+		});
+		MultipolygonAssembler.classify(rings);
+		
+		List<RingPart> ordered = new ArrayList<>(rings.size());
+		List<Integer>  shells  = new ArrayList<>();
+		int            length  = 0;
+		for (RingPart shell : rings) {
+			if (shell.depth % 2 != 0) {
+				continue;
+			}
+			
+			shells.add(ordered.size());
+			ordered.add(shell);
+			length += shell.coordinates.length;
+			
+			for (RingPart hole : rings) {
+				if (hole.parent == shell && hole.depth % 2 != 0) {
+					ordered.add(hole);
+					length += hole.coordinates.length;
+				}
+			}
+		}
+		
+		double[] coordinates = new double[length];
+		int[]    partStarts  = new int[ordered.size()];
+		int      pos         = 0;
+		for (int i = 0; i < partStarts.length; i++) {
+			double[] part = ordered.get(i).coordinates;
+			
+			partStarts[i] = pos / 2;
+			System.arraycopy(part, 0, coordinates, pos, part.length);
+			pos += part.length;
+		}
+		
+		int[] shellStarts = new int[shells.size()];
+		for (int i = 0; i < shellStarts.length; i++) {
+			shellStarts[i] = shells.get(i);
+		}
+		
+		return new CompactGeometry<>(clazz, 2, coordinates, partStarts, shellStarts);
+	}
+	
+	/**
+	 * defines a member {@link Way} of a {@link Relation}, which is stitched to rings
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private static class Segment {
+		/**
+		 * the identifier of the first {@link Node}
+		 *
+		 * @since 0.2.0
+		 */
+		private final long     first;
+		/**
+		 * the identifier of the last {@link Node}
+		 *
+		 * @since 0.2.0
+		 */
+		private final long     last;
+		/**
+		 * the latitudes and longitudes of all {@link Node}s, one after another
+		 *
+		 * @since 0.2.0
+		 */
+		private final double[] coordinates;
+		/**
+		 * {@code true}, if the segment was already added to a ring
+		 *
+		 * @since 0.2.0
+		 */
+		private       boolean  used = false;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param first       the identifier of the first {@link Node}
+		 * @param last        the identifier of the last {@link Node}
+		 * @param coordinates the latitudes and longitudes of all {@link Node}s
+		 * @since 0.2.0
+		 */
+		private Segment(long first, long last, double[] coordinates) {
+			this.first = first;
+			this.last = last;
+			this.coordinates = coordinates;
+		}
+		
+		/**
+		 * checks, if the segment is a ring on its own
+		 *
+		 * @return {@code true}, if the first and the last {@link Node} are equal
+		 *
+		 * @since 0.2.0
+		 */
+		private boolean isClosed() {
+			return this.first == this.last;
+		}
+	}
+	
+	/**
+	 * defines a closed ring of an area
+	 *
+	 * @author ChrissW-R1
+	 * @version 0.2.0
+	 * @since 0.2.0
+	 */
+	private static class RingPart {
+		/**
+		 * the latitudes and longitudes of all coordinates, one after another
+		 *
+		 * @since 0.2.0
+		 */
+		private final double[] coordinates;
+		/**
+		 * the bounding box (longitudes as x and latitudes as y)
+		 *
+		 * @since 0.2.0
+		 */
+		private final Envelope envelope;
+		/**
+		 * the (planar) area in square degrees
+		 *
+		 * @since 0.2.0
+		 */
+		private final double   area;
+		/**
+		 * the smallest ring, which contains this ring ({@code null}, if there is none)
+		 *
+		 * @since 0.2.0
+		 */
+		private       RingPart parent = null;
+		/**
+		 * the number of rings, which contain this ring
+		 *
+		 * @since 0.2.0
+		 */
+		private       int      depth  = 0;
+		
+		/**
+		 * standard constructor
+		 *
+		 * @param coordinates the latitudes and longitudes of all coordinates, the first and the last must be equal
+		 * @since 0.2.0
+		 */
+		private RingPart(double[] coordinates) {
+			this.coordinates = coordinates;
+			
+			Envelope envelope = new Envelope();
+			double   area     = 0;
+			for (int i = 0; i < coordinates.length; i += 2) {
+				envelope.expandToInclude(coordinates[i + 1], coordinates[i]);
+				
+				if (i + 2 < coordinates.length) {
+					area += coordinates[i + 1] * coordinates[i + 2] - coordinates[i + 3] * coordinates[i];
+				}
+			}
+			
+			this.envelope = envelope;
+			this.area = Math.abs(area / 2);
+		}
+		
+		/**
+		 * checks, if a coordinate is inside of the ring
+		 *
+		 * @param lat the latitude
+		 * @param lon the longitude
+		 * @return {@code true}, if the coordinate is inside
+		 *
+		 * @since 0.2.0
+		 */
+		private boolean contains(double lat, double lon) {
+			boolean res = false;
+			
+			for (int i = 0, j = this.coordinates.length - 2; i < this.coordinates.length; j = i, i += 2) {
+				double latI = this.coordinates[i];
+				double lonI = this.coordinates[i + 1];
+				double latJ = this.coordinates[j];
+				double lonJ = this.coordinates[j + 1];
+				
+				if ((latI > lat) != (latJ > lat) && lon < (lonJ - lonI) * (lat - latI) / (latJ - latI) + lonI) {
+					res = !res;
+				}
+			}
+			
+			return res;
+		}
+	}
+}
@@ -0,0 +1,428 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.io.OsmFile;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * defines a loader, which reads an {@link OsmFile} for all category values at once and partitions the {@link Entity}s by
+ * the values of a category {@link Tag}<br>
+ * Every {@link FileFeatureStore}, which filters the same {@link OsmFile} by the same category {@link Tag}, shares one
+ * loader and takes its partition of it. A partition will be removed after all registered {@link FileFeatureStore}s
+ * have taken it, so the {@link OsmFile} will be parsed again only if a partition is requested once more.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class OsmFileLoader {
+	/**
+	 * {@link Map} of all {@link OsmFileLoader}s, mapped by their file, its filter, category key and delimiter
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<String, OsmFileLoader> loaders = new HashMap<>();
+	
+	/**
+	 * the {@link OsmFile} to load
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final OsmFile file;
+	/**
+	 * the {@link Tag} key of the category
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final String  categoryKey;
+	/**
+	 * delimiter RegEx to split the {@link Tag} value ({@code null}, if the value shouldn't be split)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final String  delimiter;
+	
+	/**
+	 * {@link Set} of all category values in the {@link OsmFile} ({@code null}, if the file wasn't parsed yet)
+	 *
+	 * @since 0.2.0
+	 */
+	private       SortedSet<String>              categoryValues = null;
+	/**
+	 * the loaded partitions, mapped by their category value
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<String, Map<Long, Entity>> partitions     = new HashMap<>();
+	/**
+	 * the {@link Node}s, which are referenced by {@link Way}s of the loaded partitions
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Long, Node>                nodes          = new HashMap<>();
+	/**
+	 * the {@link Way}s, which are referenced by {@link Relation}s of the loaded partitions
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Long, Way>                 ways           = new HashMap<>();
+	/**
+	 * the number of registered {@link FileFeatureStore}s, which haven't taken their partition yet, mapped by the
+	 * category value
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<String, Integer>           pending        = new HashMap<>();
+	
+	/**
+	 * constructor, with given {@link OsmFile} and category
+	 *
+	 * @param file        the {@link OsmFile} to load
+	 * @param categoryKey the {@link Tag} key of the category
+	 * @param delimiter   delimiter RegEx to split the {@link Tag} value ({@code null}, if the value shouldn't be split)
+	 * @since 0.2.0
+	 */
+	private OsmFileLoader(OsmFile file, String categoryKey, String delimiter) {
+		this.file = file;
+		this.categoryKey = categoryKey;
+		this.delimiter = delimiter;
+	}
+	
+	/**
+	 * gives the shared {@link OsmFileLoader} of an {@link OsmFile} and category
+	 *
+	 * @param file        the {@link OsmFile} to load
+	 * @param categoryKey the {@link Tag} key of the category
+	 * @param delimiter   delimiter RegEx to split the {@link Tag} value ({@code null}, if the value shouldn't be split)
+	 * @return the shared {@link OsmFileLoader}
+	 *
+	 * @since 0.2.0
+	 */
+	public static OsmFileLoader getInstance(OsmFile file, String categoryKey, String delimiter) {
+		String key = file.getDataFile().getAbsolutePath() + "\n" + file.getFilter() + "\n" + categoryKey + "\n" + delimiter;
+		
+		synchronized (OsmFileLoader.loaders) {
+			OsmFileLoader loader = OsmFileLoader.loaders.get(key);
+			
+			if (loader == null) {
+				loader = new OsmFileLoader(file, categoryKey, delimiter);
+				OsmFileLoader.loaders.put(key, loader);
+			}
+			
+			return loader;
+		}
+	}
+	
+	/**
+	 * gives the category values of an {@link Entity}<br>
+	 * These are the whole {@link Tag} value and all parts of it, split by the delimiter.
+	 *
+	 * @param entity the {@link Entity} to get the category values of
+	 * @return the category values (empty, if the {@link Entity} has no category {@link Tag})
+	 *
+	 * @since 0.2.0
+	 */
+	private Set<String> categoryValuesOf(Entity entity) {
+		for (Tag tag : entity.getTags()) {
+			if (!(tag.getKey().equals(this.categoryKey))) {
+				continue;
+			}
+			
+			Set<String> res      = new HashSet<>();
+			String      tagValue = tag.getValue();
+			
+			res.add(tagValue);
+			if (this.delimiter != null) {
+				res.addAll(Arrays.asList(tagValue.split(this.delimiter)));
+			}
+			
+			return res;
+		}
+		
+		return Collections.emptySet();
+	}
+	
+	/**
+	 * checks, if an {@link Entity} has one of the given category values
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @param values the category values to check for
+	 * @return {@code true}, if the {@link Entity} has at least one of the {@code values}
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean matches(Entity entity, Set<String> values) {
+		for (String value : this.categoryValuesOf(entity)) {
+			if (values.contains(value)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * parses the {@link OsmFile} and partitions all {@link Entity}s by their category values<br>
+	 * The category {@link Tag} is already filtered while parsing, so only the selected {@link Entity}s and the
+	 * {@link Node}s referenced by them will be held in memory (see {@link OverpassHandler#getFeatures(OsmFile, Predicate)}).
+	 *
+	 * @param retain the category values to keep the partitions of ({@code null} to keep all)
+	 * @throws IOException if the {@link OsmFile} couldn't read
+	 * @since 0.2.0
+	 */
+	private void load(final Set<String> retain)
+	throws IOException {
+		final SortedSet<String> values = new TreeSet<>();
+		
+		Map<? extends Long, ? extends Entity> entities = OverpassHandler.getFeatures(this.file, new Predicate<Entity>() {
+			@Override
+			public boolean test(Entity entity) {
+				boolean res = false;
+				
+				for (String value : OsmFileLoader.this.categoryValuesOf(entity)) {
+					values.add(value);
+					res |= retain == null || retain.contains(value);
+				}
+				
+				return res;
+			}
+		});
+		
+		log.debug("Partitioned " + this.file.getDataFile() + " by " + this.categoryKey + " into " + values.size() + " category values.");
+		
+		this.categoryValues = values;
+		this.partitions.clear();
+		this.nodes.clear();
+		this.ways.clear();
+		
+		if (retain != null) {
+			for (String value : retain) {
+				this.partitions.put(value, new HashMap<Long, Entity>());
+			}
+		}
+		
+		for (Entity entity : entities.values()) {
+			if (entity instanceof Node) {
+				this.nodes.put(entity.getId(), (Node) entity);
+			} else if (entity instanceof Way) {
+				this.ways.put(entity.getId(), (Way) entity);
+			}
+			
+			for (String value : this.categoryValuesOf(entity)) {
+				if (retain != null && !(retain.contains(value))) {
+					continue;
+				}
+				
+				Map<Long, Entity> partition = this.partitions.get(value);
+				if (partition == null) {
+					partition = new HashMap<>();
+					this.partitions.put(value, partition);
+				}
+				
+				partition.put(OverpassHandler.getKey(entity), entity);
+			}
+		}
+		
+		this.pruneNodes();
+	}
+	
+	/**
+	 * removes all {@link Way}s, which aren't referenced by a {@link Relation} of the loaded partitions, and all
+	 * {@link Node}s, which aren't referenced by a {@link Way} of the loaded partitions or by a kept {@link Way}
+	 *
+	 * @since 0.2.0
+	 */
+	private void pruneNodes() {
+		Set<Long> referenced = new HashSet<>();
+		Set<Long> members    = new HashSet<>();
+		
+		for (Map<Long, Entity> partition : this.partitions.values()) {
+			for (Entity entity : partition.values()) {
+				if (entity instanceof Way) {
+					for (WayNode wayNode : ((Way) entity).getWayNodes()) {
+						referenced.add(wayNode.getNodeId());
+					}
+				} else if (entity instanceof Relation) {
+					for (RelationMember member : ((Relation) entity).getMembers()) {
+						if (member.getMemberType() == EntityType.Way) {
+							members.add(member.getMemberId());
+						}
+					}
+				}
+			}
+		}
+		
+		this.ways.keySet().retainAll(members);
+		for (Way way : this.ways.values()) {
+			for (WayNode wayNode : way.getWayNodes()) {
+				referenced.add(wayNode.getNodeId());
+			}
+		}
+		
+		this.nodes.keySet().retainAll(referenced);
+	}
+	
+	/**
+	 * adds all known {@link Node}s of a {@link Way} to a {@link Map}
+	 *
+	 * @param way the {@link Way}
+	 * @param res the {@link Map} to add the {@link Node}s to
+	 * @since 0.2.0
+	 */
+	private void addNodes(Way way, Map<Long, Entity> res) {
+		for (WayNode wayNode : way.getWayNodes()) {
+			Node node = this.nodes.get(wayNode.getNodeId());
+			
+			if (node != null && !(res.containsKey(OverpassHandler.getKey(node)))) {
+				res.put(OverpassHandler.getKey(node), node);
+			}
+		}
+	}
+	
+	/**
+	 * gives all category values of the {@link OsmFile} (sorted)<br>
+	 * If the {@link OsmFile} wasn't parsed yet, it will be parsed and all partitions will be kept until
+	 * {@link #retainRegistered()} is called.
+	 *
+	 * @return the category values
+	 *
+	 * @throws IOException if the {@link OsmFile} couldn't read
+	 * @since 0.2.0
+	 */
+	public synchronized List<String> getCategoryValues()
+	throws IOException {
+		if (this.categoryValues == null) {
+			this.load(null);
+		}
+		
+		return new ArrayList<>(this.categoryValues);
+	}
+	
+	/**
+	 * registers a {@link FileFeatureStore}, which will take the partitions of the given category values later
+	 *
+	 * @param values the category values of the {@link FileFeatureStore}
+	 * @since 0.2.0
+	 */
+	public synchronized void register(Set<String> values) {
+		for (String value : values) {
+			Integer count = this.pending.get(value);
+			this.pending.put(value, count == null ? 1 : count + 1);
+		}
+	}
+	
+	/**
+	 * unregisters a {@link FileFeatureStore}, which won't take the partitions of the given category values anymore<br>
+	 * Call it, if the {@link FileFeatureStore} got its features elsewhere (e.g. from a {@link FeatureSnapshot}), so the
+	 * partitions aren't held for it.
+	 *
+	 * @param values the category values of the {@link FileFeatureStore}
+	 * @since 0.2.0
+	 */
+	public synchronized void unregister(Set<String> values) {
+		for (String value : values) {
+			Integer count = this.pending.get(value);
+			
+			if (count == null || count <= 1) {
+				this.pending.remove(value);
+				this.partitions.remove(value);
+			} else {
+				this.pending.put(value, count - 1);
+			}
+		}
+		
+		this.pruneNodes();
+	}
+	
+	/**
+	 * removes all loaded partitions, so the {@link OsmFile} will be parsed again on the next
+	 * {@link #take(Set)}<br>
+	 * Call it after the {@link OsmFile} was modified.
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized void invalidate() {
+		this.categoryValues = null;
+		this.partitions.clear();
+		this.nodes.clear();
+		this.ways.clear();
+	}
+	
+	/**
+	 * removes all loaded partitions, which no registered {@link FileFeatureStore} will take
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized void retainRegistered() {
+		this.partitions.keySet().retainAll(this.pending.keySet());
+		this.pruneNodes();
+	}
+	
+	/**
+	 * takes the {@link Entity}s of the given category values, including all {@link Node}s and member {@link Way}s
+	 * referenced by them<br>
+	 * If a partition isn't loaded (anymore), the {@link OsmFile} will be parsed again.
+	 *
+	 * @param values the category values to take the {@link Entity}s of
+	 * @return the {@link Entity}s, mapped by their keys (see {@link OverpassHandler#getKey(Entity)})
+	 *
+	 * @throws IOException if the {@link OsmFile} couldn't read
+	 * @since 0.2.0
+	 */
+	public synchronized Map<Long, Entity> take(Set<String> values)
+	throws IOException {
+		if (!(this.partitions.keySet().containsAll(values))) {
+			Set<String> retain = new HashSet<>(values);
+			retain.addAll(this.pending.keySet());
+			
+			this.load(retain);
+		}
+		
+		Map<Long, Entity> res = new HashMap<>();
+		
+		for (String value : values) {
+			for (Entity entity : this.partitions.get(value).values()) {
+				if (entity instanceof Way) {
+					this.addNodes((Way) entity, res);
+				} else if (entity instanceof Relation) {
+					for (RelationMember member : ((Relation) entity).getMembers()) {
+						Way way = member.getMemberType() == EntityType.Way ? this.ways.get(member.getMemberId()) : null;
+						
+						if (way != null) {
+							if (!(res.containsKey(OverpassHandler.getKey(way)))) {
+								res.put(OverpassHandler.getKey(way), way);
+							}
+							this.addNodes(way, res);
+						}
+					}
+				}
+			}
+		}
+		
+		for (String value : values) {
+			res.putAll(this.partitions.get(value));
+			
+			Integer count = this.pending.get(value);
+			if (count == null || count <= 1) {
+				this.pending.remove(value);
+				this.partitions.remove(value);
+			} else {
+				this.pending.put(value, count - 1);
+			}
+		}
+		
+		this.pruneNodes();
+		
+		return res;
+	}
+}
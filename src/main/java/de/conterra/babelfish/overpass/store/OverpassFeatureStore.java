@@ -2,8 +2,12 @@ package de.conterra.babelfish.overpass.store;
 
 import com.vividsolutions.jts.geom.Geometry;
 import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.overpass.io.WhereClauseTranslator;
+import de.conterra.babelfish.overpass.io.WhereClauseTranslator.Condition;
+import de.conterra.babelfish.overpass.jfr.CoverageCheckEvent;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.Envelope;
 import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Polygon;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -12,9 +16,13 @@ import org.geotools.geometry.iso.coordinate.EnvelopeImpl;
 import org.geotools.geometry.jts.JTS;
 import org.joda.time.DateTime;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 
 import java.io.IOException;
-import java.util.Set;
+import java.util.*;
 
 /**
  * defines a {@link FeatureStore}, which uses an Overpass API as source
@@ -27,13 +35,51 @@ import java.util.Set;
 @Slf4j
 public class OverpassFeatureStore<G extends GeometryObject>
 		extends FeatureStore<G> {
+	/**
+	 * the maximum number of {@link OverpassFeatureStore}s of pushed down where clauses, which are kept per store
+	 *
+	 * @since 0.2.0
+	 */
+	public static final int MAX_FILTERED_STORES = 32;
+	
 	/**
 	 * the Overpass API script to use for requests on the server
 	 *
 	 * @since 0.2.0
 	 */
 	@Getter
-	private final String script;
+	private final String                               script;
+	/**
+	 * the meta filter as Overpass QL conditions ({@code null}, if the store uses a custom script)
+	 *
+	 * @since 0.2.0
+	 */
+	private final String                               conditions;
+	/**
+	 * the parsed conditions of the meta filter, which the features must match (see {@link #isFeature(Entity)})
+	 *
+	 * @since 0.2.0
+	 */
+	private final List<Condition>                      metaConditions;
+	/**
+	 * the {@link OverpassFeatureStore}s of pushed down where clauses, mapped by their {@link Tag} filters (in the order
+	 * of their last access)
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<String, OverpassFeatureStore<G>> filteredStores = new LinkedHashMap<String, OverpassFeatureStore<G>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, OverpassFeatureStore<G>> eldest) {
+			if (this.size() <= OverpassFeatureStore.MAX_FILTERED_STORES) {
+				return false;
+			}
+			
+			eldest.getValue().close();
+			return true;
+		}
+	};
 	
 	/**
 	 * constructor, with Overpass API script
@@ -43,9 +89,23 @@ public class OverpassFeatureStore<G extends GeometryObject>
 	 * @since 0.2.0
 	 */
 	public OverpassFeatureStore(Class<G> type, String script) {
+		this(type, script, Collections.<Condition>emptyList());
+	}
+	
+	/**
+	 * private constructor, with Overpass API script and the parsed conditions of a meta filter
+	 *
+	 * @param type           the {@link GeometryObject} type
+	 * @param script         the Overpass API script to use for requests
+	 * @param metaConditions the parsed conditions of the meta filter, which the features must match
+	 * @since 0.2.0
+	 */
+	private OverpassFeatureStore(Class<G> type, String script, List<Condition> metaConditions) {
 		super(type);
 		
 		this.script = script;
+		this.conditions = null;
+		this.metaConditions = metaConditions;
 	}
 	
 	/**
@@ -58,32 +118,146 @@ public class OverpassFeatureStore<G extends GeometryObject>
 	public OverpassFeatureStore(Class<G> type, Set<? extends String> metaFilter) {
 		super(type);
 		
-		String script = StringUtils.EMPTY;
+		String          conditions     = StringUtils.EMPTY;
+		List<Condition> metaConditions = new ArrayList<>();
+		for (String metaCondition : metaFilter) {
+			conditions += "[" + metaCondition + "]";
+			
+			Condition condition = Condition.fromFilter(metaCondition);
+			if (condition != null) {
+				metaConditions.add(condition);
+			} else {
+				log.debug("The meta condition " + metaCondition + " can't be checked locally and is left to the Overpass API.");
+			}
+		}
 		
+		this.conditions = conditions;
+		this.metaConditions = metaConditions;
+		this.script = this.createScript(Collections.singletonList(StringUtils.EMPTY));
+	}
+	
+	/**
+	 * creates the Overpass API script of the meta filter, extended by alternative {@link Tag} filters
+	 *
+	 * @param filters the alternative {@link Tag} filters as Overpass QL conditions
+	 * @return the created script
+	 *
+	 * @since 0.2.0
+	 */
+	private String createScript(List<String> filters) {
+		String element;
 		switch (this.getEntityType()) {
 			case Way:
-				script += "way";
+				element = "way";
 				break;
 			case Relation:
-				script += "rel";
+				element = "rel";
 				break;
 			default:
-				script += "node";
+				element = "node";
 		}
 		
-		for (String metaCondition : metaFilter) {
-			script += "[" + metaCondition + "]";
+		boolean polygons = Polygon.class.isAssignableFrom(this.getGeometryType());
+		String  bbox     = "(" + OverpassHandler.BBOX_PLACEHOLDER + ");";
+		String  script   = StringUtils.EMPTY;
+		
+		for (String filter : filters) {
+			script += element + this.conditions + filter + bbox;
+			if (polygons) {
+				script += "rel[" + MultipolygonAssembler.TYPE_KEY + "~\"^(" + StringUtils.join(MultipolygonAssembler.AREA_TYPES, "|") + ")$\"]" + this.conditions + filter + bbox;
+			}
 		}
 		
-		script += "(" + OverpassHandler.BBOX_PLACEHOLDER + ");";
+		if (polygons || filters.size() > 1) {
+			script = "(" + script + ");";
+		}
 		script += "(._;>>;);out meta;";
 		
-		this.script = script;
+		return script;
+	}
+	
+	/**
+	 * gives the {@link FeatureStore}, which answers a where clause with the fewest downloaded features<br>
+	 * If the where clause could be translated to {@link Tag} filters (see {@link WhereClauseTranslator}), they are
+	 * appended to the meta filter and the features are requested and cached by a separate {@link OverpassFeatureStore}
+	 * per filter. The returned features could still contain features, which don't match the where clause.
+	 *
+	 * @param whereClause the where clause
+	 * @return the {@link OverpassFeatureStore} of the translated {@link Tag} filters or this store, if the where clause
+	 * couldn't be translated or this store uses a custom script
+	 *
+	 * @since 0.2.0
+	 */
+	public FeatureStore<G> getFilteredStore(String whereClause) {
+		if (this.conditions == null) {
+			return this;
+		}
+		
+		List<String> filters = WhereClauseTranslator.translate(whereClause);
+		if (filters == null) {
+			return this;
+		}
+		
+		String key = StringUtils.join(filters, "\n");
+		synchronized (this.filteredStores) {
+			OverpassFeatureStore<G> store = this.filteredStores.get(key);
+			
+			if (store == null) {
+				store = new OverpassFeatureStore<>(this.getGeometryType(), this.createScript(filters), this.metaConditions);
+				store.setLayerId(this.getLayerId());
+				this.filteredStores.put(key, store);
+				
+				log.debug("Pushed the where clause " + whereClause + " down to the script " + store.getScript());
+			}
+			
+			return store;
+		}
+	}
+	
+	/**
+	 * checks, if an {@link Entity} should be converted to a feature of this store<br>
+	 * The Overpass API delivers the referenced {@link Entity}s with the selected ones, e.g. the member {@link Way}s of
+	 * area {@link Relation}s. So the {@link Tag}s are checked against the meta filter again.
+	 *
+	 * @param entity the {@link Entity} to check
+	 * @return {@code true}, if the {@link Entity} has the type of this store or is an area {@link Relation} of a
+	 * {@link Polygon} store and matches all supported conditions of the meta filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Override
+	protected boolean isFeature(Entity entity) {
+		if (!(super.isFeature(entity))) {
+			return false;
+		}
+		
+		for (Condition condition : this.metaConditions) {
+			if (!(condition.matches(entity))) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		
+		synchronized (this.filteredStores) {
+			for (OverpassFeatureStore<G> store : this.filteredStores.values()) {
+				store.close();
+			}
+			this.filteredStores.clear();
+		}
 	}
 	
 	@Override
 	protected void request(GeometryObject spatialFilter)
 	throws IOException {
+		CoverageCheckEvent coverageEvent = new CoverageCheckEvent();
+		coverageEvent.begin();
+		
 		Geometry strippedGeometry = spatialFilter.toGeometry();
 		
 		org.opengis.geometry.Envelope jtsEnvelope = spatialFilter.getEnvelope();
@@ -94,8 +268,12 @@ public class OverpassFeatureStore<G extends GeometryObject>
 			requestedEnvelope = new Envelope(jtsEnvelope);
 		}
 		
+		int storedEnvelopes = 0;
 		for (Envelope storedEnvelope : this.envelopes.keySet()) {
+			storedEnvelopes++;
+			
 			if (requestedEnvelope.isIn(storedEnvelope)) {
+				this.commitCoverageEvent(coverageEvent, requestedEnvelope, storedEnvelopes, 0);
 				return;
 			}
 			
@@ -103,10 +281,12 @@ public class OverpassFeatureStore<G extends GeometryObject>
 		}
 		
 		if (strippedGeometry.isEmpty()) {
+			this.commitCoverageEvent(coverageEvent, requestedEnvelope, storedEnvelopes, 0);
 			return;
 		}
 		
 		int numGeometries = strippedGeometry.getNumGeometries();
+		this.commitCoverageEvent(coverageEvent, requestedEnvelope, storedEnvelopes, numGeometries);
 		
 		log.debug("The requested but not stored area consists of " + numGeometries + " separate geometries.");
 		
@@ -132,14 +312,33 @@ public class OverpassFeatureStore<G extends GeometryObject>
 			
 			Envelope strippedEnvelope = new Envelope(new EnvelopeImpl(strippedLowerCorner, strippedUpperCorner));
 			
-			@SuppressWarnings("unchecked")
-			Class<G> geometryType = (Class<G>) OverpassHandler.geometryClassFromEntity(this.getEntityType());
-			
-			this.features.putAll(FeatureConverter.convert(geometryType, OverpassHandler.getFeatures(this.getScript(), strippedEnvelope)));
+			this.putFeatures(this.convert(OverpassHandler.getFeatures(this.getScript(), strippedEnvelope, this.getEntityType())));
 			
 			this.envelopes.put(strippedEnvelope, (new DateTime()).plus(FeatureStore.EXPIRE_DELAY));
 		} catch (IllegalArgumentException e) {
 			log.error("An error occurred while requesting the features!", e);
 		}
 	}
+	
+	/**
+	 * commits a {@link CoverageCheckEvent}, if it is enabled
+	 *
+	 * @param event           the {@link CoverageCheckEvent} to commit
+	 * @param envelope        the requested {@link Envelope}
+	 * @param storedEnvelopes the number of checked stored {@link Envelope}s
+	 * @param missingAreas    the number of separate areas, which must be requested
+	 * @since 0.2.0
+	 */
+	private void commitCoverageEvent(CoverageCheckEvent event, Envelope envelope, int storedEnvelopes, int missingAreas) {
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.setLayerId(this.getLayerId());
+			event.setBbox(envelope.getEnvelope());
+			event.setStoredEnvelopes(storedEnvelopes);
+			event.setMissingAreas(missingAreas);
+			event.setCovered(missingAreas == 0);
+			event.commit();
+		}
+	}
 }
@@ -0,0 +1,202 @@
+package de.conterra.babelfish.overpass.store;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFilter;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.feature.GeometryFeatureObject;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import de.conterra.babelfish.util.GeoUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.geotools.geometry.GeneralDirectPosition;
+import org.geotools.referencing.CRS;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * defines a spatial filter, which is prepared once per query<br>
+ * The geometry of the filter is transformed to the {@link OverpassHandler#OSM_CRS} and prepared by the
+ * {@link PreparedGeometryFactory}, so its segments are indexed once instead of on every comparison.
+ * {@link CompactFeature}s are checked by their bounding boxes first. If the filter is a rectangle, which contains the
+ * bounding box, they match immediately. Otherwise the prepared predicate is applied to a JTS {@link Geometry} of
+ * their coordinates (see {@link CompactGeometry#toGeometry(GeometryFactory)}), so no {@link GeometryObject} is
+ * created. All other {@link Feature}s, or all {@link Feature}s, if the filter couldn't be prepared, are checked by
+ * {@link GeometryObject#overlaps(GeometryObject)}.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class PreparedSpatialFilter {
+	/**
+	 * the {@link GeometryFactory} of the {@link Geometry}s of {@link CompactFeature}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final GeometryFactory FACTORY = new GeometryFactory();
+	
+	/**
+	 * the original spatial filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final GeometryObject   spatialFilter;
+	/**
+	 * the bounding box of the filter in the {@link OverpassHandler#OSM_CRS} (see
+	 * {@link FeatureStore#getBounds(GeometryObject)}, {@code null}, if unknown)
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final double[]         bounds;
+	/**
+	 * the prepared geometry of the filter ({@code null}, if it couldn't be prepared)
+	 *
+	 * @since 0.2.0
+	 */
+	private final PreparedGeometry prepared;
+	/**
+	 * {@code true}, if the filter is a rectangle
+	 *
+	 * @since 0.2.0
+	 */
+	private final boolean          rectangle;
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param spatialFilter the spatial filter to prepare
+	 * @since 0.2.0
+	 */
+	public PreparedSpatialFilter(GeometryObject spatialFilter) {
+		this.spatialFilter = spatialFilter;
+		
+		Geometry geometry;
+		try {
+			geometry = PreparedSpatialFilter.transform(spatialFilter);
+		} catch (TransformException | RuntimeException e) {
+			log.debug("Couldn't prepare the spatial filter. Check all features by their geometry objects.", e);
+			geometry = null;
+		}
+		
+		if (geometry == null || geometry.isEmpty()) {
+			this.bounds = FeatureStore.getBounds(spatialFilter);
+			this.prepared = null;
+			this.rectangle = false;
+		} else {
+			com.vividsolutions.jts.geom.Envelope envelope = geometry.getEnvelopeInternal();
+			
+			this.bounds = new double[] {envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY()};
+			this.prepared = PreparedGeometryFactory.prepare(geometry);
+			this.rectangle = geometry.isRectangle();
+		}
+	}
+	
+	/**
+	 * transforms the geometry of a spatial filter to the {@link OverpassHandler#OSM_CRS}
+	 *
+	 * @param spatialFilter the spatial filter
+	 * @return the transformed geometry
+	 *
+	 * @throws TransformException if a coordinate couldn't be transformed
+	 * @since 0.2.0
+	 */
+	private static Geometry transform(GeometryObject spatialFilter)
+	throws TransformException {
+		Geometry                        geometry = spatialFilter.toGeometry();
+		final CoordinateReferenceSystem crs      = spatialFilter.getCoordinateReferenceSystem();
+		
+		if (geometry == null || crs == null || CRS.equalsIgnoreMetadata(crs, OverpassHandler.OSM_CRS)) {
+			return geometry;
+		}
+		
+		geometry = (Geometry) geometry.clone();
+		try {
+			geometry.apply(new CoordinateSequenceFilter() {
+				@Override
+				public void filter(CoordinateSequence seq, int i) {
+					GeneralDirectPosition position = new GeneralDirectPosition(crs);
+					position.setOrdinate(0, seq.getOrdinate(i, CoordinateSequence.X));
+					position.setOrdinate(1, seq.getOrdinate(i, CoordinateSequence.Y));
+					
+					try {
+						DirectPosition transformed = GeoUtils.transform(position, OverpassHandler.OSM_CRS);
+						seq.setOrdinate(i, CoordinateSequence.X, transformed.getOrdinate(0));
+						seq.setOrdinate(i, CoordinateSequence.Y, transformed.getOrdinate(1));
+					} catch (TransformException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				
+				@Override
+				public boolean isDone() {
+					return false;
+				}
+				
+				@Override
+				public boolean isGeometryChanged() {
+					return true;
+				}
+			});
+		} catch (IllegalStateException e) {
+			if (e.getCause() instanceof TransformException) {
+				throw (TransformException) e.getCause();
+			}
+			
+			throw e;
+		}
+		
+		return geometry;
+	}
+	
+	/**
+	 * checks, if the bounding box of a {@link Feature} could intersect the filter
+	 *
+	 * @param feature the {@link Feature} to check
+	 * @return {@code false}, if the {@link Feature} is a {@link CompactFeature} outside of the bounding box of the
+	 * filter
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean intersects(Feature<?> feature) {
+		return this.bounds == null || !(feature instanceof CompactFeature) || ((CompactFeature<?>) feature).getGeometry().intersects(this.bounds[0], this.bounds[1], this.bounds[2], this.bounds[3]);
+	}
+	
+	/**
+	 * checks, if a {@link Feature} overlaps the filter
+	 *
+	 * @param feature the {@link Feature} to check
+	 * @return {@code true}, if the {@link Feature} overlaps the filter
+	 *
+	 * @since 0.2.0
+	 */
+	public boolean overlaps(Feature<? extends GeometryFeatureObject<?>> feature) {
+		if (!(this.intersects(feature))) {
+			return false;
+		}
+		
+		if (this.prepared != null && feature instanceof CompactFeature) {
+			CompactGeometry<?> geometry = ((CompactFeature<?>) feature).getGeometry();
+			
+			if (this.rectangle && this.bounds[0] <= geometry.getMinLat() && this.bounds[1] <= geometry.getMinLon() && this.bounds[2] >= geometry.getMaxLat() && this.bounds[3] >= geometry.getMaxLon()) {
+				return true;
+			}
+			
+			try {
+				return this.prepared.intersects(geometry.toGeometry(PreparedSpatialFilter.FACTORY));
+			} catch (IllegalArgumentException e) {
+				log.debug("Couldn't create the geometry of a feature. Check it by its geometry object.", e);
+			}
+		}
+		
+		return feature.getFeature().getGeometry().overlaps(this.spatialFilter);
+	}
+}
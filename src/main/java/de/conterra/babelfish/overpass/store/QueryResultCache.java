@@ -0,0 +1,154 @@
+package de.conterra.babelfish.overpass.store;
+
+import com.vividsolutions.jts.geom.Geometry;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.GeometryObject;
+import lombok.extern.slf4j.Slf4j;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * defines a cache of the identifiers of the matching {@link Feature}s of queries<br>
+ * The results are keyed by the version of the {@link FeatureStore} (see {@link FeatureStore#getVersion()}), the
+ * normalized spatial filter and the where clause. Because every modification of a {@link FeatureStore} gives it a new
+ * version, outdated results are never returned again and are removed as least recently used, as soon as the cached
+ * identifiers exceed {@link #MAX_MEMORY}.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+@Slf4j
+public class QueryResultCache {
+	/**
+	 * the maximum memory of all cached identifiers (in bytes)
+	 *
+	 * @since 0.2.0
+	 */
+	public static final  long                MAX_MEMORY = 16L * 1024 * 1024;
+	/**
+	 * the estimated memory of a cached result without its identifiers (in bytes)
+	 *
+	 * @since 0.2.0
+	 */
+	private static final long                OVERHEAD   = 96;
+	/**
+	 * the cached identifiers by their keys (in access order)
+	 *
+	 * @since 0.2.0
+	 */
+	private static final Map<String, long[]> results    = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * the estimated memory of all cached results (in bytes)
+	 *
+	 * @since 0.2.0
+	 */
+	private static       long                memory     = 0;
+	
+	/**
+	 * private standard constructor, to prevent initialization
+	 *
+	 * @since 0.2.0
+	 */
+	private QueryResultCache() {
+	}
+	
+	/**
+	 * creates the key of a query
+	 *
+	 * @param store         the {@link FeatureStore}, which answers the query
+	 * @param version       the version of {@code store}, which was read before the query was executed
+	 * @param spatialFilter the spatial filter ({@code null}, if there is none)
+	 * @param whereClause   the where clause ({@code null}, if there is none)
+	 * @return the key or {@code null}, if the spatial filter couldn't be normalized
+	 *
+	 * @since 0.2.0
+	 */
+	public static String createKey(FeatureStore<?> store, long version, GeometryObject spatialFilter, String whereClause) {
+		StringBuilder res = new StringBuilder();
+		res.append(version).append('|').append(store.getGeometryType().getSimpleName()).append('|');
+		
+		if (spatialFilter != null) {
+			try {
+				Geometry geometry = (Geometry) spatialFilter.toGeometry().clone();
+				geometry.normalize();
+				
+				CoordinateReferenceSystem crs = spatialFilter.getCoordinateReferenceSystem();
+				res.append(crs == null ? "" : crs.getName().getCode()).append('|').append(geometry.toText());
+			} catch (RuntimeException e) {
+				log.debug("Couldn't normalize the spatial filter. The query result won't be cached.", e);
+				return null;
+			}
+		}
+		
+		return res.append('|').append(whereClause == null ? "" : whereClause.trim()).toString();
+	}
+	
+	/**
+	 * estimates the memory of a cached result
+	 *
+	 * @param key the key
+	 * @param ids the identifiers
+	 * @return the estimated memory (in bytes)
+	 *
+	 * @since 0.2.0
+	 */
+	private static long getMemory(String key, long[] ids) {
+		return QueryResultCache.OVERHEAD + key.length() * 2L + ids.length * 8L;
+	}
+	
+	/**
+	 * gives the cached identifiers of a query
+	 *
+	 * @param key the key of the query (see {@link #createKey(FeatureStore, long, GeometryObject, String)})
+	 * @return the sorted identifiers of the matching {@link Feature}s or {@code null}, if the result isn't cached
+	 *
+	 * @since 0.2.0
+	 */
+	public static synchronized long[] get(String key) {
+		return key == null ? null : QueryResultCache.results.get(key);
+	}
+	
+	/**
+	 * caches the identifiers of the matching {@link Feature}s of a query<br>
+	 * The least recently used results are removed, if the cache exceeds {@link #MAX_MEMORY}.
+	 *
+	 * @param key the key of the query (see {@link #createKey(FeatureStore, long, GeometryObject, String)})
+	 * @param ids the sorted identifiers of the matching {@link Feature}s (mustn't be modified afterwards)
+	 * @since 0.2.0
+	 */
+	public static synchronized void put(String key, long[] ids) {
+		long size = QueryResultCache.getMemory(key, ids);
+		
+		if (size > QueryResultCache.MAX_MEMORY) {
+			return;
+		}
+		
+		long[] previous = QueryResultCache.results.put(key, ids);
+		if (previous != null) {
+			QueryResultCache.memory -= QueryResultCache.getMemory(key, previous);
+		}
+		QueryResultCache.memory += size;
+		
+		Iterator<Map.Entry<String, long[]>> iterator = QueryResultCache.results.entrySet().iterator();
+		while (QueryResultCache.memory > QueryResultCache.MAX_MEMORY && iterator.hasNext()) {
+			Map.Entry<String, long[]> eldest = iterator.next();
+			
+			QueryResultCache.memory -= QueryResultCache.getMemory(eldest.getKey(), eldest.getValue());
+			iterator.remove();
+		}
+	}
+	
+	/**
+	 * removes all cached results
+	 *
+	 * @since 0.2.0
+	 */
+	public static synchronized void clear() {
+		QueryResultCache.results.clear();
+		QueryResultCache.memory = 0;
+	}
+}
@@ -0,0 +1,432 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.io.WhereClauseTranslator;
+import de.conterra.babelfish.overpass.io.WhereClauseTranslator.Condition;
+import de.conterra.babelfish.overpass.plugin.OverpassField;
+import de.conterra.babelfish.plugin.v10_02.feature.Feature;
+import lombok.Getter;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * defines an inverted index of the {@link Tag}s of the {@link Feature}s of a {@link FeatureStore}<br>
+ * Every indexed {@link Feature} gets a dense ordinal and every {@link Tag} (as pair of the key and value codes of the
+ * {@link AttributeDictionary}) a {@link CompressedBitmap} of the ordinals of all {@link Feature}s, which have it. So
+ * equality and {@code IN} predicates of a where clause are answered by uniting and intersecting bitmaps. The selected
+ * {@link Feature}s are a superset of the matching ones, so the where clause must still be applied to them.
+ * {@link Feature}s without {@link EncodedAttributes} are always selected. All methods are synchronized.
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class TagIndex {
+	/**
+	 * the initial capacity of the ordinal arrays
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/**
+	 * the {@link AttributeDictionary} of the indexed {@link Feature}s
+	 *
+	 * @since 0.2.0
+	 */
+	@Getter
+	private final AttributeDictionary         dictionary;
+	/**
+	 * the ordinals of all indexed {@link Feature}s by their identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Long, Integer>          ordinals  = new HashMap<>();
+	/**
+	 * the {@link CompressedBitmap}s of all {@link Tag}s (see {@link #toPostingKey(int, int)})
+	 *
+	 * @since 0.2.0
+	 */
+	private final Map<Long, CompressedBitmap> postings  = new HashMap<>();
+	/**
+	 * the ordinals of all {@link Feature}s, which {@link Tag}s couldn't be indexed
+	 *
+	 * @since 0.2.0
+	 */
+	private       CompressedBitmap            unindexed = new CompressedBitmap();
+	/**
+	 * the identifiers of all indexed {@link Feature}s by their ordinals
+	 *
+	 * @since 0.2.0
+	 */
+	private       long[]                      ids       = new long[TagIndex.INITIAL_CAPACITY];
+	/**
+	 * the {@link Tag} codes of all indexed {@link Feature}s by their ordinals ({@code null}, if they couldn't be
+	 * indexed)
+	 *
+	 * @since 0.2.0
+	 */
+	private       int[][]                     tags      = new int[TagIndex.INITIAL_CAPACITY][];
+	/**
+	 * the number of assigned ordinals
+	 *
+	 * @since 0.2.0
+	 */
+	private       int                         count     = 0;
+	/**
+	 * the ordinals of removed {@link Feature}s, which could be assigned again
+	 *
+	 * @since 0.2.0
+	 */
+	private final Deque<Integer>              released  = new ArrayDeque<>();
+	
+	/**
+	 * standard constructor
+	 *
+	 * @param dictionary the {@link AttributeDictionary} of the indexed {@link Feature}s
+	 * @since 0.2.0
+	 */
+	public TagIndex(AttributeDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+	
+	/**
+	 * combines a key and a value code to the key of a {@link CompressedBitmap}
+	 *
+	 * @param key   the key code
+	 * @param value the value code
+	 * @return the combined key
+	 *
+	 * @since 0.2.0
+	 */
+	private static long toPostingKey(int key, int value) {
+		return ((long) key << 32) | (value & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * gives the {@link Tag} codes of a {@link Feature}
+	 *
+	 * @param feature the {@link Feature}
+	 * @return the key and value codes or {@code null}, if the {@link Tag}s aren't stored as {@link EncodedAttributes}
+	 *
+	 * @since 0.2.0
+	 */
+	private static int[] getTagCodes(Feature<?> feature) {
+		if (feature instanceof CompactFeature) {
+			Map<?, ?> attributes = ((CompactFeature<?>) feature).getAttributes();
+			
+			if (attributes instanceof EncodedAttributes) {
+				return ((EncodedAttributes) attributes).getTagCodes();
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * adds {@link Feature}s to the index or updates them, if they were already indexed
+	 *
+	 * @param features the {@link Feature}s by their identifiers
+	 * @since 0.2.0
+	 */
+	public synchronized void addAll(Map<? extends Long, ? extends Feature<?>> features) {
+		for (Map.Entry<? extends Long, ? extends Feature<?>> entry : features.entrySet()) {
+			long    id      = entry.getKey();
+			Integer ordinal = this.ordinals.get(id);
+			
+			if (ordinal == null) {
+				if (this.released.isEmpty()) {
+					ordinal = this.count++;
+					
+					if (ordinal == this.ids.length) {
+						this.ids = Arrays.copyOf(this.ids, ordinal * 2);
+						this.tags = Arrays.copyOf(this.tags, ordinal * 2);
+					}
+				} else {
+					ordinal = this.released.pop();
+				}
+				
+				this.ids[ordinal] = id;
+				this.ordinals.put(id, ordinal);
+			} else {
+				this.unlink(ordinal);
+			}
+			
+			int[] codes = TagIndex.getTagCodes(entry.getValue());
+			this.tags[ordinal] = codes;
+			
+			if (codes == null) {
+				this.unindexed.add(ordinal);
+				continue;
+			}
+			
+			for (int i = 0; i < codes.length; i += 2) {
+				if (codes[i + 1] < 0) {
+					continue;
+				}
+				
+				long             key     = TagIndex.toPostingKey(codes[i], codes[i + 1]);
+				CompressedBitmap posting = this.postings.get(key);
+				if (posting == null) {
+					posting = new CompressedBitmap();
+					this.postings.put(key, posting);
+				}
+				
+				posting.add(ordinal);
+			}
+		}
+	}
+	
+	/**
+	 * removes {@link Feature}s from the index<br>
+	 * Their ordinals are removed from all {@link CompressedBitmap}s and assigned to the next added {@link Feature}s.
+	 *
+	 * @param ids the identifiers of the {@link Feature}s to remove
+	 * @since 0.2.0
+	 */
+	public synchronized void removeAll(Collection<? extends Long> ids) {
+		for (long id : ids) {
+			Integer ordinal = this.ordinals.remove(id);
+			
+			if (ordinal == null) {
+				continue;
+			}
+			
+			this.unlink(ordinal);
+			this.tags[ordinal] = null;
+			this.released.push(ordinal);
+		}
+	}
+	
+	/**
+	 * removes an ordinal from all {@link CompressedBitmap}s
+	 *
+	 * @param ordinal the ordinal to remove
+	 * @since 0.2.0
+	 */
+	private void unlink(int ordinal) {
+		int[] codes = this.tags[ordinal];
+		
+		if (codes == null) {
+			this.unindexed.remove(ordinal);
+			return;
+		}
+		
+		for (int i = 0; i < codes.length; i += 2) {
+			if (codes[i + 1] < 0) {
+				continue;
+			}
+			
+			long             key     = TagIndex.toPostingKey(codes[i], codes[i + 1]);
+			CompressedBitmap posting = this.postings.get(key);
+			if (posting != null && posting.remove(ordinal) && posting.isEmpty()) {
+				this.postings.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * removes all {@link Feature}s from the index
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized void clear() {
+		this.ordinals.clear();
+		this.postings.clear();
+		this.unindexed = new CompressedBitmap();
+		this.ids = new long[TagIndex.INITIAL_CAPACITY];
+		this.tags = new int[TagIndex.INITIAL_CAPACITY][];
+		this.count = 0;
+		this.released.clear();
+	}
+	
+	/**
+	 * writes the ordinals and all {@link CompressedBitmap}s of the index
+	 *
+	 * @param output the {@link DataOutput} to write to
+	 * @throws IOException if the index couldn't be written
+	 * @see #read(DataInput, AttributeDictionary, Map, int[], int[])
+	 * @since 0.2.0
+	 */
+	synchronized void write(DataOutput output)
+	throws IOException {
+		output.writeInt(this.count);
+		for (int i = 0; i < this.count; i++) {
+			output.writeLong(this.ids[i]);
+		}
+		
+		output.writeInt(this.released.size());
+		for (int ordinal : this.released) {
+			output.writeInt(ordinal);
+		}
+		
+		this.unindexed.write(output);
+		
+		output.writeInt(this.postings.size());
+		for (Map.Entry<Long, CompressedBitmap> entry : this.postings.entrySet()) {
+			long key = entry.getKey();
+			
+			output.writeInt((int) (key >>> 32));
+			output.writeInt((int) key);
+			entry.getValue().write(output);
+		}
+	}
+	
+	/**
+	 * reads an index, which was written by {@link #write(DataOutput)}<br>
+	 * The {@link CompressedBitmap}s are taken as they were written, so the {@link Tag}s of the {@link Feature}s aren't
+	 * indexed again. The codes are translated to the codes of {@code dictionary} by the given maps.
+	 *
+	 * @param input      the {@link DataInput} to read from
+	 * @param dictionary the {@link AttributeDictionary} of the indexed {@link Feature}s
+	 * @param features   the indexed {@link Feature}s by their identifiers
+	 * @param keyMap     the codes in {@code dictionary} of the written key codes
+	 * @param valueMap   the codes in {@code dictionary} of the written value codes
+	 * @return the read index
+	 *
+	 * @throws IOException if the index couldn't be read
+	 * @since 0.2.0
+	 */
+	static TagIndex read(DataInput input, AttributeDictionary dictionary, Map<? extends Long, ? extends Feature<?>> features, int[] keyMap, int[] valueMap)
+	throws IOException {
+		TagIndex res   = new TagIndex(dictionary);
+		int      count = input.readInt();
+		
+		res.count = count;
+		res.ids = new long[Math.max(count, TagIndex.INITIAL_CAPACITY)];
+		res.tags = new int[res.ids.length][];
+		for (int i = 0; i < count; i++) {
+			res.ids[i] = input.readLong();
+		}
+		
+		int          releasedCount = input.readInt();
+		Set<Integer> released      = new HashSet<>();
+		for (int i = 0; i < releasedCount; i++) {
+			int ordinal = input.readInt();
+			
+			res.released.addLast(ordinal);
+			released.add(ordinal);
+		}
+		
+		for (int i = 0; i < count; i++) {
+			if (!(released.contains(i))) {
+				res.ordinals.put(res.ids[i], i);
+				res.tags[i] = TagIndex.getTagCodes(features.get(res.ids[i]));
+			}
+		}
+		
+		res.unindexed = CompressedBitmap.read(input);
+		
+		int postingCount = input.readInt();
+		for (int i = 0; i < postingCount; i++) {
+			int key   = keyMap[input.readInt()];
+			int value = valueMap[input.readInt()];
+			
+			res.postings.put(TagIndex.toPostingKey(key, value), CompressedBitmap.read(input));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * gives the number of indexed {@link Feature}s
+	 *
+	 * @return the number of indexed {@link Feature}s
+	 *
+	 * @since 0.2.0
+	 */
+	public synchronized int size() {
+		return this.ordinals.size();
+	}
+	
+	/**
+	 * selects the {@link Feature}s, which could match a where clause
+	 *
+	 * @param whereClause the where clause
+	 * @return the identifiers of all {@link Feature}s, which could match, or {@code null}, if the where clause doesn't
+	 * restrict the {@link Feature}s by a supported equality or {@code IN} predicate
+	 *
+	 * @see WhereClauseTranslator#parse(String)
+	 * @since 0.2.0
+	 */
+	public long[] select(String whereClause) {
+		List<List<Condition>> alternatives = WhereClauseTranslator.parse(whereClause);
+		
+		if (alternatives == null) {
+			return null;
+		}
+		
+		synchronized (this) {
+			CompressedBitmap matches = this.unindexed;
+			
+			for (List<Condition> conditions : alternatives) {
+				CompressedBitmap alternative = this.select(conditions);
+				
+				if (alternative == null) {
+					return null;
+				}
+				
+				matches = matches.or(alternative);
+			}
+			
+			int[]  selected = matches.toArray();
+			long[] res      = new long[selected.length];
+			for (int i = 0; i < selected.length; i++) {
+				res[i] = this.ids[selected[i]];
+			}
+			
+			return res;
+		}
+	}
+	
+	/**
+	 * selects the ordinals of the {@link Feature}s, which could match all {@link Condition}s
+	 *
+	 * @param conditions the {@link Condition}s
+	 * @return the ordinals or {@code null}, if no {@link Condition} is an equality
+	 *
+	 * @since 0.2.0
+	 */
+	private CompressedBitmap select(List<Condition> conditions) {
+		CompressedBitmap res = null;
+		
+		for (Condition condition : conditions) {
+			List<String> values = condition.getValues();
+			
+			if (values == null) {
+				continue;
+			}
+			
+			CompressedBitmap matches = new CompressedBitmap();
+			int              key     = this.dictionary.getFieldRegistry().getCode(condition.getKey());
+			if (key >= 0) {
+				OverpassField field = this.dictionary.getField(key);
+				
+				for (String value : values) {
+					Object           parsed  = field.parse(value);
+					int              code    = parsed == null ? -1 : this.dictionary.getValueCode(parsed);
+					CompressedBitmap posting = code < 0 ? null : this.postings.get(TagIndex.toPostingKey(key, code));
+					
+					if (posting != null) {
+						matches = matches.or(posting);
+					}
+				}
+			}
+			
+			res = res == null ? matches : res.and(matches);
+		}
+		
+		return res;
+	}
+}
@@ -0,0 +1,162 @@
+package de.conterra.babelfish.overpass.io;
+
+import de.conterra.babelfish.overpass.io.WhereClauseTranslator.Condition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the translation of where clauses by the {@link WhereClauseTranslator}
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class WhereClauseTranslatorTest {
+	/**
+	 * creates a where clause, which combines equalities on a key by {@code OR}
+	 *
+	 * @param key   the key to compare
+	 * @param count the number of alternatives
+	 * @return the where clause
+	 *
+	 * @since 0.2.0
+	 */
+	private static String alternatives(String key, int count) {
+		List<String> predicates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			predicates.add(key + " = '" + i + "'");
+		}
+		
+		return "(" + String.join(" OR ", predicates) + ")";
+	}
+	
+	/**
+	 * tests the translation of a single equality
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testEquality() {
+		assertEquals(Arrays.asList("[\"highway\"=\"primary\"]"), WhereClauseTranslator.translate("highway = 'primary'"));
+		assertEquals(Arrays.asList("[\"highway\"!=\"primary\"]"), WhereClauseTranslator.translate("highway <> 'primary'"));
+	}
+	
+	/**
+	 * tests, that blank, unsupported and untranslatable where clauses give no filter
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testUntranslatable() {
+		assertNull(WhereClauseTranslator.translate(null));
+		assertNull(WhereClauseTranslator.translate(" "));
+		assertNull(WhereClauseTranslator.translate("1 = 1"));
+		assertNull(WhereClauseTranslator.translate("highway = 'primary' OR lanes > 2"));
+		assertNull(WhereClauseTranslator.translate("\"osm:user\" = 'foo'"));
+		assertNull(WhereClauseTranslator.translate("width = '5'"));
+		assertNull(WhereClauseTranslator.translate("REGEXP(name, '\\d+')"));
+		assertNull(WhereClauseTranslator.translate("name = 'foo"));
+		assertNull(WhereClauseTranslator.translate("(name = 'foo'"));
+	}
+	
+	/**
+	 * tests the expansion of {@code OR} and {@code AND} to alternatives
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testExpansion() {
+		assertEquals(Arrays.asList("[\"highway\"=\"primary\"]", "[\"railway\"=\"rail\"]"), WhereClauseTranslator.translate("highway = 'primary' OR railway = 'rail'"));
+		assertEquals(Arrays.asList(
+				"[\"a\"=\"1\"][\"b\"=\"3\"]",
+				"[\"a\"=\"1\"][\"b\"=\"4\"]",
+				"[\"a\"=\"2\"][\"b\"=\"3\"]",
+				"[\"a\"=\"2\"][\"b\"=\"4\"]"
+		), WhereClauseTranslator.translate("(a = '1' OR a = '2') AND (b = '3' OR b = '4')"));
+		assertEquals(Arrays.asList("[\"highway\"=\"primary\"]"), WhereClauseTranslator.translate("lanes > 2 AND highway = 'primary' AND name IS NOT NULL"));
+	}
+	
+	/**
+	 * tests the limit of the alternatives by {@link WhereClauseTranslator#MAX_ALTERNATIVES}
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testMaxAlternatives() {
+		int max = WhereClauseTranslator.MAX_ALTERNATIVES;
+		
+		assertEquals(max, WhereClauseTranslator.translate(WhereClauseTranslatorTest.alternatives("a", max)).size());
+		assertNull(WhereClauseTranslator.translate(WhereClauseTranslatorTest.alternatives("a", max + 1)));
+		
+		List<List<Condition>> res = WhereClauseTranslator.parse(WhereClauseTranslatorTest.alternatives("a", max / 2 + 1) + " AND " + WhereClauseTranslatorTest.alternatives("b", 2));
+		assertEquals(max / 2 + 1, res.size());
+		for (List<Condition> conditions : res) {
+			assertEquals(1, conditions.size());
+			assertEquals("a", conditions.get(0).getKey());
+		}
+		
+		res = WhereClauseTranslator.parse("name IS NOT NULL AND " + WhereClauseTranslatorTest.alternatives("a", max / 2 + 1) + " AND " + WhereClauseTranslatorTest.alternatives("b", 2));
+		assertEquals(max / 2 + 1, res.size());
+	}
+	
+	/**
+	 * tests, that the {@code AND} of a {@code BETWEEN} predicate doesn't end the skipped predicate
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testBetween() {
+		assertEquals(Arrays.asList("[\"highway\"=\"primary\"]"), WhereClauseTranslator.translate("lanes BETWEEN 1 AND 3 AND highway = 'primary'"));
+		assertEquals(Arrays.asList("[\"highway\"=\"primary\"]"), WhereClauseTranslator.translate("highway = 'primary' AND (lanes NOT BETWEEN 1 AND 3)"));
+		assertNull(WhereClauseTranslator.translate("lanes BETWEEN 1 AND 3 OR highway = 'primary'"));
+	}
+	
+	/**
+	 * tests the escaping of quotes and backslashes in the Overpass QL strings
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testQuoting() {
+		List<String> filters = WhereClauseTranslator.translate("\"addr:street\" = 'O''Brien \"Lane\" \\'");
+		
+		assertEquals(Arrays.asList("[\"addr:street\"=\"O'Brien \\\"Lane\\\" \\\\\"]"), filters);
+		
+		Condition condition = Condition.fromFilter(filters.get(0));
+		assertEquals("addr:street", condition.getKey());
+		assertEquals("=", condition.getOperator());
+		assertEquals("O'Brien \"Lane\" \\", condition.getValue());
+	}
+	
+	/**
+	 * tests the escaping of regular expressions of {@code IN} and {@code LIKE} predicates
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testRegexEscaping() {
+		List<List<Condition>> res = WhereClauseTranslator.parse("ref IN ('A.1', 'B+2', '(C)')");
+		assertEquals(1, res.size());
+		
+		Condition condition = res.get(0).get(0);
+		assertEquals("~", condition.getOperator());
+		assertEquals("^(A\\.1|B\\+2|\\(C\\))$", condition.getValue());
+		assertEquals(Arrays.asList("A.1", "B+2", "(C)"), condition.getValues());
+		
+		condition = WhereClauseTranslator.parse("ref NOT IN ('A.1')").get(0).get(0);
+		assertEquals("!~", condition.getOperator());
+		assertNull(condition.getValues());
+		
+		condition = WhereClauseTranslator.parse("name LIKE 'St._%'").get(0).get(0);
+		assertEquals("~", condition.getOperator());
+		assertEquals("^St\\...*$", condition.getValue());
+		assertNull(condition.getValues());
+		
+		assertEquals(Arrays.asList("[\"ref\"~\"^(A\\\\.1)$\"]"), WhereClauseTranslator.translate("ref IN ('A.1')"));
+	}
+}
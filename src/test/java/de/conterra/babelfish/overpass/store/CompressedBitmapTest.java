@@ -0,0 +1,265 @@
+package de.conterra.babelfish.overpass.store;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the {@link CompressedBitmap} against a {@link TreeSet}, especially at the border between array and bitmap
+ * chunks and across several chunks
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class CompressedBitmapTest {
+	/**
+	 * the number of values of a chunk
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int CHUNK_SIZE = 1 << 16;
+	
+	/**
+	 * creates a {@link CompressedBitmap} and the {@link Set} of the same values
+	 *
+	 * @param expected the {@link Set} to add the values to
+	 * @param values   the values
+	 * @return the {@link CompressedBitmap}
+	 *
+	 * @since 0.2.0
+	 */
+	private static CompressedBitmap create(Set<Integer> expected, int... values) {
+		CompressedBitmap res = new CompressedBitmap();
+		
+		for (int value : values) {
+			assertEquals(expected.add(value), res.add(value));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * creates random values, which are spread over some chunks
+	 *
+	 * @param random the {@link Random} generator
+	 * @param chunk  the first chunk
+	 * @param counts the number of values per chunk, starting at {@code chunk}
+	 * @return the values
+	 *
+	 * @since 0.2.0
+	 */
+	private static int[] random(Random random, int chunk, int... counts) {
+		int total = 0;
+		for (int count : counts) {
+			total += count;
+		}
+		
+		int[] res = new int[total];
+		int   pos = 0;
+		for (int i = 0; i < counts.length; i++) {
+			for (int j = 0; j < counts[i]; j++) {
+				res[pos++] = (chunk + i) * CompressedBitmapTest.CHUNK_SIZE + random.nextInt(CompressedBitmapTest.CHUNK_SIZE);
+			}
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * checks, if a {@link CompressedBitmap} contains exactly the values of a {@link Set}
+	 *
+	 * @param expected the expected values
+	 * @param actual   the {@link CompressedBitmap} to check
+	 * @since 0.2.0
+	 */
+	private static void assertValues(Set<Integer> expected, CompressedBitmap actual) {
+		int[] values = new int[expected.size()];
+		int   pos    = 0;
+		for (int value : expected) {
+			values[pos++] = value;
+		}
+		
+		assertArrayEquals(values, actual.toArray());
+		assertEquals(expected.size(), actual.getCardinality());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+	}
+	
+	/**
+	 * tests adding and removing values, while a chunk is converted from an array to a bitmap and back
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testArrayLimit() {
+		Set<Integer>     expected = new TreeSet<>();
+		CompressedBitmap bitmap   = new CompressedBitmap();
+		int              base     = 3 * CompressedBitmapTest.CHUNK_SIZE;
+		
+		for (int i = 0; i < CompressedBitmap.ARRAY_LIMIT; i++) {
+			assertTrue(bitmap.add(base + 2 * i));
+			expected.add(base + 2 * i);
+		}
+		assertFalse(bitmap.add(base));
+		CompressedBitmapTest.assertValues(expected, bitmap);
+		
+		assertTrue(bitmap.add(base + 1));
+		expected.add(base + 1);
+		CompressedBitmapTest.assertValues(expected, bitmap);
+		assertTrue(bitmap.contains(base + 1));
+		assertFalse(bitmap.contains(base + 3));
+		
+		assertTrue(bitmap.remove(base + 2));
+		expected.remove(base + 2);
+		assertFalse(bitmap.remove(base + 2));
+		CompressedBitmapTest.assertValues(expected, bitmap);
+		assertFalse(bitmap.contains(base + 2));
+		
+		assertTrue(bitmap.add(base + 2));
+		expected.add(base + 2);
+		CompressedBitmapTest.assertValues(expected, bitmap);
+		
+		for (int value : new TreeSet<>(expected)) {
+			assertTrue(bitmap.remove(value));
+			expected.remove(value);
+		}
+		CompressedBitmapTest.assertValues(expected, bitmap);
+	}
+	
+	/**
+	 * tests values of several chunks, including the first and the last one
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testChunks() {
+		Set<Integer>     expected = new TreeSet<>();
+		CompressedBitmap bitmap   = CompressedBitmapTest.create(expected, Integer.MAX_VALUE, 0, CompressedBitmapTest.CHUNK_SIZE, CompressedBitmapTest.CHUNK_SIZE - 1, 5 * CompressedBitmapTest.CHUNK_SIZE + 7, 2 * CompressedBitmapTest.CHUNK_SIZE);
+		
+		CompressedBitmapTest.assertValues(expected, bitmap);
+		assertFalse(bitmap.contains(1));
+		assertFalse(bitmap.contains(4 * CompressedBitmapTest.CHUNK_SIZE + 7));
+		
+		assertTrue(bitmap.remove(CompressedBitmapTest.CHUNK_SIZE));
+		expected.remove(CompressedBitmapTest.CHUNK_SIZE);
+		CompressedBitmapTest.assertValues(expected, bitmap);
+	}
+	
+	/**
+	 * tests, that negative values are rejected
+	 *
+	 * @since 0.2.0
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegative() {
+		new CompressedBitmap().add(-1);
+	}
+	
+	/**
+	 * tests the intersection and union of array and bitmap chunks in all combinations and of chunks, which are only
+	 * contained in one of the bitmaps
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testSetOperations() {
+		Random  random = new Random(42);
+		int     limit  = CompressedBitmap.ARRAY_LIMIT;
+		int[][] counts = {
+				{100, limit * 4, 0, limit - 50, limit * 8, 3000},
+				{limit * 4, 200, limit * 2, 0, limit * 8, 3000},
+				{0},
+				{limit, limit + 1}
+		};
+		
+		for (int[] leftCounts : counts) {
+			for (int[] rightCounts : counts) {
+				Set<Integer>     left        = new TreeSet<>();
+				Set<Integer>     right       = new TreeSet<>();
+				CompressedBitmap leftBitmap  = CompressedBitmapTest.create(left, CompressedBitmapTest.random(random, 1, leftCounts));
+				CompressedBitmap rightBitmap = CompressedBitmapTest.create(right, CompressedBitmapTest.random(random, 2, rightCounts));
+				
+				Set<Integer> and = new TreeSet<>(left);
+				and.retainAll(right);
+				Set<Integer> or = new TreeSet<>(left);
+				or.addAll(right);
+				
+				CompressedBitmapTest.assertValues(and, leftBitmap.and(rightBitmap));
+				CompressedBitmapTest.assertValues(and, rightBitmap.and(leftBitmap));
+				CompressedBitmapTest.assertValues(or, leftBitmap.or(rightBitmap));
+				CompressedBitmapTest.assertValues(or, rightBitmap.or(leftBitmap));
+				CompressedBitmapTest.assertValues(left, leftBitmap);
+				CompressedBitmapTest.assertValues(right, rightBitmap);
+			}
+		}
+	}
+	
+	/**
+	 * tests, that the union of two array chunks gets a bitmap chunk, if it exceeds {@link CompressedBitmap#ARRAY_LIMIT}
+	 * values, and that it could be changed afterwards
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testUnionAtLimit() {
+		Set<Integer> even       = new TreeSet<>();
+		Set<Integer> odd        = new TreeSet<>();
+		int[]        evenValues = new int[CompressedBitmap.ARRAY_LIMIT / 2 + 1];
+		int[]        oddValues  = new int[CompressedBitmap.ARRAY_LIMIT / 2];
+		for (int i = 0; i < evenValues.length; i++) {
+			evenValues[i] = 2 * i;
+		}
+		for (int i = 0; i < oddValues.length; i++) {
+			oddValues[i] = 2 * i + 1;
+		}
+		
+		CompressedBitmap evenBitmap = CompressedBitmapTest.create(even, evenValues);
+		CompressedBitmap oddBitmap  = CompressedBitmapTest.create(odd, oddValues);
+		
+		Set<Integer> expected = new TreeSet<>(even);
+		expected.addAll(odd);
+		CompressedBitmap union = evenBitmap.or(oddBitmap);
+		CompressedBitmapTest.assertValues(expected, union);
+		assertEquals(CompressedBitmap.ARRAY_LIMIT + 1, union.getCardinality());
+		
+		assertTrue(union.remove(0));
+		expected.remove(0);
+		CompressedBitmapTest.assertValues(expected, union);
+		CompressedBitmapTest.assertValues(expected, union.and(union));
+		assertTrue(union.and(new CompressedBitmap()).isEmpty());
+	}
+	
+	/**
+	 * tests writing and reading array and bitmap chunks
+	 *
+	 * @throws IOException if the bitmap couldn't be written or read
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testSerialization()
+	throws IOException {
+		Set<Integer>     expected = new TreeSet<>();
+		CompressedBitmap bitmap   = CompressedBitmapTest.create(expected, CompressedBitmapTest.random(new Random(7), 0, 10, CompressedBitmap.ARRAY_LIMIT * 3, 0, CompressedBitmap.ARRAY_LIMIT));
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			bitmap.write(output);
+		}
+		
+		try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			CompressedBitmap read = CompressedBitmap.read(input);
+			
+			CompressedBitmapTest.assertValues(expected, read);
+			assertEquals(-1, input.read());
+			
+			assertTrue(read.add(CompressedBitmap.ARRAY_LIMIT * 10));
+			expected.add(CompressedBitmap.ARRAY_LIMIT * 10);
+			CompressedBitmapTest.assertValues(expected, read);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package de.conterra.babelfish.overpass.store;
+
+import de.conterra.babelfish.overpass.io.OverpassHandler;
+import de.conterra.babelfish.plugin.v10_02.object.geometry.Point;
+import org.junit.Before;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the selection of {@link Node} features by the {@link TagIndex}
+ *
+ * @author ChrissW-R1
+ * @version 0.2.0
+ * @since 0.2.0
+ */
+public class TagIndexTest {
+	/**
+	 * the number of {@link Node}s
+	 *
+	 * @since 0.2.0
+	 */
+	private static final int COUNT = 10000;
+	
+	/**
+	 * the {@link AttributeDictionary} of the features
+	 *
+	 * @since 0.2.0
+	 */
+	private AttributeDictionary dictionary;
+	/**
+	 * the tested {@link TagIndex}
+	 *
+	 * @since 0.2.0
+	 */
+	private TagIndex            index;
+	
+	/**
+	 * creates the features of the {@link Node}s with identifiers from {@code 1} to {@link #COUNT}<br>
+	 * Even {@link Node}s are primary highways, odd ones are residential, and every {@link Node} has its identifier as
+	 * reference.
+	 *
+	 * @param ids the identifiers of the {@link Node}s to create
+	 * @return the features by their keys
+	 *
+	 * @since 0.2.0
+	 */
+	private Map<? extends Long, ? extends CompactFeature<Point>> createFeatures(Collection<Long> ids) {
+		Map<Long, Entity> entities = new HashMap<>();
+		
+		for (long id : ids) {
+			List<Tag> tags = new ArrayList<>();
+			tags.add(new Tag("highway", id % 2 == 0 ? "primary" : "residential"));
+			tags.add(new Tag("ref", "R" + id));
+			
+			Node node = new Node(new CommonEntityData(id, 1, new Date(0), OsmUser.NONE, 1, tags), id / 100.0, id / 100.0);
+			entities.put(OverpassHandler.getKey(node), node);
+		}
+		
+		@SuppressWarnings("unchecked")
+		Map<? extends Long, ? extends CompactFeature<Point>> res = (Map<? extends Long, ? extends CompactFeature<Point>>) FeatureConverter.convert(Point.class, entities, this.dictionary);
+		return res;
+	}
+	
+	/**
+	 * gives the identifiers from {@code from} to {@code to} with a step
+	 *
+	 * @param from the first identifier
+	 * @param to   the last identifier (inclusive)
+	 * @param step the difference between the identifiers
+	 * @return the identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	private static Set<Long> range(long from, long to, long step) {
+		Set<Long> res = new TreeSet<>();
+		for (long id = from; id <= to; id += step) {
+			res.add(id);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * converts the selected identifiers to a sorted {@link Set}
+	 *
+	 * @param ids the selected identifiers
+	 * @return the {@link Set} of the identifiers
+	 *
+	 * @since 0.2.0
+	 */
+	private static Set<Long> toSet(long[] ids) {
+		assertNotNull(ids);
+		
+		Set<Long> res = new TreeSet<>();
+		for (long id : ids) {
+			assertTrue(res.add(id));
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * indexes the features of all {@link Node}s
+	 *
+	 * @since 0.2.0
+	 */
+	@Before
+	public void setUp() {
+		this.dictionary = new AttributeDictionary();
+		this.index = new TagIndex(this.dictionary);
+		this.index.addAll(this.createFeatures(TagIndexTest.range(1, TagIndexTest.COUNT, 1)));
+	}
+	
+	/**
+	 * tests the selection by equalities and {@code IN} predicates
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testSelect() {
+		assertEquals(TagIndexTest.COUNT, this.index.size());
+		
+		assertEquals(TagIndexTest.range(2, TagIndexTest.COUNT, 2), TagIndexTest.toSet(this.index.select("highway = 'primary'")));
+		assertEquals(TagIndexTest.range(1, TagIndexTest.COUNT, 1), TagIndexTest.toSet(this.index.select("highway IN ('primary', 'residential')")));
+		assertEquals(Collections.singleton(42L), TagIndexTest.toSet(this.index.select("highway = 'primary' AND ref = 'R42'")));
+		assertEquals(new TreeSet<>(Arrays.asList(42L, 43L)), TagIndexTest.toSet(this.index.select("ref = 'R42' OR ref = 'R43'")));
+		assertEquals(Collections.singleton(43L), TagIndexTest.toSet(this.index.select("ref IN ('R42', 'R43') AND highway = 'residential' AND ref LIKE 'R4%'")));
+		assertTrue(TagIndexTest.toSet(this.index.select("highway = 'primary' AND ref = 'R43'")).isEmpty());
+		assertTrue(TagIndexTest.toSet(this.index.select("highway = 'motorway'")).isEmpty());
+		assertTrue(TagIndexTest.toSet(this.index.select("name = 'R42'")).isEmpty());
+	}
+	
+	/**
+	 * tests, that where clauses without a supported equality don't restrict the features
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testUnrestricted() {
+		assertNull(this.index.select(null));
+		assertNull(this.index.select("ref LIKE 'R4%'"));
+		assertNull(this.index.select("highway <> 'primary'"));
+		assertNull(this.index.select("highway = 'primary' OR ref LIKE 'R4%'"));
+	}
+	
+	/**
+	 * tests, that removed features aren't selected anymore and that added features are selected, while they get the
+	 * released ordinals
+	 *
+	 * @since 0.2.0
+	 */
+	@Test
+	public void testUpdate() {
+		Set<Long> removed = TagIndexTest.range(2, TagIndexTest.COUNT, 4);
+		this.index.removeAll(removed);
+		
+		Set<Long> expected = TagIndexTest.range(2, TagIndexTest.COUNT, 2);
+		expected.removeAll(removed);
+		assertEquals(TagIndexTest.COUNT - removed.size(), this.index.size());
+		assertEquals(expected, TagIndexTest.toSet(this.index.select("highway = 'primary'")));
+		
+		Set<Long> added = TagIndexTest.range(TagIndexTest.COUNT + 2, TagIndexTest.COUNT + 200, 2);
+		this.index.addAll(this.createFeatures(added));
+		this.index.addAll(this.createFeatures(Collections.singleton(6L)));
+		expected.addAll(added);
+		expected.add(6L);
+		assertEquals(TagIndexTest.COUNT - removed.size() + added.size() + 1, this.index.size());
+		assertEquals(expected, TagIndexTest.toSet(this.index.select("highway = 'primary'")));
+		assertEquals(Collections.singleton(TagIndexTest.COUNT + 2L), TagIndexTest.toSet(this.index.select("ref = 'R" + (TagIndexTest.COUNT + 2) + "'")));
+		
+		this.index.clear();
+		assertEquals(0, this.index.size());
+		assertTrue(TagIndexTest.toSet(this.index.select("highway = 'primary'")).isEmpty());
+	}
+}